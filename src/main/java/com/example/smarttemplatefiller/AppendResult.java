@@ -15,25 +15,27 @@ public class AppendResult {
     private final String targetFilePath;
     private final List<String> warnings;
     private final String errorMessage;
+    private final boolean rowLimitExceeded;
 
     /**
      * Private constructor - use factory methods.
      */
     private AppendResult(boolean success, int rowsAdded, int rowOffset,
-            String targetFilePath, List<String> warnings, String errorMessage) {
+            String targetFilePath, List<String> warnings, String errorMessage, boolean rowLimitExceeded) {
         this.success = success;
         this.rowsAdded = rowsAdded;
         this.rowOffset = rowOffset;
         this.targetFilePath = targetFilePath;
         this.warnings = warnings != null ? new ArrayList<>(warnings) : new ArrayList<>();
         this.errorMessage = errorMessage;
+        this.rowLimitExceeded = rowLimitExceeded;
     }
 
     /**
      * Create a successful result.
      */
     public static AppendResult success(int rowsAdded, int rowOffset, String targetFilePath) {
-        return new AppendResult(true, rowsAdded, rowOffset, targetFilePath, new ArrayList<>(), null);
+        return new AppendResult(true, rowsAdded, rowOffset, targetFilePath, new ArrayList<>(), null, false);
     }
 
     /**
@@ -41,21 +43,30 @@ public class AppendResult {
      */
     public static AppendResult successWithWarnings(int rowsAdded, int rowOffset,
             String targetFilePath, List<String> warnings) {
-        return new AppendResult(true, rowsAdded, rowOffset, targetFilePath, warnings, null);
+        return new AppendResult(true, rowsAdded, rowOffset, targetFilePath, warnings, null, false);
     }
 
     /**
      * Create a failure result.
      */
     public static AppendResult failure(String errorMessage) {
-        return new AppendResult(false, 0, 0, null, new ArrayList<>(), errorMessage);
+        return new AppendResult(false, 0, 0, null, new ArrayList<>(), errorMessage, false);
     }
 
     /**
      * Create a failure result with partial info.
      */
     public static AppendResult failure(String errorMessage, String targetFilePath) {
-        return new AppendResult(false, 0, 0, targetFilePath, new ArrayList<>(), errorMessage);
+        return new AppendResult(false, 0, 0, targetFilePath, new ArrayList<>(), errorMessage, false);
+    }
+
+    /**
+     * Create a failure result for data that does not fit below the target's
+     * existing rows. Nothing was written.
+     */
+    public static AppendResult rowLimitExceeded(int rowOffset, int rowLimit, String targetFilePath) {
+        return new AppendResult(false, 0, rowOffset, targetFilePath, new ArrayList<>(),
+                "Row limit of " + rowLimit + " reached at row " + rowOffset + "; nothing was appended", true);
     }
 
     // Getters
@@ -84,6 +95,14 @@ public class AppendResult {
         return errorMessage;
     }
 
+    /**
+     * True if the append failed because the target is full; the data
+     * belongs in a new target.
+     */
+    public boolean isRowLimitExceeded() {
+        return rowLimitExceeded;
+    }
+
     public boolean hasWarnings() {
         return !warnings.isEmpty();
     }
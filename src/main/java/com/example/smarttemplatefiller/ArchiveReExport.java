@@ -0,0 +1,582 @@
+package com.example.smarttemplatefiller;
+
+import com.example.smarttemplatefiller.engine.ArchiveIndex;
+import com.example.smarttemplatefiller.engine.MappingPlan;
+import com.example.smarttemplatefiller.engine.OutputFiles;
+import com.example.smarttemplatefiller.parser.ParseOptions;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Converts archived sources again with a (changed) mapping. Running Mode
+ * moves every processed file to "&lt;output&gt;/&lt;mapping&gt;/&lt;timestamp&gt;/archive";
+ * this job walks such a tree, selects sources by the mapping they were
+ * archived under, the day they were processed and a file name pattern,
+ * and converts them on a pool of workers. Sources collected into daily
+ * zip archives ("&lt;output&gt;/&lt;mapping&gt;/archive/&lt;yyyy-MM-dd&gt;_001.zip",
+ * see {@link com.example.smarttemplatefiller.engine.SourceArchiver}) are
+ * selected through the archives' indexes and extracted one at a time.
+ *
+ * With the {@link ReExportConfig#SEPARATE} strategy every source gets its
+ * own output and all sources run in parallel. With
+ * {@link ReExportConfig#APPEND} and {@link ReExportConfig#DAILY} the
+ * sources of one target are appended oldest first by one worker, while
+ * different days run in parallel.
+ *
+ * Every converted source is recorded in a journal,
+ * "&lt;output folder&gt;/.reexport/&lt;job name&gt;.done", so a job that was
+ * stopped or failed continues with the sources it did not convert yet.
+ */
+public class ArchiveReExport {
+
+    static final String ARCHIVE_FOLDER = "archive";
+    static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd_HHmmss");
+    private static final Pattern SHIFT_FOLDER = Pattern.compile("\\d{4}-\\d{2}-\\d{2}_\\d{4}");
+    private static final Pattern ARCHIVE_PART = Pattern.compile("\\d{4}-\\d{2}-\\d{2}_\\d{3}\\.zip");
+    private static final String JOURNAL_FOLDER = ".reexport";
+    private static final long REPORT_INTERVAL_MILLIS = 2000;
+
+    private final ReExportConfig config;
+    private final Consumer<String> logCallback;
+    private volatile boolean cancelled;
+
+    // Progress of the running job
+    private final AtomicInteger converted = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong bytes = new AtomicLong();
+    private long startNanos;
+    private long lastReport;
+    private int lastReported;
+    private int total;
+
+    /** One archived source selected for the job. */
+    public static final class Source {
+        private final Path file;
+        private final String entry;
+        private final String key;
+        private final String mappingName;
+        private final String folder;
+        private final LocalDateTime processed;
+        private final long size;
+
+        Source(Path file, String key, String mappingName, String folder, LocalDateTime processed, long size) {
+            this(file, null, key, mappingName, folder, processed, size);
+        }
+
+        Source(Path file, String entry, String key, String mappingName, String folder, LocalDateTime processed,
+                long size) {
+            this.file = file;
+            this.entry = entry;
+            this.key = key;
+            this.mappingName = mappingName;
+            this.folder = folder;
+            this.processed = processed;
+            this.size = size;
+        }
+
+        /** The source, or the zip archive that holds it. */
+        public Path getFile() {
+            return file;
+        }
+
+        /** The source's name, also when it is an entry of a zip archive. */
+        public String getName() {
+            return entry != null ? entry.substring(entry.lastIndexOf('/') + 1) : file.getFileName().toString();
+        }
+
+        /** Path below the archive folder, with "/" separators; the journal's key. */
+        public String getKey() {
+            return key;
+        }
+
+        /** The mapping the source was archived under, or null if its folder does not tell. */
+        public String getMappingName() {
+            return mappingName;
+        }
+
+        /** When the source was processed: its timestamp folder, else its modification time. */
+        public LocalDateTime getProcessed() {
+            return processed;
+        }
+    }
+
+    /** Counts of a finished (or cancelled) job. */
+    public static final class Summary {
+        private final int selected;
+        private final int skipped;
+        private final int converted;
+        private final int failed;
+        private final long bytes;
+        private final long elapsedMillis;
+
+        Summary(int selected, int skipped, int converted, int failed, long bytes, long elapsedMillis) {
+            this.selected = selected;
+            this.skipped = skipped;
+            this.converted = converted;
+            this.failed = failed;
+            this.bytes = bytes;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public int getSelected() {
+            return selected;
+        }
+
+        /** Sources the journal listed as converted by an earlier run. */
+        public int getSkipped() {
+            return skipped;
+        }
+
+        public int getConverted() {
+            return converted;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return converted + " converted, " + failed + " failed, " + skipped + " already done of "
+                    + selected + " selected in " + formatDuration(elapsedMillis)
+                    + " (" + throughput(converted, bytes, elapsedMillis) + ")";
+        }
+    }
+
+    public ArchiveReExport(ReExportConfig config, Consumer<String> logCallback) {
+        this.config = config;
+        this.logCallback = logCallback;
+    }
+
+    /** Stop after the sources being converted; the journal lets a later run continue. */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Select and convert the sources.
+     *
+     * @throws IOException if the configuration, the mapping or the journal is not usable
+     */
+    public Summary run() throws IOException, InterruptedException {
+        if (config.getArchiveFolder() == null || !new File(config.getArchiveFolder()).isDirectory()) {
+            throw new IOException("Archive folder not found: " + config.getArchiveFolder());
+        }
+        if (config.getMappingFile() == null || config.getOutputFolder() == null) {
+            throw new IOException("A re-export needs a mapping file and an output folder");
+        }
+        String strategy;
+        try {
+            strategy = config.resolveStrategy();
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+        File mappingFile = new File(config.getMappingFile());
+        MappingPlan plan = MappingPlan.compile(mappingFile, 1, ParseOptions.forMapping(mappingFile));
+        Path outputFolder = Paths.get(config.getOutputFolder());
+
+        List<Source> sources = select();
+        Path journalFile = outputFolder.resolve(JOURNAL_FOLDER).resolve(config.resolveName() + ".done");
+        Set<String> done = readJournal(journalFile);
+        List<Source> pending = new ArrayList<>();
+        for (Source source : sources) {
+            if (!done.contains(source.key)) {
+                pending.add(source);
+            }
+        }
+        int skipped = sources.size() - pending.size();
+        log("Re-export " + config.resolveName() + ": " + sources.size() + " sources selected"
+                + (skipped > 0 ? ", " + skipped + " already done" : "") + " (" + strategy + ", mapping " + plan + ")");
+
+        // Sources of one target are appended in order by one worker; targets run in parallel
+        String extension = plan.outputOptions(config.getOutput()).resolveFormat().getExtension();
+        String mappingName = mappingFile.getName().replace(".json", "");
+        boolean append = !strategy.equals(ReExportConfig.SEPARATE);
+        Map<File, List<Source>> groups = new LinkedHashMap<>();
+        Set<File> separateTargets = new HashSet<>();
+        // All selected sources, so a source keeps its output name when a stopped job continues
+        for (Source source : sources) {
+            File target = targetFor(source, strategy, outputFolder, mappingName, extension);
+            if (!append) {
+                // Sources of the same name and time, e.g. "a.txt" and "a.asc", get their own output
+                File first = target;
+                for (int n = 2; !separateTargets.add(target); n++) {
+                    target = new File(first.getParentFile(), OutputFiles.withSuffix(first.getName(), n));
+                }
+            }
+            if (!done.contains(source.key)) {
+                groups.computeIfAbsent(target, k -> new ArrayList<>()).add(source);
+            }
+        }
+
+        total = pending.size();
+        converted.set(0);
+        failed.set(0);
+        bytes.set(0);
+        startNanos = System.nanoTime();
+        lastReport = 0;
+        lastReported = 0;
+        int workers = config.getWorkers() != null && config.getWorkers() > 0
+                ? config.getWorkers() : Runtime.getRuntime().availableProcessors();
+        Files.createDirectories(journalFile.getParent());
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(workers, groups.size())));
+        try (BufferedWriter journal = Files.newBufferedWriter(journalFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Map.Entry<File, List<Source>> group : groups.entrySet()) {
+                futures.add(pool.submit(() -> convertGroup(plan, group.getKey(), group.getValue(), append, journal)));
+            }
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                throw new IOException("Re-export failed: " + e.getCause(), e.getCause());
+            } catch (InterruptedException e) {
+                cancel();
+                throw e;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Summary summary = new Summary(sources.size(), skipped, converted.get(), failed.get(), bytes.get(),
+                (System.nanoTime() - startNanos) / 1_000_000);
+        log("Re-export " + (cancelled ? "stopped: " : "finished: ") + summary);
+        return summary;
+    }
+
+    /**
+     * The archived sources that match the job's mapping names, date range
+     * and pattern, oldest first.
+     */
+    public List<Source> select() throws IOException {
+        Path root = Paths.get(config.getArchiveFolder()).toAbsolutePath().normalize();
+        List<PathMatcher> patterns = new ArrayList<>();
+        for (String pattern : config.getFilePattern().split(",")) {
+            pattern = pattern.trim();
+            if (!pattern.isEmpty()) {
+                patterns.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern.toLowerCase()));
+            }
+        }
+        Set<String> mappingNames = new HashSet<>();
+        for (String name : config.getMappings()) {
+            mappingNames.add(name.replace(".json", "").toLowerCase());
+        }
+        LocalDate from = config.resolveFrom();
+        LocalDate to = config.resolveTo();
+
+        List<Source> sources = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Path parent = file.getParent();
+                if (parent == null || !parent.getFileName().toString().equalsIgnoreCase(ARCHIVE_FOLDER)
+                        || !Files.isRegularFile(file)) {
+                    continue;
+                }
+                String fileName = file.getFileName().toString();
+                List<Source> found = new ArrayList<>();
+                if (fileName.endsWith(ArchiveIndex.INDEX_SUFFIX)) {
+                    found.addAll(describeArchived(root, file));
+                } else if (!ARCHIVE_PART.matcher(fileName).matches()) {
+                    found.add(describe(root, file));
+                }
+                for (Source source : found) {
+                    if (!matches(patterns, source.getName())) {
+                        continue;
+                    }
+                    if (!mappingNames.isEmpty()
+                            && (source.mappingName == null || !mappingNames.contains(source.mappingName.toLowerCase()))) {
+                        continue;
+                    }
+                    LocalDate day = source.processed.toLocalDate();
+                    if ((from != null && day.isBefore(from)) || (to != null && day.isAfter(to))) {
+                        continue;
+                    }
+                    sources.add(source);
+                }
+            }
+        }
+        sources.sort(Comparator.comparing((Source s) -> s.processed).thenComparing(s -> s.key));
+        return sources;
+    }
+
+    private static boolean matches(List<PathMatcher> patterns, String fileName) {
+        Path name = Paths.get(fileName.toLowerCase());
+        for (PathMatcher pattern : patterns) {
+            if (pattern.matches(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mapping name and processing time from the folders around "archive":
+     * "&lt;mapping&gt;/&lt;yyyy-MM-dd_HHmmss&gt;/archive/&lt;file&gt;". Sources archived
+     * next to an append target, or in a daily, shift or flat output layout,
+     * have no timestamp folder; their modification time (kept by the move
+     * into the archive) is used. The daily and shift folders still tell
+     * the mapping.
+     */
+    private static Source describe(Path root, Path file) throws IOException {
+        String key = root.relativize(file).toString().replace(File.separatorChar, '/');
+        long size = Files.size(file);
+        Path timestampFolder = file.getParent().getParent();
+        if (timestampFolder != null && timestampFolder.getFileName() != null) {
+            String folder = timestampFolder.getFileName().toString();
+            try {
+                LocalDateTime processed = LocalDateTime.parse(folder, TIMESTAMP);
+                Path mappingFolder = timestampFolder.getParent();
+                String mappingName = mappingFolder != null && mappingFolder.getFileName() != null
+                        ? mappingFolder.getFileName().toString() : null;
+                return new Source(file, key, mappingName, folder, processed, size);
+            } catch (DateTimeParseException e) {
+                // Not a timestamp folder
+            }
+        }
+        LocalDateTime modified = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(Files.getLastModifiedTime(file).toMillis()), ZoneId.systemDefault());
+        return new Source(file, key, layoutMappingName(timestampFolder), null, modified, size);
+    }
+
+    /** The mapping of "&lt;mapping&gt;/&lt;yyyy&gt;/&lt;MM&gt;/&lt;dd&gt;" or "&lt;mapping&gt;/&lt;yyyy-MM-dd&gt;_&lt;HHmm&gt;", else null. */
+    private static String layoutMappingName(Path folder) {
+        Path mappingFolder = null;
+        if (folder != null && folder.getFileName() != null) {
+            if (SHIFT_FOLDER.matcher(folder.getFileName().toString()).matches()) {
+                mappingFolder = folder.getParent();
+            } else if (folder.getFileName().toString().matches("\\d{2}") && folder.getParent() != null
+                    && folder.getParent().getFileName().toString().matches("\\d{2}")
+                    && folder.getParent().getParent() != null
+                    && folder.getParent().getParent().getFileName().toString().matches("\\d{4}")) {
+                mappingFolder = folder.getParent().getParent().getParent();
+            }
+        }
+        return mappingFolder != null && mappingFolder.getFileName() != null ? mappingFolder.getFileName().toString() : null;
+    }
+
+    /**
+     * The sources a day's index lists, each an entry
+     * "&lt;yyyy-MM-dd_HHmmss&gt;/&lt;name&gt;" of a zip part in
+     * "&lt;mapping&gt;/archive"; their key is "&lt;part path&gt;!/&lt;entry&gt;".
+     */
+    private static List<Source> describeArchived(Path root, Path indexFile) throws IOException {
+        File archiveFolder = indexFile.getParent().toFile();
+        String day = indexFile.getFileName().toString();
+        day = day.substring(0, day.length() - ArchiveIndex.INDEX_SUFFIX.length());
+        Path mappingFolder = indexFile.getParent().getParent();
+        String mappingName = mappingFolder != null && mappingFolder.getFileName() != null
+                ? mappingFolder.getFileName().toString() : null;
+        List<Source> sources = new ArrayList<>();
+        for (ArchiveIndex.Entry entry : ArchiveIndex.load(indexFile.toFile()).getEntries()) {
+            Path part = ArchiveIndex.partFileFor(archiveFolder, day, entry.getPart()).toPath();
+            String folder = entry.getName().substring(0, Math.max(0, entry.getName().indexOf('/')));
+            LocalDateTime processed;
+            try {
+                processed = LocalDateTime.parse(folder, TIMESTAMP);
+            } catch (DateTimeParseException e) {
+                processed = LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.getArchivedAt()), ZoneId.systemDefault());
+                folder = null;
+            }
+            String key = root.relativize(part).toString().replace(File.separatorChar, '/') + "!/" + entry.getName();
+            sources.add(new Source(part, entry.getName(), key, mappingName, folder, processed, entry.getSize()));
+        }
+        return sources;
+    }
+
+    /**
+     * separate: "&lt;output&gt;/&lt;mapping&gt;/&lt;source's mapping&gt;/&lt;source's timestamp&gt;/&lt;source name&gt;",
+     * without the source's mapping if its folder does not tell;
+     * daily: "&lt;output&gt;/&lt;mapping&gt;/&lt;yyyy-MM-dd&gt;"; append: the append target.
+     */
+    private File targetFor(Source source, String strategy, Path outputFolder, String mappingName, String extension) {
+        switch (strategy) {
+            case ReExportConfig.APPEND:
+                String target = config.getAppendTarget() != null && !config.getAppendTarget().isEmpty()
+                        ? config.getAppendTarget() : mappingName + "_reexport" + extension;
+                return outputFolder.resolve(target).toFile();
+            case ReExportConfig.DAILY:
+                return outputFolder.resolve(mappingName).resolve(source.processed.toLocalDate() + extension).toFile();
+            default:
+                String fileName = source.getName();
+                int dot = fileName.lastIndexOf('.');
+                String baseName = dot > 0 ? fileName.substring(0, dot) : fileName;
+                String folder = source.folder != null ? source.folder : TIMESTAMP.format(source.processed);
+                // Sources of different mappings can share a timestamp and a name
+                Path mappingFolder = outputFolder.resolve(mappingName);
+                if (source.mappingName != null) {
+                    mappingFolder = mappingFolder.resolve(source.mappingName);
+                }
+                return mappingFolder.resolve(folder).resolve(baseName + extension).toFile();
+        }
+    }
+
+    private void convertGroup(MappingPlan plan, File target, List<Source> sources, boolean append,
+            BufferedWriter journal) {
+        for (Source source : sources) {
+            if (cancelled || Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            String error;
+            try {
+                Files.createDirectories(target.getAbsoluteFile().getParentFile().toPath());
+                FanOutExport.Job job = append
+                        ? FanOutExport.Job.appendOrCreate(plan.getMappingFile(), plan.getParseOptions(), config.getOutput(), target)
+                        : FanOutExport.Job.create(plan.getMappingFile(), plan.getParseOptions(), config.getOutput(), target);
+                FanOutExport.Outcome outcome;
+                if (source.entry == null) {
+                    outcome = FanOutExport.run(source.file.toFile(), List.of(job.withPlan(plan)), null).get(0);
+                } else {
+                    // Parsed from a copy with its original name, removed again right after
+                    Path extracted = extract(source);
+                    try {
+                        outcome = FanOutExport.run(extracted.toFile(), List.of(job.withPlan(plan)), null).get(0);
+                    } finally {
+                        Files.deleteIfExists(extracted);
+                        Files.deleteIfExists(extracted.getParent());
+                    }
+                }
+                error = outcome.isSuccess() ? null : outcome.getErrorMessage();
+            } catch (IOException e) {
+                error = e.getMessage();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (error == null) {
+                try {
+                    record(journal, source.key);
+                } catch (IOException e) {
+                    log("WARNING: Could not record " + source.key + " in the journal: " + e.getMessage());
+                }
+                converted.incrementAndGet();
+                bytes.addAndGet(source.size);
+            } else {
+                failed.incrementAndGet();
+                log("ERROR: " + source.key + ": " + error);
+            }
+            reportProgress();
+        }
+    }
+
+    private static Path extract(Source source) throws IOException {
+        try (ZipFile zip = new ZipFile(source.file.toFile())) {
+            ZipArchiveEntry entry = zip.getEntry(source.entry);
+            if (entry == null) {
+                throw new IOException(source.entry + " is not in " + source.file.getFileName());
+            }
+            Path extracted = Files.createTempDirectory("reexport").resolve(source.getName());
+            try (InputStream in = zip.getInputStream(entry)) {
+                Files.copy(in, extracted);
+            }
+            return extracted;
+        }
+    }
+
+    private static Set<String> readJournal(Path journalFile) throws IOException {
+        Set<String> done = new HashSet<>();
+        if (Files.isRegularFile(journalFile)) {
+            // A line cut by a crash names no source and is ignored
+            done.addAll(Files.readAllLines(journalFile, StandardCharsets.UTF_8));
+        }
+        return done;
+    }
+
+    private static void record(BufferedWriter journal, String key) throws IOException {
+        synchronized (journal) {
+            journal.write(key);
+            journal.newLine();
+            journal.flush();
+        }
+    }
+
+    /** Log progress and throughput, at most every {@link #REPORT_INTERVAL_MILLIS}. */
+    private synchronized void reportProgress() {
+        long now = System.currentTimeMillis();
+        int finished = converted.get() + failed.get();
+        if (finished == lastReported || (finished < total && now - lastReport < REPORT_INTERVAL_MILLIS)) {
+            return;
+        }
+        lastReport = now;
+        lastReported = finished;
+        long elapsed = (System.nanoTime() - startNanos) / 1_000_000;
+        StringBuilder line = new StringBuilder("Re-export: ").append(finished).append('/').append(total)
+                .append(" (").append(total > 0 ? finished * 100 / total : 100).append("%)");
+        if (failed.get() > 0) {
+            line.append(", ").append(failed.get()).append(" failed");
+        }
+        line.append(", ").append(throughput(converted.get(), bytes.get(), elapsed));
+        if (finished > 0 && finished < total) {
+            line.append(", about ").append(formatDuration(elapsed * (total - finished) / finished)).append(" left");
+        }
+        log(line.toString());
+    }
+
+    private static String throughput(int files, long bytes, long elapsedMillis) {
+        double seconds = Math.max(elapsedMillis, 1) / 1000.0;
+        return String.format("%.1f files/s, %.1f MB/s", files / seconds, bytes / seconds / (1024 * 1024));
+    }
+
+    private static String formatDuration(long millis) {
+        long seconds = millis / 1000;
+        if (seconds < 60) {
+            return seconds + "s";
+        }
+        if (seconds < 3600) {
+            return seconds / 60 + "m" + String.format("%02d", seconds % 60) + "s";
+        }
+        return seconds / 3600 + "h" + String.format("%02d", seconds % 3600 / 60) + "m";
+    }
+
+    private void log(String message) {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
+        String logMessage = timestamp + " - " + message;
+        if (logCallback != null) {
+            logCallback.accept(logMessage);
+        }
+        System.out.println("[ArchiveReExport] " + logMessage);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.smarttemplatefiller;
+
+import com.example.smarttemplatefiller.engine.DecimalParser;
+import com.example.smarttemplatefiller.engine.OutputOptions;
+import com.example.smarttemplatefiller.mapping.CellValueType;
+import com.example.smarttemplatefiller.mapping.StringStorage;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTCell;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.CTRst;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes source values into cells according to a mapping's settings:
+ * numeric or text ("valueType") and, for text, shared-strings table or
+ * inline string ("stringStorage"). One instance serves one workbook.
+ */
+class CellValueWriter {
+
+    // AUTO storage samples this many source rows to estimate cardinality
+    private static final int CARDINALITY_SAMPLE_ROWS = 2048;
+    private static final int MIN_SAMPLE_VALUES = 32;
+
+    private final Workbook workbook;
+    private final StringStorage defaultStorage;
+    private final Map<Integer, CellStyle> decimalStyles = new HashMap<>();
+
+    CellValueWriter(Workbook workbook) {
+        this(workbook, OutputOptions.defaults());
+    }
+
+    CellValueWriter(Workbook workbook, OutputOptions options) {
+        this.workbook = workbook;
+        this.defaultStorage = options.resolveStringStorage();
+    }
+
+    /**
+     * How one mapping's values are written.
+     */
+    static final class ColumnFormat {
+        final CellValueType valueType;
+        final boolean inlineStrings;
+
+        ColumnFormat(CellValueType valueType, boolean inlineStrings) {
+            this.valueType = valueType;
+            this.inlineStrings = inlineStrings;
+        }
+    }
+
+    ColumnFormat columnFormat(Map<String, Object> mapping, List<List<String>> data, int sourceColumn) {
+        CellValueType valueType = CellValueType.fromMapping(mapping);
+        StringStorage storage = StringStorage.fromMapping(mapping, defaultStorage);
+        boolean inline = storage == StringStorage.INLINE
+                || (storage == StringStorage.AUTO && isHighCardinality(data, sourceColumn));
+        return new ColumnFormat(valueType, inline);
+    }
+
+    /**
+     * True if most non-empty values in the sampled source column are distinct,
+     * e.g. measurement values, as opposed to PASS/FAIL or element names.
+     */
+    static boolean isHighCardinality(List<List<String>> data, int sourceColumn) {
+        Set<String> distinct = new HashSet<>();
+        int values = 0;
+        int limit = Math.min(data.size(), CARDINALITY_SAMPLE_ROWS);
+        for (int r = 0; r < limit; r++) {
+            List<String> row = data.get(r);
+            if (sourceColumn < row.size() && !row.get(sourceColumn).isEmpty()) {
+                distinct.add(row.get(sourceColumn));
+                values++;
+            }
+        }
+        return values >= MIN_SAMPLE_VALUES && distinct.size() * 2 > values;
+    }
+
+    void write(Cell cell, String value, ColumnFormat format) {
+        double number = DecimalParser.toCellNumber(value, format.valueType);
+        if (Double.isNaN(number)) {
+            if (format.inlineStrings && cell instanceof XSSFCell) {
+                setInlineString((XSSFCell) cell, value);
+            } else {
+                cell.setCellValue(value);
+            }
+            return;
+        }
+        cell.setCellValue(number);
+        int decimals = DecimalParser.fractionDigits(value);
+        // Leave cells that already carry a template style alone
+        if (decimals > 0 && cell.getCellStyle().getIndex() == 0) {
+            cell.setCellStyle(decimalStyles.computeIfAbsent(decimals, this::findOrCreateDecimalStyle));
+        }
+    }
+
+    /**
+     * Store the text in the cell itself (t="inlineStr") instead of the
+     * shared-strings table. Parsed values are trimmed, so no xml:space
+     * handling is needed.
+     */
+    private static void setInlineString(XSSFCell cell, String value) {
+        CTCell ct = cell.getCTCell();
+        if (ct.isSetV()) {
+            ct.unsetV();
+        }
+        if (ct.isSetF()) {
+            ct.unsetF();
+        }
+        ct.setT(STCellType.INLINE_STR);
+        CTRst inline = ct.isSetIs() ? ct.getIs() : ct.addNewIs();
+        inline.setT(value);
+    }
+
+    private CellStyle findOrCreateDecimalStyle(int decimals) {
+        String format = "0." + "0".repeat(decimals);
+        // Appended workbooks already contain the style from earlier runs; reuse a
+        // plain one instead of adding another style on every append
+        for (int i = 0; i < workbook.getNumCellStyles(); i++) {
+            CellStyle existing = workbook.getCellStyleAt(i);
+            if (format.equals(existing.getDataFormatString()) && isPlain(existing)) {
+                return existing;
+            }
+        }
+        CellStyle style = workbook.createCellStyle();
+        style.setDataFormat(workbook.createDataFormat().getFormat(format));
+        return style;
+    }
+
+    private static boolean isPlain(CellStyle style) {
+        return style.getFontIndex() == 0
+                && style.getFillPattern() == FillPatternType.NO_FILL
+                && style.getBorderTop() == BorderStyle.NONE
+                && style.getBorderBottom() == BorderStyle.NONE
+                && style.getBorderLeft() == BorderStyle.NONE
+                && style.getBorderRight() == BorderStyle.NONE;
+    }
+}
@@ -1,16 +1,20 @@
 package com.example.smarttemplatefiller;
 
+import com.example.smarttemplatefiller.engine.AppendTargetLock;
+import com.example.smarttemplatefiller.engine.ElementKeyResolver;
 import com.example.smarttemplatefiller.engine.MappingPathResolver;
+import com.example.smarttemplatefiller.engine.MappingPlan;
+import com.example.smarttemplatefiller.engine.OutputOptions;
+import com.example.smarttemplatefiller.engine.OutputSink;
+import com.example.smarttemplatefiller.mapping.MappingCache;
 import com.example.smarttemplatefiller.mapping.RowPatternDescriptor;
+import com.example.smarttemplatefiller.parser.ParseOptions;
+import com.example.smarttemplatefiller.parser.ParsedTable;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellReference;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -18,154 +22,146 @@ import java.util.Map;
 public class ExcelWriter {
 
     public static void writeAdvancedMappedFile(File txtFile, File mappingFile, File outputFile) {
-        try {
-            List<List<String>> data = TxtParser.parseFile(txtFile);
-
-            ObjectMapper mapper = new ObjectMapper();
-            List<Map<String, Object>> mappings = mapper.readValue(
-                    mappingFile,
-                    mapper.getTypeFactory().constructCollectionType(List.class, Map.class));
+        writeAdvancedMappedFile(txtFile, mappingFile, outputFile, ParseOptions.forMapping(mappingFile));
+    }
 
-            try (Workbook workbook = new XSSFWorkbook()) {
-                Sheet sheet = workbook.createSheet("Result");
+    public static void writeAdvancedMappedFile(File txtFile, File mappingFile, File outputFile, ParseOptions parseOptions) {
+        writeAdvancedMappedFile(txtFile, mappingFile, outputFile, parseOptions, OutputOptions.defaults());
+    }
 
-                boolean hasSemicolon = data.stream().anyMatch(row -> row.size() > 1);
-                boolean hasAt101 = data.stream().anyMatch(row -> !row.isEmpty() && "@101".equals(row.get(0).trim()));
-                boolean isSemicolonFile = hasSemicolon && hasAt101;
+    /**
+     * Export with explicit parse options and output options (e.g. string
+     * storage configured for the export or the watch folder).
+     */
+    public static void writeAdvancedMappedFile(File txtFile, File mappingFile, File outputFile, ParseOptions parseOptions,
+            OutputOptions outputOptions) {
+        try {
+            writeMappedTable(TxtParser.parse(txtFile, parseOptions), mappingFile, outputFile, outputOptions);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
 
-                if (isSemicolonFile) {
-                    writeSemicolonData(data, mappings, sheet, 0);
-                } else {
-                    for (Map<String, Object> mapping : mappings) {
-                        int sourceColumn = ((Number) mapping.get("sourceColumn")).intValue();
-                        String startCell = (String) mapping.get("startCell");
-                        String direction = (String) mapping.get("direction");
-                        String title = mapping.containsKey("title") ? mapping.get("title").toString() : "";
+    /**
+     * Export an already parsed source. The table is only read, so one parse
+     * can feed several exports running concurrently (see {@link FanOutExport}).
+     */
+    public static void writeMappedTable(ParsedTable table, File mappingFile, File outputFile,
+            OutputOptions outputOptions) throws IOException {
+        writeMappings(table, MappingCache.get(mappingFile), outputFile, OutputOptions.forMapping(mappingFile, outputOptions));
+    }
 
-                        // BUG-001 FIX: Use CellReference for proper parsing (supports AA, AB, etc.)
-                        CellReference ref = new CellReference(startCell);
-                        int startRow = ref.getRow();
-                        int startCol = ref.getCol();
+    /**
+     * Export an already parsed source with a compiled version of a mapping,
+     * as Running Mode does so that a mapping edited meanwhile cannot change
+     * halfway through a source.
+     */
+    public static void writeMappedTable(ParsedTable table, MappingPlan plan, File outputFile,
+            OutputOptions outputOptions) throws IOException {
+        writeMappings(table, plan.getMappings(), outputFile, plan.outputOptions(outputOptions));
+    }
 
-                        // BUG-002 FIX: Only write title if row > 0 and title is not empty
-                        if (!title.isEmpty()) {
-                            if (direction.equals("vertical")) {
-                                if (startRow > 0) {
-                                    Row titleRow = sheet.getRow(startRow - 1);
-                                    if (titleRow == null)
-                                        titleRow = sheet.createRow(startRow - 1);
-                                    Cell cell = titleRow.createCell(startCol);
-                                    cell.setCellValue(title);
-                                }
-                            } else {
-                                Row row = sheet.getRow(startRow);
-                                if (row == null)
-                                    row = sheet.createRow(startRow);
-                                Cell titleCell = row.createCell(startCol);
-                                titleCell.setCellValue(title);
+    private static void writeMappings(ParsedTable table, List<Map<String, Object>> mappings, File outputFile,
+            OutputOptions options) throws IOException {
+        List<List<String>> data = table.getRows();
+
+        try (OutputSink sink = OutputSinks.create(outputFile, options)) {
+            boolean hasSemicolon = data.stream().anyMatch(row -> row.size() > 1);
+            boolean hasAt101 = data.stream().anyMatch(row -> !row.isEmpty() && "@101".equals(row.get(0).trim()));
+            boolean isSemicolonFile = hasSemicolon && hasAt101;
+
+            if (isSemicolonFile) {
+                writeSemicolonData(table, mappings, sink, 0);
+            } else {
+                for (Map<String, Object> mapping : mappings) {
+                    int sourceColumn = ((Number) mapping.get("sourceColumn")).intValue();
+                    String startCell = (String) mapping.get("startCell");
+                    String direction = (String) mapping.get("direction");
+                    String title = mapping.containsKey("title") ? mapping.get("title").toString() : "";
+                    sink.beginMapping(mapping, data, sourceColumn);
+
+                    // BUG-001 FIX: Use CellReference for proper parsing (supports AA, AB, etc.)
+                    CellReference ref = new CellReference(startCell);
+                    int startRow = ref.getRow();
+                    int startCol = ref.getCol();
+
+                    // BUG-002 FIX: Only write title if row > 0 and title is not empty
+                    if (!title.isEmpty()) {
+                        if (direction.equals("vertical")) {
+                            if (startRow > 0) {
+                                sink.title(startRow - 1, startCol, title);
                             }
+                        } else {
+                            sink.title(startRow, startCol, title);
                         }
+                    }
 
-                        // T015 [US2]: Determine row indexes — flex path takes priority over legacy paths
-                        List<Integer> rowIndexes = new ArrayList<>();
-                        if (MappingPathResolver.shouldUseFlexPath(mapping)) {
-                            // Flex path: build RowPatternDescriptor and stream output→source pairs
-                            int startField = (mapping.containsKey("startField") && mapping.get("startField") != null)
-                                    ? ((Number) mapping.get("startField")).intValue() : 1;
-                            int fillField  = ((Number) mapping.get("fillField")).intValue();
-                            int spaceField = (mapping.containsKey("spaceField") && mapping.get("spaceField") != null)
-                                    ? ((Number) mapping.get("spaceField")).intValue() : 0;
-
-                            RowPatternDescriptor descriptor = new RowPatternDescriptor(startField, fillField, spaceField);
-
-                            // Capture loop-locals for lambda
-                            final Sheet fSheet    = sheet;
-                            final int   fStartRow = startRow;
-                            final int   fStartCol = startCol;
-                            final int   fSrcCol   = sourceColumn;
-                            final String fDir     = direction;
-
-                            descriptor.generateOutputSequence(data.size()).forEach(entry -> {
-                                int outputPos    = entry.getKey();
-                                int srcRowIndex  = entry.getValue();
-                                List<String> rowData = data.get(srcRowIndex);
-                                String value = (fSrcCol < rowData.size()) ? rowData.get(fSrcCol) : "";
-
-                                if ("vertical".equals(fDir)) {
-                                    Row excelRow = fSheet.getRow(fStartRow + outputPos);
-                                    if (excelRow == null) excelRow = fSheet.createRow(fStartRow + outputPos);
-                                    excelRow.createCell(fStartCol).setCellValue(value);
-                                } else {
-                                    Row excelRow = fSheet.getRow(fStartRow);
-                                    if (excelRow == null) excelRow = fSheet.createRow(fStartRow);
-                                    excelRow.createCell(fStartCol + outputPos + 1).setCellValue(value);
-                                }
-                            });
-                            continue; // flex path handled — skip legacy rowIndexes write loop below
-                        } else if (mapping.containsKey("rowPattern")) {
-                            Map<String, Object> rowPattern = (Map<String, Object>) mapping.get("rowPattern");
-                            // BUG-005 FIX: Use Number.intValue() for safe casting
-                            int start = ((Number) rowPattern.get("start")).intValue();
-                            String type = (String) rowPattern.get("type");
-                            rowIndexes = TxtParser.generateIndexes(data.size(), type, start);
-                        } else if (mapping.containsKey("rowIndexes")) {
-                            List<Object> rawList = (List<Object>) mapping.get("rowIndexes");
-                            for (Object obj : rawList) {
-                                rowIndexes.add(((Number) obj).intValue());
+                    // T015 [US2]: Determine row indexes — flex path takes priority over legacy paths
+                    List<Integer> rowIndexes = new ArrayList<>();
+                    if (MappingPathResolver.shouldUseFlexPath(mapping)) {
+                        // Flex path: build RowPatternDescriptor and stream output→source pairs
+                        int startField = (mapping.containsKey("startField") && mapping.get("startField") != null)
+                                ? ((Number) mapping.get("startField")).intValue() : 1;
+                        int fillField  = ((Number) mapping.get("fillField")).intValue();
+                        int spaceField = (mapping.containsKey("spaceField") && mapping.get("spaceField") != null)
+                                ? ((Number) mapping.get("spaceField")).intValue() : 0;
+
+                        RowPatternDescriptor descriptor = new RowPatternDescriptor(startField, fillField, spaceField);
+
+                        // Capture loop-locals for lambda
+                        final int   fStartRow = startRow;
+                        final int   fStartCol = startCol;
+                        final int   fSrcCol   = sourceColumn;
+                        final String fDir     = direction;
+
+                        descriptor.generateOutputSequence(data.size()).forEach(entry -> {
+                            int outputPos    = entry.getKey();
+                            int srcRowIndex  = entry.getValue();
+                            List<String> rowData = data.get(srcRowIndex);
+                            String value = (fSrcCol < rowData.size()) ? rowData.get(fSrcCol) : "";
+
+                            if ("vertical".equals(fDir)) {
+                                sink.value(fStartRow + outputPos, fStartCol, value);
+                            } else {
+                                sink.value(fStartRow, fStartCol + outputPos + 1, value);
                             }
+                        });
+                        continue; // flex path handled — skip legacy rowIndexes write loop below
+                    } else if (MappingPathResolver.shouldUseKeyPath(mapping)) {
+                        // Element-keyed path: O(1) lookup per key through the parser's index
+                        rowIndexes = ElementKeyResolver.resolve(mapping, table);
+                    } else if (mapping.containsKey("rowPattern")) {
+                        Map<String, Object> rowPattern = (Map<String, Object>) mapping.get("rowPattern");
+                        // BUG-005 FIX: Use Number.intValue() for safe casting
+                        int start = ((Number) rowPattern.get("start")).intValue();
+                        String type = (String) rowPattern.get("type");
+                        rowIndexes = TxtParser.generateIndexes(data.size(), type, start);
+                    } else if (mapping.containsKey("rowIndexes")) {
+                        List<Object> rawList = (List<Object>) mapping.get("rowIndexes");
+                        for (Object obj : rawList) {
+                            rowIndexes.add(((Number) obj).intValue());
                         }
+                    }
 
-                        // Write data
-                        for (int i = 0; i < rowIndexes.size(); i++) {
-                            int rowIndex = rowIndexes.get(i);
-                            if (rowIndex >= data.size() || rowIndex < 0)
-                                continue;
-                            List<String> rowData = data.get(rowIndex);
-                            String value = (sourceColumn < rowData.size()) ? rowData.get(sourceColumn) : "";
+                    // Write data
+                    for (int i = 0; i < rowIndexes.size(); i++) {
+                        int rowIndex = rowIndexes.get(i);
+                        if (rowIndex >= data.size() || rowIndex < 0)
+                            continue;
+                        List<String> rowData = data.get(rowIndex);
+                        String value = (sourceColumn < rowData.size()) ? rowData.get(sourceColumn) : "";
 
-                            if (direction.equals("vertical")) {
-                                Row row = sheet.getRow(startRow + i);
-                                if (row == null)
-                                    row = sheet.createRow(startRow + i);
-                                row.createCell(startCol).setCellValue(value);
-                            } else {
-                                Row row = sheet.getRow(startRow);
-                                if (row == null)
-                                    row = sheet.createRow(startRow);
-                                row.createCell(startCol + i + 1).setCellValue(value);
-                            }
+                        if (direction.equals("vertical")) {
+                            sink.value(startRow + i, startCol, value);
+                        } else {
+                            sink.value(startRow, startCol + i + 1, value);
                         }
                     }
                 }
-
-                // BUG-007 FIX: Use try-with-resources for FileOutputStream
-                try (FileOutputStream out = new FileOutputStream(outputFile)) {
-                    workbook.write(out);
-                }
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-    }
 
-    /**
-     * Calculate row offset from existing Excel sheet.
-     * Returns 0 if sheet is empty, otherwise returns lastRowNum + 1.
-     * 
-     * @param sheet The Excel sheet to check
-     * @return The row offset to use for appending
-     */
-    private static int calculateRowOffset(Sheet sheet) {
-        if (sheet == null) {
-            return 0;
+            sink.commit();
         }
-        int lastRowNum = sheet.getLastRowNum();
-        // getLastRowNum() returns 0 for both empty sheets and sheets with one row
-        // Check if row 0 actually exists
-        if (lastRowNum == 0 && sheet.getRow(0) == null) {
-            return 0;
-        }
-        return lastRowNum + 1;
     }
 
     /**
@@ -178,49 +174,105 @@ public class ExcelWriter {
      * @return AppendResult with operation details
      */
     public static AppendResult appendToMappedFile(File txtFile, File mappingFile, File existingExcelFile) {
+        return appendToMappedFile(txtFile, mappingFile, existingExcelFile, ParseOptions.forMapping(mappingFile));
+    }
+
+    /**
+     * Append using explicit parse options (e.g. a watch folder's fixed-width layout).
+     */
+    public static AppendResult appendToMappedFile(File txtFile, File mappingFile, File existingExcelFile,
+            ParseOptions parseOptions) {
+        return appendToMappedFile(txtFile, mappingFile, existingExcelFile, parseOptions, OutputOptions.defaults());
+    }
+
+    /**
+     * Append using explicit parse and output options.
+     */
+    public static AppendResult appendToMappedFile(File txtFile, File mappingFile, File existingExcelFile,
+            ParseOptions parseOptions, OutputOptions outputOptions) {
+        // Validate inputs
+        if (!existingExcelFile.exists()) {
+            return AppendResult.failure("Target file does not exist: " + existingExcelFile.getName());
+        }
+
+        // Parse source data
+        ParsedTable table;
+        try {
+            table = TxtParser.parse(txtFile, parseOptions);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return AppendResult.failure("Append failed: " + e.getMessage(), existingExcelFile.getAbsolutePath());
+        }
+        return appendToMappedTable(table, mappingFile, existingExcelFile, outputOptions);
+    }
+
+    /**
+     * Append an already parsed source. The table is only read, so one parse
+     * can feed several appends to different targets concurrently.
+     */
+    public static AppendResult appendToMappedTable(ParsedTable table, File mappingFile, File existingExcelFile,
+            OutputOptions outputOptions) {
+        return appendToMappedTable(table, mappingFile, null, existingExcelFile, outputOptions);
+    }
+
+    /**
+     * Append an already parsed source with a compiled version of a mapping.
+     */
+    public static AppendResult appendToMappedTable(ParsedTable table, MappingPlan plan, File existingExcelFile,
+            OutputOptions outputOptions) {
+        return appendToMappedTable(table, plan.getMappingFile(), plan, existingExcelFile, outputOptions);
+    }
+
+    private static AppendResult appendToMappedTable(ParsedTable table, File mappingFile, MappingPlan plan,
+            File existingExcelFile, OutputOptions outputOptions) {
+        if (!existingExcelFile.exists()) {
+            return AppendResult.failure("Target file does not exist: " + existingExcelFile.getName());
+        }
+        // One writer per target at a time, in this and every other instance; the offset is read under the lock
+        AppendTargetLock lock;
+        try {
+            lock = AppendTargetLock.acquire(existingExcelFile);
+        } catch (IOException e) {
+            return AppendResult.failure(e.getMessage(), existingExcelFile.getAbsolutePath());
+        }
+        try {
+            return appendLocked(table, mappingFile, plan, existingExcelFile, outputOptions);
+        } finally {
+            lock.release();
+        }
+    }
+
+    private static AppendResult appendLocked(ParsedTable table, File mappingFile, MappingPlan plan, File existingExcelFile,
+            OutputOptions outputOptions) {
         List<String> warnings = new ArrayList<>();
 
         try {
-            // Validate inputs
             if (!existingExcelFile.exists()) {
                 return AppendResult.failure("Target file does not exist: " + existingExcelFile.getName());
             }
 
-            // Parse source data
-            List<List<String>> data = TxtParser.parseFile(txtFile);
+            List<List<String>> data = table.getRows();
             if (data.isEmpty()) {
                 return AppendResult.successWithWarnings(0, 0, existingExcelFile.getAbsolutePath(),
                         List.of("Source file contains no data rows"));
             }
 
             // Load mappings
-            ObjectMapper mapper = new ObjectMapper();
-            List<Map<String, Object>> mappings = mapper.readValue(
-                    mappingFile,
-                    mapper.getTypeFactory().constructCollectionType(List.class, Map.class));
-
-            // Open existing workbook
-            Workbook workbook;
-            try (FileInputStream fis = new FileInputStream(existingExcelFile)) {
-                workbook = new XSSFWorkbook(fis);
-            }
-
-            try {
-                // Get or create the Result sheet
-                Sheet sheet = workbook.getSheet("Result");
-                if (sheet == null) {
-                    sheet = workbook.getSheetAt(0);
-                }
-                if (sheet == null) {
-                    sheet = workbook.createSheet("Result");
-                }
+            List<Map<String, Object>> mappings = plan != null ? plan.getMappings() : MappingCache.get(mappingFile);
 
+            // Open the existing output (the Result sheet, or the stamped template's target sheet)
+            OutputOptions options = plan != null ? plan.outputOptions(outputOptions)
+                    : OutputOptions.forMapping(mappingFile, outputOptions);
+            try (OutputSink sink = OutputSinks.append(existingExcelFile, options)) {
                 // Calculate row offset
-                int rowOffset = calculateRowOffset(sheet);
+                int rowOffset = sink.firstFreeRow();
+                boolean columnOffsets = options.isColumnAppendOffset();
                 int rowsAdded = 0;
+                // Data that does not fit is not truncated: the append fails and the caller rolls over
+                boolean[] overflow = {false};
 
-                // Check for Excel row limit (1,048,576 rows)
-                final int EXCEL_ROW_LIMIT = 1048576;
+                // Check for the output's row limit (1,048,576 rows for Excel)
+                final int EXCEL_ROW_LIMIT = sink.rowLimit();
                 final int WARNING_THRESHOLD = (int) (EXCEL_ROW_LIMIT * 0.95); // 5% of limit
 
                 boolean hasSemicolon = data.stream().anyMatch(row -> row.size() > 1);
@@ -228,7 +280,7 @@ public class ExcelWriter {
                 boolean isSemicolonFile = hasSemicolon && hasAt101;
 
                 if (isSemicolonFile) {
-                    writeSemicolonData(data, mappings, sheet, rowOffset);
+                    writeSemicolonData(table, mappings, sink, rowOffset);
                     int maxRows = 0;
                     for (Map<String, Object> mapping : mappings) {
                         int mRows = 0;
@@ -240,6 +292,8 @@ public class ExcelWriter {
                                     ((Number) mapping.get("fillField")).intValue(),
                                     (mapping.containsKey("spaceField") && mapping.get("spaceField") != null) ? ((Number) mapping.get("spaceField")).intValue() : 0
                                 ).generateOutputSequence(data.size()).count();
+                            } else if (MappingPathResolver.shouldUseKeyPath(mapping)) {
+                                mRows = ((List<?>) mapping.get("rowKeys")).size();
                             } else if (mapping.containsKey("rowPattern")) {
                                 Map<String, Object> rowPattern = (Map<String, Object>) mapping.get("rowPattern");
                                 int start = ((Number) rowPattern.get("start")).intValue();
@@ -261,10 +315,26 @@ public class ExcelWriter {
                         int sourceColumn = ((Number) mapping.get("sourceColumn")).intValue();
                         String startCell = (String) mapping.get("startCell");
                         String direction = (String) mapping.get("direction");
+                        String title = mapping.containsKey("title") ? mapping.get("title").toString() : "";
+                        sink.beginMapping(mapping, data, sourceColumn);
 
                         CellReference ref = new CellReference(startCell);
                         int startRow = ref.getRow();
                         int startCol = ref.getCol();
+                        // Vertical data continues below the sheet's last row, or below the column's own last value
+                        int columnOffset = columnOffsets && "vertical".equals(direction)
+                                ? sink.firstFreeRow(startCol) : rowOffset;
+
+                        // Titles only go into an empty target (a new file or rollover sheet), as on export
+                        if (rowOffset == 0 && !title.isEmpty()) {
+                            if (direction.equals("vertical")) {
+                                if (startRow > 0) {
+                                    sink.title(startRow - 1, startCol, title);
+                                }
+                            } else {
+                                sink.title(startRow, startCol, title);
+                            }
+                        }
 
                         // T015 [US2]: Determine row indexes — flex path takes priority over legacy paths
                         List<Integer> rowIndexes = new ArrayList<>();
@@ -279,12 +349,11 @@ public class ExcelWriter {
                             RowPatternDescriptor descriptor = new RowPatternDescriptor(startField, fillField, spaceField);
 
                             // Capture loop-locals for lambda (rowOffset is effectively final here)
-                            final Sheet   fSheet    = sheet;
                             final int     fStartRow = startRow;
                             final int     fStartCol = startCol;
                             final int     fSrcCol   = sourceColumn;
                             final String  fDir      = direction;
-                            final int     fOffset   = rowOffset;
+                            final int     fOffset   = columnOffset;
                             final int[]   rowsAddedHolder = {rowsAdded};
 
                             descriptor.generateOutputSequence(data.size()).forEach(entry -> {
@@ -296,21 +365,22 @@ public class ExcelWriter {
                                 if ("vertical".equals(fDir)) {
                                     int targetRow = Math.max(fStartRow, fOffset) + outputPos;
                                     if (targetRow < EXCEL_ROW_LIMIT) {
-                                        Row excelRow = fSheet.getRow(targetRow);
-                                        if (excelRow == null) excelRow = fSheet.createRow(targetRow);
-                                        excelRow.createCell(fStartCol).setCellValue(value);
+                                        sink.value(targetRow, fStartCol, value);
                                         rowsAddedHolder[0] = Math.max(rowsAddedHolder[0], outputPos + 1);
+                                    } else {
+                                        overflow[0] = true;
                                     }
                                 } else {
                                     int targetRow = Math.max(fStartRow, fOffset);
-                                    Row excelRow = fSheet.getRow(targetRow);
-                                    if (excelRow == null) excelRow = fSheet.createRow(targetRow);
-                                    excelRow.createCell(fStartCol + outputPos + 1).setCellValue(value);
+                                    sink.value(targetRow, fStartCol + outputPos + 1, value);
                                     rowsAddedHolder[0] = 1;
                                 }
                             });
                             rowsAdded = rowsAddedHolder[0];
                             continue; // flex path handled — skip legacy rowIndexes write loop below
+                        } else if (MappingPathResolver.shouldUseKeyPath(mapping)) {
+                            // Element-keyed path: O(1) lookup per key through the parser's index
+                            rowIndexes = ElementKeyResolver.resolve(mapping, table);
                         } else if (mapping.containsKey("rowPattern")) {
                             Map<String, Object> rowPattern = (Map<String, Object>) mapping.get("rowPattern");
                             int start = ((Number) rowPattern.get("start")).intValue();
@@ -335,32 +405,30 @@ public class ExcelWriter {
                                 // BUG-FIX: Use Math.max to avoid double-counting startRow when appending
                                 // When appending, we want to start at the end of the file (rowOffset),
                                 // unless the file is empty and rowOffset < startRow.
-                                int targetRow = Math.max(startRow, rowOffset) + i;
+                                int targetRow = Math.max(startRow, columnOffset) + i;
 
                                 // Check row limit
                                 if (targetRow >= EXCEL_ROW_LIMIT) {
-                                    warnings.add("Excel row limit reached. Some data may be truncated.");
+                                    overflow[0] = true;
                                     break;
                                 }
 
-                                Row row = sheet.getRow(targetRow);
-                                if (row == null)
-                                    row = sheet.createRow(targetRow);
-                                row.createCell(startCol).setCellValue(value);
+                                sink.value(targetRow, startCol, value);
                                 rowsAdded = Math.max(rowsAdded, i + 1);
                             } else {
                                 // BUG-FIX: Same logic for horizontal
                                 int targetRow = Math.max(startRow, rowOffset);
-                                Row row = sheet.getRow(targetRow);
-                                if (row == null)
-                                    row = sheet.createRow(targetRow);
-                                row.createCell(startCol + i + 1).setCellValue(value);
+                                sink.value(targetRow, startCol + i + 1, value);
                                 rowsAdded = 1;
                             }
                         }
                     }
                 }
 
+                if (overflow[0]) {
+                    return AppendResult.rowLimitExceeded(rowOffset, EXCEL_ROW_LIMIT, existingExcelFile.getAbsolutePath());
+                }
+
                 // Check if approaching row limit
                 int finalRowCount = rowOffset + rowsAdded;
                 if (finalRowCount > WARNING_THRESHOLD) {
@@ -368,10 +436,8 @@ public class ExcelWriter {
                             finalRowCount, EXCEL_ROW_LIMIT, (finalRowCount * 100.0 / EXCEL_ROW_LIMIT)));
                 }
 
-                // Write back to file
-                try (FileOutputStream out = new FileOutputStream(existingExcelFile)) {
-                    workbook.write(out);
-                }
+                // Write back to file (XLSX: temp file + rename, so a failed write keeps the old workbook)
+                sink.commit();
 
                 if (warnings.isEmpty()) {
                     return AppendResult.success(rowsAdded, rowOffset, existingExcelFile.getAbsolutePath());
@@ -379,9 +445,6 @@ public class ExcelWriter {
                     return AppendResult.successWithWarnings(rowsAdded, rowOffset,
                             existingExcelFile.getAbsolutePath(), warnings);
                 }
-
-            } finally {
-                workbook.close();
             }
 
         } catch (java.io.IOException e) {
@@ -396,7 +459,9 @@ public class ExcelWriter {
         }
     }
 
-    private static void writeSemicolonData(List<List<String>> data, List<Map<String, Object>> mappings, Sheet sheet, int rowOffset) {
+    private static void writeSemicolonData(ParsedTable table, List<Map<String, Object>> mappings, OutputSink sink,
+            int rowOffset) {
+        List<List<String>> data = table.getRows();
         // 1. Identify start row index for each cavity block
         List<Integer> blockStarts = new ArrayList<>();
         blockStarts.add(0);
@@ -449,6 +514,7 @@ public class ExcelWriter {
             String direction = (String) mapping.get("direction");
             String title = mapping.containsKey("title") ? mapping.get("title").toString() : "";
             boolean isFixed = mapping.containsKey("fixed") && Boolean.TRUE.equals(mapping.get("fixed"));
+            sink.beginMapping(mapping, data, sourceColumn);
 
             CellReference ref = new CellReference(startCell);
             int startRow = ref.getRow();
@@ -473,6 +539,16 @@ public class ExcelWriter {
                     outputPositions.add(entry.getKey());
                     relRowIndexes.add(entry.getValue());
                 });
+            } else if (MappingPathResolver.shouldUseKeyPath(mapping)) {
+                // Keys resolve to their first occurrence, which lies in block 0 when present;
+                // that index is then block-relative and reused for every cavity.
+                List<Integer> indexes = ElementKeyResolver.resolve(mapping, table);
+                for (int i = 0; i < indexes.size(); i++) {
+                    int relRow = indexes.get(i);
+                    if (relRow < 0 || relRow >= block0Size) continue;
+                    outputPositions.add(i);
+                    relRowIndexes.add(relRow);
+                }
             } else if (mapping.containsKey("rowPattern")) {
                 Map<String, Object> rowPattern = (Map<String, Object>) mapping.get("rowPattern");
                 int start = ((Number) rowPattern.get("start")).intValue();
@@ -550,18 +626,10 @@ public class ExcelWriter {
 
                     if ("vertical".equals(direction)) {
                         if (baseStartRow > 0) {
-                            Row titleRow = sheet.getRow(baseStartRow - 1);
-                            if (titleRow == null) titleRow = sheet.createRow(baseStartRow - 1);
-                            Cell cell = titleRow.getCell(targetTitleCol);
-                            if (cell == null) cell = titleRow.createCell(targetTitleCol);
-                            cell.setCellValue(displayTitle);
+                            sink.title(baseStartRow - 1, targetTitleCol, displayTitle);
                         }
                     } else {
-                        Row row = sheet.getRow(baseStartRow);
-                        if (row == null) row = sheet.createRow(baseStartRow);
-                        Cell cell = row.getCell(targetTitleCol);
-                        if (cell == null) cell = row.createCell(targetTitleCol);
-                        cell.setCellValue(displayTitle);
+                        sink.title(baseStartRow, targetTitleCol, displayTitle);
                     }
                 }
             }
@@ -631,11 +699,7 @@ public class ExcelWriter {
                         }
                     }
 
-                    Row excelRow = sheet.getRow(targetRow);
-                    if (excelRow == null) excelRow = sheet.createRow(targetRow);
-                    Cell cell = excelRow.getCell(targetCol);
-                    if (cell == null) cell = excelRow.createCell(targetCol);
-                    cell.setCellValue(value);
+                    sink.value(targetRow, targetCol, value);
                 }
             }
         }
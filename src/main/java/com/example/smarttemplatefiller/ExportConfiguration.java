@@ -1,5 +1,6 @@
 package com.example.smarttemplatefiller;
 
+import com.example.smarttemplatefiller.engine.OutputOptions;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -19,6 +20,9 @@ public class ExportConfiguration {
     private boolean appendMode;
     private String appendTargetPath;
 
+    // How exported workbooks are written (string storage, ...)
+    private OutputOptions output = new OutputOptions();
+
     private static final String CONFIG_DIR = System.getProperty("user.home") + "/.smarttemplatefiller";
     private static final String CONFIG_FILE = CONFIG_DIR + "/export_configuration.json";
 
@@ -56,6 +60,14 @@ public class ExportConfiguration {
         this.appendTargetPath = appendTargetPath;
     }
 
+    public OutputOptions getOutput() {
+        return output;
+    }
+
+    public void setOutput(OutputOptions output) {
+        this.output = output != null ? output : new OutputOptions();
+    }
+
     @Override
     public String toString() {
         return String.format("ExportConfiguration[appendMode=%s, targetPath=%s]",
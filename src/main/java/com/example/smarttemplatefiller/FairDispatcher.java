@@ -0,0 +1,161 @@
+package com.example.smarttemplatefiller;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Runs the files of several routes on one fixed set of worker threads.
+ * Each route has its own queue; a free worker takes the next file
+ * round-robin from the routes that have one waiting, so a route with a
+ * long backlog gets one file per turn like every other route and cannot
+ * starve a quiet one. A route can limit how many of its files run at once.
+ *
+ * @param <R> the route type
+ */
+final class FairDispatcher<R> {
+
+    private static final long STOP_WAIT_MILLIS = 5000;
+
+    private final class Lane {
+        final R route;
+        final int maxParallel;
+        final ArrayDeque<File> queue = new ArrayDeque<>();
+        int inFlight;
+
+        Lane(R route, int maxParallel) {
+            this.route = route;
+            this.maxParallel = maxParallel;
+        }
+    }
+
+    private final int workers;
+    private final String threadName;
+    private final BiConsumer<R, File> handler;
+    private final List<Lane> lanes = new ArrayList<>();
+    private final Map<R, Lane> laneOf = new IdentityHashMap<>();
+    // Absolute paths of the files queued or being processed
+    private final Set<String> pending = new HashSet<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private int cursor;
+    private boolean stopped;
+
+    FairDispatcher(int workers, String threadName, BiConsumer<R, File> handler) {
+        this.workers = Math.max(1, workers);
+        this.threadName = threadName;
+        this.handler = handler;
+    }
+
+    synchronized void register(R route, int maxParallel) {
+        Lane lane = new Lane(route, Math.max(1, maxParallel));
+        lanes.add(lane);
+        laneOf.put(route, lane);
+    }
+
+    /**
+     * Queue {@code file} for {@code route}.
+     *
+     * @return false if the file is already queued or being processed (for any route)
+     */
+    synchronized boolean submit(R route, File file) {
+        if (stopped || !pending.add(file.getAbsolutePath())) {
+            return false;
+        }
+        laneOf.get(route).queue.add(file);
+        notifyAll();
+        return true;
+    }
+
+    synchronized boolean isPending(File file) {
+        return pending.contains(file.getAbsolutePath());
+    }
+
+    void start() {
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(this::work, threadName + "-" + (i + 1));
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Drop the queued files and wait (up to five seconds) for the files
+     * being processed to finish.
+     */
+    void stop() {
+        synchronized (this) {
+            stopped = true;
+            for (Lane lane : lanes) {
+                for (File file : lane.queue) {
+                    pending.remove(file.getAbsolutePath());
+                }
+                lane.queue.clear();
+            }
+            notifyAll();
+        }
+        long deadline = System.currentTimeMillis() + STOP_WAIT_MILLIS;
+        for (Thread thread : threads) {
+            try {
+                thread.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void work() {
+        while (true) {
+            Lane lane;
+            File file;
+            synchronized (this) {
+                while (true) {
+                    if (stopped) {
+                        return;
+                    }
+                    lane = next();
+                    if (lane != null) {
+                        break;
+                    }
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                file = lane.queue.poll();
+                lane.inFlight++;
+            }
+            try {
+                handler.accept(lane.route, file);
+            } finally {
+                synchronized (this) {
+                    lane.inFlight--;
+                    pending.remove(file.getAbsolutePath());
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    /** The next lane in round-robin order with a file it may start, or null. */
+    private Lane next() {
+        int n = lanes.size();
+        for (int i = 0; i < n; i++) {
+            int index = (cursor + i) % n;
+            Lane lane = lanes.get(index);
+            if (!lane.queue.isEmpty() && lane.inFlight < lane.maxParallel) {
+                cursor = (index + 1) % n;
+                return lane;
+            }
+        }
+        return null;
+    }
+}
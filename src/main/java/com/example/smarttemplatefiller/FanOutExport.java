@@ -0,0 +1,236 @@
+package com.example.smarttemplatefiller;
+
+import com.example.smarttemplatefiller.engine.AppendTargetLock;
+import com.example.smarttemplatefiller.engine.MappingPlan;
+import com.example.smarttemplatefiller.engine.OutputOptions;
+import com.example.smarttemplatefiller.parser.ParseOptions;
+import com.example.smarttemplatefiller.parser.ParsedTable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Writes one source file to several outputs (mapping + output options +
+ * create or append target) from a single parse. Jobs that share parse
+ * options share one read-only {@link ParsedTable}; each job has its own
+ * output, so the jobs can run concurrently.
+ */
+public final class FanOutExport {
+
+    private FanOutExport() {
+    }
+
+    /**
+     * Run every job against {@code source}. With an executor the jobs run
+     * concurrently; without one (or for a single job) they run on the
+     * calling thread.
+     *
+     * @return one outcome per job, in job order
+     */
+    public static List<Outcome> run(File source, List<Job> jobs, ExecutorService executor) throws InterruptedException {
+        // Jobs whose mappings resolve to the same parse options read the same table
+        Map<String, ParsedTable> tables = new HashMap<>();
+        List<ParsedTable> jobTables = new ArrayList<>(jobs.size());
+        for (Job job : jobs) {
+            jobTables.add(tables.computeIfAbsent(job.parseOptions.cacheKey(source),
+                    k -> TxtParser.parse(source, job.parseOptions)));
+        }
+        return run(jobs, jobTables, executor);
+    }
+
+    /**
+     * Run every job against a table parsed by the caller, such as the new
+     * blocks of a growing source.
+     *
+     * @return one outcome per job, in job order
+     */
+    public static List<Outcome> run(ParsedTable table, List<Job> jobs, ExecutorService executor)
+            throws InterruptedException {
+        return run(jobs, Collections.nCopies(jobs.size(), table), executor);
+    }
+
+    private static List<Outcome> run(List<Job> jobs, List<ParsedTable> jobTables, ExecutorService executor)
+            throws InterruptedException {
+        List<Outcome> outcomes = new ArrayList<>(jobs.size());
+        if (executor == null || jobs.size() < 2) {
+            for (int i = 0; i < jobs.size(); i++) {
+                outcomes.add(execute(jobs.get(i), jobTables.get(i)));
+            }
+            return outcomes;
+        }
+
+        List<Future<Outcome>> futures = new ArrayList<>(jobs.size());
+        for (int i = 0; i < jobs.size(); i++) {
+            Job job = jobs.get(i);
+            ParsedTable table = jobTables.get(i);
+            futures.add(executor.submit(() -> execute(job, table)));
+        }
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    outcomes.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    outcomes.add(Outcome.failure(jobs.get(i), String.valueOf(e.getCause())));
+                }
+            }
+        } catch (InterruptedException e) {
+            for (Future<Outcome> future : futures) {
+                future.cancel(true);
+            }
+            throw e;
+        }
+        return outcomes;
+    }
+
+    private static Outcome execute(Job job, ParsedTable table) {
+        if (job.createIfMissing && !job.outputFile.exists()) {
+            // Whoever gets the target first creates it; the others append
+            try {
+                AppendTargetLock lock = AppendTargetLock.acquire(job.outputFile);
+                try {
+                    if (!job.outputFile.exists()) {
+                        write(job, table);
+                        return new Outcome(job, null, null);
+                    }
+                } finally {
+                    lock.release();
+                }
+            } catch (Exception e) {
+                return Outcome.failure(job, e.getMessage() != null ? e.getMessage() : e.toString());
+            }
+        }
+        if (job.append) {
+            return new Outcome(job, job.plan != null
+                    ? ExcelWriter.appendToMappedTable(table, job.plan, job.outputFile, job.outputOptions)
+                    : ExcelWriter.appendToMappedTable(table, job.mappingFile, job.outputFile, job.outputOptions), null);
+        }
+        try {
+            write(job, table);
+            return new Outcome(job, null, null);
+        } catch (Exception e) {
+            return Outcome.failure(job, e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+
+    private static void write(Job job, ParsedTable table) throws IOException {
+        if (job.plan != null) {
+            ExcelWriter.writeMappedTable(table, job.plan, job.outputFile, job.outputOptions);
+        } else {
+            ExcelWriter.writeMappedTable(table, job.mappingFile, job.outputFile, job.outputOptions);
+        }
+    }
+
+    /**
+     * One output of a fan-out: write a new file, or append to an existing one.
+     */
+    public static final class Job {
+        private final File mappingFile;
+        private final MappingPlan plan;
+        private final ParseOptions parseOptions;
+        private final OutputOptions outputOptions;
+        private final File outputFile;
+        private final boolean append;
+        private final boolean createIfMissing;
+
+        private Job(File mappingFile, MappingPlan plan, ParseOptions parseOptions, OutputOptions outputOptions,
+                File outputFile, boolean append, boolean createIfMissing) {
+            this.mappingFile = mappingFile;
+            this.plan = plan;
+            this.parseOptions = parseOptions;
+            this.outputOptions = outputOptions;
+            this.outputFile = outputFile;
+            this.append = append;
+            this.createIfMissing = createIfMissing;
+        }
+
+        public static Job create(File mappingFile, ParseOptions parseOptions, OutputOptions outputOptions,
+                File outputFile) {
+            return new Job(mappingFile, null, parseOptions, outputOptions, outputFile, false, false);
+        }
+
+        public static Job append(File mappingFile, ParseOptions parseOptions, OutputOptions outputOptions,
+                File targetFile) {
+            return new Job(mappingFile, null, parseOptions, outputOptions, targetFile, true, false);
+        }
+
+        /**
+         * Append to a shared target, creating it if it does not exist yet.
+         * The existence check and the create hold the target's
+         * {@link AppendTargetLock}, so concurrent first sources cannot
+         * overwrite each other.
+         */
+        public static Job appendOrCreate(File mappingFile, ParseOptions parseOptions, OutputOptions outputOptions,
+                File targetFile) {
+            return new Job(mappingFile, null, parseOptions, outputOptions, targetFile, true, true);
+        }
+
+        /**
+         * The same job with a compiled version of its mapping, whose parse
+         * options and output settings it then uses.
+         */
+        public Job withPlan(MappingPlan plan) {
+            return new Job(plan.getMappingFile(), plan, plan.getParseOptions(), outputOptions, outputFile, append,
+                    createIfMissing);
+        }
+
+        public File getMappingFile() {
+            return mappingFile;
+        }
+
+        /** The compiled mapping version the job writes with, or null if it reads the mapping file. */
+        public MappingPlan getPlan() {
+            return plan;
+        }
+
+        public File getOutputFile() {
+            return outputFile;
+        }
+
+        public boolean isAppend() {
+            return append;
+        }
+    }
+
+    /**
+     * Result of one job. Appends carry their {@link AppendResult}.
+     */
+    public static final class Outcome {
+        private final Job job;
+        private final AppendResult appendResult;
+        private final String errorMessage;
+
+        private Outcome(Job job, AppendResult appendResult, String errorMessage) {
+            this.job = job;
+            this.appendResult = appendResult;
+            this.errorMessage = errorMessage;
+        }
+
+        static Outcome failure(Job job, String errorMessage) {
+            return new Outcome(job, null, errorMessage);
+        }
+
+        public Job getJob() {
+            return job;
+        }
+
+        public boolean isSuccess() {
+            return appendResult != null ? appendResult.isSuccess() : errorMessage == null;
+        }
+
+        public AppendResult getAppendResult() {
+            return appendResult;
+        }
+
+        public String getErrorMessage() {
+            return appendResult != null ? appendResult.getErrorMessage() : errorMessage;
+        }
+    }
+}
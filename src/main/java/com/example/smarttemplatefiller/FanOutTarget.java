@@ -0,0 +1,89 @@
+package com.example.smarttemplatefiller;
+
+import com.example.smarttemplatefiller.engine.OutputOptions;
+import com.example.smarttemplatefiller.engine.RolloverPolicy;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * One output of a Running Mode fan-out: a mapping, how its output is
+ * written (format, compression, template, ...) and where appends go.
+ * All targets of a watch folder are filled from a single parse of each
+ * source file.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class FanOutTarget {
+
+    private String mappingFile;
+
+    // Laid over the watch folder's output options
+    private OutputOptions output = new OutputOptions();
+
+    // Fixed file every source is appended to (relative to the output folder); created by the first source
+    private String appendTarget;
+
+    // Without a fixed target: append to this target's last generated file
+    private boolean appendModeEnabled = false;
+
+    // When the append target is full and appends continue in a new workbook or sheet (null = never)
+    private RolloverPolicy rollover;
+
+    @JsonIgnore
+    private transient volatile String lastGeneratedFilePath;
+
+    // Default constructor for Jackson
+    public FanOutTarget() {
+    }
+
+    public FanOutTarget(String mappingFile) {
+        this.mappingFile = mappingFile;
+    }
+
+    public String getMappingFile() {
+        return mappingFile;
+    }
+
+    public void setMappingFile(String mappingFile) {
+        this.mappingFile = mappingFile;
+    }
+
+    public OutputOptions getOutput() {
+        return output;
+    }
+
+    public void setOutput(OutputOptions output) {
+        this.output = output != null ? output : new OutputOptions();
+    }
+
+    public String getAppendTarget() {
+        return appendTarget;
+    }
+
+    public void setAppendTarget(String appendTarget) {
+        this.appendTarget = appendTarget;
+    }
+
+    public boolean isAppendModeEnabled() {
+        return appendModeEnabled;
+    }
+
+    public void setAppendModeEnabled(boolean appendModeEnabled) {
+        this.appendModeEnabled = appendModeEnabled;
+    }
+
+    public RolloverPolicy getRollover() {
+        return rollover;
+    }
+
+    public void setRollover(RolloverPolicy rollover) {
+        this.rollover = rollover;
+    }
+
+    public String getLastGeneratedFilePath() {
+        return lastGeneratedFilePath;
+    }
+
+    public void setLastGeneratedFilePath(String lastGeneratedFilePath) {
+        this.lastGeneratedFilePath = lastGeneratedFilePath;
+    }
+}
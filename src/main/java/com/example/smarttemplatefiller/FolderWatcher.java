@@ -1,160 +1,335 @@
 package com.example.smarttemplatefiller;
 
+import com.example.smarttemplatefiller.engine.AppendChain;
+import com.example.smarttemplatefiller.engine.ArchivePolicy;
+import com.example.smarttemplatefiller.engine.FileClaims;
+import com.example.smarttemplatefiller.engine.FingerprintRule;
+import com.example.smarttemplatefiller.engine.MappingPlan;
+import com.example.smarttemplatefiller.engine.OutputFiles;
+import com.example.smarttemplatefiller.engine.OutputFormat;
+import com.example.smarttemplatefiller.engine.OutputLayout;
+import com.example.smarttemplatefiller.engine.OutputOptions;
+import com.example.smarttemplatefiller.engine.ReloadingMapping;
+import com.example.smarttemplatefiller.engine.RolloverPolicy;
+import com.example.smarttemplatefiller.engine.SourceArchiver;
+import com.example.smarttemplatefiller.engine.SourceProgress;
+import com.example.smarttemplatefiller.engine.TailState;
+import com.example.smarttemplatefiller.parser.ParseOptions;
+import com.example.smarttemplatefiller.parser.ParsedTable;
+import com.example.smarttemplatefiller.parser.SourceFingerprint;
+import com.example.smarttemplatefiller.parser.TailParser;
+
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.*;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
+import java.util.regex.Pattern;
 
 /**
- * Background service that watches a folder for incoming files
- * and processes them using the configured mapping.
+ * One Running Mode route: which files of a watch folder it takes (name
+ * globs, an optional fingerprint rule and header pattern) and how it processes them with the
+ * configured mapping, plus any additional outputs of the route, all from
+ * one parse per file. {@link RunningModeEngine} scans the folders and runs
+ * the routes' files on its shared workers.
  */
 public class FolderWatcher {
 
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd_HHmmss");
+
     private Path watchFolder;
-    private Set<String> fileExtensions;
-    private File mappingFile;
+    private List<PathMatcher> filePatterns;
+    private String filePatternText;
+    private Pattern headerPattern;
+    private FingerprintRule fingerprintRule;
+    private OutputOptions outputOptions;
     private Path outputFolder;
+    private final OutputLayout outputLayout;
+    // Output folders created so far and the names taken in them
+    private final OutputFiles outputFiles = new OutputFiles();
     private int intervalSeconds;
     private Consumer<String> logCallback;
+    private String label;
 
-    // Append mode configuration (T018)
-    private boolean appendModeEnabled;
-    private String lastGeneratedFilePath;
+    // The configured mapping first, then the watch folder's additional outputs
+    private final List<FanOutTarget> targets = new ArrayList<>();
+    // Their mappings, recompiled off the hot path when edited
+    private final List<ReloadingMapping> mappings = new ArrayList<>();
 
-    private ScheduledExecutorService scheduler;
-    private volatile boolean running;
+    // Set by the engine: claims of a watch folder shared with other instances, and the pool outputs are written on
+    private FileClaims claims;
+    private ExecutorService exportPool;
+
+    // Processed sources go to the engine's archiver in batches when the config has an archive policy
+    private final ArchivePolicy archivePolicy;
+    private SourceArchiver archiver;
 
     // Track files currently being processed to avoid duplicate processing
     private final Set<String> processingFiles = new HashSet<>();
 
+    // Tail mode: sources are read incrementally and stay in the watch folder; their read states by path
+    private final boolean tailMode;
+    private final long tailIdleMillis;
+    private final Map<String, TailState> tails = new ConcurrentHashMap<>();
+
     public FolderWatcher(RunningModeConfig config, Consumer<String> logCallback) {
         this.watchFolder = Paths.get(config.getWatchFolder());
-        this.mappingFile = new File(config.getMappingFile());
         this.outputFolder = Paths.get(config.getOutputFolder());
         this.intervalSeconds = config.getIntervalSeconds();
         this.logCallback = logCallback;
+        this.outputOptions = config.getOutput();
+        this.outputLayout = config.getOutputLayout() != null ? config.getOutputLayout() : new OutputLayout();
+        if (config.getHeaderPattern() != null && !config.getHeaderPattern().isEmpty()) {
+            this.headerPattern = Pattern.compile(config.getHeaderPattern(), Pattern.MULTILINE);
+        }
+        this.fingerprintRule = config.getFingerprint();
+        this.tailMode = config.isTailMode();
+        this.tailIdleMillis = config.getTailIdleSeconds() * 1000L;
+        this.archivePolicy = config.getArchive();
 
         // T018: Read append mode settings from config
-        this.appendModeEnabled = config.isAppendModeEnabled();
-        this.lastGeneratedFilePath = config.getLastGeneratedFilePath();
+        FanOutTarget primary = new FanOutTarget(config.getMappingFile());
+        primary.setAppendModeEnabled(config.isAppendModeEnabled());
+        primary.setLastGeneratedFilePath(config.getLastGeneratedFilePath());
+        primary.setRollover(config.getRollover());
+        targets.add(primary);
+        for (FanOutTarget target : config.getOutputs()) {
+            if (target.getMappingFile() != null && !target.getMappingFile().isEmpty()) {
+                targets.add(target);
+            }
+        }
+        for (FanOutTarget target : targets) {
+            mappings.add(new ReloadingMapping(new File(target.getMappingFile()), file -> parseOptionsFor(file, config)));
+        }
 
-        // Parse file extensions from pattern (e.g., "*.txt,*.asc" -> ["txt", "asc"])
-        this.fileExtensions = new HashSet<>();
+        // File name globs, matched case-insensitively (e.g. "*.txt,*.asc" or "line3_*.txt")
+        this.filePatterns = new ArrayList<>();
+        List<String> patterns = new ArrayList<>();
         for (String pattern : config.getFilePattern().split(",")) {
             pattern = pattern.trim();
-            if (pattern.startsWith("*.")) {
-                fileExtensions.add(pattern.substring(2).toLowerCase());
+            if (!pattern.isEmpty()) {
+                filePatterns.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern.toLowerCase()));
+                patterns.add(pattern);
             }
         }
+        this.filePatternText = String.join(", ", patterns);
     }
 
     /**
-     * Start the folder watcher.
+     * A mapping's own column config and charset win over the watch folder's.
      */
-    public void start() {
-        if (running) {
-            log("Watcher already running");
-            return;
+    private static ParseOptions parseOptionsFor(File mappingFile, RunningModeConfig config) {
+        ParseOptions parseOptions = ParseOptions.forMapping(mappingFile);
+        if (parseOptions.getColumnConfigFile() == null
+                && config.getColumnConfigFile() != null && !config.getColumnConfigFile().isEmpty()) {
+            parseOptions.setColumnConfigFile(new File(config.getColumnConfigFile()));
         }
-
-        running = true;
-        scheduler = Executors.newSingleThreadScheduledExecutor();
-        scheduler.scheduleAtFixedRate(this::scanFolder, 0, intervalSeconds, TimeUnit.SECONDS);
-        log("Started watching: " + watchFolder);
-        log("Pattern: " + String.join(", ", fileExtensions.stream().map(e -> "*." + e).toArray(String[]::new)));
-        if (appendModeEnabled) {
-            log("Append Mode: ENABLED" + (lastGeneratedFilePath != null
-                    ? " (continuing to: " + new File(lastGeneratedFilePath).getName() + ")"
-                    : ""));
+        if (parseOptions.getCharset() == null
+                && config.getSourceCharset() != null && !config.getSourceCharset().isEmpty()) {
+            parseOptions.setCharset(config.getSourceCharset());
         }
+        return parseOptions;
+    }
+
+    Path getWatchFolder() {
+        return watchFolder;
+    }
+
+    int getIntervalSeconds() {
+        return intervalSeconds;
+    }
+
+    /** Prefix of this route's log lines when the engine runs several routes. */
+    void setLabel(String label) {
+        this.label = label;
+    }
+
+    void setClaims(FileClaims claims) {
+        this.claims = claims;
+    }
+
+    void setExportPool(ExecutorService exportPool) {
+        this.exportPool = exportPool;
+    }
+
+    boolean hasArchivePolicy() {
+        return archivePolicy != null && !tailMode;
+    }
+
+    void setArchiver(SourceArchiver archiver) {
+        this.archiver = archiver;
     }
 
     /**
-     * Stop the folder watcher.
+     * Hand the archiver the sources a previous run staged but did not
+     * archive. Called by the engine on start.
      */
-    public void stop() {
-        if (!running) {
-            return;
-        }
-
-        running = false;
-        if (scheduler != null) {
-            scheduler.shutdown();
-            try {
-                if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                    scheduler.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                scheduler.shutdownNow();
+    void recoverArchive() {
+        try {
+            int recovered = archiver.recover(stagingFolder(), archiveFolder(), archivePolicy);
+            if (recovered > 0) {
+                log("Archiving " + recovered + " sources staged by the previous run");
             }
+        } catch (IOException e) {
+            log("WARNING: Could not recover staged sources: " + e.getMessage());
         }
-        log("Stopped watching");
     }
 
-    public boolean isRunning() {
-        return running;
+    /** "&lt;watch folder&gt;/.archiving/&lt;mapping name&gt;": on the sources' volume, so staging is a rename. */
+    private Path stagingFolder() {
+        return watchFolder.resolve(SourceArchiver.STAGING_FOLDER).resolve(primaryMappingName());
+    }
+
+    /** "&lt;watch folder&gt;/.progress/&lt;mapping name&gt;": which outputs of the sources that failed were written. */
+    private Path progressFolder() {
+        return watchFolder.resolve(SourceProgress.PROGRESS_FOLDER).resolve(primaryMappingName());
+    }
+
+    /** "&lt;output folder&gt;/&lt;mapping name&gt;/archive": the daily zip archives and their indexes. */
+    private File archiveFolder() {
+        return outputFolder.resolve(primaryMappingName()).resolve("archive").toFile();
+    }
+
+    private String primaryMappingName() {
+        return new File(targets.get(0).getMappingFile()).getName().replace(".json", "");
+    }
+
+    boolean isTailMode() {
+        return tailMode;
+    }
+
+    /** Number of outputs (the configured mapping and the additional outputs). */
+    int outputCount() {
+        return targets.size();
     }
 
     /**
-     * Get the last generated file path for session persistence.
+     * How many of this route's files may be processed at once: one when an
+     * output appends, so appends and rollovers see the sources in order;
+     * otherwise any number.
      */
-    public String getLastGeneratedFilePath() {
-        return lastGeneratedFilePath;
+    int maxParallelFiles() {
+        for (FanOutTarget target : targets) {
+            if (target.isAppendModeEnabled() || (target.getAppendTarget() != null && !target.getAppendTarget().isEmpty())) {
+                return 1;
+            }
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /** Describe the route in the activity log when the engine starts. */
+    void logStart() {
+        log("Watching: " + watchFolder);
+        log("Pattern: " + filePatternText + (headerPattern != null ? " with header /" + headerPattern.pattern() + "/" : "")
+                + (fingerprintRule != null ? " with a fingerprint rule" : ""));
+        if (targets.size() > 1) {
+            log("Outputs: " + targets.size() + " mappings per source file");
+        }
+        if (!outputLayout.resolveStrategy().equals(OutputLayout.TIMESTAMP)) {
+            log("Output layout: " + outputLayout);
+        } else if (outputLayout.getStrategy() != null
+                && !outputLayout.getStrategy().trim().equalsIgnoreCase(OutputLayout.TIMESTAMP)) {
+            log("WARNING: Unknown output layout " + outputLayout.getStrategy()
+                    + " (or shift without shiftStarts), using timestamp folders");
+        }
+        if (tailMode) {
+            log("Tail Mode: ENABLED (sources stay in the watch folder; new blocks are appended as they grow)");
+            if (claims != null) {
+                log("WARNING: Tail mode does not claim files; run one instance per tailed folder");
+            }
+        }
+        FanOutTarget primary = targets.get(0);
+        if (primary.isAppendModeEnabled()) {
+            log("Append Mode: ENABLED" + (primary.getLastGeneratedFilePath() != null
+                    ? " (continuing to: " + new File(primary.getLastGeneratedFilePath()).getName() + ")"
+                    : ""));
+        }
     }
 
     /**
-     * Scan folder for matching files and process them.
+     * Get the last generated file path of the configured mapping for session
+     * persistence. Additional outputs keep theirs on their {@link FanOutTarget}.
      */
-    private void scanFolder() {
-        if (!running)
-            return;
+    public String getLastGeneratedFilePath() {
+        return targets.get(0).getLastGeneratedFilePath();
+    }
 
-        try {
-            File folder = watchFolder.toFile();
-            if (!folder.exists() || !folder.isDirectory()) {
-                return;
+    /** True if the file name matches one of the route's patterns. */
+    boolean matchesName(File file) {
+        Path name = Paths.get(file.getName().toLowerCase());
+        for (PathMatcher pattern : filePatterns) {
+            if (pattern.matches(name)) {
+                return true;
             }
+        }
+        return false;
+    }
 
-            File[] files = folder.listFiles();
-            if (files == null)
-                return;
+    boolean hasHeaderPattern() {
+        return headerPattern != null;
+    }
 
-            for (File file : files) {
-                if (!running)
-                    break;
-                if (!file.isFile())
-                    continue;
+    boolean hasFingerprintRule() {
+        return fingerprintRule != null;
+    }
 
-                String fileName = file.getName().toLowerCase();
-                String extension = "";
-                int dotIndex = fileName.lastIndexOf('.');
-                if (dotIndex > 0) {
-                    extension = fileName.substring(dotIndex + 1);
-                }
+    /**
+     * True if a file whose name matches meets the route's fingerprint rule
+     * and header pattern. The caller reads the header once for all routes
+     * of the folder and passes only what the routes need: the header text
+     * if {@link #hasHeaderPattern()}, the fingerprint if
+     * {@link #hasFingerprintRule()}.
+     */
+    boolean matchesHeader(String header, SourceFingerprint fingerprint) {
+        if (fingerprintRule != null && !fingerprintRule.matches(fingerprint)) {
+            return false;
+        }
+        return headerPattern == null || headerPattern.matcher(header).find();
+    }
 
-                if (fileExtensions.contains(extension)) {
-                    processFile(file);
-                }
+    /**
+     * Recompile the route's mappings that changed on disk and log the
+     * result. Called by the engine before each scan of the route's folder,
+     * never by the workers.
+     */
+    void reloadMappings() {
+        for (ReloadingMapping mapping : mappings) {
+            String message = mapping.reload();
+            if (message != null) {
+                log(message);
+            }
+        }
+    }
+
+    /** True if every mapping of the route has a version that compiled. */
+    boolean hasValidMappings() {
+        for (ReloadingMapping mapping : mappings) {
+            if (mapping.current() == null) {
+                return false;
             }
-        } catch (Exception e) {
-            log("Error scanning folder: " + e.getMessage());
         }
+        return true;
     }
 
     /**
-     * Process a single file: convert to Excel and archive.
+     * Process a single file: convert to Excel for every output and archive.
      * T019/T020: Handles append mode with file deleted detection.
      */
-    private void processFile(File sourceFile) {
+    void processFile(File sourceFile) {
+        if (tailMode) {
+            processTail(sourceFile);
+            return;
+        }
         String fileName = sourceFile.getName();
 
         // Skip if already being processed
@@ -165,75 +340,294 @@ public class FolderWatcher {
             processingFiles.add(fileName);
         }
 
+        File claimed = null;
+        boolean done = false;
         try {
+            if (claims != null) {
+                // Another instance may take the file first; it is then gone from the watch folder
+                claimed = claims.claim(sourceFile);
+                if (claimed == null) {
+                    return;
+                }
+                sourceFile = claimed;
+            }
+
             log("Processing: " + fileName);
 
-            // Create timestamp folder structure for archive
-            String mappingName = mappingFile.getName().replace(".json", "");
-            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd_HHmmss"));
-            Path timestampFolder = outputFolder.resolve(mappingName).resolve(timestamp);
-            Path archiveFolder = timestampFolder.resolve("archive");
-
-            // T019/T020: Check if we should append to existing file
-            if (appendModeEnabled && lastGeneratedFilePath != null) {
-                File existingFile = new File(lastGeneratedFilePath);
-
-                // T020: Check if file was deleted
-                if (existingFile.exists()) {
-                    // Append to existing file
-                    AppendResult result = ExcelWriter.appendToMappedFile(sourceFile, mappingFile, existingFile);
-
-                    if (result.isSuccess()) {
-                        log("Appended " + result.getRowsAdded() + " rows to " + existingFile.getName() +
-                                " (offset: " + result.getRowOffset() + ")");
-
-                        // Log any warnings
-                        for (String warning : result.getWarnings()) {
-                            log("WARNING: " + warning);
-                        }
-
-                        // Archive source file to the original output folder's archive
-                        Path originalFolder = existingFile.toPath().getParent();
-                        Path originalArchive = originalFolder.resolve("archive");
-                        Files.createDirectories(originalArchive);
-                        Path archivePath = originalArchive.resolve(fileName);
-                        Files.move(sourceFile.toPath(), archivePath, StandardCopyOption.REPLACE_EXISTING);
-                        log("Archived: " + fileName);
-                        return;
-                    } else {
-                        log("ERROR: Failed to append: " + result.getErrorMessage());
-                        log("Creating new file instead...");
-                        // Fall through to create new file
-                    }
-                } else {
-                    // T020: File was deleted, warn and create new
-                    log("WARNING: Target file was deleted: " + existingFile.getName());
-                    log("Creating new file instead...");
+            String timestamp = LocalDateTime.now().format(TIMESTAMP);
+            String baseName = fileName.substring(0, fileName.lastIndexOf('.'));
+
+            // The mapping versions for this file; a reload meanwhile applies from the next file on
+            MappingPlan[] plans = new MappingPlan[targets.size()];
+            for (int i = 0; i < plans.length; i++) {
+                plans[i] = mappings.get(i).current();
+                if (plans[i] == null) {
+                    log("ERROR: " + mappings.get(i).getMappingFile().getName() + " has no valid version yet, "
+                            + fileName + " stays in the watch folder");
+                    return;
                 }
             }
+            // Outputs an earlier scan wrote while another output failed are not written again
+            SourceProgress progress = SourceProgress.load(progressFolder(), sourceFile);
+            // Rollover chains of the append targets that have a rollover policy
+            AppendChain[] chains = new AppendChain[targets.size()];
+            List<Integer> indexes = new ArrayList<>();
+            List<FanOutExport.Job> jobs = new ArrayList<>();
+            for (int i = 0; i < targets.size(); i++) {
+                if (!progress.isWritten(i)) {
+                    indexes.add(i);
+                    jobs.add(jobFor(i, plans[i], timestamp, baseName, chains));
+                }
+            }
+            List<FanOutExport.Outcome> outcomes = jobs.isEmpty() ? List.of()
+                    : export(sourceFile, null, indexes, jobs, plans, chains, timestamp, baseName);
+            for (int k = 0; k < outcomes.size(); k++) {
+                if (outcomes.get(k).isSuccess()) {
+                    progress.setOutputFor(indexes.get(k), outcomes.get(k).getJob().getOutputFile().getAbsolutePath());
+                }
+            }
+            if (!outcomes.stream().allMatch(FanOutExport.Outcome::isSuccess)) {
+                // Not archived, so the file is tried again on the next scan, for the failed outputs only
+                progress.save();
+                log("ERROR: " + fileName + " stays in the watch folder, not every output was written");
+                return;
+            }
 
-            // Create new file (either first file or append not enabled/failed)
-            Files.createDirectories(archiveFolder);
+            if (archiver != null) {
+                archiver.submit(sourceFile, stagingFolder(), archiveFolder(), timestamp, archivePolicy);
+                log("Queued for archive: " + fileName);
+                done = true;
+                progress.delete();
+                return;
+            }
 
-            // Generate output file name
-            String baseName = fileName.substring(0, fileName.lastIndexOf('.'));
-            File outputFile = timestampFolder.resolve(baseName + ".xlsx").toFile();
+            // Move source file to the archive next to the first output, keeping an earlier one of the same name
+            Path archiveFolder = Paths.get(progress.outputFor(0)).getParent().resolve("archive");
+            Path archived = outputFiles.moveInto(sourceFile.toPath(), archiveFolder);
+            log("Archived: " + fileName + (archived.getFileName().toString().equals(fileName)
+                    ? "" : " as " + archived.getFileName()));
+            done = true;
+            progress.delete();
+
+        } catch (Exception e) {
+            log("Error processing " + fileName + ": " + e.getMessage());
+        } finally {
+            if (claimed != null && !done && claimed.exists()) {
+                // Give the file back, as an unclaimed file that failed is retried on the next scan
+                try {
+                    claims.release(claimed);
+                } catch (IOException e) {
+                    log("WARNING: Could not return " + fileName + " to the watch folder: " + e.getMessage());
+                }
+            }
+            synchronized (processingFiles) {
+                processingFiles.remove(fileName);
+            }
+        }
+    }
+
+    /**
+     * Run the jobs on the source file (or on {@code table}, already parsed
+     * from it), retry failed appends and log the outcomes.
+     *
+     * @param indexes the output of the route each job writes
+     * @return the outcomes in the order of the jobs
+     */
+    private List<FanOutExport.Outcome> export(File sourceFile, ParsedTable table, List<Integer> indexes,
+            List<FanOutExport.Job> jobs, MappingPlan[] plans, AppendChain[] chains, String timestamp, String baseName)
+            throws IOException, InterruptedException {
+        List<FanOutExport.Outcome> outcomes = table != null
+                ? FanOutExport.run(table, jobs, exportPool) : FanOutExport.run(sourceFile, jobs, exportPool);
+
+        // A full target rolls over; other failed appends fall back to a new file
+        List<Integer> retried = new ArrayList<>();
+        List<FanOutExport.Job> retries = new ArrayList<>();
+        for (int k = 0; k < outcomes.size(); k++) {
+            FanOutExport.Outcome outcome = outcomes.get(k);
+            int i = indexes.get(k);
+            if (outcome.getJob().isAppend() && !outcome.isSuccess()) {
+                retried.add(k);
+                if (chains[i] != null && outcome.getAppendResult().isRowLimitExceeded()) {
+                    log("Rollover of " + outcome.getJob().getOutputFile().getName() + " (" + outcome.getErrorMessage() + ")");
+                    retries.add(rollJob(i, plans[i], chains[i], outcome.getJob().getOutputFile()));
+                    continue;
+                }
+                log("ERROR: Failed to append: " + outcome.getErrorMessage());
+                log("Creating new file instead...");
+                chains[i] = null;
+                retries.add(createJob(i, plans[i], newOutputFile(i, plans[i], timestamp, baseName)));
+            }
+        }
+        if (!retries.isEmpty()) {
+            List<FanOutExport.Outcome> retryOutcomes = table != null
+                    ? FanOutExport.run(table, retries, exportPool) : FanOutExport.run(sourceFile, retries, exportPool);
+            for (int r = 0; r < retried.size(); r++) {
+                outcomes.set(retried.get(r), retryOutcomes.get(r));
+            }
+        }
+
+        for (int k = 0; k < outcomes.size(); k++) {
+            report(targets.get(indexes.get(k)), outcomes.get(k), chains[indexes.get(k)]);
+        }
+        return outcomes;
+    }
 
-            // Convert using ExcelWriter
-            ExcelWriter.writeAdvancedMappedFile(sourceFile, mappingFile, outputFile);
-            log("Created new file: " + outputFile.getName());
+    /**
+     * Append to the target's fixed append file (or the latest segment it
+     * rolled over into) or, in append mode, its last generated file when
+     * that still exists; else write a new file.
+     */
+    private FanOutExport.Job jobFor(int index, MappingPlan plan, String timestamp, String baseName,
+            AppendChain[] chains) throws IOException {
+        FanOutTarget target = targets.get(index);
+        if (target.getAppendTarget() != null && !target.getAppendTarget().isEmpty()) {
+            File appendFile = outputFolder.resolve(target.getAppendTarget()).toFile();
+            AppendChain chain = hasRollover(target) ? AppendChain.load(appendFile) : null;
+            File current = chain != null ? chain.currentFile() : appendFile;
+            if (current.exists()) {
+                return appendOrRollJob(index, plan, current, chains);
+            }
+            Files.createDirectories(current.getAbsoluteFile().getParentFile().toPath());
+            return FanOutExport.Job.appendOrCreate(plan.getMappingFile(), plan.getParseOptions(),
+                    outputOptions.overlay(target.getOutput()), current).withPlan(plan);
+        }
 
-            // T019: Store path for subsequent appends
-            if (appendModeEnabled) {
-                lastGeneratedFilePath = outputFile.getAbsolutePath();
-                log("Append target set to: " + outputFile.getName());
+        // T019/T020: Check if we should append to existing file
+        if (target.isAppendModeEnabled() && target.getLastGeneratedFilePath() != null) {
+            File existingFile = new File(target.getLastGeneratedFilePath());
+            if (existingFile.exists()) {
+                return appendOrRollJob(index, plan, existingFile, chains);
             }
+            // T020: File was deleted, warn and create new
+            log("WARNING: Target file was deleted: " + existingFile.getName());
+            log("Creating new file instead...");
+        }
+        return createJob(index, plan, newOutputFile(index, plan, timestamp, baseName));
+    }
 
-            // Move source file to archive
-            Path archivePath = archiveFolder.resolve(fileName);
-            Files.move(sourceFile.toPath(), archivePath, StandardCopyOption.REPLACE_EXISTING);
-            log("Archived: " + fileName);
+    /**
+     * True if a tail mode file grew or changed since it was last read, or
+     * stopped growing with a last block not read yet. Called by the engine
+     * on each scan.
+     */
+    boolean hasTailWork(File sourceFile) {
+        TailState state;
+        try {
+            state = tailState(sourceFile);
+        } catch (IOException e) {
+            log("WARNING: Could not read the tail state of " + sourceFile.getName() + ": " + e.getMessage());
+            return false;
+        }
+        long size = sourceFile.length();
+        long modified = sourceFile.lastModified();
+        // The worker may be updating the state; a stale answer only queues one read too many
+        return state.isChanged(size, modified)
+                || (!state.isIdleRead() && state.getOffset() < size && isIdle(modified));
+    }
 
+    private boolean isIdle(long lastModified) {
+        return tailIdleMillis > 0 && System.currentTimeMillis() - lastModified >= tailIdleMillis;
+    }
+
+    private TailState tailState(File sourceFile) throws IOException {
+        String path = sourceFile.getAbsolutePath();
+        TailState state = tails.get(path);
+        if (state == null) {
+            state = TailState.load(sourceFile);
+            tails.put(path, state);
+        }
+        return state;
+    }
+
+    /**
+     * Tail mode: parse the blocks appended to the source since the last
+     * read and append them to each output. The source stays in the watch
+     * folder; a file that shrank or starts differently is read again from
+     * the start into new outputs.
+     */
+    void processTail(File sourceFile) {
+        String fileName = sourceFile.getName();
+        synchronized (processingFiles) {
+            if (!processingFiles.add(fileName)) {
+                return;
+            }
+        }
+        try {
+            TailState state = tailState(sourceFile);
+            long size = sourceFile.length();
+            long modified = sourceFile.lastModified();
+            if (state.getHeadLength() > 0
+                    && state.isReplaced(size, TailParser.headChecksum(sourceFile, state.getHeadLength()))) {
+                log("Tail: " + fileName + " was truncated or replaced, reading it from the start");
+                state.restart();
+            }
+            int headLength = (int) Math.min(TailParser.HEAD_BYTES, size);
+            long headChecksum = TailParser.headChecksum(sourceFile, headLength);
+            boolean idle = isIdle(modified);
+
+            MappingPlan[] plans = new MappingPlan[targets.size()];
+            for (int i = 0; i < plans.length; i++) {
+                plans[i] = mappings.get(i).current();
+                if (plans[i] == null) {
+                    log("ERROR: " + mappings.get(i).getMappingFile().getName() + " has no valid version yet, "
+                            + fileName + " is read later");
+                    return;
+                }
+            }
+            long from = state.getOffset();
+            // All outputs append from one parse, with the configured mapping's parse options; blocks some
+            // outputs already took are read again only up to where they ended, for the outputs that failed
+            boolean again = state.getPendingEnd() > from;
+            TailParser.Increment increment = again
+                    ? TailParser.read(sourceFile, from, state.getPendingEnd(), state.getHeaderLine(),
+                            plans[0].getParseOptions())
+                    : TailParser.read(sourceFile, from, state.getHeaderLine(), plans[0].getParseOptions(), idle);
+            if (increment != null && increment.getBlocks() > 0) {
+                String timestamp = LocalDateTime.now().format(TIMESTAMP);
+                String baseName = fileName.substring(0, fileName.lastIndexOf('.'));
+                AppendChain[] chains = new AppendChain[targets.size()];
+                List<Integer> indexes = new ArrayList<>();
+                List<FanOutExport.Job> jobs = new ArrayList<>();
+                for (int i = 0; i < targets.size(); i++) {
+                    if (!state.hasTaken(i)) {
+                        indexes.add(i);
+                        jobs.add(tailJob(i, plans[i], state, timestamp, baseName, chains));
+                    }
+                }
+                List<FanOutExport.Outcome> outcomes = export(sourceFile, increment.getTable(), indexes, jobs, plans,
+                        chains, timestamp, baseName);
+                boolean failed = false;
+                for (int k = 0; k < outcomes.size(); k++) {
+                    int i = indexes.get(k);
+                    if (!outcomes.get(k).isSuccess()) {
+                        failed = true;
+                        continue;
+                    }
+                    state.took(i, increment.getEnd());
+                    if (!isAppendTarget(targets.get(i))) {
+                        state.setOutputFor(i, outcomes.get(k).getJob().getOutputFile().getAbsolutePath());
+                    }
+                }
+                if (failed) {
+                    // The offset stays; the next scan offers these blocks again to the outputs that failed only
+                    state.save();
+                    log("ERROR: Not every output took the new blocks of " + fileName + ", they are offered again");
+                    return;
+                }
+                log("Tail: " + increment.getBlocks() + " new blocks from " + fileName
+                        + " (bytes " + from + "-" + increment.getEnd() + ")");
+            } else if (increment == null && from == 0 && size >= SourceFingerprint.HEADER_BYTES
+                    && SourceFingerprint.of(sourceFile).getLayout() != SourceFingerprint.Layout.QV) {
+                log("ERROR: Tail mode reads QV block files; " + fileName + " is not one");
+            }
+            if (increment != null) {
+                state.advance(increment.getEnd(), increment.getHeaderLine());
+            }
+            if (!again) {
+                // Else what the file gained after the blocks read again is read on the next scan
+                state.seen(size, modified, headLength, headChecksum, idle);
+            }
+            state.save();
         } catch (Exception e) {
             log("Error processing " + fileName + ": " + e.getMessage());
         } finally {
@@ -243,9 +637,176 @@ public class FolderWatcher {
         }
     }
 
+    /**
+     * Append targets and append mode keep their usual target; other
+     * outputs get one file per source, created by its first blocks.
+     */
+    private FanOutExport.Job tailJob(int index, MappingPlan plan, TailState state, String timestamp, String baseName,
+            AppendChain[] chains) throws IOException {
+        FanOutTarget target = targets.get(index);
+        if (isAppendTarget(target) || target.isAppendModeEnabled()) {
+            return jobFor(index, plan, timestamp, baseName, chains);
+        }
+        String output = state.outputFor(index);
+        if (output != null && new File(output).exists()) {
+            return appendJob(index, plan, new File(output), null);
+        }
+        return createJob(index, plan, newOutputFile(index, plan, timestamp, baseName));
+    }
+
+    private static boolean isAppendTarget(FanOutTarget target) {
+        return target.getAppendTarget() != null && !target.getAppendTarget().isEmpty();
+    }
+
+    private static boolean hasRollover(FanOutTarget target) {
+        return target.getRollover() != null && target.getRollover().isEnabled();
+    }
+
+    /**
+     * Append to {@code existing} unless the target's rollover policy says
+     * its current segment is full.
+     */
+    private FanOutExport.Job appendOrRollJob(int index, MappingPlan plan, File existing, AppendChain[] chains)
+            throws IOException {
+        FanOutTarget target = targets.get(index);
+        if (!hasRollover(target)) {
+            return appendJob(index, plan, existing, null);
+        }
+        AppendChain chain = AppendChain.forSegment(existing);
+        chains[index] = chain;
+        AppendChain.Segment segment = chain.current();
+        String reason = target.getRollover().rolloverReason(existing.length(), segmentRows(index, plan, existing, segment),
+                segment.getLastRowsAdded(), segment.startedAt(), Instant.now(), ZoneId.systemDefault());
+        if (reason == null) {
+            return appendJob(index, plan, existing, segment.getSheet());
+        }
+        log("Rollover of " + existing.getName() + " (" + reason + ")");
+        return rollJob(index, plan, chain, existing);
+    }
+
+    /**
+     * Rows of the segment from the output's append index (rebuilt by a scan
+     * if the file changed), else as last recorded in the chain.
+     */
+    private int segmentRows(int index, MappingPlan plan, File existing, AppendChain.Segment segment) {
+        OutputOptions options = plan.outputOptions(outputOptions.overlay(targets.get(index).getOutput()));
+        if (segment.getSheet() != null) {
+            options.setSheetName(segment.getSheet());
+        }
+        try {
+            return OutputSinks.appendIndex(existing, options).getRows();
+        } catch (IOException e) {
+            log("WARNING: Could not index " + existing.getName() + ": " + e.getMessage());
+            return segment.getRows();
+        }
+    }
+
+    /**
+     * Start the chain's next segment: a new sheet of {@code existing} in
+     * sheet mode, else a new numbered workbook. Either way the mapping's
+     * titles are written again.
+     */
+    private FanOutExport.Job rollJob(int index, MappingPlan plan, AppendChain chain, File existing) {
+        FanOutTarget target = targets.get(index);
+        RolloverPolicy policy = target.getRollover();
+        int expectedRows = chain.current().getLastRowsAdded();
+        OutputOptions options = plan.outputOptions(outputOptions.overlay(target.getOutput()));
+
+        AppendChain.Segment segment;
+        FanOutExport.Job job;
+        if (policy.isSheetMode() && options.resolveFormat() != OutputFormat.CSV) {
+            String baseSheet = options.getSheetName() != null ? options.getSheetName()
+                    : options.getTemplateSheet() != null ? options.getTemplateSheet() : "Result";
+            String sheet = chain.nextSheetName(baseSheet);
+            segment = chain.startSegment(existing, sheet, Instant.now());
+            job = appendJob(index, plan, existing, sheet);
+        } else {
+            File next = chain.nextWorkbookFile();
+            segment = chain.startSegment(next, null, Instant.now());
+            job = createJob(index, plan, next);
+        }
+        segment.setLastRowsAdded(expectedRows);
+        log("Continuing in " + job.getOutputFile().getName() + (segment.getSheet() != null ? " [" + segment.getSheet() + "]" : ""));
+        return job;
+    }
+
+    private FanOutExport.Job appendJob(int index, MappingPlan plan, File existingFile, String sheet) {
+        OutputOptions options = outputOptions.overlay(targets.get(index).getOutput());
+        if (sheet != null) {
+            options.setSheetName(sheet);
+        }
+        return FanOutExport.Job.append(plan.getMappingFile(), plan.getParseOptions(), options, existingFile)
+                .withPlan(plan);
+    }
+
+    private FanOutExport.Job createJob(int index, MappingPlan plan, File outputFile) {
+        return FanOutExport.Job.create(plan.getMappingFile(), plan.getParseOptions(),
+                outputOptions.overlay(targets.get(index).getOutput()), outputFile).withPlan(plan);
+    }
+
+    /**
+     * A new output file in "&lt;output folder&gt;/&lt;mapping name&gt;/", in the
+     * folder the output layout gives (by default "&lt;timestamp&gt;/"), named
+     * after the source with the output format's extension. The name is
+     * taken right away, so a source of the same name processed meanwhile
+     * gets another one.
+     */
+    private File newOutputFile(int index, MappingPlan plan, String timestamp, String baseName) throws IOException {
+        String mappingName = plan.getMappingFile().getName().replace(".json", "");
+        LocalDateTime processed = LocalDateTime.parse(timestamp, TIMESTAMP);
+        Path folder = outputLayout.folderFor(outputFolder.resolve(mappingName), processed);
+
+        String extension = plan.outputOptions(outputOptions.overlay(targets.get(index).getOutput()))
+                .resolveFormat().getExtension();
+        return outputFiles.reserve(folder, outputLayout.fileNameFor(baseName, extension, processed));
+    }
+
+    private void report(FanOutTarget target, FanOutExport.Outcome outcome, AppendChain chain) {
+        File outputFile = outcome.getJob().getOutputFile();
+        MappingPlan plan = outcome.getJob().getPlan();
+        if (!outcome.isSuccess()) {
+            log("ERROR: " + plan + ": " + outcome.getErrorMessage());
+            if (!outcome.getJob().isAppend() && outputFile.length() == 0) {
+                // The name taken for a new file that was never written
+                outputFile.delete();
+            }
+            return;
+        }
+        AppendResult result = outcome.getAppendResult();
+        if (chain != null) {
+            // Record the segment's size for the next rollover check
+            if (result != null) {
+                chain.current().setRows(result.getRowOffset() + result.getRowsAdded());
+                chain.current().setLastRowsAdded(result.getRowsAdded());
+            }
+            try {
+                chain.save();
+            } catch (IOException e) {
+                log("WARNING: Could not record rollover chain: " + e.getMessage());
+            }
+        }
+        if (result != null) {
+            log("Appended " + result.getRowsAdded() + " rows to " + outputFile.getName() +
+                    " (offset: " + result.getRowOffset() + ", mapping " + plan + ")");
+
+            // Log any warnings
+            for (String warning : result.getWarnings()) {
+                log("WARNING: " + warning);
+            }
+            return;
+        }
+        log("Created new file: " + outputFile.getName() + " (mapping " + plan + ")");
+
+        // T019: Store path for subsequent appends
+        if (target.isAppendModeEnabled() && (target.getAppendTarget() == null || target.getAppendTarget().isEmpty())) {
+            target.setLastGeneratedFilePath(outputFile.getAbsolutePath());
+            log("Append target set to: " + outputFile.getName());
+        }
+    }
+
     private void log(String message) {
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
-        String logMessage = timestamp + " - " + message;
+        String logMessage = timestamp + " - " + (label != null ? "[" + label + "] " : "") + message;
         if (logCallback != null) {
             logCallback.accept(logMessage);
         }
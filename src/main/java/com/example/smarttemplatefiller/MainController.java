@@ -1,5 +1,6 @@
 package com.example.smarttemplatefiller;
 
+import com.example.smarttemplatefiller.parser.ParseOptions;
 import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -147,7 +148,8 @@ public class MainController {
                 return;
 
             // T010: Call appendToMappedFile and show result
-            AppendResult result = ExcelWriter.appendToMappedFile(txtFile, mappingFile, existingFile);
+            AppendResult result = ExcelWriter.appendToMappedFile(txtFile, mappingFile, existingFile,
+                    ParseOptions.forMapping(mappingFile), exportConfig.getOutput());
 
             if (result.isSuccess()) {
                 StringBuilder message = new StringBuilder();
@@ -178,7 +180,8 @@ public class MainController {
                                 .save("output.xlsx");
                         if (outputFile != null) {
                             try {
-                                ExcelWriter.writeAdvancedMappedFile(txtFile, mappingFile, outputFile);
+                                ExcelWriter.writeAdvancedMappedFile(txtFile, mappingFile, outputFile,
+                                        ParseOptions.forMapping(mappingFile), exportConfig.getOutput());
                                 showInfo("Success", "New Excel file saved:\n" + outputFile.getAbsolutePath());
                             } catch (Exception e) {
                                 showAlert("Error", "Failed to create new file: " + e.getMessage());
@@ -200,7 +203,8 @@ public class MainController {
                 return;
 
             try {
-                ExcelWriter.writeAdvancedMappedFile(txtFile, mappingFile, outputFile);
+                ExcelWriter.writeAdvancedMappedFile(txtFile, mappingFile, outputFile,
+                        ParseOptions.forMapping(mappingFile), exportConfig.getOutput());
                 showInfo("Success", "Excel file saved:\n" + outputFile.getAbsolutePath());
             } catch (Exception e) {
                 e.printStackTrace();
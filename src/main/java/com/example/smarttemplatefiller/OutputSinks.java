@@ -0,0 +1,86 @@
+package com.example.smarttemplatefiller;
+
+import com.example.smarttemplatefiller.engine.AppendIndex;
+import com.example.smarttemplatefiller.engine.CsvSink;
+import com.example.smarttemplatefiller.engine.OutputFormat;
+import com.example.smarttemplatefiller.engine.OutputOptions;
+import com.example.smarttemplatefiller.engine.OutputSink;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Opens the {@link OutputSink} for an output's configured format.
+ */
+public final class OutputSinks {
+
+    private OutputSinks() {
+    }
+
+    /** A sink writing a new output file. */
+    public static OutputSink create(File output, OutputOptions options) throws IOException {
+        switch (options.resolveFormat()) {
+            case CSV:
+                return CsvSink.create(output, options);
+            case XLSX_STREAMING:
+                return StreamingXlsxSink.create(output, options);
+            default:
+                return XlsxSink.create(output, options);
+        }
+    }
+
+    /** A sink appending to an existing output file. */
+    public static OutputSink append(File existing, OutputOptions options) throws IOException {
+        switch (options.resolveFormat()) {
+            case CSV:
+                return CsvSink.append(existing, options);
+            case XLSX_STREAMING:
+                return StreamingXlsxSink.append(existing, options);
+            default:
+                return XlsxSink.append(existing, options);
+        }
+    }
+
+    /**
+     * Where the data of an existing output ends, for the sheet an append
+     * with {@code options} goes to. Read from the output's
+     * {@link AppendIndex} when it is current; otherwise the output is
+     * scanned (streamed, not loaded) and the rebuilt index saved.
+     */
+    public static AppendIndex.SheetIndex appendIndex(File existing, OutputOptions options) throws IOException {
+        boolean csv = options.resolveFormat() == OutputFormat.CSV;
+        AppendIndex index = AppendIndex.loadValid(existing);
+        if (index != null) {
+            AppendIndex.SheetIndex sheet = csv ? index.sheet(CsvSink.SHEET) : indexedSheet(index, options);
+            if (sheet != null) {
+                return sheet;
+            }
+        }
+        AppendIndex scanned;
+        if (csv) {
+            scanned = new AppendIndex();
+            scanned.putSheet(CsvSink.SHEET, CsvSink.scan(existing, options.resolveCsvDelimiter()));
+        } else {
+            scanned = SheetScanner.scan(existing, options);
+        }
+        AppendIndex.SheetIndex sheet = scanned.getSheets().values().iterator().next();
+        // Other sheets of a current index stay as they are
+        if (index != null) {
+            scanned.getSheets().forEach(index::putSheet);
+            scanned = index;
+        }
+        scanned.saveFor(existing);
+        return sheet;
+    }
+
+    /**
+     * The indexed append sheet, or null if it is not indexed (e.g. the
+     * workbook has no "Result" sheet and appends go to its first sheet).
+     */
+    private static AppendIndex.SheetIndex indexedSheet(AppendIndex index, OutputOptions options) {
+        if (options.getSheetName() != null && !options.getSheetName().isBlank()) {
+            return index.sheet(options.getSheetName());
+        }
+        return index.sheet(options.getTemplateSheet() != null ? options.getTemplateSheet() : "Result");
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.smarttemplatefiller;
+
+import com.example.smarttemplatefiller.engine.OutputOptions;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration POJO for a bulk re-export of archived sources (see
+ * {@link ArchiveReExport}): which archived files to select and which
+ * mapping, output folder and strategy to convert them with.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ReExportConfig {
+
+    /** One output per source, in the source's original timestamp folder. */
+    public static final String SEPARATE = "separate";
+    /** All sources appended, oldest first, to one target. */
+    public static final String APPEND = "append";
+    /** The sources of each day appended, oldest first, to one output per day. */
+    public static final String DAILY = "daily";
+
+    // Name of the job; its progress journal is kept under this name (null = the mapping's name)
+    private String name;
+
+    // Folder to walk for "archive" folders, usually a Running Mode output folder
+    private String archiveFolder;
+
+    // The mapping to convert the sources with
+    private String mappingFile;
+
+    private String outputFolder;
+
+    // Only sources archived under these mapping names (empty = all)
+    private List<String> mappings = new ArrayList<>();
+
+    // Only sources processed on or after / on or before these days, as yyyy-MM-dd (null = open)
+    private String from;
+    private String to;
+
+    private String filePattern = "*.txt,*.asc";
+
+    // separate, append or daily
+    private String strategy = SEPARATE;
+
+    // Output file name of the append strategy, in the output folder (null = "<mapping name>_reexport" with the format's extension)
+    private String appendTarget;
+
+    // Sources converted at once (null = CPU count)
+    private Integer workers;
+
+    // How outputs are written (format, string storage, ...); the mapping's own output options apply on top
+    private OutputOptions output = new OutputOptions();
+
+    public ReExportConfig() {
+    }
+
+    /** Read a job description from a JSON file. */
+    public static ReExportConfig load(File file) throws IOException {
+        return new ObjectMapper().readValue(file, ReExportConfig.class);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getArchiveFolder() {
+        return archiveFolder;
+    }
+
+    public void setArchiveFolder(String archiveFolder) {
+        this.archiveFolder = archiveFolder;
+    }
+
+    public String getMappingFile() {
+        return mappingFile;
+    }
+
+    public void setMappingFile(String mappingFile) {
+        this.mappingFile = mappingFile;
+    }
+
+    public String getOutputFolder() {
+        return outputFolder;
+    }
+
+    public void setOutputFolder(String outputFolder) {
+        this.outputFolder = outputFolder;
+    }
+
+    public List<String> getMappings() {
+        return mappings;
+    }
+
+    public void setMappings(List<String> mappings) {
+        this.mappings = mappings != null ? mappings : new ArrayList<>();
+    }
+
+    public String getFrom() {
+        return from;
+    }
+
+    public void setFrom(String from) {
+        this.from = from;
+    }
+
+    public String getTo() {
+        return to;
+    }
+
+    public void setTo(String to) {
+        this.to = to;
+    }
+
+    public String getFilePattern() {
+        return filePattern;
+    }
+
+    public void setFilePattern(String filePattern) {
+        this.filePattern = filePattern;
+    }
+
+    public String getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(String strategy) {
+        this.strategy = strategy;
+    }
+
+    public String getAppendTarget() {
+        return appendTarget;
+    }
+
+    public void setAppendTarget(String appendTarget) {
+        this.appendTarget = appendTarget;
+    }
+
+    public Integer getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(Integer workers) {
+        this.workers = workers;
+    }
+
+    public OutputOptions getOutput() {
+        return output;
+    }
+
+    public void setOutput(OutputOptions output) {
+        this.output = output != null ? output : new OutputOptions();
+    }
+
+    /** The job's name, else its mapping's file name without ".json". */
+    @JsonIgnore
+    public String resolveName() {
+        if (name != null && !name.isEmpty()) {
+            return name;
+        }
+        return new File(mappingFile).getName().replace(".json", "");
+    }
+
+    /** The strategy, checked and in lower case. */
+    @JsonIgnore
+    public String resolveStrategy() {
+        String resolved = strategy == null || strategy.isEmpty() ? SEPARATE : strategy.toLowerCase();
+        if (!resolved.equals(SEPARATE) && !resolved.equals(APPEND) && !resolved.equals(DAILY)) {
+            throw new IllegalArgumentException("Unknown strategy \"" + strategy + "\" (separate, append or daily)");
+        }
+        return resolved;
+    }
+
+    @JsonIgnore
+    public LocalDate resolveFrom() {
+        return from == null || from.isEmpty() ? null : LocalDate.parse(from);
+    }
+
+    @JsonIgnore
+    public LocalDate resolveTo() {
+        return to == null || to.isEmpty() ? null : LocalDate.parse(to);
+    }
+}
@@ -1,5 +1,11 @@
 package com.example.smarttemplatefiller;
 
+import com.example.smarttemplatefiller.engine.ArchivePolicy;
+import com.example.smarttemplatefiller.engine.ClaimPolicy;
+import com.example.smarttemplatefiller.engine.FingerprintRule;
+import com.example.smarttemplatefiller.engine.OutputLayout;
+import com.example.smarttemplatefiller.engine.OutputOptions;
+import com.example.smarttemplatefiller.engine.RolloverPolicy;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -9,6 +15,8 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Configuration POJO for Running Mode settings.
@@ -17,17 +25,62 @@ import java.nio.file.Paths;
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class RunningModeConfig {
 
+    // Label of a route in the activity log
+    private String name;
+
     private String mappingFile;
     private String watchFolder;
     private String outputFolder;
     private String filePattern = "*.txt,*.asc";
     private int intervalSeconds = 1;
 
+    // Optional regex that must match in the first 4 KB of a file for this route to take it
+    private String headerPattern;
+
+    // Optional conditions on the file's fingerprint (layout, part name, features, columns) for this route to take it
+    private FingerprintRule fingerprint;
+
+    // Optional fixed-width layout for this watch folder (defaults to column_config.json lookup)
+    private String columnConfigFile;
+
+    // Optional source encoding for this watch folder (null = auto-detect)
+    private String sourceCharset;
+
+    // How output workbooks of this watch folder are written (string storage, ...)
+    private OutputOptions output = new OutputOptions();
+
+    // Folders of new output files below <output folder>/<mapping>: timestamp, daily, shift or flat (null = timestamp)
+    private OutputLayout outputLayout;
+
+    // Further (mapping, output, append target) outputs filled from the same parse of each source
+    private List<FanOutTarget> outputs = new ArrayList<>();
+
+    // When the append target is full and appends continue in a new workbook or sheet (null = never)
+    private RolloverPolicy rollover;
+
+    // Set when other instances watch the same folder: files are claimed before processing (null = this instance only)
+    private ClaimPolicy claims;
+
+    // Sources that grow: only blocks appended since the last read are parsed and appended (QV files only)
+    private boolean tailMode = false;
+
+    // In tail mode, seconds a file must stay unchanged before its last block is taken too (0 = wait for the next block)
+    private int tailIdleSeconds = 300;
+
+    // Set to collect processed sources into daily zip archives in batches instead of moving each (null = move each)
+    private ArchivePolicy archive;
+
+    // Further routes (watch folder, patterns, mapping, outputs) run by the same engine; see resolveRoutes()
+    private List<RunningModeConfig> routes = new ArrayList<>();
+
+    // Files processed at once across all routes (null = CPU count)
+    private Integer workers;
+
     // Append mode fields (for Excel Append Mode feature)
     private boolean appendModeEnabled = false;
 
     @JsonIgnore
-    private transient String lastGeneratedFilePath;
+    private transient volatile String lastGeneratedFilePath;
 
     private static final String CONFIG_DIR = System.getProperty("user.home") + "/.smarttemplatefiller";
     private static final String CONFIG_FILE = CONFIG_DIR + "/running_mode_config.json";
@@ -37,6 +90,14 @@ public class RunningModeConfig {
     }
 
     // Getters and Setters
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
     public String getMappingFile() {
         return mappingFile;
     }
@@ -77,6 +138,159 @@ public class RunningModeConfig {
         this.intervalSeconds = intervalSeconds;
     }
 
+    public String getHeaderPattern() {
+        return headerPattern;
+    }
+
+    public void setHeaderPattern(String headerPattern) {
+        this.headerPattern = headerPattern;
+    }
+
+    public FingerprintRule getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(FingerprintRule fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public String getColumnConfigFile() {
+        return columnConfigFile;
+    }
+
+    public void setColumnConfigFile(String columnConfigFile) {
+        this.columnConfigFile = columnConfigFile;
+    }
+
+    public String getSourceCharset() {
+        return sourceCharset;
+    }
+
+    public void setSourceCharset(String sourceCharset) {
+        this.sourceCharset = sourceCharset;
+    }
+
+    public OutputOptions getOutput() {
+        return output;
+    }
+
+    public void setOutput(OutputOptions output) {
+        this.output = output != null ? output : new OutputOptions();
+    }
+
+    public List<FanOutTarget> getOutputs() {
+        return outputs;
+    }
+
+    public void setOutputs(List<FanOutTarget> outputs) {
+        this.outputs = outputs != null ? outputs : new ArrayList<>();
+    }
+
+    public RolloverPolicy getRollover() {
+        return rollover;
+    }
+
+    public void setRollover(RolloverPolicy rollover) {
+        this.rollover = rollover;
+    }
+
+    public ClaimPolicy getClaims() {
+        return claims;
+    }
+
+    public void setClaims(ClaimPolicy claims) {
+        this.claims = claims;
+    }
+
+    public boolean isTailMode() {
+        return tailMode;
+    }
+
+    public void setTailMode(boolean tailMode) {
+        this.tailMode = tailMode;
+    }
+
+    public int getTailIdleSeconds() {
+        return tailIdleSeconds;
+    }
+
+    public void setTailIdleSeconds(int tailIdleSeconds) {
+        this.tailIdleSeconds = tailIdleSeconds;
+    }
+
+    public OutputLayout getOutputLayout() {
+        return outputLayout;
+    }
+
+    public void setOutputLayout(OutputLayout outputLayout) {
+        this.outputLayout = outputLayout;
+    }
+
+    public ArchivePolicy getArchive() {
+        return archive;
+    }
+
+    public void setArchive(ArchivePolicy archive) {
+        this.archive = archive;
+    }
+
+    public List<RunningModeConfig> getRoutes() {
+        return routes;
+    }
+
+    public void setRoutes(List<RunningModeConfig> routes) {
+        this.routes = routes != null ? routes : new ArrayList<>();
+    }
+
+    public Integer getWorkers() {
+        return workers;
+    }
+
+    public void setWorkers(Integer workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * The routes to run: this config itself if it has a watch folder and a
+     * mapping, then each entry of {@code routes}. A route without an output
+     * folder, output layout, claims or archive policy takes this config's,
+     * and its output options are laid over this config's.
+     */
+    @JsonIgnore
+    public List<RunningModeConfig> resolveRoutes() {
+        List<RunningModeConfig> resolved = new ArrayList<>();
+        if (isSet(watchFolder) && isSet(mappingFile)) {
+            resolved.add(this);
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        for (RunningModeConfig route : routes) {
+            if (!isSet(route.watchFolder) || !isSet(route.mappingFile)) {
+                continue;
+            }
+            RunningModeConfig copy = mapper.convertValue(route, RunningModeConfig.class);
+            copy.routes = new ArrayList<>();
+            if (!isSet(copy.outputFolder)) {
+                copy.outputFolder = outputFolder;
+            }
+            if (copy.claims == null) {
+                copy.claims = claims;
+            }
+            if (copy.outputLayout == null) {
+                copy.outputLayout = outputLayout;
+            }
+            if (copy.archive == null) {
+                copy.archive = archive;
+            }
+            copy.output = output.overlay(route.output);
+            resolved.add(copy);
+        }
+        return resolved;
+    }
+
+    private static boolean isSet(String value) {
+        return value != null && !value.isEmpty();
+    }
+
     public boolean isAppendModeEnabled() {
         return appendModeEnabled;
     }
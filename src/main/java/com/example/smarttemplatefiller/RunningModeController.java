@@ -43,7 +43,7 @@ public class RunningModeController implements Initializable {
 
     private Stage stage;
     private RunningModeConfig config;
-    private FolderWatcher watcher;
+    private RunningModeEngine watcher;
 
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -199,13 +199,14 @@ public class RunningModeController implements Initializable {
         }
 
         // Start watcher
-        watcher = new FolderWatcher(config, this::logMessage);
+        watcher = new RunningModeEngine(config, this::logMessage);
         watcher.start();
 
         // Update UI state
         startButton.setDisable(true);
         stopButton.setDisable(false);
-        statusLabel.setText("Watching: " + config.getWatchFolder());
+        statusLabel.setText("Watching: " + config.getWatchFolder()
+                + (config.getRoutes().isEmpty() ? "" : " (+" + config.getRoutes().size() + " routes)"));
         statusLabel.setStyle("-fx-font-weight: bold; -fx-text-fill: #4CAF50;");
         setConfigFieldsDisabled(true);
     }
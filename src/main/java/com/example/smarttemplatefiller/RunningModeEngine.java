@@ -0,0 +1,319 @@
+package com.example.smarttemplatefiller;
+
+import com.example.smarttemplatefiller.engine.ClaimPolicy;
+import com.example.smarttemplatefiller.engine.FileClaims;
+import com.example.smarttemplatefiller.engine.SourceArchiver;
+import com.example.smarttemplatefiller.parser.SourceFingerprint;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs every Running Mode route of a config in one engine: each watch
+ * folder is scanned on one scheduler, each file goes to the first route
+ * of its folder that matches it (by name, then by the
+ * {@link SourceFingerprint} of its header), and the files of all routes are
+ * processed on one shared, fairly scheduled set of workers
+ * ({@link FairDispatcher}). Routes also share one pool for writing their
+ * outputs, the parse cache and the mapping cache.
+ */
+public class RunningModeEngine {
+
+    private final List<FolderWatcher> routes = new ArrayList<>();
+    private final List<WatchedFolder> folders = new ArrayList<>();
+    private final int workers;
+    private final Consumer<String> logCallback;
+
+    private ScheduledExecutorService scheduler;
+    private ExecutorService exportPool;
+    private FairDispatcher<FolderWatcher> dispatcher;
+    private SourceArchiver archiver;
+    private volatile boolean running;
+
+    /** The routes sharing one watch folder, in config order, and its claims. */
+    private static final class WatchedFolder {
+        final Path path;
+        final List<FolderWatcher> routes = new ArrayList<>();
+        int intervalSeconds = Integer.MAX_VALUE;
+        FileClaims claims;
+        boolean needsHeaderText;
+        boolean needsFingerprint;
+        // Files no route took, by absolute path, with the size and time they had; not looked at again until changed
+        final Map<String, Long> unrouted = new HashMap<>();
+
+        WatchedFolder(Path path) {
+            this.path = path;
+        }
+    }
+
+    public RunningModeEngine(RunningModeConfig config, Consumer<String> logCallback) {
+        this.logCallback = logCallback;
+        this.workers = config.getWorkers() != null && config.getWorkers() > 0
+                ? config.getWorkers() : Runtime.getRuntime().availableProcessors();
+
+        List<RunningModeConfig> routeConfigs = config.resolveRoutes();
+        Map<Path, WatchedFolder> byPath = new LinkedHashMap<>();
+        for (RunningModeConfig routeConfig : routeConfigs) {
+            FolderWatcher route = new FolderWatcher(routeConfig, logCallback);
+            if (routeConfigs.size() > 1) {
+                route.setLabel(routeConfig.getName() != null && !routeConfig.getName().isEmpty()
+                        ? routeConfig.getName() : new File(routeConfig.getMappingFile()).getName().replace(".json", ""));
+            }
+            routes.add(route);
+
+            Path path = route.getWatchFolder().toAbsolutePath().normalize();
+            WatchedFolder folder = byPath.computeIfAbsent(path, WatchedFolder::new);
+            folder.routes.add(route);
+            folder.intervalSeconds = Math.max(1, Math.min(folder.intervalSeconds, route.getIntervalSeconds()));
+            folder.needsHeaderText |= route.hasHeaderPattern();
+            folder.needsFingerprint |= route.hasFingerprintRule();
+            ClaimPolicy claims = routeConfig.getClaims();
+            if (folder.claims == null && claims != null) {
+                // One claimant per folder, whichever of its routes takes a file
+                folder.claims = new FileClaims(path, claims.resolveInstanceId(), claims.resolveLease());
+            }
+        }
+        folders.addAll(byPath.values());
+        for (WatchedFolder folder : folders) {
+            for (FolderWatcher route : folder.routes) {
+                route.setClaims(folder.claims);
+            }
+        }
+    }
+
+    public void start() {
+        if (running) {
+            log("Watcher already running");
+            return;
+        }
+        if (routes.isEmpty()) {
+            log("ERROR: No route has a watch folder and a mapping");
+            return;
+        }
+
+        running = true;
+        scheduler = Executors.newScheduledThreadPool(2);
+        if (routes.stream().anyMatch(route -> route.outputCount() > 1)) {
+            // Each output has its own file, so the outputs of one source are written in parallel
+            exportPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        }
+        if (routes.stream().anyMatch(FolderWatcher::hasArchivePolicy)) {
+            // One thread writes the zip archives of all routes, off the conversion workers
+            archiver = new SourceArchiver(logCallback);
+            for (FolderWatcher route : routes) {
+                if (route.hasArchivePolicy()) {
+                    route.setArchiver(archiver);
+                    route.recoverArchive();
+                }
+            }
+            archiver.start();
+        }
+        dispatcher = new FairDispatcher<>(workers, "running-mode", FolderWatcher::processFile);
+        for (FolderWatcher route : routes) {
+            route.setExportPool(exportPool);
+            dispatcher.register(route, route.maxParallelFiles());
+            route.logStart();
+            route.reloadMappings();
+        }
+
+        for (WatchedFolder folder : folders) {
+            if (folder.claims != null) {
+                try {
+                    int returned = folder.claims.start();
+                    log("Shared watch folder " + folder.path + ": claiming as " + folder.claims.getInstanceId()
+                            + (returned > 0 ? " (" + returned + " unfinished files returned)" : ""));
+                } catch (IOException e) {
+                    log("ERROR: Cannot claim files in " + folder.path + ": " + e.getMessage());
+                    continue;
+                }
+                // Heartbeats run on the scheduler, never behind a long export
+                FileClaims claims = folder.claims;
+                long heartbeatMillis = claims.heartbeatInterval().toMillis();
+                scheduler.scheduleAtFixedRate(() -> heartbeat(claims), heartbeatMillis, heartbeatMillis,
+                        TimeUnit.MILLISECONDS);
+            }
+            scheduler.scheduleAtFixedRate(() -> scan(folder), 0, folder.intervalSeconds, TimeUnit.SECONDS);
+        }
+        dispatcher.start();
+        if (routes.size() > 1) {
+            log("Started " + routes.size() + " routes on " + folders.size() + " folders with " + workers + " workers");
+        }
+    }
+
+    public void stop() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+        }
+        dispatcher.stop();
+        if (exportPool != null) {
+            exportPool.shutdownNow();
+            exportPool = null;
+        }
+        if (archiver != null) {
+            // Sources converted before the stop are archived now, not left staged
+            archiver.stop();
+            archiver = null;
+        }
+        for (WatchedFolder folder : folders) {
+            if (folder.claims != null) {
+                folder.claims.stop();
+            }
+        }
+        log("Stopped watching");
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * The last generated file of the config's own mapping, for session
+     * persistence.
+     */
+    public String getLastGeneratedFilePath() {
+        return routes.isEmpty() ? null : routes.get(0).getLastGeneratedFilePath();
+    }
+
+    private void heartbeat(FileClaims claims) {
+        try {
+            claims.heartbeat();
+        } catch (IOException e) {
+            log("WARNING: Heartbeat failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Queue the folder's new files, each for the first of the folder's
+     * routes that matches it. The header of a file is read at most once,
+     * whichever number of routes look at it.
+     */
+    private void scan(WatchedFolder folder) {
+        if (!running) {
+            return;
+        }
+
+        try {
+            if (folder.claims != null) {
+                for (String returned : folder.claims.reclaimExpired()) {
+                    log("Reclaimed from a stopped instance: " + returned);
+                }
+            }
+            // Mapping edits take effect between files, compiled here rather than on the workers
+            for (FolderWatcher route : folder.routes) {
+                route.reloadMappings();
+            }
+            File dir = folder.path.toFile();
+            if (!dir.isDirectory()) {
+                return;
+            }
+            File[] files = dir.listFiles();
+            if (files == null) {
+                return;
+            }
+            Set<String> seen = new HashSet<>();
+            for (File file : files) {
+                if (!running) {
+                    break;
+                }
+                if (!file.isFile() || dispatcher.isPending(file)) {
+                    continue;
+                }
+                String path = file.getAbsolutePath();
+                seen.add(path);
+                long stamp = file.length() * 31 + file.lastModified();
+                Long unrouted = folder.unrouted.get(path);
+                if (unrouted != null && unrouted == stamp) {
+                    continue;
+                }
+                FolderWatcher route;
+                try {
+                    route = routeFor(folder, file);
+                } catch (IOException e) {
+                    // Still being written or already taken; the next scan looks again
+                    continue;
+                }
+                if (route != null) {
+                    folder.unrouted.remove(path);
+                    // Else the file waits in the folder until its mapping is fixed; a tailed file until it grows
+                    if (route.hasValidMappings() && (!route.isTailMode() || route.hasTailWork(file))) {
+                        dispatcher.submit(route, file);
+                    }
+                } else {
+                    folder.unrouted.put(path, stamp);
+                }
+            }
+            folder.unrouted.keySet().retainAll(seen);
+        } catch (Exception e) {
+            log("Error scanning folder: " + e.getMessage());
+        }
+    }
+
+    /** The first route of the folder that takes the file, or null. */
+    private FolderWatcher routeFor(WatchedFolder folder, File file) throws IOException {
+        String headerText = null;
+        SourceFingerprint fingerprint = null;
+        boolean headerRead = false;
+        boolean nameMatched = false;
+        for (FolderWatcher route : folder.routes) {
+            if (!route.matchesName(file)) {
+                continue;
+            }
+            nameMatched = true;
+            if (!route.hasHeaderPattern() && !route.hasFingerprintRule()) {
+                return route;
+            }
+            if (!headerRead) {
+                byte[] header = SourceFingerprint.readHeader(file);
+                headerRead = true;
+                if (folder.needsHeaderText) {
+                    headerText = new String(header, StandardCharsets.ISO_8859_1);
+                }
+                if (folder.needsFingerprint) {
+                    fingerprint = SourceFingerprint.of(header);
+                }
+            }
+            if (route.matchesHeader(headerText, fingerprint)) {
+                return route;
+            }
+        }
+        if (nameMatched) {
+            log("No route takes " + file.getName() + (fingerprint != null ? " (" + fingerprint + ")" : ""));
+        }
+        return null;
+    }
+
+    private void log(String message) {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
+        String logMessage = timestamp + " - " + message;
+        if (logCallback != null) {
+            logCallback.accept(logMessage);
+        }
+        System.out.println("[RunningModeEngine] " + logMessage);
+    }
+}
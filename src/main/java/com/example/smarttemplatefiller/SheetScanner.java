@@ -0,0 +1,110 @@
+package com.example.smarttemplatefiller;
+
+import com.example.smarttemplatefiller.engine.AppendIndex;
+import com.example.smarttemplatefiller.engine.OutputOptions;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.poi.ss.util.CellReference;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * Rebuilds the {@link AppendIndex} of a workbook by streaming the append
+ * sheet's XML out of the package, without loading the workbook: row
+ * numbers come from the {@code <row>} elements, and a cell counts as
+ * occupied if it has a value, inline string or formula.
+ */
+final class SheetScanner {
+
+    private SheetScanner() {
+    }
+
+    /** The sheet an append with {@code options} goes to, as {@link XlsxSink#appendSheet} picks it. */
+    static String appendSheetName(Map<String, String> worksheets, OutputOptions options) {
+        if (options.getSheetName() != null && !options.getSheetName().isBlank()) {
+            return options.getSheetName();
+        }
+        String sheetName = options.getTemplateSheet() != null ? options.getTemplateSheet() : "Result";
+        if (worksheets.containsKey(sheetName) || worksheets.isEmpty()) {
+            return sheetName;
+        }
+        return worksheets.keySet().iterator().next();
+    }
+
+    /**
+     * Scan the append sheet of {@code workbook} into a new index. A sheet
+     * that does not exist yet (a rollover sheet) is indexed as empty.
+     */
+    static AppendIndex scan(File workbook, OutputOptions options) throws IOException {
+        AppendIndex index = new AppendIndex();
+        try (ZipFile zip = new ZipFile(workbook)) {
+            Map<String, String> worksheets = TemplateAnalysis.worksheets(zip);
+            String sheetName = appendSheetName(worksheets, options);
+            String part = worksheets.get(sheetName);
+            ZipArchiveEntry entry = part != null ? zip.getEntry(part) : null;
+            if (entry == null) {
+                index.putSheet(sheetName, new AppendIndex.SheetIndex());
+                return index;
+            }
+            try (InputStream in = zip.getInputStream(entry)) {
+                index.putSheet(sheetName, scanSheet(in));
+            } catch (XMLStreamException e) {
+                throw new IOException("Sheet " + sheetName + " of " + workbook.getName() + " is not well-formed", e);
+            }
+        }
+        return index;
+    }
+
+    static AppendIndex.SheetIndex scanSheet(InputStream sheetXml) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        XMLStreamReader reader = factory.createXMLStreamReader(sheetXml);
+
+        AppendIndex.SheetIndex sheet = new AppendIndex.SheetIndex();
+        int rows = 0;
+        int row = -1;
+        int column = -1;
+        boolean inCell = false;
+        boolean occupied = false;
+        try {
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    if ("row".equals(name)) {
+                        String r = reader.getAttributeValue(null, "r");
+                        row = r != null ? Integer.parseInt(r) - 1 : row + 1;
+                        rows = Math.max(rows, row + 1);
+                        column = -1;
+                    } else if ("c".equals(name)) {
+                        String r = reader.getAttributeValue(null, "r");
+                        column = r != null ? new CellReference(r).getCol() : column + 1;
+                        inCell = true;
+                        occupied = false;
+                    } else if (inCell && ("v".equals(name) || "is".equals(name) || "f".equals(name))) {
+                        occupied = true;
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT && "c".equals(reader.getLocalName())) {
+                    if (occupied) {
+                        sheet.cell(row, column);
+                    }
+                    inCell = false;
+                } else if (event == XMLStreamConstants.END_ELEMENT && "sheetData".equals(reader.getLocalName())) {
+                    break;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        sheet.setRows(rows);
+        return sheet;
+    }
+}
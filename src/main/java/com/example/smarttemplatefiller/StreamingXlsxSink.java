@@ -0,0 +1,143 @@
+package com.example.smarttemplatefiller;
+
+import com.example.smarttemplatefiller.engine.AppendIndex;
+import com.example.smarttemplatefiller.engine.CellGrid;
+import com.example.smarttemplatefiller.engine.OutputOptions;
+import com.example.smarttemplatefiller.engine.OutputSink;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes mapped cells with POI's streaming workbook: cells are buffered in
+ * a {@link CellGrid} and flushed to the sheet row by row on commit, keeping
+ * only a small window of rows in memory. Appends load the existing workbook
+ * once and stream the new rows below its data.
+ */
+class StreamingXlsxSink implements OutputSink {
+
+    private static final int ROW_WINDOW = 200;
+
+    private final File target;
+    private final OutputOptions options;
+    private final SXSSFWorkbook workbook;
+    private final Sheet sheet;
+    private final CellValueWriter values;
+    private final int firstFreeRow;
+    private final boolean append;
+    private final AppendIndex index;
+    private final AppendIndex.SheetIndex existing;
+    private final CellGrid grid = new CellGrid();
+    private final List<CellValueWriter.ColumnFormat> formats = new ArrayList<>();
+
+    private StreamingXlsxSink(File target, OutputOptions options, SXSSFWorkbook workbook, String sheetName,
+            boolean append, AppendIndex index, AppendIndex.SheetIndex existing) {
+        this.target = target;
+        this.options = options;
+        this.workbook = workbook;
+        this.sheet = workbook.getSheet(sheetName);
+        this.values = new CellValueWriter(workbook, options);
+        this.append = append;
+        this.index = index;
+        this.existing = existing;
+        this.firstFreeRow = existing.getRows();
+    }
+
+    static StreamingXlsxSink create(File output, OutputOptions options) {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        String sheetName = XlsxSink.sheetName(options);
+        workbook.createSheet(sheetName);
+        return new StreamingXlsxSink(output, options, workbook, sheetName, false, new AppendIndex(),
+                new AppendIndex.SheetIndex());
+    }
+
+    static StreamingXlsxSink append(File existing, OutputOptions options) throws IOException {
+        XSSFWorkbook base;
+        try (FileInputStream fis = new FileInputStream(existing)) {
+            base = new XSSFWorkbook(fis);
+        }
+        Sheet sheet = XlsxSink.appendSheet(base, options);
+        AppendIndex index = AppendIndex.loadValid(existing);
+        AppendIndex.SheetIndex indexed = index != null ? index.sheet(sheet.getSheetName()) : null;
+        return new StreamingXlsxSink(existing, options, new SXSSFWorkbook(base, ROW_WINDOW), sheet.getSheetName(),
+                true, index != null ? index : new AppendIndex(), indexed != null ? indexed : XlsxSink.indexOf(sheet));
+    }
+
+    @Override
+    public int firstFreeRow() {
+        return firstFreeRow;
+    }
+
+    /** Streamed rows can only follow the existing data, so every column continues below it. */
+    @Override
+    public int firstFreeRow(int column) {
+        return firstFreeRow;
+    }
+
+    @Override
+    public int rowLimit() {
+        return XlsxSink.EXCEL_ROW_LIMIT;
+    }
+
+    @Override
+    public void beginMapping(Map<String, Object> mapping, List<List<String>> data, int sourceColumn) {
+        formats.add(values.columnFormat(mapping, data, sourceColumn));
+    }
+
+    @Override
+    public void title(int row, int column, String text) {
+        grid.put(row, column, text, CellGrid.TITLE);
+    }
+
+    @Override
+    public void value(int row, int column, String value) {
+        grid.put(row, column, value, formats.size() - 1);
+    }
+
+    @Override
+    public void commit() throws IOException {
+        if (!grid.isEmpty() && grid.firstRow() < firstFreeRow) {
+            throw new IOException("Streaming output can only add rows below the existing data (row "
+                    + (firstFreeRow + 1) + " onwards)");
+        }
+        AppendIndex.SheetIndex written = new AppendIndex.SheetIndex();
+        written.add(existing);
+        for (Map.Entry<Integer, CellGrid.GridRow> entry : grid.rows()) {
+            Row row = sheet.createRow(entry.getKey());
+            CellGrid.GridRow cells = entry.getValue();
+            for (int c = 0; c < cells.width(); c++) {
+                String value = cells.value(c);
+                if (value == null) {
+                    continue;
+                }
+                written.cell(entry.getKey(), c);
+                int tag = cells.tag(c);
+                if (tag == CellGrid.TITLE) {
+                    row.createCell(c).setCellValue(value);
+                } else {
+                    values.write(row.createCell(c), value, formats.get(tag));
+                }
+            }
+        }
+        WorkbookSaver.save(workbook, target, options);
+        if (append) {
+            index.putSheet(sheet.getSheetName(), written);
+            index.saveFor(target);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Delete the temporary row files of the streamed sheet
+        workbook.dispose();
+        workbook.close();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.smarttemplatefiller;
 
+import com.example.smarttemplatefiller.mapping.CellValueType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.collections.FXCollections;
@@ -47,6 +48,8 @@ public class TeachModeController {
     private Label previewStatusLabel;
     @FXML
     private CheckBox semicolonFixedCheckbox;
+    @FXML
+    private ComboBox<String> valueTypeComboBox;
 
     private File currentSourceFile;
 
@@ -75,6 +78,12 @@ public class TeachModeController {
     public void initialize() {
         directionComboBox.setItems(FXCollections.observableArrayList("vertical", "horizontal"));
         directionComboBox.setValue("vertical");
+        if (valueTypeComboBox != null) {
+            // "auto" writes plain decimals as numbers and keeps IDs as text
+            valueTypeComboBox.setItems(FXCollections.observableArrayList(
+                    CellValueType.AUTO.jsonName(), CellValueType.TEXT.jsonName(), CellValueType.NUMBER.jsonName()));
+            valueTypeComboBox.setValue(CellValueType.AUTO.jsonName());
+        }
 
         ToggleGroup modeGroup = new ToggleGroup();
         if (modePatternRadio != null) modePatternRadio.setToggleGroup(modeGroup);
@@ -243,6 +252,9 @@ public class TeachModeController {
         map.put("startCell", startCell);
         map.put("direction", direction);
         map.put("fixed", semicolonFixedCheckbox.isSelected());
+        if (valueTypeComboBox != null && valueTypeComboBox.getValue() != null) {
+            map.put("valueType", valueTypeComboBox.getValue());
+        }
         if (!title.isEmpty()) {
             map.put("title", title);
         }
@@ -430,6 +442,9 @@ public class TeachModeController {
                 sb.append(" (Flex: S=").append(map.get("startField"))
                   .append(" F=").append(map.get("fillField"))
                   .append(" Sp=").append(map.get("spaceField")).append(")");
+            } else if (map.containsKey("rowKeys")) {
+                List<?> keys = (List<?>) map.get("rowKeys");
+                sb.append(" (").append(keys.size()).append(" element keys)");
             } else if (map.containsKey("rowPattern")) {
                 Map<String, Object> rp = (Map<String, Object>) map.get("rowPattern");
                 sb.append(" (").append(rp.get("type")).append(" rows)");
@@ -438,6 +453,11 @@ public class TeachModeController {
                 sb.append(" (").append(rows.size()).append(" specific rows)");
             }
 
+            Object valueType = map.get("valueType");
+            if (valueType != null && CellValueType.fromName(valueType.toString()) != CellValueType.TEXT) {
+                sb.append(" {").append(valueType).append("}");
+            }
+
             if (!title.isEmpty()) {
                 sb.append(" - \"").append(title).append("\"");
             }
@@ -0,0 +1,711 @@
+package com.example.smarttemplatefiller;
+
+import com.example.smarttemplatefiller.parser.FileFingerprint;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.poi.ss.util.CellReference;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A template workbook analysed once for {@link TemplateStamper}: where the
+ * target sheet and the shared strings live in the package, the target
+ * sheet's rows kept as raw XML per row and cell, the cell formats of the
+ * styles part, and the workbook parts that every stamped copy rewrites the
+ * same way. Immutable once built and shared by all stamps of the same
+ * template file.
+ */
+final class TemplateAnalysis {
+
+    private static final String REL_OFFICE_DOCUMENT = "/officeDocument";
+    private static final String REL_WORKSHEET = "/worksheet";
+    private static final String REL_SHARED_STRINGS = "/sharedStrings";
+    private static final String REL_CALC_CHAIN = "/calcChain";
+    private static final String REL_STYLES = "/styles";
+    static final String CONTENT_TYPES_PART = "[Content_Types].xml";
+    private static final String NS_RELATIONSHIPS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    // Elements that follow calcPr in CT_Workbook; a missing calcPr is inserted before the first of them
+    private static final String[] AFTER_CALC_PR = {"oleSize", "customWorkbookViews", "pivotCaches", "smartTagPr",
+            "smartTagTypes", "webPublishing", "fileRecoveryPr", "webPublishObjects", "extLst"};
+
+    private static final Pattern CELL_START = Pattern.compile("<(\\w+:)?c(?=[\\s/>])[^>]*?(/?)>");
+    private static final Pattern ROW_START = Pattern.compile("<(\\w+:)?row(?=[\\s/>])[^>]*?(/?)>");
+    private static final Pattern XF_START = Pattern.compile("<(\\w+:)?xf(?=[\\s/>])[^>]*?(/?)>");
+    private static final Pattern NUM_FMTS_START = Pattern.compile("<(\\w+:)?numFmts(?=[\\s/>])[^>]*?(/?)>");
+    private static final Pattern CELL_XFS_START = Pattern.compile("<(\\w+:)?cellXfs(?=[\\s/>])[^>]*?(/?)>");
+    // Custom number format ids start here; lower ones are built in
+    private static final int FIRST_CUSTOM_NUM_FMT = 164;
+
+    final FileFingerprint fingerprint;
+    final String sheetName;
+    final String sheetPart;
+
+    // Target sheet: XML before and after the sheetData content
+    final String sheetPrefix;
+    final String sheetSuffix;
+    final String ns;
+    final NavigableMap<Integer, TemplateRow> rows;
+    final List<int[]> columnStyles;
+    // Position of the dimension ref value in sheetPrefix, or -1
+    final int dimensionStart;
+    final int dimensionEnd;
+
+    // Shared strings; sstPart is null when the template has none
+    final String sstPart;
+    final String sstHead;
+    final String sstBody;
+    final String sstTail;
+    final int sstCount;
+    final Map<String, Integer> sstIndex;
+
+    final String workbookPart;
+    final byte[] stampedWorkbookXml;
+
+    // Set when the template has a calculation chain; dropped when a stamp overwrites a formula
+    final String calcChainPart;
+    final byte[] contentTypesWithoutCalcChain;
+    final String workbookRelsPart;
+    final byte[] workbookRelsWithoutCalcChain;
+
+    // Styles part with its cell formats (cellXfs) as raw XML and custom number formats by code;
+    // stylesPart is null when the template has none or it has no cellXfs to extend
+    final String stylesPart;
+    final String stylesXml;
+    final String stylesNs;
+    final List<String> cellXfs;
+    final Map<String, Integer> numFmtIds;
+    final int numFmtCount;
+    final int nextNumFmtId;
+
+    /**
+     * A row of the target sheet. Cells and rows without an explicit "r"
+     * attribute get one, so stamped cells can be merged by position.
+     */
+    static final class TemplateRow {
+        final int index;
+        final String attributes;
+        final String xml;
+        final NavigableMap<Integer, String> cells;
+
+        TemplateRow(int index, String attributes, String xml, NavigableMap<Integer, String> cells) {
+            this.index = index;
+            this.attributes = attributes;
+            this.xml = xml;
+            this.cells = cells;
+        }
+    }
+
+    private TemplateAnalysis(Builder b) {
+        this.fingerprint = b.fingerprint;
+        this.sheetName = b.sheetName;
+        this.sheetPart = b.sheetPart;
+        this.sheetPrefix = b.sheetPrefix;
+        this.sheetSuffix = b.sheetSuffix;
+        this.ns = b.ns;
+        this.rows = Collections.unmodifiableNavigableMap(b.rows);
+        this.columnStyles = Collections.unmodifiableList(b.columnStyles);
+        this.dimensionStart = b.dimensionStart;
+        this.dimensionEnd = b.dimensionEnd;
+        this.sstPart = b.sstPart;
+        this.sstHead = b.sstHead;
+        this.sstBody = b.sstBody;
+        this.sstTail = b.sstTail;
+        this.sstCount = b.sstCount;
+        this.sstIndex = Collections.unmodifiableMap(b.sstIndex);
+        this.workbookPart = b.workbookPart;
+        this.stampedWorkbookXml = b.stampedWorkbookXml;
+        this.calcChainPart = b.calcChainPart;
+        this.contentTypesWithoutCalcChain = b.contentTypesWithoutCalcChain;
+        this.workbookRelsPart = b.workbookRelsPart;
+        this.workbookRelsWithoutCalcChain = b.workbookRelsWithoutCalcChain;
+        this.stylesPart = b.stylesPart;
+        this.stylesXml = b.stylesXml;
+        this.stylesNs = b.stylesNs;
+        this.cellXfs = Collections.unmodifiableList(b.cellXfs);
+        this.numFmtIds = Collections.unmodifiableMap(b.numFmtIds);
+        this.numFmtCount = b.numFmtCount;
+        this.nextNumFmtId = b.nextNumFmtId;
+    }
+
+    private static final class Builder {
+        FileFingerprint fingerprint;
+        String sheetName;
+        String sheetPart;
+        String sheetPrefix;
+        String sheetSuffix;
+        String ns = "";
+        NavigableMap<Integer, TemplateRow> rows = new TreeMap<>();
+        List<int[]> columnStyles = new ArrayList<>();
+        int dimensionStart = -1;
+        int dimensionEnd = -1;
+        String sstPart;
+        String sstHead;
+        String sstBody;
+        String sstTail;
+        int sstCount;
+        Map<String, Integer> sstIndex = new HashMap<>();
+        String workbookPart;
+        byte[] stampedWorkbookXml;
+        String calcChainPart;
+        byte[] contentTypesWithoutCalcChain;
+        String workbookRelsPart;
+        byte[] workbookRelsWithoutCalcChain;
+        String stylesPart;
+        String stylesXml;
+        String stylesNs = "";
+        List<String> cellXfs = new ArrayList<>();
+        Map<String, Integer> numFmtIds = new HashMap<>();
+        int numFmtCount;
+        int nextNumFmtId = FIRST_CUSTOM_NUM_FMT;
+    }
+
+    /**
+     * Analyse the template's package.
+     *
+     * @param sheetName target sheet, or null/blank for the first sheet
+     */
+    static TemplateAnalysis analyze(File template, FileFingerprint fingerprint, String sheetName) throws IOException {
+        Builder b = new Builder();
+        b.fingerprint = fingerprint;
+        try (ZipFile zip = new ZipFile(template)) {
+            String workbookPart = officeDocument(zip);
+            b.workbookPart = workbookPart;
+            b.workbookRelsPart = relsPartOf(workbookPart);
+
+            String workbookXml = read(zip, workbookPart);
+            String relsXml = read(zip, b.workbookRelsPart);
+            Map<String, String[]> rels = relationships(relsXml, workbookPart);
+
+            String sheetRelId = null;
+            for (String[] sheet : sheets(workbookXml)) {
+                if (sheetName == null || sheetName.isBlank() || sheetName.equals(sheet[0])) {
+                    b.sheetName = sheet[0];
+                    sheetRelId = sheet[1];
+                    break;
+                }
+            }
+            String[] sheetRel = sheetRelId == null ? null : rels.get(sheetRelId);
+            if (sheetRel == null || !sheetRel[0].endsWith(REL_WORKSHEET)) {
+                throw new IOException("Template " + template.getName() + " has no worksheet"
+                        + (sheetName == null || sheetName.isBlank() ? "" : " named \"" + sheetName + "\""));
+            }
+            b.sheetPart = sheetRel[1];
+
+            String stylesPart = null;
+            for (String[] rel : rels.values()) {
+                if (rel[0].endsWith(REL_SHARED_STRINGS) && zip.getEntry(rel[1]) != null) {
+                    b.sstPart = rel[1];
+                } else if (rel[0].endsWith(REL_CALC_CHAIN) && zip.getEntry(rel[1]) != null) {
+                    b.calcChainPart = rel[1];
+                } else if (rel[0].endsWith(REL_STYLES) && zip.getEntry(rel[1]) != null) {
+                    stylesPart = rel[1];
+                }
+            }
+
+            analyzeSheet(read(zip, b.sheetPart), b);
+            if (b.sstPart != null) {
+                analyzeSharedStrings(read(zip, b.sstPart), b);
+            }
+            if (stylesPart != null) {
+                analyzeStyles(stylesPart, read(zip, stylesPart), b);
+            }
+            b.stampedWorkbookXml = withFullCalcOnLoad(workbookXml).getBytes(StandardCharsets.UTF_8);
+            if (b.calcChainPart != null) {
+                String target = Pattern.quote("/" + b.calcChainPart);
+                b.contentTypesWithoutCalcChain = read(zip, CONTENT_TYPES_PART)
+                        .replaceAll("<(\\w+:)?Override\\b[^>]*PartName=\"" + target + "\"[^>]*/>", "")
+                        .getBytes(StandardCharsets.UTF_8);
+                b.workbookRelsWithoutCalcChain = relsXml
+                        .replaceAll("<(\\w+:)?Relationship\\b[^>]*Type=\"[^\"]*" + REL_CALC_CHAIN + "\"[^>]*/>", "")
+                        .getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        return new TemplateAnalysis(b);
+    }
+
+    /** Worksheet name to zip entry name, in workbook order. */
+    static Map<String, String> worksheets(ZipFile zip) throws IOException {
+        String workbookPart = officeDocument(zip);
+        Map<String, String[]> rels = relationships(read(zip, relsPartOf(workbookPart)), workbookPart);
+        Map<String, String> worksheets = new LinkedHashMap<>();
+        for (String[] sheet : sheets(read(zip, workbookPart))) {
+            String[] rel = rels.get(sheet[1]);
+            if (rel != null && rel[0].endsWith(REL_WORKSHEET)) {
+                worksheets.put(sheet[0], rel[1]);
+            }
+        }
+        return worksheets;
+    }
+
+    private static String officeDocument(ZipFile zip) throws IOException {
+        for (String[] rel : relationships(read(zip, "_rels/.rels"), "").values()) {
+            if (rel[0].endsWith(REL_OFFICE_DOCUMENT)) {
+                return rel[1];
+            }
+        }
+        throw new IOException("Template is not an Office Open XML package");
+    }
+
+    // ---- sheet ----
+
+    private static void analyzeSheet(String xml, Builder b) throws IOException {
+        Matcher data = Pattern.compile("<(\\w+:)?sheetData(?=[\\s/>])[^>]*?(/?)>").matcher(xml);
+        if (!data.find()) {
+            throw new IOException("Template sheet " + b.sheetPart + " has no sheetData");
+        }
+        b.ns = data.group(1) == null ? "" : data.group(1);
+        String open = "<" + b.ns + "sheetData>";
+        String close = "</" + b.ns + "sheetData>";
+        String content;
+        if (data.group(2).isEmpty()) {
+            int end = xml.indexOf(close, data.end());
+            if (end < 0) {
+                throw new IOException("Template sheet " + b.sheetPart + " is not well-formed");
+            }
+            content = xml.substring(data.end(), end);
+            b.sheetSuffix = close + xml.substring(end + close.length());
+        } else {
+            content = "";
+            b.sheetSuffix = close + xml.substring(data.end());
+        }
+        b.sheetPrefix = xml.substring(0, data.start()) + open;
+
+        Matcher dimension = Pattern.compile("<" + Pattern.quote(b.ns) + "dimension\\b[^>]*?\\sref=\"([^\"]*)\"")
+                .matcher(b.sheetPrefix);
+        if (dimension.find()) {
+            b.dimensionStart = dimension.start(1);
+            b.dimensionEnd = dimension.end(1);
+        }
+        Matcher col = Pattern.compile("<" + Pattern.quote(b.ns) + "col\\b[^>]*>").matcher(b.sheetPrefix);
+        while (col.find()) {
+            String style = attribute(col.group(), "style");
+            String min = attribute(col.group(), "min");
+            String max = attribute(col.group(), "max");
+            if (style != null && min != null && max != null) {
+                b.columnStyles.add(new int[]{Integer.parseInt(min) - 1, Integer.parseInt(max) - 1, Integer.parseInt(style)});
+            }
+        }
+
+        String rowClose = "</" + b.ns + "row>";
+        Matcher row = ROW_START.matcher(content);
+        int nextRow = 0;
+        int pos = 0;
+        while (row.find(pos)) {
+            String startTag = row.group();
+            int rowEnd;
+            String cellsXml;
+            if (row.group(2).isEmpty()) {
+                int closeAt = content.indexOf(rowClose, row.end());
+                if (closeAt < 0) {
+                    throw new IOException("Template sheet " + b.sheetPart + " has an unclosed row");
+                }
+                cellsXml = content.substring(row.end(), closeAt);
+                rowEnd = closeAt + rowClose.length();
+            } else {
+                cellsXml = "";
+                rowEnd = row.end();
+            }
+
+            String r = attribute(startTag, "r");
+            int index = r != null ? Integer.parseInt(r) - 1 : nextRow;
+            String attributes = attributesOf(startTag, "row", b.ns);
+            if (r == null) {
+                attributes = " r=\"" + (index + 1) + "\"" + attributes;
+            }
+            NavigableMap<Integer, String> cells = cells(cellsXml, index, b);
+            String rowXml = r != null ? content.substring(row.start(), rowEnd)
+                    : rowXml(b.ns, attributes, cells);
+            b.rows.put(index, new TemplateRow(index, attributes, rowXml, Collections.unmodifiableNavigableMap(cells)));
+
+            nextRow = index + 1;
+            pos = rowEnd;
+        }
+    }
+
+    private static NavigableMap<Integer, String> cells(String xml, int rowIndex, Builder b) throws IOException {
+        NavigableMap<Integer, String> cells = new TreeMap<>();
+        String cellClose = "</" + b.ns + "c>";
+        Matcher cell = CELL_START.matcher(xml);
+        int nextColumn = 0;
+        int pos = 0;
+        while (cell.find(pos)) {
+            int end;
+            if (cell.group(2).isEmpty()) {
+                int close = xml.indexOf(cellClose, cell.end());
+                if (close < 0) {
+                    throw new IOException("Template sheet " + b.sheetPart + " has an unclosed cell");
+                }
+                end = close + cellClose.length();
+            } else {
+                end = cell.end();
+            }
+            String cellXml = xml.substring(cell.start(), end);
+            String r = attribute(cell.group(), "r");
+            int column;
+            if (r != null) {
+                column = new CellReference(r).getCol();
+            } else {
+                column = nextColumn;
+                String ref = new CellReference(rowIndex, column).formatAsString();
+                int nameEnd = cell.start() + 1 + (b.ns.length()) + 1;
+                cellXml = xml.substring(cell.start(), nameEnd) + " r=\"" + ref + "\"" + xml.substring(nameEnd, end);
+            }
+            cells.put(column, cellXml);
+            nextColumn = column + 1;
+            pos = end;
+        }
+        return cells;
+    }
+
+    static String rowXml(String ns, String attributes, NavigableMap<Integer, String> cells) {
+        StringBuilder sb = new StringBuilder(64 + 48 * cells.size());
+        sb.append('<').append(ns).append("row").append(attributes).append('>');
+        for (String cell : cells.values()) {
+            sb.append(cell);
+        }
+        return sb.append("</").append(ns).append("row>").toString();
+    }
+
+    // ---- shared strings ----
+
+    private static void analyzeSharedStrings(String xml, Builder b) throws IOException {
+        Matcher root = Pattern.compile("<(\\w+:)?sst(?=[\\s/>])([^>]*?)(/?)>").matcher(xml);
+        if (!root.find()) {
+            throw new IOException("Template shared strings part " + b.sstPart + " is not well-formed");
+        }
+        String prefix = root.group(1) == null ? "" : root.group(1);
+        // count/uniqueCount are rewritten on every stamp
+        String attributes = root.group(2).replaceAll("\\s(count|uniqueCount)=\"[^\"]*\"", "");
+        b.sstHead = xml.substring(0, root.start()) + "<" + prefix + "sst" + attributes;
+        if (root.group(3).isEmpty()) {
+            String close = "</" + prefix + "sst>";
+            int end = xml.lastIndexOf(close);
+            if (end < root.end()) {
+                throw new IOException("Template shared strings part " + b.sstPart + " is not well-formed");
+            }
+            b.sstBody = xml.substring(root.end(), end);
+            b.sstTail = xml.substring(end);
+        } else {
+            b.sstBody = "";
+            b.sstTail = "</" + prefix + "sst>" + xml.substring(root.end());
+        }
+
+        try {
+            XMLStreamReader reader = xmlReader(xml);
+            int index = 0;
+            int depth = 0;
+            int itemDepth = -1;
+            boolean plain = true;
+            boolean inText = false;
+            StringBuilder text = new StringBuilder();
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String name = reader.getLocalName();
+                    if ("si".equals(name)) {
+                        itemDepth = depth;
+                        plain = true;
+                        text.setLength(0);
+                    } else if (itemDepth >= 0 && depth == itemDepth + 1) {
+                        inText = "t".equals(name);
+                        // Rich runs and phonetic text cannot be shared with plain values
+                        plain &= inText;
+                    }
+                } else if (event == XMLStreamConstants.CHARACTERS && inText) {
+                    text.append(reader.getText());
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    if (depth == itemDepth) {
+                        if (plain) {
+                            b.sstIndex.putIfAbsent(text.toString(), index);
+                        }
+                        index++;
+                        itemDepth = -1;
+                    }
+                    inText = false;
+                    depth--;
+                }
+            }
+            b.sstCount = index;
+        } catch (XMLStreamException e) {
+            throw new IOException("Template shared strings part " + b.sstPart + " is not well-formed", e);
+        }
+    }
+
+    // ---- styles ----
+
+    /**
+     * Keep the cell formats and custom number formats of the styles part.
+     * Without a cellXfs element there is nothing to extend, and stamped
+     * values keep the template's styles unchanged.
+     */
+    private static void analyzeStyles(String part, String xml, Builder b) {
+        Matcher xfs = CELL_XFS_START.matcher(xml);
+        if (!xfs.find() || !xfs.group(2).isEmpty()) {
+            return;
+        }
+        String prefix = prefixOf(xfs);
+        int end = xml.indexOf("</" + prefix + "cellXfs>", xfs.end());
+        if (end < 0) {
+            return;
+        }
+        String xfClose = "</" + prefix + "xf>";
+        Matcher xf = XF_START.matcher(xml).region(xfs.end(), end);
+        while (xf.find()) {
+            int xfEnd = xf.end();
+            if (xf.group(2).isEmpty()) {
+                int close = xml.indexOf(xfClose, xf.end());
+                if (close < 0 || close > end) {
+                    b.cellXfs.clear();
+                    return;
+                }
+                xfEnd = close + xfClose.length();
+            }
+            b.cellXfs.add(xml.substring(xf.start(), xfEnd));
+            xf.region(xfEnd, end);
+        }
+
+        // Differential formats (dxfs) declare number formats too; their ids are taken but not reusable
+        Matcher numFmts = NUM_FMTS_START.matcher(xml);
+        int listStart = -1;
+        int listEnd = -1;
+        if (numFmts.find() && numFmts.group(2).isEmpty()) {
+            listStart = numFmts.end();
+            listEnd = xml.indexOf("</" + prefixOf(numFmts) + "numFmts>", listStart);
+        }
+        Matcher numFmt = Pattern.compile("<(\\w+:)?numFmt(?=[\\s/>])[^>]*>").matcher(xml);
+        while (numFmt.find()) {
+            String id = attribute(numFmt.group(), "numFmtId");
+            String code = attribute(numFmt.group(), "formatCode");
+            if (id == null || code == null) {
+                continue;
+            }
+            int numFmtId = Integer.parseInt(id);
+            b.nextNumFmtId = Math.max(b.nextNumFmtId, numFmtId + 1);
+            if (numFmt.start() >= listStart && numFmt.end() <= listEnd) {
+                b.numFmtIds.putIfAbsent(unescape(code), numFmtId);
+                b.numFmtCount++;
+            }
+        }
+        b.stylesPart = part;
+        b.stylesXml = xml;
+        b.stylesNs = prefix;
+    }
+
+    /**
+     * The styles part with the number formats {@code numFmts} (format code
+     * to id) and the cell formats {@code xfs} (xf elements) added.
+     */
+    String stampedStylesXml(Map<String, Integer> numFmts, String xfs, int xfCount) {
+        Matcher cellXfsStart = CELL_XFS_START.matcher(stylesXml);
+        cellXfsStart.find();
+        int cellXfsEnd = stylesXml.indexOf("</" + stylesNs + "cellXfs>", cellXfsStart.end());
+        // numFmts comes before cellXfs
+        String head = stylesXml.substring(0, cellXfsStart.start());
+        if (!numFmts.isEmpty()) {
+            StringBuilder added = new StringBuilder();
+            for (Map.Entry<String, Integer> numFmt : numFmts.entrySet()) {
+                added.append('<').append(stylesNs).append("numFmt numFmtId=\"").append(numFmt.getValue())
+                        .append("\" formatCode=\"").append(escape(numFmt.getKey())).append("\"/>");
+            }
+            Matcher numFmtsStart = NUM_FMTS_START.matcher(head);
+            if (numFmtsStart.find()) {
+                String close = "</" + prefixOf(numFmtsStart) + "numFmts>";
+                boolean empty = !numFmtsStart.group(2).isEmpty();
+                int end = empty ? numFmtsStart.end() : head.indexOf(close, numFmtsStart.end());
+                head = head.substring(0, numFmtsStart.start())
+                        + withCount(numFmtsStart.group(), numFmtCount + numFmts.size())
+                        + head.substring(numFmtsStart.end(), end) + added + close
+                        + head.substring(empty ? end : end + close.length());
+            } else {
+                Matcher root = Pattern.compile("<(\\w+:)?styleSheet(?=[\\s>])[^>]*>").matcher(head);
+                root.find();
+                head = head.substring(0, root.end()) + "<" + stylesNs + "numFmts count=\"" + numFmts.size() + "\">"
+                        + added + "</" + stylesNs + "numFmts>" + head.substring(root.end());
+            }
+        }
+        return head + withCount(cellXfsStart.group(), cellXfs.size() + xfCount)
+                + stylesXml.substring(cellXfsStart.end(), cellXfsEnd) + xfs + stylesXml.substring(cellXfsEnd);
+    }
+
+    /** An open start tag with its count attribute set to {@code count}. */
+    private static String withCount(String startTag, int count) {
+        String tag = startTag.endsWith("/>") ? startTag.substring(0, startTag.length() - 2) : startTag.substring(0, startTag.length() - 1);
+        return tag.replaceAll("\\scount=\"[^\"]*\"", "").stripTrailing() + " count=\"" + count + "\">";
+    }
+
+    private static String prefixOf(Matcher start) {
+        return start.group(1) == null ? "" : start.group(1);
+    }
+
+    // ---- workbook ----
+
+    /**
+     * Stamped values feed the template's formulas, so Excel must recalculate
+     * on open instead of showing the cached results.
+     */
+    private static String withFullCalcOnLoad(String workbookXml) {
+        Matcher calcPr = Pattern.compile("<(\\w+:)?calcPr(?=[\\s/>])([^>]*?)(/?)>").matcher(workbookXml);
+        if (calcPr.find()) {
+            String prefix = calcPr.group(1) == null ? "" : calcPr.group(1);
+            String attributes = calcPr.group(2).replaceAll("\\sfullCalcOnLoad=\"[^\"]*\"", "");
+            return workbookXml.substring(0, calcPr.start())
+                    + "<" + prefix + "calcPr" + attributes + " fullCalcOnLoad=\"1\"" + calcPr.group(3) + ">"
+                    + workbookXml.substring(calcPr.end());
+        }
+        Matcher root = Pattern.compile("<(\\w+:)?workbook(?=[\\s>])").matcher(workbookXml);
+        String prefix = root.find() && root.group(1) != null ? root.group(1) : "";
+        int insertAt = workbookXml.lastIndexOf("</" + prefix + "workbook>");
+        for (String element : AFTER_CALC_PR) {
+            int at = workbookXml.indexOf("<" + prefix + element);
+            if (at >= 0 && (insertAt < 0 || at < insertAt)) {
+                insertAt = at;
+            }
+        }
+        if (insertAt < 0) {
+            return workbookXml;
+        }
+        return workbookXml.substring(0, insertAt) + "<" + prefix + "calcPr fullCalcOnLoad=\"1\"/>"
+                + workbookXml.substring(insertAt);
+    }
+
+    /** (name, relationship id) of each sheet in workbook order. */
+    private static List<String[]> sheets(String workbookXml) throws IOException {
+        List<String[]> sheets = new ArrayList<>();
+        try {
+            XMLStreamReader reader = xmlReader(workbookXml);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && "sheet".equals(reader.getLocalName())) {
+                    sheets.add(new String[]{
+                            reader.getAttributeValue(null, "name"),
+                            reader.getAttributeValue(NS_RELATIONSHIPS, "id")});
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Template workbook part is not well-formed", e);
+        }
+        return sheets;
+    }
+
+    /**
+     * Relationship id to (type, zip entry name) of the internal targets in a
+     * rels part, resolved against the source part's directory.
+     */
+    private static Map<String, String[]> relationships(String relsXml, String sourcePart) throws IOException {
+        Map<String, String[]> rels = new HashMap<>();
+        String baseDir = sourcePart.contains("/") ? sourcePart.substring(0, sourcePart.lastIndexOf('/') + 1) : "";
+        try {
+            XMLStreamReader reader = xmlReader(relsXml);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && "Relationship".equals(reader.getLocalName())
+                        && !"External".equals(reader.getAttributeValue(null, "TargetMode"))) {
+                    String target = reader.getAttributeValue(null, "Target");
+                    String part = target.startsWith("/") ? target.substring(1) : normalize(baseDir + target);
+                    rels.put(reader.getAttributeValue(null, "Id"),
+                            new String[]{reader.getAttributeValue(null, "Type"), part});
+                }
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Template relationships are not well-formed", e);
+        }
+        return rels;
+    }
+
+    private static String normalize(String path) {
+        List<String> parts = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if ("..".equals(segment)) {
+                if (!parts.isEmpty()) {
+                    parts.remove(parts.size() - 1);
+                }
+            } else if (!segment.isEmpty() && !".".equals(segment)) {
+                parts.add(segment);
+            }
+        }
+        return String.join("/", parts);
+    }
+
+    private static String relsPartOf(String part) {
+        int slash = part.lastIndexOf('/');
+        return part.substring(0, slash + 1) + "_rels/" + part.substring(slash + 1) + ".rels";
+    }
+
+    // ---- helpers ----
+
+    private static XMLStreamReader xmlReader(String xml) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        return factory.createXMLStreamReader(new StringReader(xml));
+    }
+
+    private static String read(ZipFile zip, String name) throws IOException {
+        ZipArchiveEntry entry = zip.getEntry(name);
+        if (entry == null) {
+            throw new IOException("Template is missing part " + name);
+        }
+        try (InputStream in = zip.getInputStream(entry)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /** Value of an attribute in a start tag, or null. */
+    static String attribute(String startTag, String name) {
+        Matcher m = Pattern.compile("\\s" + name + "\\s*=\\s*(\"([^\"]*)\"|'([^']*)')").matcher(startTag);
+        int end = startTag.indexOf('>');
+        if (!m.find() || (end >= 0 && m.start() > end)) {
+            return null;
+        }
+        return m.group(2) != null ? m.group(2) : m.group(3);
+    }
+
+    /** {@code value} escaped for an attribute. */
+    static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /** An attribute value with the predefined XML entities replaced. */
+    static String unescape(String value) {
+        if (value.indexOf('&') < 0) {
+            return value;
+        }
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"").replace("&apos;", "'")
+                .replace("&amp;", "&");
+    }
+
+    /** The attribute text of a start tag, e.g. ' r="5" ht="20"', without the element name and "/>". */
+    private static String attributesOf(String startTag, String localName, String ns) {
+        int from = 1 + ns.length() + localName.length();
+        int to = startTag.endsWith("/>") ? startTag.length() - 2 : startTag.length() - 1;
+        return startTag.substring(from, to).stripTrailing();
+    }
+
+    /** Style index of the column from the template's {@code <cols>}, or -1. */
+    int columnStyle(int column) {
+        for (int[] range : columnStyles) {
+            if (column >= range[0] && column <= range[1]) {
+                return range[2];
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,362 @@
+package com.example.smarttemplatefiller;
+
+import com.example.smarttemplatefiller.engine.AtomicFileWriter;
+import com.example.smarttemplatefiller.engine.OutputOptions;
+import com.example.smarttemplatefiller.parser.FileFingerprint;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.poi.ss.usermodel.BuiltinFormats;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Writes mapped values into a copy of a template workbook without loading
+ * the template into POI. The template is analysed once per file version
+ * ({@link TemplateAnalysis}); each stamp regenerates only the target sheet,
+ * the shared strings and workbook.xml (and the styles when a value needs a
+ * number format the template's style lacks), and copies every other zip
+ * entry (drawings, media, other sheets) as raw compressed bytes.
+ */
+public final class TemplateStamper {
+
+    private static final int MAX_CACHED_TEMPLATES = 8;
+
+    private static final Map<String, TemplateAnalysis> CACHE =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TemplateAnalysis> eldest) {
+                    return size() > MAX_CACHED_TEMPLATES;
+                }
+            };
+
+    private TemplateStamper() {
+    }
+
+    /**
+     * Copy {@code template} to {@code output} with the cells of {@code values}
+     * written into the template's target sheet ({@link OutputOptions#getTemplateSheet()},
+     * or its first sheet). Template cells keep their style; cells outside
+     * the formatted area take the row or column style. A number whose value
+     * carries a format (e.g. "0.000" for three decimals) gets a copy of that
+     * style with the format, unless the style has a number format of its own.
+     */
+    public static void stamp(File template, Sheet values, File output, OutputOptions options) throws IOException {
+        TemplateAnalysis analysis = analysisFor(template, options.getTemplateSheet());
+        Stamp stamp = new Stamp(analysis);
+        for (Row row : values) {
+            for (Cell cell : row) {
+                stamp.put(cell);
+            }
+        }
+
+        Map<String, byte[]> replaced = new HashMap<>();
+        replaced.put(analysis.sheetPart, stamp.sheetXml());
+        replaced.put(analysis.workbookPart, analysis.stampedWorkbookXml);
+        if (analysis.sstPart != null) {
+            replaced.put(analysis.sstPart, stamp.sharedStringsXml());
+        }
+        if (stamp.addedXfCount > 0) {
+            replaced.put(analysis.stylesPart, stamp.stylesXml());
+        }
+        String dropped = null;
+        if (stamp.overwroteFormula && analysis.calcChainPart != null) {
+            dropped = analysis.calcChainPart;
+            replaced.put(TemplateAnalysis.CONTENT_TYPES_PART, analysis.contentTypesWithoutCalcChain);
+            replaced.put(analysis.workbookRelsPart, analysis.workbookRelsWithoutCalcChain);
+        }
+
+        String droppedPart = dropped;
+        try (ZipFile zip = new ZipFile(template)) {
+            AtomicFileWriter.write(output, out -> {
+                try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(out)) {
+                    zos.setLevel(options.resolveCompression().getDeflateLevel());
+                    Enumeration<ZipArchiveEntry> entries = zip.getEntriesInPhysicalOrder();
+                    while (entries.hasMoreElements()) {
+                        ZipArchiveEntry entry = entries.nextElement();
+                        String name = entry.getName();
+                        byte[] content = replaced.get(name);
+                        if (content != null) {
+                            zos.putArchiveEntry(new ZipArchiveEntry(name));
+                            zos.write(content);
+                            zos.closeArchiveEntry();
+                        } else if (!name.equals(droppedPart)) {
+                            zos.addRawArchiveEntry(entry, zip.getRawInputStream(entry));
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    static TemplateAnalysis analysisFor(File template, String sheetName) throws IOException {
+        FileFingerprint fingerprint = FileFingerprint.of(template, false);
+        String key = fingerprint.getCanonicalPath() + '\u0000' + (sheetName == null ? "" : sheetName.trim());
+        synchronized (CACHE) {
+            TemplateAnalysis cached = CACHE.get(key);
+            if (cached != null && cached.fingerprint.equals(fingerprint)) {
+                return cached;
+            }
+        }
+        TemplateAnalysis analysis = TemplateAnalysis.analyze(template, fingerprint, sheetName);
+        synchronized (CACHE) {
+            CACHE.put(key, analysis);
+        }
+        return analysis;
+    }
+
+    static void clearCache() {
+        synchronized (CACHE) {
+            CACHE.clear();
+        }
+    }
+
+    /**
+     * The stamped cells of one output, merged over the analysed template.
+     */
+    private static final class Stamp {
+        private final TemplateAnalysis analysis;
+        private final NavigableMap<Integer, NavigableMap<Integer, String>> rows = new TreeMap<>();
+        private final Map<String, Integer> addedStrings = new HashMap<>();
+        private final StringBuilder addedItems = new StringBuilder();
+        // Template style and number format to the style combining them, added for this stamp
+        private final Map<String, Integer> formattedStyles = new HashMap<>();
+        private final Map<String, Integer> addedNumFmts = new LinkedHashMap<>();
+        private final StringBuilder addedXfs = new StringBuilder();
+        private int addedXfCount;
+        private boolean overwroteFormula;
+        private int minRow = Integer.MAX_VALUE;
+        private int minCol = Integer.MAX_VALUE;
+        private int maxRow = -1;
+        private int maxCol = -1;
+
+        Stamp(TemplateAnalysis analysis) {
+            this.analysis = analysis;
+        }
+
+        void put(Cell cell) {
+            CellType type = cell.getCellType();
+            if (type != CellType.STRING && type != CellType.NUMERIC) {
+                return;
+            }
+            int rowIndex = cell.getRowIndex();
+            int column = cell.getColumnIndex();
+            TemplateAnalysis.TemplateRow templateRow = analysis.rows.get(rowIndex);
+            NavigableMap<Integer, String> cells = rows.computeIfAbsent(rowIndex,
+                    r -> templateRow == null ? new TreeMap<>() : new TreeMap<>(templateRow.cells));
+
+            String existing = cells.get(column);
+            if (existing != null && existing.contains("<" + analysis.ns + "f")) {
+                overwroteFormula = true;
+            }
+
+            StringBuilder xml = new StringBuilder(64);
+            String ns = analysis.ns;
+            xml.append('<').append(ns).append("c r=\"").append(new CellReference(rowIndex, column).formatAsString()).append('"');
+            int style = styleFor(existing, templateRow, column);
+            if (type == CellType.NUMERIC) {
+                style = withNumberFormat(style, cell.getCellStyle().getDataFormatString());
+            }
+            if (style > 0) {
+                xml.append(" s=\"").append(style).append('"');
+            }
+            if (type == CellType.NUMERIC) {
+                xml.append("><").append(ns).append("v>").append(number(cell.getNumericCellValue()))
+                        .append("</").append(ns).append("v>");
+            } else if (analysis.sstPart == null || isInline(cell)) {
+                xml.append(" t=\"inlineStr\"><").append(ns).append("is>");
+                appendText(xml, ns, cell.getStringCellValue());
+                xml.append("</").append(ns).append("is>");
+            } else {
+                xml.append(" t=\"s\"><").append(ns).append("v>").append(sharedString(cell.getStringCellValue()))
+                        .append("</").append(ns).append("v>");
+            }
+            xml.append("</").append(ns).append("c>");
+            cells.put(column, xml.toString());
+
+            minRow = Math.min(minRow, rowIndex);
+            maxRow = Math.max(maxRow, rowIndex);
+            minCol = Math.min(minCol, column);
+            maxCol = Math.max(maxCol, column);
+        }
+
+        /** The template cell's style, else the row's custom format, else the column's. */
+        private int styleFor(String existing, TemplateAnalysis.TemplateRow templateRow, int column) {
+            if (existing != null) {
+                String s = TemplateAnalysis.attribute(existing, "s");
+                return s == null ? 0 : Integer.parseInt(s);
+            }
+            if (templateRow != null && "1".equals(TemplateAnalysis.attribute(templateRow.attributes + ">", "customFormat"))) {
+                String s = TemplateAnalysis.attribute(templateRow.attributes + ">", "s");
+                if (s != null) {
+                    return Integer.parseInt(s);
+                }
+            }
+            return Math.max(analysis.columnStyle(column), 0);
+        }
+
+        /**
+         * {@code style} with the number format {@code format}: the style
+         * itself if it has a number format or the value has none, else a
+         * copy with the format added to the styles part once per stamp.
+         */
+        private int withNumberFormat(int style, String format) {
+            if (format == null || format.isEmpty() || BuiltinFormats.getBuiltinFormat(format) == 0
+                    || analysis.stylesPart == null || style >= analysis.cellXfs.size()) {
+                return style;
+            }
+            String xf = analysis.cellXfs.get(style);
+            String numFmtId = TemplateAnalysis.attribute(xf, "numFmtId");
+            if (numFmtId != null && !"0".equals(numFmtId)) {
+                return style;
+            }
+            return formattedStyles.computeIfAbsent(style + "\u0000" + format, key -> {
+                int end = xf.indexOf('>');
+                if (xf.charAt(end - 1) == '/') {
+                    end--;
+                }
+                String attributes = xf.substring(0, end).replaceAll("\\s(numFmtId|applyNumberFormat)=\"[^\"]*\"", "")
+                        .stripTrailing();
+                addedXfs.append(attributes).append(" numFmtId=\"").append(numFmtIdFor(format))
+                        .append("\" applyNumberFormat=\"1\"").append(xf.substring(end));
+                return analysis.cellXfs.size() + addedXfCount++;
+            });
+        }
+
+        private int numFmtIdFor(String format) {
+            int builtin = BuiltinFormats.getBuiltinFormat(format);
+            if (builtin >= 0) {
+                return builtin;
+            }
+            Integer id = analysis.numFmtIds.get(format);
+            return id != null ? id : addedNumFmts.computeIfAbsent(format, f -> analysis.nextNumFmtId + addedNumFmts.size());
+        }
+
+        byte[] stylesXml() {
+            return analysis.stampedStylesXml(addedNumFmts, addedXfs.toString(), addedXfCount)
+                    .getBytes(StandardCharsets.UTF_8);
+        }
+
+        private int sharedString(String value) {
+            Integer index = analysis.sstIndex.get(value);
+            if (index == null) {
+                index = addedStrings.get(value);
+            }
+            if (index == null) {
+                index = analysis.sstCount + addedStrings.size();
+                addedStrings.put(value, index);
+                String ns = analysis.ns;
+                addedItems.append('<').append(ns).append("si>");
+                appendText(addedItems, ns, value);
+                addedItems.append("</").append(ns).append("si>");
+            }
+            return index;
+        }
+
+        byte[] sheetXml() {
+            NavigableMap<Integer, String> merged = new TreeMap<>();
+            for (TemplateAnalysis.TemplateRow row : analysis.rows.values()) {
+                merged.put(row.index, row.xml);
+            }
+            for (Map.Entry<Integer, NavigableMap<Integer, String>> row : rows.entrySet()) {
+                TemplateAnalysis.TemplateRow templateRow = analysis.rows.get(row.getKey());
+                // spans is only a load hint and would be stale
+                String attributes = templateRow == null
+                        ? " r=\"" + (row.getKey() + 1) + "\""
+                        : templateRow.attributes.replaceAll("\\sspans=\"[^\"]*\"", "");
+                merged.put(row.getKey(), TemplateAnalysis.rowXml(analysis.ns, attributes, row.getValue()));
+            }
+
+            String prefix = analysis.sheetPrefix;
+            if (analysis.dimensionStart >= 0 && maxRow >= 0) {
+                prefix = prefix.substring(0, analysis.dimensionStart)
+                        + dimension(prefix.substring(analysis.dimensionStart, analysis.dimensionEnd))
+                        + prefix.substring(analysis.dimensionEnd);
+            }
+            StringBuilder xml = new StringBuilder(prefix.length() + analysis.sheetSuffix.length() + 128 * merged.size());
+            xml.append(prefix);
+            for (String row : merged.values()) {
+                xml.append(row);
+            }
+            xml.append(analysis.sheetSuffix);
+            return xml.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        /** The template's used range widened to the stamped cells. */
+        private String dimension(String ref) {
+            int top = minRow;
+            int left = minCol;
+            int bottom = maxRow;
+            int right = maxCol;
+            String[] corners = ref.split(":");
+            CellReference first = new CellReference(corners[0]);
+            CellReference last = new CellReference(corners[corners.length - 1]);
+            top = Math.min(top, first.getRow());
+            left = Math.min(left, first.getCol());
+            bottom = Math.max(bottom, last.getRow());
+            right = Math.max(right, last.getCol());
+            return new CellReference(top, left).formatAsString() + ":" + new CellReference(bottom, right).formatAsString();
+        }
+
+        byte[] sharedStringsXml() {
+            int uniqueCount = analysis.sstCount + addedStrings.size();
+            return (analysis.sstHead + " uniqueCount=\"" + uniqueCount + "\">"
+                    + analysis.sstBody + addedItems + analysis.sstTail).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static boolean isInline(Cell cell) {
+        return cell instanceof XSSFCell && ((XSSFCell) cell).getCTCell().getT() == STCellType.INLINE_STR;
+    }
+
+    static String number(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    private static void appendText(StringBuilder xml, String ns, String value) {
+        xml.append('<').append(ns).append('t');
+        if (!value.isEmpty() && (Character.isWhitespace(value.charAt(0))
+                || Character.isWhitespace(value.charAt(value.length() - 1)))) {
+            xml.append(" xml:space=\"preserve\"");
+        }
+        xml.append('>');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    xml.append("&amp;");
+                    break;
+                case '<':
+                    xml.append("&lt;");
+                    break;
+                case '>':
+                    xml.append("&gt;");
+                    break;
+                default:
+                    // Control characters are not allowed in XML 1.0
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        xml.append(c);
+                    }
+            }
+        }
+        xml.append("</").append(ns).append("t>");
+    }
+}
@@ -1,239 +1,256 @@
 package com.example.smarttemplatefiller;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.smarttemplatefiller.parser.AsciiTokenizer;
+import com.example.smarttemplatefiller.parser.ByteLineReader;
+import com.example.smarttemplatefiller.parser.CellDictionary;
+import com.example.smarttemplatefiller.parser.ChunkedParser;
+import com.example.smarttemplatefiller.parser.ColumnConfigCache;
+import com.example.smarttemplatefiller.parser.FixedWidthLayout;
+import com.example.smarttemplatefiller.parser.GroupedBlockLexer;
+import com.example.smarttemplatefiller.parser.LineHandler;
+import com.example.smarttemplatefiller.parser.ParseCache;
+import com.example.smarttemplatefiller.parser.ParseOptions;
+import com.example.smarttemplatefiller.parser.ParsedTable;
+import com.example.smarttemplatefiller.parser.SourceBytes;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 
 public class TxtParser {
 
+    // Shared across the interactive flow and Running Mode so that loading,
+    // exporting and re-exporting the same source parses it only once
+    private static final ParseCache PARSE_CACHE = new ParseCache(ParseCache.DEFAULT_MAX_BYTES);
+
+    public static ParseCache getParseCache() {
+        return PARSE_CACHE;
+    }
+
+    /**
+     * Parse a file into rows. Results are cached by file fingerprint; the
+     * returned list is shared and must not be modified.
+     */
     public static List<List<String>> parseFile(File file) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            List<String> previewLines = new ArrayList<>();
-            String line;
-            while ((line = reader.readLine()) != null && previewLines.size() < 10) {
-                previewLines.add(line);
-            }
+        return parse(file).getRows();
+    }
+
+    /**
+     * Parse a file into rows plus an element-key index built in the same pass.
+     * Keys per format: grouped blocks index "header → label" and "name label",
+     * fixed-column files the N-number id, semicolon files the feature number and
+     * name, and flat tables the first column.
+     *
+     * Results are served from the shared {@link ParseCache} while the file's
+     * fingerprint is unchanged.
+     */
+    public static ParsedTable parse(File file) {
+        return parse(file, ParseOptions.defaults());
+    }
 
-            boolean isBlockHeader = previewLines.stream()
-                    .anyMatch(l -> l.matches("(?i)(Circle|Line|Plane|Point|Distance|Angle).*\\(ID:.*\\).*"));
+    /**
+     * Parse with per-mapping or per-watch-folder options (fixed-width layout,
+     * charset). Results are cached separately per effective option set.
+     */
+    public static ParsedTable parse(File file, ParseOptions options) {
+        return PARSE_CACHE.getOrParse(file, options.cacheKey(file), f -> parseUncached(f, options));
+    }
+
+    private static ParsedTable parseUncached(File file, ParseOptions options) {
+        try {
+            SourceBytes source = SourceBytes.read(file, options.resolveCharset(), options.getMapThresholdBytes());
+            List<String> previewLines = new ByteLineReader(source.getCharset()).readLines(source.getContent(), 10);
+
+            boolean isBlockHeader = previewLines.stream().anyMatch(GroupedBlockLexer::isElementHeader);
             boolean isFixedColumn = previewLines.stream().anyMatch(l -> l.matches("\\s*\\d+\\s+N\\d+\\s+.*\\s+\\*+.*"));
             boolean isSemicolon = previewLines.stream().anyMatch(l -> l.contains(";"));
 
             if (isBlockHeader) {
-                return parseMultiLineGroupedBlock(file);
-            } else if (isFixedColumn) {
-                return parseFixedColumnTable(file);
+                GroupedBlockLexer handler = new GroupedBlockLexer();
+                return parseLines(source, handler, handler.newTable());
+            }
+
+            LineHandler lineHandler;
+            if (isFixedColumn) {
+                lineHandler = fixedColumnHandler(ColumnConfigCache.get(options.resolveColumnConfig(file)));
             } else if (isSemicolon) {
-                return parseSemicolonTable(file);
+                lineHandler = SEMICOLON_HANDLER;
             } else {
-                return parseFlatTable(file);
+                lineHandler = FLAT_HANDLER;
+            }
+
+            // Lines of these formats are independent, so large files can be parsed in chunks
+            if (source.size() >= options.getParallelThresholdBytes() && source.isAsciiCompatible()) {
+                return ChunkedParser.parse(source, lineHandler);
             }
+            return parseLines(source, lineHandler, new ParsedTable());
         } catch (Exception e) {
             e.printStackTrace();
         }
 
-        return new ArrayList<>();
+        return new ParsedTable();
     }
 
-    public static List<List<String>> parseFixedColumnTable(File file) {
-        Map<String, Integer> columnWidths = loadColumnConfig();
-        List<List<String>> result = new ArrayList<>();
-
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                List<String> row = new ArrayList<>();
-                int cursor = 0;
-                for (Integer width : columnWidths.values()) {
-                    if (cursor >= line.length()) {
-                        row.add("");
-                        cursor += width;
-                        continue;
-                    }
-                    int end = Math.min(cursor + width, line.length());
-                    String field = line.substring(cursor, end).trim();
-                    row.add(field);
-                    cursor += width;
-                }
-                result.add(row);
-            }
+    /**
+     * Feed every line of the source to a handler that appends rows to the
+     * table. On a read or parse error the rows gathered so far are kept.
+     */
+    private static ParsedTable parseLines(SourceBytes source, LineHandler handler, ParsedTable result) {
+        try {
+            new ByteLineReader(source.getCharset()).forEachLine(source.getContent(), handler, result);
         } catch (Exception e) {
             e.printStackTrace();
         }
-
+        result.releaseCellDictionary();
         return result;
     }
 
-    private static Map<String, Integer> loadColumnConfig() {
-        ObjectMapper mapper = new ObjectMapper();
-        File configFile = new File("column_config.json");
+    private static ParsedTable parseLines(File file, LineHandler handler, ParsedTable result) {
+        ParseOptions options = ParseOptions.defaults();
         try {
-            return mapper.readValue(configFile, LinkedHashMap.class);
-        } catch (IOException e) {
-            System.err.println("Failed to load column_config.json. Using fallback config.");
-            Map<String, Integer> fallback = new LinkedHashMap<>();
-            fallback.put("Col1", 3);
-            fallback.put("Col2", 6);
-            fallback.put("Col3", 9);
-            fallback.put("Col4", 4);
-            fallback.put("Col5", 11);
-            fallback.put("Col6", 11);
-            fallback.put("Col7", 11);
-            fallback.put("Col8", 11);
-            fallback.put("Col9", 12);
-            return fallback;
+            return parseLines(SourceBytes.read(file, options.resolveCharset(), options.getMapThresholdBytes()),
+                    handler, result);
+        } catch (Exception e) {
+            e.printStackTrace();
         }
+        return result;
     }
 
-    public static List<List<String>> parseMultiLineGroupedBlock(File file) {
-        List<List<String>> result = new ArrayList<>();
-        List<String> dynamicHeaders = new ArrayList<>(List.of("Element", "Actual", "Nominal", "Deviat.", "Up Tol.", "Low Tol.", "Pass/Fail"));
-        List<Integer> absBoundaries = new ArrayList<>(List.of(22, 37, 53, 69, 85, 100));
-        result.add(dynamicHeaders);
-
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            String currentHeader = null;
-            boolean hasParsedData = false;
-
-            while ((line = br.readLine()) != null) {
-                String originalLine = line;
-                line = line.trim();
-                if (line.isEmpty())
-                    continue;
-
-                if (line.startsWith("Element") && line.split("\\s{2,}").length >= 2) {
-                    String[] headerParts = line.split("\\s{2,}");
-                    dynamicHeaders = new ArrayList<>();
-                    List<Integer> headerStarts = new ArrayList<>();
-                    List<Integer> headerEnds = new ArrayList<>();
-
-                    int searchFrom = 0;
-                    for (String part : headerParts) {
-                        String p = part.trim();
-                        dynamicHeaders.add(p);
-                        int idx = originalLine.indexOf(p, searchFrom);
-                        if (idx == -1) idx = searchFrom;
-                        headerStarts.add(idx);
-                        headerEnds.add(idx + p.length());
-                        searchFrom = idx + p.length();
-                    }
-
-                    absBoundaries = new ArrayList<>();
-                    for (int i = 0; i < dynamicHeaders.size() - 1; i++) {
-                        int mid = (headerEnds.get(i) + headerStarts.get(i+1)) / 2;
-                        absBoundaries.add(mid);
-                    }
-
-                    if (!hasParsedData) {
-                        result.set(0, dynamicHeaders);
-                    }
-                    continue;
-                }
+    public static List<List<String>> parseFixedColumnTable(File file) {
+        return parseFixedColumnTable(file, ColumnConfigCache.get(ParseOptions.defaults().resolveColumnConfig(file)));
+    }
 
-                if ("@101".equals(line)) {
-                    if (hasParsedData) {
-                        result.add(List.of("@101"));
-                        result.add(dynamicHeaders);
-                    }
-                    continue;
-                }
+    public static List<List<String>> parseFixedColumnTable(File file, FixedWidthLayout layout) {
+        return parseLines(file, fixedColumnHandler(layout), new ParsedTable()).getRows();
+    }
 
-                if (line.matches("(?i)(Circle|Line|Plane|Point|Distance|Angle).*\\(ID:.*\\).*")) {
-                    currentHeader = line;
-                    continue;
-                }
+    private static LineHandler fixedColumnHandler(FixedWidthLayout layout) {
+        return new LineHandler() {
+            @Override
+            public void accept(String line, ParsedTable result) {
+                addFixedColumnRow(layout.slice(line, result.getCellDictionary()), result);
+            }
 
-                if (currentHeader != null && line.contains("=")) {
-                    String[] parts = line.split("=");
-                    String label = parts[0].trim();
+            @Override
+            public void acceptAscii(byte[] bytes, int length, ParsedTable result) {
+                addFixedColumnRow(layout.slice(bytes, length, result.getCellDictionary()), result);
+            }
+        };
+    }
 
-                    List<String> row = new ArrayList<>();
-                    row.add(currentHeader + " → " + label);
+    private static void addFixedColumnRow(List<String> row, ParsedTable result) {
+        // Col2 carries the feature id (e.g. "N0074"); continuation lines leave it blank
+        String featureId = row.size() > 1 ? row.get(1) : "";
+        result.addRow(row, isFeatureId(featureId) ? featureId : null);
+    }
 
-                    for (int i = 0; i < dynamicHeaders.size() - 1; i++) {
-                        int start = absBoundaries.get(i);
-                        int end = (i + 1 < absBoundaries.size()) ? absBoundaries.get(i + 1) : originalLine.length();
-                        row.add(getSafeSubstring(originalLine, start, end));
-                    }
-                    result.add(row);
-                    hasParsedData = true;
-                }
+    private static boolean isFeatureId(String field) {
+        if (field.length() < 2 || field.charAt(0) != 'N') {
+            return false;
+        }
+        for (int i = 1; i < field.length(); i++) {
+            if (!Character.isDigit(field.charAt(i))) {
+                return false;
             }
-        } catch (Exception e) {
-            e.printStackTrace();
         }
-
-        return result;
+        return true;
     }
 
-    private static String getSafeSubstring(String s, int start, int end) {
-        if (start >= s.length()) return "";
-        int actualEnd = Math.min(end, s.length());
-        return s.substring(start, actualEnd).trim();
+    public static List<List<String>> parseMultiLineGroupedBlock(File file) {
+        GroupedBlockLexer handler = new GroupedBlockLexer();
+        return parseLines(file, handler, handler.newTable()).getRows();
     }
 
     public static List<List<String>> parseFlatTable(File file) {
-        List<List<String>> result = new ArrayList<>();
-
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty())
-                    continue;
+        return parseLines(file, FLAT_HANDLER, new ParsedTable()).getRows();
+    }
 
-                String[] parts = line.split("\\s{2,}");
-                List<String> row = new ArrayList<>();
-                for (String part : parts) {
-                    row.add(part.trim());
-                }
+    private static final LineHandler FLAT_HANDLER = new LineHandler() {
+        @Override
+        public void accept(String line, ParsedTable result) {
+            line = line.trim();
+            if (line.isEmpty())
+                return;
+
+            String[] parts = line.split("\\s{2,}");
+            CellDictionary cells = result.getCellDictionary();
+            List<String> row = new ArrayList<>();
+            for (String part : parts) {
+                row.add(cells.intern(part.trim()));
+            }
+            addFlatRow(row, result);
+        }
 
-                while (row.size() < 8)
-                    row.add("");
+        @Override
+        public void acceptAscii(byte[] bytes, int length, ParsedTable result) {
+            int start = AsciiTokenizer.trimStart(bytes, 0, length);
+            int end = AsciiTokenizer.trimEnd(bytes, start, length);
+            if (start == end)
+                return;
 
-                result.add(row);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+            List<String> row = new ArrayList<>();
+            AsciiTokenizer.splitOnWhitespaceRuns(bytes, start, end, row, result.getCellDictionary());
+            addFlatRow(row, result);
         }
+    };
 
-        return result;
+    private static void addFlatRow(List<String> row, ParsedTable result) {
+        while (row.size() < 8)
+            row.add("");
+
+        result.addRow(row, row.get(0));
     }
 
     public static List<List<String>> parseSemicolonTable(File file) {
-        List<List<String>> result = new ArrayList<>();
-
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty())
-                    continue;
-
-                List<String> row = new ArrayList<>();
-                if (line.contains(";")) {
-                    String[] parts = line.split(";", -1);
-                    for (String part : parts) {
-                        row.add(part.trim());
-                    }
-                } else {
-                    row.add(line);
+        return parseLines(file, SEMICOLON_HANDLER, new ParsedTable()).getRows();
+    }
+
+    private static final LineHandler SEMICOLON_HANDLER = new LineHandler() {
+        @Override
+        public void accept(String line, ParsedTable result) {
+            line = line.trim();
+            if (line.isEmpty())
+                return;
+
+            CellDictionary cells = result.getCellDictionary();
+            List<String> row = new ArrayList<>();
+            if (line.contains(";")) {
+                String[] parts = line.split(";", -1);
+                for (String part : parts) {
+                    row.add(cells.intern(part.trim()));
                 }
-                result.add(row);
+            } else {
+                row.add(cells.intern(line));
             }
-        } catch (Exception e) {
-            e.printStackTrace();
+            addSemicolonRow(row, result);
         }
 
-        return result;
+        @Override
+        public void acceptAscii(byte[] bytes, int length, ParsedTable result) {
+            int start = AsciiTokenizer.trimStart(bytes, 0, length);
+            int end = AsciiTokenizer.trimEnd(bytes, start, length);
+            if (start == end)
+                return;
+
+            CellDictionary cells = result.getCellDictionary();
+            List<String> row = new ArrayList<>();
+            if (AsciiTokenizer.indexOf(bytes, start, end, (byte) ';') >= 0) {
+                AsciiTokenizer.splitOn(bytes, start, end, (byte) ';', row, cells);
+            } else {
+                row.add(cells.intern(bytes, start, end));
+            }
+            addSemicolonRow(row, result);
+        }
+    };
+
+    private static void addSemicolonRow(List<String> row, ParsedTable result) {
+        // Field 1 is the feature number and field 2 its name ("Distance X");
+        // single-field lines are markers and carry no key
+        if (row.size() > 1) {
+            result.addRow(row, row.get(0), row.get(1));
+        } else {
+            result.addRow(row);
+        }
     }
 
     /**
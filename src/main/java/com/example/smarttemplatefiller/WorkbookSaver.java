@@ -0,0 +1,41 @@
+package com.example.smarttemplatefiller;
+
+import com.example.smarttemplatefiller.engine.AtomicFileWriter;
+import com.example.smarttemplatefiller.engine.OutputOptions;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Saves workbooks with the output's compression profile through
+ * {@link AtomicFileWriter}, so a failed save keeps the previous file.
+ */
+public final class WorkbookSaver {
+
+    private WorkbookSaver() {
+    }
+
+    public static void save(Workbook workbook, File target, OutputOptions options) throws IOException {
+        if (workbook instanceof SXSSFWorkbook) {
+            // The streaming workbook wraps the stream in its own zip writer, so the
+            // compression profile does not apply to it
+            AtomicFileWriter.write(target, workbook::write);
+            return;
+        }
+        AtomicFileWriter.write(target, out -> {
+            // POI's zip package writes into a ZipArchiveOutputStream it is handed
+            // instead of wrapping the stream in a default-level one
+            try (ZipArchiveOutputStream zip = new ZipArchiveOutputStream(out)) {
+                zip.setLevel(options.resolveCompression().getDeflateLevel());
+                workbook.write(zip);
+            }
+        });
+    }
+
+    public static void save(Workbook workbook, File target) throws IOException {
+        save(workbook, target, OutputOptions.defaults());
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.smarttemplatefiller;
+
+import com.example.smarttemplatefiller.engine.AppendIndex;
+import com.example.smarttemplatefiller.engine.OutputOptions;
+import com.example.smarttemplatefiller.engine.OutputSink;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes mapped cells into a POI workbook held in memory: a new "Result"
+ * workbook (or the cells to stamp into a template), or an existing workbook
+ * loaded for appending. Offsets come from the workbook's {@link AppendIndex}
+ * when it is current; otherwise from the loaded sheet. Appends write the
+ * index for the next append.
+ */
+class XlsxSink implements OutputSink {
+
+    static final int EXCEL_ROW_LIMIT = 1048576;
+
+    private final File target;
+    private final OutputOptions options;
+    private final Workbook workbook;
+    private final Sheet sheet;
+    private final CellValueWriter values;
+    private final boolean append;
+    private final int firstFreeRow;
+    private final AppendIndex index;
+    private final AppendIndex.SheetIndex existing;
+    private final AppendIndex.SheetIndex written = new AppendIndex.SheetIndex();
+    private CellValueWriter.ColumnFormat format;
+
+    private XlsxSink(File target, OutputOptions options, Workbook workbook, Sheet sheet, boolean append) {
+        this.target = target;
+        this.options = options;
+        this.workbook = workbook;
+        this.sheet = sheet;
+        this.append = append;
+        this.values = new CellValueWriter(workbook, options);
+        AppendIndex loaded = append ? AppendIndex.loadValid(target) : null;
+        this.index = loaded != null ? loaded : new AppendIndex();
+        AppendIndex.SheetIndex indexed = loaded != null ? loaded.sheet(sheet.getSheetName()) : null;
+        this.existing = indexed != null ? indexed : append ? indexOf(sheet) : new AppendIndex.SheetIndex();
+        this.firstFreeRow = existing.getRows();
+    }
+
+    static XlsxSink create(File output, OutputOptions options) {
+        Workbook workbook = new XSSFWorkbook();
+        return new XlsxSink(output, options, workbook, workbook.createSheet(sheetName(options)), false);
+    }
+
+    static XlsxSink append(File existing, OutputOptions options) throws IOException {
+        Workbook workbook;
+        try (FileInputStream fis = new FileInputStream(existing)) {
+            workbook = new XSSFWorkbook(fis);
+        }
+        return new XlsxSink(existing, options, workbook, appendSheet(workbook, options), true);
+    }
+
+    /** The configured sheet name, else "Result". */
+    static String sheetName(OutputOptions options) {
+        return options.getSheetName() != null && !options.getSheetName().isBlank() ? options.getSheetName() : "Result";
+    }
+
+    /**
+     * The configured sheet, created if missing (a rollover sheet); without
+     * one the "Result" sheet (or the stamped template's target sheet), else
+     * the first sheet.
+     */
+    static Sheet appendSheet(Workbook workbook, OutputOptions options) {
+        if (options.getSheetName() != null && !options.getSheetName().isBlank()) {
+            Sheet sheet = workbook.getSheet(options.getSheetName());
+            return sheet != null ? sheet : workbook.createSheet(options.getSheetName());
+        }
+        String sheetName = options.getTemplateSheet() != null ? options.getTemplateSheet() : "Result";
+        Sheet sheet = workbook.getSheet(sheetName);
+        if (sheet == null && workbook.getNumberOfSheets() > 0) {
+            sheet = workbook.getSheetAt(0);
+        }
+        if (sheet == null) {
+            sheet = workbook.createSheet("Result");
+        }
+        return sheet;
+    }
+
+    /**
+     * Calculate row offset from existing Excel sheet.
+     * Returns 0 if sheet is empty, otherwise returns lastRowNum + 1.
+     *
+     * @param sheet The Excel sheet to check
+     * @return The row offset to use for appending
+     */
+    static int calculateRowOffset(Sheet sheet) {
+        if (sheet == null) {
+            return 0;
+        }
+        int lastRowNum = sheet.getLastRowNum();
+        // getLastRowNum() returns 0 for both empty sheets and sheets with one row
+        // Check if row 0 actually exists
+        if (lastRowNum == 0 && sheet.getRow(0) == null) {
+            return 0;
+        }
+        return lastRowNum + 1;
+    }
+
+    /**
+     * The occupied rows of a loaded sheet: every cell with a value, and
+     * {@link #calculateRowOffset(Sheet)} as the row count.
+     */
+    static AppendIndex.SheetIndex indexOf(Sheet sheet) {
+        AppendIndex.SheetIndex index = new AppendIndex.SheetIndex();
+        for (Row row : sheet) {
+            for (Cell cell : row) {
+                if (cell.getCellType() != CellType.BLANK) {
+                    index.cell(row.getRowNum(), cell.getColumnIndex());
+                }
+            }
+        }
+        index.setRows(calculateRowOffset(sheet));
+        return index;
+    }
+
+    @Override
+    public int firstFreeRow() {
+        return firstFreeRow;
+    }
+
+    @Override
+    public int firstFreeRow(int column) {
+        return existing.firstFreeRow(column);
+    }
+
+    @Override
+    public int rowLimit() {
+        return EXCEL_ROW_LIMIT;
+    }
+
+    @Override
+    public void beginMapping(Map<String, Object> mapping, List<List<String>> data, int sourceColumn) {
+        format = values.columnFormat(mapping, data, sourceColumn);
+    }
+
+    @Override
+    public void title(int row, int column, String text) {
+        cell(row, column).setCellValue(text);
+    }
+
+    @Override
+    public void value(int row, int column, String value) {
+        values.write(cell(row, column), value, format);
+    }
+
+    private Cell cell(int rowIndex, int column) {
+        written.cell(rowIndex, column);
+        Row row = sheet.getRow(rowIndex);
+        if (row == null) {
+            row = sheet.createRow(rowIndex);
+        }
+        Cell cell = row.getCell(column);
+        return cell != null ? cell : row.createCell(column);
+    }
+
+    @Override
+    public void commit() throws IOException {
+        if (!append && options.hasTemplate()) {
+            // The blank workbook only collects the mapped cells for the template
+            TemplateStamper.stamp(new File(options.getTemplate()), sheet, target, options);
+        } else {
+            WorkbookSaver.save(workbook, target, options);
+            if (append) {
+                written.add(existing);
+                index.putSheet(sheet.getSheetName(), written);
+                index.saveFor(target);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        workbook.close();
+    }
+}
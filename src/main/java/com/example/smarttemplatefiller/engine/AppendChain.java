@@ -0,0 +1,201 @@
+package com.example.smarttemplatefiller.engine;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The segments an append target rolled over into, in order: the first
+ * file, then "&lt;name&gt;_002.xlsx", ... (or further sheets of one
+ * workbook). Kept in "&lt;name&gt;.chain.json" next to the first file, so
+ * appends continue with the latest segment after a restart.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AppendChain {
+
+    private static final String CHAIN_SUFFIX = ".chain.json";
+    private static final Pattern SEGMENT_STEM = Pattern.compile("(.+)_(\\d{3,})");
+
+    private List<Segment> segments = new ArrayList<>();
+
+    @JsonIgnore
+    private transient File chainFile;
+
+    public List<Segment> getSegments() {
+        return segments;
+    }
+
+    public void setSegments(List<Segment> segments) {
+        this.segments = segments != null ? segments : new ArrayList<>();
+    }
+
+    /** "&lt;name&gt;.chain.json" next to the chain's first file. */
+    public static File chainFileFor(File first) {
+        return new File(first.getAbsoluteFile().getParentFile(), stem(first.getName()) + CHAIN_SUFFIX);
+    }
+
+    /**
+     * The chain anchored at {@code first}, or null if it never rolled over
+     * or was tracked.
+     */
+    public static AppendChain load(File first) throws IOException {
+        File file = chainFileFor(first);
+        if (!file.isFile()) {
+            return null;
+        }
+        AppendChain chain = new ObjectMapper().readValue(file, AppendChain.class);
+        chain.chainFile = file;
+        return chain.segments.isEmpty() ? null : chain;
+    }
+
+    /**
+     * The chain {@code segmentFile} belongs to (anchored at it, or at the
+     * file it is a numbered segment of), else a new chain starting with it.
+     */
+    public static AppendChain forSegment(File segmentFile) throws IOException {
+        File dir = segmentFile.getAbsoluteFile().getParentFile();
+        String stem = stem(segmentFile.getName());
+        List<File> candidates = new ArrayList<>();
+        candidates.add(new File(dir, stem + CHAIN_SUFFIX));
+        Matcher m = SEGMENT_STEM.matcher(stem);
+        if (m.matches()) {
+            candidates.add(new File(dir, m.group(1) + CHAIN_SUFFIX));
+        }
+        for (File candidate : candidates) {
+            if (!candidate.isFile()) {
+                continue;
+            }
+            AppendChain chain = new ObjectMapper().readValue(candidate, AppendChain.class);
+            chain.chainFile = candidate;
+            for (Segment segment : chain.segments) {
+                if (segment.file.equals(segmentFile.getName())) {
+                    return chain;
+                }
+            }
+        }
+
+        AppendChain chain = new AppendChain();
+        chain.chainFile = chainFileFor(segmentFile);
+        chain.startSegment(segmentFile, null, createdAt(segmentFile));
+        return chain;
+    }
+
+    public void save() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        AtomicFileWriter.write(chainFile, out -> mapper.writerWithDefaultPrettyPrinter().writeValue(out, this));
+    }
+
+    @JsonIgnore
+    public Segment current() {
+        return segments.get(segments.size() - 1);
+    }
+
+    @JsonIgnore
+    public File currentFile() {
+        return new File(chainFile.getAbsoluteFile().getParentFile(), current().file);
+    }
+
+    public Segment startSegment(File file, String sheet, Instant started) {
+        Segment segment = new Segment();
+        segment.file = file.getName();
+        segment.sheet = sheet;
+        segment.started = started.toString();
+        segments.add(segment);
+        return segment;
+    }
+
+    /** "&lt;first name&gt;_NNN&lt;ext&gt;" for the next segment, skipping names already taken. */
+    public File nextWorkbookFile() {
+        File dir = chainFile.getAbsoluteFile().getParentFile();
+        String first = segments.get(0).file;
+        int dot = first.lastIndexOf('.');
+        String extension = dot > 0 ? first.substring(dot) : "";
+        for (int n = segments.size() + 1; ; n++) {
+            File candidate = new File(dir, stem(first) + String.format("_%03d", n) + extension);
+            if (!candidate.exists()) {
+                return candidate;
+            }
+        }
+    }
+
+    /** "&lt;base sheet&gt;_NNN" for the next sheet segment. */
+    public String nextSheetName(String baseSheet) {
+        return baseSheet + String.format("_%03d", segments.size() + 1);
+    }
+
+    private static String stem(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private static Instant createdAt(File file) throws IOException {
+        return Files.readAttributes(file.toPath(), BasicFileAttributes.class).creationTime().toInstant();
+    }
+
+    /**
+     * One file (or sheet) of the chain and what is known about its size.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Segment {
+        private String file;
+        private String sheet;
+        private String started;
+        private int rows = -1;
+        private int lastRowsAdded = -1;
+
+        public String getFile() {
+            return file;
+        }
+
+        public void setFile(String file) {
+            this.file = file;
+        }
+
+        public String getSheet() {
+            return sheet;
+        }
+
+        public void setSheet(String sheet) {
+            this.sheet = sheet;
+        }
+
+        public String getStarted() {
+            return started;
+        }
+
+        public void setStarted(String started) {
+            this.started = started;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public void setRows(int rows) {
+            this.rows = rows;
+        }
+
+        public int getLastRowsAdded() {
+            return lastRowsAdded;
+        }
+
+        public void setLastRowsAdded(int lastRowsAdded) {
+            this.lastRowsAdded = lastRowsAdded;
+        }
+
+        @JsonIgnore
+        public Instant startedAt() {
+            return started == null ? null : Instant.parse(started);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.smarttemplatefiller.engine;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Where the data of an output ends, kept in "&lt;file&gt;.index.json" next
+ * to it: per sheet the first free row and the last occupied row of each
+ * column. Sinks write it after every append, so later appends get their
+ * offsets without scanning the output; a new output has no index until it
+ * is first appended to. The index records the output's size,
+ * modification time and a checksum of its last 64 KB; if any of them
+ * differs the output was changed elsewhere and the index is rebuilt by a
+ * scan.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class AppendIndex {
+
+    private static final String INDEX_SUFFIX = ".index.json";
+    private static final int TAIL_BYTES = 64 * 1024;
+
+    private long size = -1;
+    private long modified;
+    private long tailChecksum;
+    private Map<String, SheetIndex> sheets = new LinkedHashMap<>();
+
+    public static File indexFileFor(File output) {
+        return new File(output.getAbsoluteFile().getParentFile(), output.getName() + INDEX_SUFFIX);
+    }
+
+    /**
+     * The index of {@code output} if it describes the file as it is now,
+     * else null.
+     */
+    public static AppendIndex loadValid(File output) {
+        File file = indexFileFor(output);
+        if (!file.isFile() || !output.isFile()) {
+            return null;
+        }
+        try {
+            AppendIndex index = new ObjectMapper().readValue(file, AppendIndex.class);
+            if (index.size != output.length() || index.modified != output.lastModified()
+                    || index.tailChecksum != tailChecksum(output)) {
+                return null;
+            }
+            return index;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stamp the index with the output's current size, time and checksum and
+     * write it. The index is only an optimisation: a failure is reported
+     * and otherwise ignored, and the next append rebuilds it.
+     */
+    public void saveFor(File output) {
+        try {
+            size = output.length();
+            modified = output.lastModified();
+            tailChecksum = tailChecksum(output);
+            ObjectMapper mapper = new ObjectMapper();
+            AtomicFileWriter.write(indexFileFor(output), out -> mapper.writeValue(out, this));
+        } catch (IOException e) {
+            System.err.println("Failed to write append index for " + output.getName() + ": " + e.getMessage());
+        }
+    }
+
+    static long tailChecksum(File output) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(output, "r")) {
+            long length = file.length();
+            byte[] tail = new byte[(int) Math.min(length, TAIL_BYTES)];
+            file.seek(length - tail.length);
+            file.readFully(tail);
+            CRC32 crc = new CRC32();
+            crc.update(tail);
+            return crc.getValue();
+        }
+    }
+
+    public SheetIndex sheet(String name) {
+        return sheets.get(name);
+    }
+
+    public void putSheet(String name, SheetIndex sheet) {
+        sheets.put(name, sheet);
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public long getModified() {
+        return modified;
+    }
+
+    public void setModified(long modified) {
+        this.modified = modified;
+    }
+
+    public long getTailChecksum() {
+        return tailChecksum;
+    }
+
+    public void setTailChecksum(long tailChecksum) {
+        this.tailChecksum = tailChecksum;
+    }
+
+    public Map<String, SheetIndex> getSheets() {
+        return sheets;
+    }
+
+    public void setSheets(Map<String, SheetIndex> sheets) {
+        this.sheets = sheets != null ? sheets : new LinkedHashMap<>();
+    }
+
+    /**
+     * Occupied rows of one sheet (or of a CSV file).
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class SheetIndex {
+        private int rows;
+        private Map<Integer, Integer> lastRowByColumn = new TreeMap<>();
+
+        /** Record an occupied cell. */
+        public void cell(int row, int column) {
+            rows = Math.max(rows, row + 1);
+            lastRowByColumn.merge(column, row, Math::max);
+        }
+
+        /** Record the cells of {@code other}, written after this sheet's. */
+        public void add(SheetIndex other) {
+            rows = Math.max(rows, other.rows);
+            for (Map.Entry<Integer, Integer> column : other.lastRowByColumn.entrySet()) {
+                lastRowByColumn.merge(column.getKey(), column.getValue(), Math::max);
+            }
+        }
+
+        /** First row after the sheet's data, including rows without values. */
+        public int getRows() {
+            return rows;
+        }
+
+        public void setRows(int rows) {
+            this.rows = rows;
+        }
+
+        /** First row below the column's last value; 0 for an empty column. */
+        @JsonIgnore
+        public int firstFreeRow(int column) {
+            Integer last = lastRowByColumn.get(column);
+            return last == null ? 0 : last + 1;
+        }
+
+        public Map<Integer, Integer> getLastRowByColumn() {
+            return lastRowByColumn;
+        }
+
+        public void setLastRowByColumn(Map<Integer, Integer> lastRowByColumn) {
+            this.lastRowByColumn = lastRowByColumn != null ? new TreeMap<>(lastRowByColumn) : new TreeMap<>();
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.smarttemplatefiller.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exclusive right to append to one output file. Writers in this JVM queue
+ * up on a fair lock per target path, so they get the target one at a time
+ * in arrival order; the holder then takes an OS file lock on
+ * ".locks/&lt;file&gt;.lock" in the target's folder, so other instances
+ * (another Running Mode process, a second app window) wait as well. The
+ * sidecar is locked rather than the output itself because outputs are
+ * replaced by an atomic rename, which a lock on the old file would not
+ * survive. It stays in the hidden folder: deleting it while another
+ * process waits on it would let a third process lock a new file of the
+ * same name.
+ *
+ * <pre>
+ * AppendTargetLock lock = AppendTargetLock.acquire(target);
+ * try {
+ *     ...
+ * } finally {
+ *     lock.release();
+ * }
+ * </pre>
+ */
+public final class AppendTargetLock {
+
+    private static final String LOCK_FOLDER = ".locks";
+    private static final String LOCK_SUFFIX = ".lock";
+    private static final long DEFAULT_WAIT_MILLIS = 120_000;
+    private static final long POLL_MILLIS = 50;
+
+    // One queue per canonical target path; entries are kept, there are only as many as targets
+    private static final Map<String, ReentrantLock> WRITERS = new ConcurrentHashMap<>();
+
+    private final ReentrantLock writer;
+    private final FileChannel channel;
+    private final FileLock lease;
+    private boolean released;
+
+    private AppendTargetLock(ReentrantLock writer, FileChannel channel, FileLock lease) {
+        this.writer = writer;
+        this.channel = channel;
+        this.lease = lease;
+    }
+
+    public static File lockFileFor(File target) {
+        return new File(new File(target.getAbsoluteFile().getParentFile(), LOCK_FOLDER), target.getName() + LOCK_SUFFIX);
+    }
+
+    /** {@link #acquire(File, long)} with the default wait of two minutes. */
+    public static AppendTargetLock acquire(File target) throws IOException {
+        return acquire(target, DEFAULT_WAIT_MILLIS);
+    }
+
+    /**
+     * Wait until no other writer holds {@code target}, then hold it until
+     * {@link #release()}.
+     *
+     * @throws IOException if the target is still held after {@code waitMillis}
+     */
+    public static AppendTargetLock acquire(File target, long waitMillis) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        ReentrantLock writer = WRITERS.computeIfAbsent(target.getCanonicalPath(), path -> new ReentrantLock(true));
+        try {
+            if (!writer.tryLock(waitMillis, TimeUnit.MILLISECONDS)) {
+                throw new IOException("Timed out waiting for another append to " + target.getName());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to append to " + target.getName(), e);
+        }
+
+        FileChannel channel = null;
+        try {
+            File lockFile = lockFileFor(target);
+            Files.createDirectories(lockFile.getParentFile().toPath());
+            channel = FileChannel.open(lockFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock lease;
+            while ((lease = channel.tryLock()) == null) {
+                if (System.nanoTime() - deadline >= 0) {
+                    throw new IOException("Append target " + target.getName() + " is locked by another process");
+                }
+                Thread.sleep(POLL_MILLIS);
+            }
+            return new AppendTargetLock(writer, channel, lease);
+        } catch (IOException | RuntimeException e) {
+            release(writer, channel);
+            throw e;
+        } catch (InterruptedException e) {
+            release(writer, channel);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting to append to " + target.getName(), e);
+        }
+    }
+
+    private static void release(ReentrantLock writer, FileChannel channel) {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ignored) {
+            // Closing the channel is all that is left to do
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    /** Release the target to the next writer; further calls do nothing. */
+    public void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        try {
+            lease.release();
+        } catch (IOException ignored) {
+            // Closing the channel below releases the lock as well
+        } finally {
+            release(writer, channel);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.smarttemplatefiller.engine;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What a day's source archives hold: for every archived source, the zip
+ * part and entry it is in, its size and CRC. Kept in
+ * "&lt;archive folder&gt;/&lt;yyyy-MM-dd&gt;.index.json" next to the parts
+ * "&lt;yyyy-MM-dd&gt;_001.zip", "&lt;yyyy-MM-dd&gt;_002.zip", ..., so a source
+ * is found without opening the archives.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ArchiveIndex {
+
+    public static final String INDEX_SUFFIX = ".index.json";
+
+    private List<Entry> entries = new ArrayList<>();
+
+    @JsonIgnore
+    private transient File indexFile;
+
+    /** "&lt;archive folder&gt;/&lt;day&gt;.index.json". */
+    public static File indexFileFor(File archiveFolder, String day) {
+        return new File(archiveFolder, day + INDEX_SUFFIX);
+    }
+
+    /** "&lt;archive folder&gt;/&lt;day&gt;_&lt;NNN&gt;.zip". */
+    public static File partFileFor(File archiveFolder, String day, int part) {
+        return new File(archiveFolder, day + "_" + String.format("%03d", part) + ".zip");
+    }
+
+    /** The index stored in {@code indexFile}, or an empty one if there is none yet. */
+    public static ArchiveIndex load(File indexFile) throws IOException {
+        ArchiveIndex index = indexFile.isFile()
+                ? new ObjectMapper().readValue(indexFile, ArchiveIndex.class) : new ArchiveIndex();
+        index.indexFile = indexFile;
+        return index;
+    }
+
+    public void save() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        AtomicFileWriter.write(indexFile, out -> mapper.writerWithDefaultPrettyPrinter().writeValue(out, this));
+    }
+
+    /** The highest part number in use, or 0. */
+    @JsonIgnore
+    public int lastPart() {
+        int last = 0;
+        for (Entry entry : entries) {
+            last = Math.max(last, entry.part);
+        }
+        return last;
+    }
+
+    /** The entry named {@code name}, or null. */
+    public Entry find(String name) {
+        for (Entry entry : entries) {
+            if (entry.name.equals(name)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<Entry> entries) {
+        this.entries = entries != null ? entries : new ArrayList<>();
+    }
+
+    /** One archived source. */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Entry {
+        // "<yyyy-MM-dd_HHmmss>/<source name>": when the source was processed, and its name
+        private String name;
+        private int part;
+        private long size;
+        private long crc;
+        private long archivedAt;
+
+        public Entry() {
+        }
+
+        public Entry(String name, int part, long size, long crc, long archivedAt) {
+            this.name = name;
+            this.part = part;
+            this.size = size;
+            this.crc = crc;
+            this.archivedAt = archivedAt;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getPart() {
+            return part;
+        }
+
+        public void setPart(int part) {
+            this.part = part;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public void setSize(long size) {
+            this.size = size;
+        }
+
+        public long getCrc() {
+            return crc;
+        }
+
+        public void setCrc(long crc) {
+            this.crc = crc;
+        }
+
+        public long getArchivedAt() {
+            return archivedAt;
+        }
+
+        public void setArchivedAt(long archivedAt) {
+            this.archivedAt = archivedAt;
+        }
+    }
+}
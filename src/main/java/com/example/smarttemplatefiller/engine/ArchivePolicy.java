@@ -0,0 +1,83 @@
+package com.example.smarttemplatefiller.engine;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * How processed sources are archived when they are collected into zip
+ * archives instead of moved one by one (see {@link SourceArchiver}): how
+ * long sources are batched, how large a day's archive grows before the
+ * next part starts, and how hard entries are compressed.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ArchivePolicy {
+
+    private static final int DEFAULT_BATCH_SECONDS = 30;
+    private static final int DEFAULT_MAX_BATCH_FILES = 500;
+    private static final int DEFAULT_MAX_ARCHIVE_MEGABYTES = 64;
+
+    // Processed sources are written to the archive this long after the first of a batch
+    private Integer batchSeconds;
+
+    // A batch is written earlier once it holds this many sources
+    private Integer maxBatchFiles;
+
+    // A day's archive continues in a new part ("_002.zip", ...) beyond this size
+    private Integer maxArchiveMegabytes;
+
+    // Deflate profile of the entries: fast, default, max or store
+    private String compression;
+
+    public Integer getBatchSeconds() {
+        return batchSeconds;
+    }
+
+    public void setBatchSeconds(Integer batchSeconds) {
+        this.batchSeconds = batchSeconds;
+    }
+
+    public Integer getMaxBatchFiles() {
+        return maxBatchFiles;
+    }
+
+    public void setMaxBatchFiles(Integer maxBatchFiles) {
+        this.maxBatchFiles = maxBatchFiles;
+    }
+
+    public Integer getMaxArchiveMegabytes() {
+        return maxArchiveMegabytes;
+    }
+
+    public void setMaxArchiveMegabytes(Integer maxArchiveMegabytes) {
+        this.maxArchiveMegabytes = maxArchiveMegabytes;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+
+    @JsonIgnore
+    public long resolveBatchMillis() {
+        return (batchSeconds != null && batchSeconds >= 0 ? batchSeconds : DEFAULT_BATCH_SECONDS) * 1000L;
+    }
+
+    @JsonIgnore
+    public int resolveMaxBatchFiles() {
+        return maxBatchFiles != null && maxBatchFiles > 0 ? maxBatchFiles : DEFAULT_MAX_BATCH_FILES;
+    }
+
+    @JsonIgnore
+    public long resolveMaxArchiveBytes() {
+        return (maxArchiveMegabytes != null && maxArchiveMegabytes > 0
+                ? maxArchiveMegabytes : DEFAULT_MAX_ARCHIVE_MEGABYTES) * 1024L * 1024L;
+    }
+
+    @JsonIgnore
+    public XlsxCompression resolveCompression() {
+        return XlsxCompression.fromName(compression, XlsxCompression.DEFAULT);
+    }
+}
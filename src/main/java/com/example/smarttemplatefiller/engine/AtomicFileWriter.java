@@ -0,0 +1,96 @@
+package com.example.smarttemplatefiller.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.security.SecureRandom;
+
+/**
+ * Replaces a file through a temporary file in the same directory: the
+ * content is written through a large buffer, forced to disk and renamed
+ * over the target, so readers (and a crash mid-write) never see a partly
+ * written output. The temporary file is created like a plain new file,
+ * under the process umask, and takes over the permissions of the file it
+ * replaces.
+ */
+public final class AtomicFileWriter {
+
+    public static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** Writes the complete file content; closing the stream is allowed. */
+    public interface ContentWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private AtomicFileWriter() {
+    }
+
+    public static void write(File target, ContentWriter writer) throws IOException {
+        Path targetPath = target.toPath().toAbsolutePath();
+        FileChannel opened = null;
+        Path temp = null;
+        while (opened == null) {
+            // Not Files.createTempFile: its files are readable by the owner only
+            temp = targetPath.resolveSibling("." + target.getName() + "." + Long.toUnsignedString(RANDOM.nextLong()) + ".tmp");
+            try {
+                opened = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (FileAlreadyExistsException e) {
+                // Taken by a concurrent writer; draw another name
+            }
+        }
+        boolean moved = false;
+        try {
+            try (FileChannel channel = opened) {
+                OutputStream buffered = new BufferedOutputStream(Channels.newOutputStream(channel), WRITE_BUFFER_BYTES);
+                writer.write(new FilterOutputStream(buffered) {
+                    @Override
+                    public void write(byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                    }
+
+                    @Override
+                    public void close() throws IOException {
+                        // The channel is forced and closed below
+                        flush();
+                    }
+                });
+                buffered.flush();
+                channel.force(false);
+            }
+            copyPermissions(targetPath, temp);
+            replace(temp, targetPath);
+            moved = true;
+        } finally {
+            if (!moved) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    private static void copyPermissions(Path target, Path temp) throws IOException {
+        if (Files.exists(target) && Files.getFileStore(temp).supportsFileAttributeView(PosixFileAttributeView.class)) {
+            Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+        }
+    }
+
+    private static void replace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
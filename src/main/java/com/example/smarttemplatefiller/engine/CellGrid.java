@@ -0,0 +1,78 @@
+package com.example.smarttemplatefiller.engine;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Sparse row-ordered buffer of cell values for sinks that must emit rows in
+ * order while mappings fill the output column by column. Each cell carries
+ * a small tag (e.g. the index of its mapping's format). Far lighter than a
+ * workbook model: one String reference and one int per cell.
+ */
+public final class CellGrid {
+
+    /** Tag of cells written as titles. */
+    public static final int TITLE = -1;
+
+    private final TreeMap<Integer, GridRow> rows = new TreeMap<>();
+    private int maxColumn = -1;
+
+    /** One output row; columns without a value are null. */
+    public static final class GridRow {
+        private String[] values = new String[8];
+        private int[] tags = new int[8];
+        private int width;
+
+        void put(int column, String value, int tag) {
+            if (column >= values.length) {
+                int size = Math.max(column + 1, values.length * 2);
+                values = Arrays.copyOf(values, size);
+                tags = Arrays.copyOf(tags, size);
+            }
+            values[column] = value;
+            tags[column] = tag;
+            width = Math.max(width, column + 1);
+        }
+
+        /** One past the last column holding a value. */
+        public int width() {
+            return width;
+        }
+
+        public String value(int column) {
+            return column < width ? values[column] : null;
+        }
+
+        public int tag(int column) {
+            return tags[column];
+        }
+    }
+
+    public void put(int row, int column, String value, int tag) {
+        rows.computeIfAbsent(row, r -> new GridRow()).put(column, value, tag);
+        maxColumn = Math.max(maxColumn, column);
+    }
+
+    public boolean isEmpty() {
+        return rows.isEmpty();
+    }
+
+    public int firstRow() {
+        return rows.isEmpty() ? -1 : rows.firstKey();
+    }
+
+    public int lastRow() {
+        return rows.isEmpty() ? -1 : rows.lastKey();
+    }
+
+    public int maxColumn() {
+        return maxColumn;
+    }
+
+    /** The non-empty rows in ascending row order. */
+    public Iterable<Map.Entry<Integer, GridRow>> rows() {
+        return Collections.unmodifiableMap(rows).entrySet();
+    }
+}
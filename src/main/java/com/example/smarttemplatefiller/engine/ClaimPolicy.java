@@ -0,0 +1,62 @@
+package com.example.smarttemplatefiller.engine;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+
+/**
+ * How an instance shares its watch folder with other instances (other
+ * JVMs or hosts watching the same folder): under which name it claims
+ * files, and how long a silent instance keeps its claims before the
+ * others take its files back. See {@link FileClaims}.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ClaimPolicy {
+
+    private static final int DEFAULT_LEASE_SECONDS = 60;
+
+    // Name of this instance's work folder; unique per instance (default: host name and process id)
+    private String instanceId;
+
+    // An instance whose heartbeat has not changed for this long is considered gone
+    private Integer leaseSeconds;
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    public void setInstanceId(String instanceId) {
+        this.instanceId = instanceId;
+    }
+
+    public Integer getLeaseSeconds() {
+        return leaseSeconds;
+    }
+
+    public void setLeaseSeconds(Integer leaseSeconds) {
+        this.leaseSeconds = leaseSeconds;
+    }
+
+    /** The configured instance id, else "&lt;host&gt;-&lt;pid&gt;". */
+    @JsonIgnore
+    public String resolveInstanceId() {
+        if (instanceId != null && !instanceId.isBlank()) {
+            return instanceId.trim();
+        }
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "host";
+        }
+        return host + "-" + ProcessHandle.current().pid();
+    }
+
+    @JsonIgnore
+    public Duration resolveLease() {
+        return Duration.ofSeconds(leaseSeconds != null && leaseSeconds > 0 ? leaseSeconds : DEFAULT_LEASE_SECONDS);
+    }
+}
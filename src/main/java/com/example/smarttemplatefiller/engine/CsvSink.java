@@ -0,0 +1,291 @@
+package com.example.smarttemplatefiller.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes mapped cells as UTF-8 CSV without any workbook model. Cells are
+ * buffered in a {@link CellGrid} and written row by row through a buffered
+ * file channel. Appends open the existing file in append mode and write
+ * only the new rows; if the write fails the file is truncated back to its
+ * previous length. The row count comes from the file's {@link AppendIndex},
+ * or from a scan of the records when the index is missing or stale; only
+ * appends write the index.
+ */
+public final class CsvSink implements OutputSink {
+
+    private final File target;
+    private final boolean append;
+    private final String delimiter;
+    private final CellGrid grid = new CellGrid();
+    private final int firstFreeRow;
+    private final boolean endsWithLineBreak;
+    private final AppendIndex index;
+    private final AppendIndex.SheetIndex existing;
+
+    private CsvSink(File target, boolean append, OutputOptions options) throws IOException {
+        this.target = target;
+        this.append = append;
+        this.delimiter = options.resolveCsvDelimiter();
+        AppendIndex loaded = append ? AppendIndex.loadValid(target) : null;
+        this.index = loaded != null ? loaded : new AppendIndex();
+        if (append) {
+            AppendIndex.SheetIndex indexed = loaded != null ? loaded.sheet(SHEET) : null;
+            this.existing = indexed != null ? indexed : scan(target, delimiter);
+            this.firstFreeRow = existing.getRows();
+            this.endsWithLineBreak = endsWithLineBreak(target);
+        } else {
+            this.existing = new AppendIndex.SheetIndex();
+            this.firstFreeRow = 0;
+            this.endsWithLineBreak = true;
+        }
+    }
+
+    /** Key of a CSV file's only "sheet" in its {@link AppendIndex}. */
+    public static final String SHEET = "";
+
+    public static CsvSink create(File output, OutputOptions options) throws IOException {
+        return new CsvSink(output, false, options);
+    }
+
+    public static CsvSink append(File existing, OutputOptions options) throws IOException {
+        return new CsvSink(existing, true, options);
+    }
+
+    @Override
+    public int firstFreeRow() {
+        return firstFreeRow;
+    }
+
+    /** CSV appends can only add lines, so every column continues below the last record. */
+    @Override
+    public int firstFreeRow(int column) {
+        return firstFreeRow;
+    }
+
+    @Override
+    public int rowLimit() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void beginMapping(Map<String, Object> mapping, List<List<String>> data, int sourceColumn) {
+        // CSV has no cell types or styles
+    }
+
+    @Override
+    public void title(int row, int column, String text) {
+        grid.put(row, column, text, CellGrid.TITLE);
+    }
+
+    @Override
+    public void value(int row, int column, String value) {
+        grid.put(row, column, value, 0);
+    }
+
+    @Override
+    public void commit() throws IOException {
+        if (!append) {
+            AtomicFileWriter.write(target, out -> writeRows(out, 0));
+            updateIndex();
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(target.toPath(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            long previousSize = channel.size();
+            try {
+                OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel),
+                        AtomicFileWriter.WRITE_BUFFER_BYTES);
+                if (!endsWithLineBreak) {
+                    out.write('\n');
+                }
+                // Rows above firstFreeRow already exist in the file
+                writeRows(out, firstFreeRow);
+                out.flush();
+                channel.force(false);
+            } catch (IOException e) {
+                channel.truncate(previousSize);
+                throw e;
+            }
+        }
+        updateIndex();
+    }
+
+    private void updateIndex() {
+        AppendIndex.SheetIndex written = new AppendIndex.SheetIndex();
+        written.add(existing);
+        for (Map.Entry<Integer, CellGrid.GridRow> entry : grid.rows()) {
+            if (entry.getKey() < firstFreeRow) {
+                continue;
+            }
+            CellGrid.GridRow row = entry.getValue();
+            for (int c = 0; c < row.width(); c++) {
+                if (row.value(c) != null && !row.value(c).isEmpty()) {
+                    written.cell(entry.getKey(), c);
+                }
+            }
+            // An all-empty row still takes a line
+            written.setRows(Math.max(written.getRows(), entry.getKey() + 1));
+        }
+        index.putSheet(SHEET, written);
+        if (append) {
+            index.saveFor(target);
+        }
+    }
+
+    private void writeRows(OutputStream out, int fromRow) throws IOException {
+        int width = grid.maxColumn() + 1;
+        int nextRow = fromRow;
+        StringBuilder line = new StringBuilder(256);
+        for (Map.Entry<Integer, CellGrid.GridRow> entry : grid.rows()) {
+            int rowIndex = entry.getKey();
+            if (rowIndex < fromRow) {
+                continue;
+            }
+            // Gaps between mapped rows stay empty rows, as in the workbook outputs
+            for (; nextRow < rowIndex; nextRow++) {
+                line.setLength(0);
+                appendEmptyRow(line, width);
+                out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            line.setLength(0);
+            CellGrid.GridRow row = entry.getValue();
+            for (int c = 0; c < width; c++) {
+                if (c > 0) {
+                    line.append(delimiter);
+                }
+                String value = row.value(c);
+                if (value != null) {
+                    appendField(line, value);
+                }
+            }
+            line.append('\n');
+            out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+            nextRow = rowIndex + 1;
+        }
+    }
+
+    private void appendEmptyRow(StringBuilder line, int width) {
+        for (int c = 1; c < width; c++) {
+            line.append(delimiter);
+        }
+        line.append('\n');
+    }
+
+    /** RFC 4180 quoting for values containing the delimiter, quotes or line breaks. */
+    private void appendField(StringBuilder line, String value) {
+        boolean quote = value.contains(delimiter) || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    /**
+     * Rows and last non-empty row per column of a CSV file, scanned record
+     * by record: line breaks inside quoted fields do not end a record, and
+     * a last record without a line break still counts.
+     */
+    public static AppendIndex.SheetIndex scan(File file, String delimiter) throws IOException {
+        AppendIndex.SheetIndex result = new AppendIndex.SheetIndex();
+        byte[] separator = delimiter.getBytes(StandardCharsets.UTF_8);
+        int row = 0;
+        int column = 0;
+        int matched = 0;
+        boolean quoted = false;
+        boolean content = false;
+        boolean pending = false;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()),
+                AtomicFileWriter.WRITE_BUFFER_BYTES)) {
+            int b;
+            while ((b = in.read()) >= 0) {
+                pending = true;
+                if (b == '"') {
+                    quoted = !quoted;
+                    matched = 0;
+                    continue;
+                }
+                if (quoted) {
+                    content = true;
+                    continue;
+                }
+                if (b == '\n') {
+                    if (content || matched > 0) {
+                        result.cell(row, column);
+                    }
+                    row++;
+                    result.setRows(row);
+                    column = 0;
+                    matched = 0;
+                    content = false;
+                    pending = false;
+                    continue;
+                }
+                if (b == (separator[matched] & 0xFF)) {
+                    if (++matched == separator.length) {
+                        if (content) {
+                            result.cell(row, column);
+                        }
+                        column++;
+                        matched = 0;
+                        content = false;
+                    }
+                    continue;
+                }
+                if (matched > 0) {
+                    // The partial delimiter was field text
+                    content = true;
+                }
+                matched = b == (separator[0] & 0xFF) ? 1 : 0;
+                if (matched == 0 && b != '\r') {
+                    content = true;
+                }
+            }
+        }
+        if (pending) {
+            if (content || matched > 0) {
+                result.cell(row, column);
+            }
+            result.setRows(row + 1);
+        }
+        return result;
+    }
+
+    /** True for an empty file or one whose last byte is a line break. */
+    static boolean endsWithLineBreak(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long length = raf.length();
+            if (length == 0) {
+                return true;
+            }
+            raf.seek(length - 1);
+            return raf.read() == '\n';
+        }
+    }
+
+    @Override
+    public void close() {
+        // Nothing is held open between commit and close
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.smarttemplatefiller.engine;
+
+import com.example.smarttemplatefiller.mapping.CellValueType;
+
+/**
+ * Allocation-free decimal parser used to decide whether a parsed value is
+ * written as a numeric cell. Works on a character range of the value and
+ * returns {@code Double.NaN} when the range is not a clean number, so callers
+ * need neither exceptions nor boxing.
+ *
+ * Values with at most 15 significant digits and a decimal exponent within
+ * ±22 are converted with one exact multiplication or division, which rounds
+ * the same as {@link Double#parseDouble}. Anything longer falls back to
+ * {@code Double.parseDouble}.
+ */
+public final class DecimalParser {
+
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = new double[23];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private DecimalParser() {
+    }
+
+    /**
+     * The numeric cell value for {@code value} under the mapping's value
+     * type, or NaN if it should be written as text.
+     */
+    public static double toCellNumber(CharSequence value, CellValueType type) {
+        if (type == CellValueType.TEXT || value == null) {
+            return Double.NaN;
+        }
+        return parse(value, 0, value.length(), type == CellValueType.NUMBER);
+    }
+
+    /**
+     * Parse {@code s[from, to)} as {@code [+-]digits[.digits][e[+-]digits]}.
+     *
+     * @param lenient accept exponents, leading zeros ("007") and more than 15
+     *                significant digits; otherwise such values are rejected so
+     *                IDs and serial numbers stay text
+     * @return the value, or NaN if the range is not a number or beyond the
+     *         double range; a negative zero is returned as 0
+     */
+    public static double parse(CharSequence s, int from, int to, boolean lenient) {
+        int i = from;
+        if (i >= to) {
+            return Double.NaN;
+        }
+        boolean negative = false;
+        char c = s.charAt(i);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean leadingZero = i < to && s.charAt(i) == '0';
+
+        int integerStart = i;
+        for (; i < to && (c = s.charAt(i)) >= '0' && c <= '9'; i++) {
+            if (significantDigits > 0 || c != '0') {
+                if (significantDigits < 18) {
+                    mantissa = mantissa * 10 + (c - '0');
+                } else {
+                    scale++;
+                }
+                significantDigits++;
+            }
+            digits++;
+        }
+        int integerDigits = i - integerStart;
+        if (!lenient && leadingZero && integerDigits > 1) {
+            return Double.NaN;
+        }
+
+        if (i < to && s.charAt(i) == '.') {
+            i++;
+            for (; i < to && (c = s.charAt(i)) >= '0' && c <= '9'; i++) {
+                if (significantDigits > 0 || c != '0') {
+                    if (significantDigits < 18) {
+                        mantissa = mantissa * 10 + (c - '0');
+                        scale--;
+                    }
+                    significantDigits++;
+                } else {
+                    scale--;
+                }
+                digits++;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+
+        int exponent = 0;
+        if (i < to && ((c = s.charAt(i)) == 'e' || c == 'E')) {
+            if (!lenient) {
+                return Double.NaN;
+            }
+            i++;
+            boolean negativeExponent = false;
+            if (i < to && ((c = s.charAt(i)) == '-' || c == '+')) {
+                negativeExponent = c == '-';
+                i++;
+            }
+            int exponentStart = i;
+            for (; i < to && (c = s.charAt(i)) >= '0' && c <= '9'; i++) {
+                if (exponent < 100_000) {
+                    exponent = exponent * 10 + (c - '0');
+                }
+            }
+            if (i == exponentStart) {
+                return Double.NaN;
+            }
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+        if (i != to) {
+            return Double.NaN;
+        }
+        if (significantDigits > MAX_FAST_DIGITS && !lenient) {
+            return Double.NaN;
+        }
+
+        int power = scale + exponent;
+        if (mantissa == 0) {
+            // "-0" and "-0.000" are written as 0, not as Excel's -0
+            return 0;
+        }
+        if (significantDigits <= MAX_FAST_DIGITS && power >= -22 && power <= 22) {
+            // Both operands are exact doubles, so one IEEE operation rounds correctly
+            double value = power < 0 ? mantissa / POWERS_OF_TEN[-power] : mantissa * POWERS_OF_TEN[power];
+            return negative ? -value : value;
+        }
+        double value = Double.parseDouble(s.subSequence(from, to).toString());
+        if (Double.isInfinite(value)) {
+            // An exponent beyond the double range, e.g. "1e400"; no cell can hold it
+            return Double.NaN;
+        }
+        return value == 0 ? 0 : value;
+    }
+
+    /**
+     * Number of digits after the decimal point of a plain decimal, e.g. 3
+     * for "15.150", used to keep trailing zeros visible in Excel. Values
+     * with an exponent report 0.
+     */
+    public static int fractionDigits(CharSequence s) {
+        int dot = -1;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '.') {
+                dot = i;
+            } else if (c == 'e' || c == 'E') {
+                return 0;
+            }
+        }
+        return dot < 0 ? 0 : s.length() - dot - 1;
+    }
+}
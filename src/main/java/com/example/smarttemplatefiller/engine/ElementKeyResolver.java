@@ -0,0 +1,40 @@
+package com.example.smarttemplatefiller.engine;
+
+import com.example.smarttemplatefiller.parser.ParsedTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves element-keyed mappings ("rowKeys") to source row indexes through
+ * the hash index built by the parser. Unlike positional rowIndexes, keyed
+ * mappings keep pointing at the right rows when a CMM program gains or loses
+ * features.
+ */
+public class ElementKeyResolver {
+
+    /**
+     * Resolve the mapping's rowKeys to 0-based row indexes, one per key and in
+     * key order. Unknown keys resolve to -1 so output positions stay aligned
+     * with the key list; callers skip negative indexes like out-of-range ones.
+     * The optional "rowKeyOffset" selects a continuation line below the keyed
+     * row (e.g. 1 for the lower tolerance line of a fixed-column feature).
+     */
+    public static List<Integer> resolve(Map<String, Object> mappingNode, ParsedTable table) {
+        List<Integer> rowIndexes = new ArrayList<>();
+        Object rawKeys = mappingNode.get("rowKeys");
+        if (!(rawKeys instanceof List)) {
+            return rowIndexes;
+        }
+
+        int offset = (mappingNode.get("rowKeyOffset") instanceof Number)
+                ? ((Number) mappingNode.get("rowKeyOffset")).intValue() : 0;
+
+        for (Object key : (List<?>) rawKeys) {
+            int rowIndex = key == null ? -1 : table.findRow(key.toString());
+            rowIndexes.add(rowIndex < 0 ? -1 : rowIndex + offset);
+        }
+        return rowIndexes;
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.smarttemplatefiller.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Claims source files of a watch folder shared by several instances.
+ * An instance claims a file by renaming it into its own work folder
+ * "&lt;watch&gt;/.claims/&lt;instance&gt;/"; the rename is atomic, so of
+ * several instances seeing the same file exactly one gets it, and the
+ * others find it gone. Each instance also rewrites
+ * ".claims/&lt;instance&gt;.lease" with a growing heartbeat count. When
+ * another instance sees a lease unchanged for the lease duration (measured
+ * on its own clock, so clock skew between hosts does not matter), it moves
+ * the silent instance's files back into the watch folder, where they are
+ * claimed again.
+ *
+ * An atomic rename replaces a file of the same name on POSIX systems, so
+ * files are moved to a name not taken yet ("name~2.txt", ...): a claim
+ * does not overwrite a file an earlier run left in the work folder, and a
+ * file given back does not overwrite a newer one the station dropped into
+ * the watch folder meanwhile.
+ */
+public final class FileClaims {
+
+    static final String CLAIMS_FOLDER = ".claims";
+    private static final String LEASE_SUFFIX = ".lease";
+
+    private final Path watchFolder;
+    private final Path claimsFolder;
+    private final String instanceId;
+    private final Path workFolder;
+    private final Path leaseFile;
+    private final Duration lease;
+    private long beat;
+
+    // Other instances' last seen heartbeat
+    private final Map<String, Observation> observed = new HashMap<>();
+
+    public FileClaims(Path watchFolder, String instanceId, Duration lease) {
+        this.watchFolder = watchFolder;
+        this.claimsFolder = watchFolder.resolve(CLAIMS_FOLDER);
+        this.instanceId = instanceId.replaceAll("[^A-Za-z0-9._-]", "_");
+        this.workFolder = claimsFolder.resolve(this.instanceId);
+        this.leaseFile = claimsFolder.resolve(this.instanceId + LEASE_SUFFIX);
+        this.lease = lease;
+    }
+
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /** How often {@link #heartbeat()} must run: a third of the lease. */
+    public Duration heartbeatInterval() {
+        return lease.dividedBy(3);
+    }
+
+    /**
+     * Create the work folder, publish the first heartbeat and return files
+     * an earlier run under the same instance id left behind to the watch
+     * folder.
+     *
+     * @return number of files returned
+     */
+    public int start() throws IOException {
+        Files.createDirectories(workFolder);
+        heartbeat();
+        return returnFiles(workFolder).size();
+    }
+
+    public synchronized void heartbeat() throws IOException {
+        byte[] content = (++beat + " " + Instant.now() + "\n").getBytes(StandardCharsets.UTF_8);
+        AtomicFileWriter.write(leaseFile.toFile(), out -> out.write(content));
+    }
+
+    /**
+     * Take {@code source} for this instance.
+     *
+     * @return the claimed file in the work folder, or null if another
+     *         instance claimed it first (or it cannot be moved yet)
+     */
+    public File claim(File source) throws IOException {
+        // Only this instance adds files to its work folder, so the name stays free
+        Path claimed = freeName(workFolder, source.getName());
+        try {
+            Files.move(source.toPath(), claimed, StandardCopyOption.ATOMIC_MOVE);
+            return claimed.toFile();
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (AtomicMoveNotSupportedException e) {
+            throw new IOException("Cannot claim files: " + CLAIMS_FOLDER + " is not on the watch folder's file system", e);
+        } catch (IOException e) {
+            // E.g. still open by the writer on Windows; the next scan tries again
+            return null;
+        }
+    }
+
+    /** Give a claimed file back to the watch folder, e.g. after processing failed. */
+    public void release(File claimed) throws IOException {
+        Files.move(claimed.toPath(), freeName(watchFolder, claimed.getName()), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Return the files of instances whose heartbeat has stopped to the
+     * watch folder.
+     *
+     * @return names of the files returned
+     */
+    public List<String> reclaimExpired() throws IOException {
+        List<String> reclaimed = new ArrayList<>();
+        if (!Files.isDirectory(claimsFolder)) {
+            return reclaimed;
+        }
+        List<Path> folders = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(claimsFolder, Files::isDirectory)) {
+            entries.forEach(folders::add);
+        }
+        long now = System.nanoTime();
+        for (Path folder : folders) {
+            String other = folder.getFileName().toString();
+            if (other.equals(instanceId)) {
+                continue;
+            }
+            Path otherLease = claimsFolder.resolve(other + LEASE_SUFFIX);
+            String heartbeat = readLease(otherLease);
+            Observation seen = observed.get(other);
+            if (seen == null || !seen.heartbeat.equals(heartbeat)) {
+                observed.put(other, new Observation(heartbeat, now));
+                continue;
+            }
+            if (now - seen.since < lease.toNanos()) {
+                continue;
+            }
+            reclaimed.addAll(returnFiles(folder));
+            observed.remove(other);
+            try {
+                Files.deleteIfExists(folder);
+                Files.deleteIfExists(otherLease);
+            } catch (IOException e) {
+                // Not empty again (the instance came back) or already removed
+            }
+        }
+        return reclaimed;
+    }
+
+    /** Stop heartbeating: remove the lease and the work folder if it is empty. */
+    public void stop() {
+        try {
+            Files.deleteIfExists(leaseFile);
+            Files.deleteIfExists(workFolder);
+        } catch (IOException e) {
+            // Files left in the work folder are returned by the next start or by another instance
+        }
+    }
+
+    private List<String> returnFiles(Path folder) throws IOException {
+        List<String> returned = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder)) {
+            for (Path file : files) {
+                try {
+                    Path target = freeName(watchFolder, file.getFileName().toString());
+                    Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+                    returned.add(target.getFileName().toString());
+                } catch (NoSuchFileException e) {
+                    // Another instance returned it first
+                }
+            }
+        }
+        return returned;
+    }
+
+    /** {@code folder/name}, or the first "name~n" that does not exist there. */
+    private static Path freeName(Path folder, String name) {
+        Path target = folder.resolve(name);
+        for (int n = 2; Files.exists(target, LinkOption.NOFOLLOW_LINKS); n++) {
+            target = folder.resolve(OutputFiles.withSuffix(name, n));
+        }
+        return target;
+    }
+
+    private static String readLease(Path lease) {
+        try {
+            return Files.readString(lease, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            // Missing: the instance stopped (or crashed before its first heartbeat)
+            return "";
+        }
+    }
+
+    /** A lease's content and when (System.nanoTime) this instance first saw it. */
+    private static final class Observation {
+        final String heartbeat;
+        final long since;
+
+        Observation(String heartbeat, long since) {
+            this.heartbeat = heartbeat;
+            this.since = since;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.smarttemplatefiller.engine;
+
+import com.example.smarttemplatefiller.parser.SourceFingerprint;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Which sources a Running Mode route takes by their
+ * {@link SourceFingerprint}. Every condition that is set must hold; an
+ * empty rule takes every source. The decision is cached per fingerprint,
+ * so files of a program already seen are routed without evaluating the
+ * rule again.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class FingerprintRule {
+
+    private static final int MAX_CACHED_DECISIONS = 1024;
+
+    // "qv", "outfil", "delimited" or "text"
+    private String layout;
+
+    // Part name with '*' and '?' wildcards, case-insensitive (e.g. "BRACKET-*")
+    private String partName;
+
+    // Feature names that must be among the file's first features (e.g. ["Y1", "X1"])
+    private List<String> features = new ArrayList<>();
+
+    // Exact column count
+    private Integer columns;
+
+    @JsonIgnore
+    private transient volatile Pattern partNamePattern;
+
+    @JsonIgnore
+    private final transient Map<SourceFingerprint, Boolean> decisions = new ConcurrentHashMap<>();
+
+    public String getLayout() {
+        return layout;
+    }
+
+    public void setLayout(String layout) {
+        this.layout = layout;
+        decisions.clear();
+    }
+
+    public String getPartName() {
+        return partName;
+    }
+
+    public void setPartName(String partName) {
+        this.partName = partName;
+        this.partNamePattern = null;
+        decisions.clear();
+    }
+
+    public List<String> getFeatures() {
+        return features;
+    }
+
+    public void setFeatures(List<String> features) {
+        this.features = features != null ? features : new ArrayList<>();
+        decisions.clear();
+    }
+
+    public Integer getColumns() {
+        return columns;
+    }
+
+    public void setColumns(Integer columns) {
+        this.columns = columns;
+        decisions.clear();
+    }
+
+    /** True if the source with this fingerprint meets every condition of the rule. */
+    public boolean matches(SourceFingerprint fingerprint) {
+        Boolean cached = decisions.get(fingerprint);
+        if (cached != null) {
+            return cached;
+        }
+        boolean matches = evaluate(fingerprint);
+        if (decisions.size() >= MAX_CACHED_DECISIONS) {
+            decisions.clear();
+        }
+        decisions.put(fingerprint, matches);
+        return matches;
+    }
+
+    private boolean evaluate(SourceFingerprint fingerprint) {
+        if (layout != null && !layout.isBlank() && !fingerprint.getLayout().name().equalsIgnoreCase(layout.trim())) {
+            return false;
+        }
+        if (partName != null && !partName.isBlank()) {
+            if (fingerprint.getPartName() == null) {
+                return false;
+            }
+            Pattern pattern = partNamePattern;
+            if (pattern == null) {
+                pattern = wildcard(partName.trim());
+                partNamePattern = pattern;
+            }
+            if (!pattern.matcher(fingerprint.getPartName()).matches()) {
+                return false;
+            }
+        }
+        if (!fingerprint.getFeatures().containsAll(features)) {
+            return false;
+        }
+        return columns == null || columns == fingerprint.getColumnCount();
+    }
+
+    private static Pattern wildcard(String text) {
+        StringBuilder regex = new StringBuilder();
+        for (String literal : text.split("(?=[*?])|(?<=[*?])")) {
+            regex.append(literal.equals("*") ? ".*" : literal.equals("?") ? "." : Pattern.quote(literal));
+        }
+        return Pattern.compile(regex.toString(), Pattern.CASE_INSENSITIVE);
+    }
+}
@@ -16,4 +16,16 @@ public class MappingPathResolver {
     public static boolean shouldUseFlexPath(ColumnMapping mapping) {
         return mapping.getFillField() != null;
     }
+
+    /**
+     * Determines whether the mapping addresses rows by element key ("rowKeys")
+     * instead of by position. Flex parameters still take priority.
+     */
+    public static boolean shouldUseKeyPath(Map<String, Object> mappingNode) {
+        return mappingNode.get("rowKeys") != null;
+    }
+
+    public static boolean shouldUseKeyPath(ColumnMapping mapping) {
+        return mapping.getRowKeys() != null;
+    }
 }
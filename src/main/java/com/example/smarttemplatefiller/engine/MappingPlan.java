@@ -0,0 +1,147 @@
+package com.example.smarttemplatefiller.engine;
+
+import com.example.smarttemplatefiller.mapping.MappingCache;
+import com.example.smarttemplatefiller.parser.ParseOptions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * One compiled, validated version of a mapping: its column mappings, the
+ * parse options and the output settings of its "&lt;mapping&gt;.parse.json"
+ * and "&lt;mapping&gt;.output.json". A plan never changes; a changed
+ * mapping gives a new plan with the next version (see
+ * {@link ReloadingMapping}).
+ */
+public final class MappingPlan {
+
+    private static final Pattern CELL = Pattern.compile("\\$?[A-Za-z]{1,3}\\$?[1-9][0-9]*");
+
+    private final File mappingFile;
+    private final int version;
+    private final List<Map<String, Object>> mappings;
+    private final ParseOptions parseOptions;
+    private final OutputOptions outputOverlay;
+
+    private MappingPlan(File mappingFile, int version, List<Map<String, Object>> mappings,
+                        ParseOptions parseOptions, OutputOptions outputOverlay) {
+        this.mappingFile = mappingFile;
+        this.version = version;
+        this.mappings = mappings;
+        this.parseOptions = parseOptions;
+        this.outputOverlay = outputOverlay;
+    }
+
+    /**
+     * Read and validate the mapping and its option files.
+     *
+     * @param parseOptions the parse options to use with this version of the mapping
+     * @throws IOException if a file cannot be read or the mapping is not valid
+     */
+    public static MappingPlan compile(File mappingFile, int version, ParseOptions parseOptions) throws IOException {
+        List<Map<String, Object>> mappings = MappingCache.get(mappingFile);
+        validate(mappings);
+        File parseOptionsFile = ParseOptions.optionsFileFor(mappingFile);
+        if (parseOptionsFile.isFile()) {
+            // ParseOptions.forMapping falls back to defaults on a broken file; a reload must not
+            new ObjectMapper().readValue(parseOptionsFile, ParseOptions.class);
+        }
+        OutputOptions outputOverlay = OutputOptions.readMappingOptions(mappingFile);
+        return new MappingPlan(mappingFile, version, mappings, parseOptions, outputOverlay);
+    }
+
+    /**
+     * Size and modification time of the mapping and its option files, to
+     * tell whether any of them changed.
+     */
+    public static long stampOf(File mappingFile) {
+        long stamp = 17;
+        for (File file : new File[]{mappingFile, ParseOptions.optionsFileFor(mappingFile),
+                OutputOptions.mappingOptionsFile(mappingFile)}) {
+            stamp = 31 * stamp + file.lastModified();
+            stamp = 31 * stamp + file.length();
+        }
+        return stamp;
+    }
+
+    /** Reject what the writers would fail on halfway through an output. */
+    static void validate(List<Map<String, Object>> mappings) throws IOException {
+        if (mappings == null) {
+            throw new IOException("Mapping is empty");
+        }
+        for (int i = 0; i < mappings.size(); i++) {
+            Map<String, Object> mapping = mappings.get(i);
+            String at = "Mapping " + (i + 1) + ": ";
+            if (mapping == null) {
+                throw new IOException(at + "not an object");
+            }
+            Object column = mapping.containsKey("fieldIndex") ? mapping.get("fieldIndex") : mapping.get("sourceColumn");
+            if (!(column instanceof Number) || ((Number) column).intValue() < 0) {
+                throw new IOException(at + "sourceColumn must be a number of at least 0");
+            }
+            Object startCell = mapping.get("startCell");
+            if (!(startCell instanceof String) || !CELL.matcher((String) startCell).matches()) {
+                throw new IOException(at + "startCell must be a cell like \"B2\", not " + startCell);
+            }
+            Object direction = mapping.get("direction");
+            if (!"vertical".equals(direction) && !"horizontal".equals(direction)) {
+                throw new IOException(at + "direction must be \"vertical\" or \"horizontal\", not " + direction);
+            }
+            Object rowPattern = mapping.get("rowPattern");
+            if (rowPattern != null) {
+                if (!(rowPattern instanceof Map)
+                        || !(((Map<?, ?>) rowPattern).get("start") instanceof Number)
+                        || !(((Map<?, ?>) rowPattern).get("type") instanceof String)) {
+                    throw new IOException(at + "rowPattern needs a numeric start and a type");
+                }
+            }
+            Object rowIndexes = mapping.get("rowIndexes");
+            if (rowIndexes != null
+                    && (!(rowIndexes instanceof List) || !((List<?>) rowIndexes).stream().allMatch(n -> n instanceof Number))) {
+                throw new IOException(at + "rowIndexes must be a list of numbers");
+            }
+            for (String field : new String[]{"startField", "fillField", "spaceField"}) {
+                Object value = mapping.get(field);
+                if (value != null && !(value instanceof Number)) {
+                    throw new IOException(at + field + " must be a number");
+                }
+            }
+            if (mapping.containsKey("fillField") && mapping.get("fillField") == null) {
+                throw new IOException(at + "fillField must be a number");
+            }
+        }
+    }
+
+    public File getMappingFile() {
+        return mappingFile;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /** The column mappings; shared and read-only. */
+    public List<Map<String, Object>> getMappings() {
+        return mappings;
+    }
+
+    public ParseOptions getParseOptions() {
+        return parseOptions;
+    }
+
+    /** {@code base} with this version's "&lt;mapping&gt;.output.json" settings applied on top. */
+    public OutputOptions outputOptions(OutputOptions base) {
+        OutputOptions options = base != null ? base.copy() : new OutputOptions();
+        return outputOverlay != null ? options.overlay(outputOverlay) : options;
+    }
+
+    /** "qv.json v3", for the activity log. */
+    @Override
+    public String toString() {
+        return mappingFile.getName() + " v" + version;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.smarttemplatefiller.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates output folders and picks free file names in them, for the
+ * conversion threads of one route. A folder is created once, not for
+ * every file. A name is taken by creating the file exclusively, so two
+ * files never get the same name, whether they are processed by
+ * different threads or instances or within the same second; a taken
+ * name continues as "name~2.xlsx", "name~3.xlsx", ...
+ */
+public final class OutputFiles {
+
+    // Remembered suffixes are dropped beyond this many names
+    private static final int MAX_REMEMBERED = 10_000;
+
+    private final Set<Path> createdFolders = ConcurrentHashMap.newKeySet();
+    // Last suffix given per folder and name, so a name repeated all day is not probed from ~2 each time
+    private final Map<Path, Integer> lastSuffix = new ConcurrentHashMap<>();
+
+    /** Create {@code folder} (and its parents) unless this instance already did. */
+    public Path folder(Path folder) throws IOException {
+        if (!createdFolders.contains(folder)) {
+            Files.createDirectories(folder);
+            createdFolders.add(folder);
+        }
+        return folder;
+    }
+
+    /**
+     * Take a new file in {@code folder}, named {@code name} or the next free
+     * "~n" name. It is created empty; its writer replaces it.
+     */
+    public File reserve(Path folder, String name) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            folder(folder);
+            Path key = folder.resolve(name);
+            int n = lastSuffix.getOrDefault(key, 1);
+            try {
+                while (true) {
+                    Path candidate = folder.resolve(n == 1 ? name : withSuffix(name, n));
+                    try {
+                        Files.createFile(candidate);
+                        remember(key, n);
+                        return candidate.toFile();
+                    } catch (FileAlreadyExistsException e) {
+                        n++;
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                if (attempt == 2) {
+                    throw e;
+                }
+                forget(folder);
+            }
+        }
+    }
+
+    /** Move {@code source} into {@code folder}, under its name or the next free "~n" name. */
+    public Path moveInto(Path source, Path folder) throws IOException {
+        String name = source.getFileName().toString();
+        for (int attempt = 1; ; attempt++) {
+            folder(folder);
+            try {
+                for (int n = 1; ; n++) {
+                    Path target = folder.resolve(n == 1 ? name : withSuffix(name, n));
+                    try {
+                        return Files.move(source, target);
+                    } catch (FileAlreadyExistsException e) {
+                        // Taken; try the next name
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                if (attempt == 2 || !Files.exists(source)) {
+                    throw e;
+                }
+                forget(folder);
+            }
+        }
+    }
+
+    /** A folder that was removed since it was created is created again on next use. */
+    private void forget(Path folder) {
+        createdFolders.removeIf(created -> created.startsWith(folder) || folder.startsWith(created));
+    }
+
+    private void remember(Path key, int n) {
+        if (lastSuffix.size() >= MAX_REMEMBERED) {
+            lastSuffix.clear();
+        }
+        if (n > 1) {
+            lastSuffix.merge(key, n, Math::max);
+        }
+    }
+
+    /** "name~2.xlsx" for "name.xlsx". */
+    public static String withSuffix(String name, int n) {
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) + "~" + n + name.substring(dot) : name + "~" + n;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.smarttemplatefiller.engine;
+
+/**
+ * Output file format ("format" in the output options).
+ */
+public enum OutputFormat {
+    /** Workbook built in memory with POI; supports templates and appends anywhere. */
+    XLSX("xlsx", ".xlsx"),
+    /** Workbook written row by row with POI's streaming writer; lowest memory for large outputs. */
+    XLSX_STREAMING("xlsx-streaming", ".xlsx"),
+    /** Plain comma-separated text without any workbook model; appends only add the new rows. */
+    CSV("csv", ".csv");
+
+    private final String jsonName;
+    private final String extension;
+
+    OutputFormat(String jsonName, String extension) {
+        this.jsonName = jsonName;
+        this.extension = extension;
+    }
+
+    public static OutputFormat fromName(String name, OutputFormat fallback) {
+        if (name == null || name.isBlank()) {
+            return fallback;
+        }
+        String normalized = name.trim().toLowerCase();
+        for (OutputFormat format : values()) {
+            if (format.jsonName.equals(normalized)) {
+                return format;
+            }
+        }
+        return fallback;
+    }
+
+    public String jsonName() {
+        return jsonName;
+    }
+
+    /** File extension including the dot. */
+    public String getExtension() {
+        return extension;
+    }
+}
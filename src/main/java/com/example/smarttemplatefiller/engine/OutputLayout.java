@@ -0,0 +1,126 @@
+package com.example.smarttemplatefiller.engine;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Where Running Mode puts the new output files of a mapping, below
+ * "&lt;output folder&gt;/&lt;mapping name&gt;":
+ * <ul>
+ * <li>{@code timestamp} (default): one folder per file, "&lt;yyyy-MM-dd_HHmmss&gt;/&lt;name&gt;"</li>
+ * <li>{@code daily}: a folder per day, "&lt;yyyy&gt;/&lt;MM&gt;/&lt;dd&gt;/&lt;name&gt;"</li>
+ * <li>{@code shift}: a folder per shift, "&lt;yyyy-MM-dd&gt;_&lt;HHmm&gt;/&lt;name&gt;", dated by the shift's start</li>
+ * <li>{@code flat}: no folders, "&lt;name&gt;_&lt;yyyy-MM-dd_HHmmss&gt;"</li>
+ * </ul>
+ * Names are made unique by {@link OutputFiles}, not by the timestamp.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OutputLayout {
+
+    public static final String TIMESTAMP = "timestamp";
+    public static final String DAILY = "daily";
+    public static final String SHIFT = "shift";
+    public static final String FLAT = "flat";
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HHmmss");
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy/MM/dd");
+    private static final DateTimeFormatter SHIFT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd_HHmm");
+
+    // timestamp (default), daily, shift or flat
+    private String strategy;
+
+    // Local start times of shifts for the shift layout, e.g. ["06:00", "14:00", "22:00"]
+    private List<String> shiftStarts;
+
+    public String getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(String strategy) {
+        this.strategy = strategy;
+    }
+
+    public List<String> getShiftStarts() {
+        return shiftStarts;
+    }
+
+    public void setShiftStarts(List<String> shiftStarts) {
+        this.shiftStarts = shiftStarts;
+    }
+
+    /**
+     * The configured strategy, or {@link #TIMESTAMP} if it is unset or
+     * unknown, or if it is {@link #SHIFT} without shift starts.
+     */
+    @JsonIgnore
+    public String resolveStrategy() {
+        String name = strategy != null ? strategy.trim().toLowerCase() : "";
+        switch (name) {
+            case DAILY:
+            case FLAT:
+                return name;
+            case SHIFT:
+                return shiftStarts != null && !shiftStarts.isEmpty() ? SHIFT : TIMESTAMP;
+            default:
+                return TIMESTAMP;
+        }
+    }
+
+    /** The folder of a mapping's files processed at {@code processed}. */
+    public Path folderFor(Path mappingFolder, LocalDateTime processed) {
+        switch (resolveStrategy()) {
+            case DAILY:
+                return mappingFolder.resolve(processed.format(DAY_FORMAT));
+            case SHIFT:
+                return mappingFolder.resolve(shiftStart(processed).format(SHIFT_FORMAT));
+            case FLAT:
+                return mappingFolder;
+            default:
+                return mappingFolder.resolve(processed.format(TIMESTAMP_FORMAT));
+        }
+    }
+
+    /** The file name before {@link OutputFiles} makes it unique. */
+    public String fileNameFor(String baseName, String extension, LocalDateTime processed) {
+        if (resolveStrategy().equals(FLAT)) {
+            return baseName + "_" + processed.format(TIMESTAMP_FORMAT) + extension;
+        }
+        return baseName + extension;
+    }
+
+    /**
+     * The latest shift start at or before {@code time}; before the first
+     * shift of a day, that is the last shift of the day before.
+     */
+    LocalDateTime shiftStart(LocalDateTime time) {
+        List<LocalTime> starts = new ArrayList<>(shiftStarts.size());
+        for (String start : shiftStarts) {
+            starts.add(LocalTime.parse(start.trim()));
+        }
+        LocalDateTime latest = null;
+        LocalDate today = time.toLocalDate();
+        for (LocalDate day : new LocalDate[]{today.minusDays(1), today}) {
+            for (LocalTime start : starts) {
+                LocalDateTime candidate = day.atTime(start);
+                if (!candidate.isAfter(time) && (latest == null || candidate.isAfter(latest))) {
+                    latest = candidate;
+                }
+            }
+        }
+        return latest;
+    }
+
+    @Override
+    public String toString() {
+        String resolved = resolveStrategy();
+        return resolved.equals(SHIFT) ? resolved + " " + String.join(", ", shiftStarts) : resolved;
+    }
+}
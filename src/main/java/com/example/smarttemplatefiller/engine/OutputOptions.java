@@ -0,0 +1,226 @@
+package com.example.smarttemplatefiller.engine;
+
+import com.example.smarttemplatefiller.mapping.StringStorage;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Settings for how an output is written, configured per output: the main
+ * window export (ExportConfiguration) or a Running Mode watch folder
+ * (RunningModeConfig). A mapping can override them in
+ * "&lt;mapping&gt;.output.json" next to the mapping file, e.g.
+ * {"format": "csv"}; settings inside the mapping JSON take precedence
+ * over both.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OutputOptions {
+
+    private static final String MAPPING_OUTPUT_OPTIONS_SUFFIX = ".output.json";
+
+    // Output file format: "xlsx", "xlsx-streaming" or "csv"
+    private String format;
+
+    // Field delimiter of CSV outputs
+    private String csvDelimiter;
+
+    // Default storage for text cells: "shared", "inline" or "auto"
+    private String stringStorage;
+
+    // Zip deflate profile: "fast", "default", "max" or "store"
+    private String compression;
+
+    // Sheet that new workbooks get and appends go to (default "Result"); created on append if missing
+    private String sheetName;
+
+    // Where appended columns continue: "row" (default, below the sheet's last row) or "column" (below each column's last value)
+    private String appendOffset;
+
+    // Template workbook to stamp instead of a blank "Result" workbook, and its target sheet
+    private String template;
+    private String templateSheet;
+
+    public static OutputOptions defaults() {
+        return new OutputOptions();
+    }
+
+    /**
+     * The given output's options with the settings of
+     * "&lt;mapping&gt;.output.json" applied on top, if that file exists.
+     * A relative template path is resolved against the mapping's folder.
+     */
+    public static OutputOptions forMapping(File mappingFile, OutputOptions base) {
+        OutputOptions merged = base != null ? base.copy() : new OutputOptions();
+        if (mappingFile == null) {
+            return merged;
+        }
+        try {
+            OutputOptions mapping = readMappingOptions(mappingFile);
+            if (mapping != null) {
+                merged.apply(mapping);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to load " + mappingOptionsFile(mappingFile).getName()
+                    + ", using output defaults: " + e.getMessage());
+        }
+        return merged;
+    }
+
+    /** "&lt;mapping&gt;.output.json" next to the mapping file. */
+    static File mappingOptionsFile(File mappingFile) {
+        File mappingDir = mappingFile.getAbsoluteFile().getParentFile();
+        String name = mappingFile.getName();
+        String baseName = name.endsWith(".json") ? name.substring(0, name.length() - 5) : name;
+        return new File(mappingDir, baseName + MAPPING_OUTPUT_OPTIONS_SUFFIX);
+    }
+
+    /**
+     * The settings of "&lt;mapping&gt;.output.json", or null if there is
+     * none. A relative template path is resolved against the mapping's folder.
+     */
+    static OutputOptions readMappingOptions(File mappingFile) throws IOException {
+        File optionsFile = mappingOptionsFile(mappingFile);
+        if (!optionsFile.isFile()) {
+            return null;
+        }
+        OutputOptions mapping = new ObjectMapper().readValue(optionsFile, OutputOptions.class);
+        if (mapping.template != null && !new File(mapping.template).isAbsolute()) {
+            mapping.template = new File(optionsFile.getParentFile(), mapping.template).getPath();
+        }
+        return mapping;
+    }
+
+    public OutputOptions copy() {
+        OutputOptions copy = new OutputOptions();
+        copy.apply(this);
+        return copy;
+    }
+
+    /**
+     * A copy of these options with every setting of {@code overrides}
+     * applied on top, e.g. a fan-out target's options over its watch
+     * folder's.
+     */
+    public OutputOptions overlay(OutputOptions overrides) {
+        OutputOptions merged = copy();
+        if (overrides != null) {
+            merged.apply(overrides);
+        }
+        return merged;
+    }
+
+    /** Take every setting that {@code other} sets. */
+    private void apply(OutputOptions other) {
+        if (other.format != null) format = other.format;
+        if (other.csvDelimiter != null) csvDelimiter = other.csvDelimiter;
+        if (other.stringStorage != null) stringStorage = other.stringStorage;
+        if (other.compression != null) compression = other.compression;
+        if (other.sheetName != null) sheetName = other.sheetName;
+        if (other.appendOffset != null) appendOffset = other.appendOffset;
+        if (other.template != null) template = other.template;
+        if (other.templateSheet != null) templateSheet = other.templateSheet;
+    }
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public String getCsvDelimiter() {
+        return csvDelimiter;
+    }
+
+    public void setCsvDelimiter(String csvDelimiter) {
+        this.csvDelimiter = csvDelimiter;
+    }
+
+    public String getStringStorage() {
+        return stringStorage;
+    }
+
+    public void setStringStorage(String stringStorage) {
+        this.stringStorage = stringStorage;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+
+    public String getSheetName() {
+        return sheetName;
+    }
+
+    public void setSheetName(String sheetName) {
+        this.sheetName = sheetName;
+    }
+
+    public String getAppendOffset() {
+        return appendOffset;
+    }
+
+    public void setAppendOffset(String appendOffset) {
+        this.appendOffset = appendOffset;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public void setTemplate(String template) {
+        this.template = template;
+    }
+
+    public String getTemplateSheet() {
+        return templateSheet;
+    }
+
+    public void setTemplateSheet(String templateSheet) {
+        this.templateSheet = templateSheet;
+    }
+
+    @JsonIgnore
+    public boolean hasTemplate() {
+        return template != null && !template.isBlank();
+    }
+
+    /** Storage for mappings without their own "stringStorage"; shared unless configured. */
+    @JsonIgnore
+    public StringStorage resolveStringStorage() {
+        return StringStorage.fromName(stringStorage, StringStorage.SHARED);
+    }
+
+    @JsonIgnore
+    public XlsxCompression resolveCompression() {
+        return XlsxCompression.fromName(compression, XlsxCompression.DEFAULT);
+    }
+
+    @JsonIgnore
+    public OutputFormat resolveFormat() {
+        return OutputFormat.fromName(format, OutputFormat.XLSX);
+    }
+
+    /** True if vertical appends continue below each column's own last value. */
+    @JsonIgnore
+    public boolean isColumnAppendOffset() {
+        return appendOffset != null && "column".equalsIgnoreCase(appendOffset.trim());
+    }
+
+    /** The CSV delimiter; "," unless configured ("\t" is accepted for tab). */
+    @JsonIgnore
+    public String resolveCsvDelimiter() {
+        if (csvDelimiter == null || csvDelimiter.isEmpty()) {
+            return ",";
+        }
+        return "\\t".equals(csvDelimiter) ? "\t" : csvDelimiter;
+    }
+}
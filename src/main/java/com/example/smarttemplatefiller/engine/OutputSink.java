@@ -0,0 +1,47 @@
+package com.example.smarttemplatefiller.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Destination of one export or append. The mapping engine places values by
+ * 0-based row and column; the sink decides how they are stored and writes
+ * the output on {@link #commit()}. Closing without committing leaves the
+ * output untouched.
+ */
+public interface OutputSink extends Closeable {
+
+    /**
+     * First row after the existing data when appending, 0 for a new output.
+     */
+    int firstFreeRow();
+
+    /**
+     * First row below the last value in {@code column} when appending, for
+     * mappings that continue per column. Sinks that can only add rows below
+     * the existing data return {@link #firstFreeRow()}.
+     */
+    int firstFreeRow(int column);
+
+    /** Highest number of rows the output format can hold. */
+    int rowLimit();
+
+    /**
+     * Called before the cells of each mapping with the source rows it reads,
+     * so typed sinks can decide how the mapping's values are stored.
+     */
+    void beginMapping(Map<String, Object> mapping, List<List<String>> data, int sourceColumn);
+
+    /** A title cell; always text. */
+    void title(int row, int column, String text);
+
+    /** A mapped value, formatted per the current mapping. */
+    void value(int row, int column, String value);
+
+    void commit() throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
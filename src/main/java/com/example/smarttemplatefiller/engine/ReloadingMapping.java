@@ -0,0 +1,81 @@
+package com.example.smarttemplatefiller.engine;
+
+import com.example.smarttemplatefiller.parser.ParseOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * The current {@link MappingPlan} of a mapping file that may be edited
+ * while Running Mode is active. {@link #reload()} is called off the hot
+ * path (on the engine's scheduler): when the mapping or its option files
+ * changed it compiles the new version and, only if that succeeds, swaps
+ * it in with one volatile write. A file being processed keeps the plan it
+ * started with; the next file gets the new one. A version that fails to
+ * compile is reported once and the previous plan stays in use.
+ */
+public final class ReloadingMapping {
+
+    private final File mappingFile;
+    private final Function<File, ParseOptions> parseOptions;
+
+    private volatile MappingPlan current;
+    private volatile String error;
+    private boolean checked;
+    private long seenStamp;
+    private int lastVersion;
+
+    /**
+     * @param parseOptions the parse options for a version of the mapping,
+     *                     evaluated on each reload as they can depend on its option files
+     */
+    public ReloadingMapping(File mappingFile, Function<File, ParseOptions> parseOptions) {
+        this.mappingFile = mappingFile;
+        this.parseOptions = parseOptions;
+    }
+
+    public File getMappingFile() {
+        return mappingFile;
+    }
+
+    /** The plan to use for the next file, or null if no version has compiled yet. */
+    public MappingPlan current() {
+        return current;
+    }
+
+    /** Why the last version did not compile, or null if it did. */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Compile the mapping if it (or one of its option files) changed since
+     * the last call.
+     *
+     * @return a line for the activity log, or null if nothing changed
+     */
+    public synchronized String reload() {
+        long stamp = MappingPlan.stampOf(mappingFile);
+        if (checked && stamp == seenStamp) {
+            return null;
+        }
+        checked = true;
+        seenStamp = stamp;
+        MappingPlan previous = current;
+        try {
+            MappingPlan plan = MappingPlan.compile(mappingFile, lastVersion + 1, parseOptions.apply(mappingFile));
+            lastVersion = plan.getVersion();
+            error = null;
+            current = plan;
+            return previous == null ? "Mapping loaded: " + plan : "Mapping reloaded: " + plan;
+        } catch (IOException | RuntimeException e) {
+            // An editor may still be writing the file; its next save changes the stamp and is tried again
+            String message = e.getMessage() != null ? e.getMessage() : e.toString();
+            // Jackson appends the source location on further lines
+            error = message.lines().findFirst().orElse(message).trim();
+            return "ERROR: " + mappingFile.getName() + " is not valid, "
+                    + (previous != null ? "keeping " + previous : "waiting for a valid version") + ": " + error;
+        }
+    }
+}
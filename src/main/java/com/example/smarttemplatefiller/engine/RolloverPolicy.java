@@ -0,0 +1,145 @@
+package com.example.smarttemplatefiller.engine;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * When an append target is full and the next source goes to a new
+ * workbook (or a new sheet of the same workbook) instead: a row count,
+ * file size, age, or a shift or day boundary. Unset limits do not apply.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class RolloverPolicy {
+
+    // Roll over before the target would exceed this many rows
+    private Integer maxRows;
+
+    // Roll over once the target file is this large
+    private Integer maxFileSizeMb;
+
+    // Roll over once the target was started this long ago
+    private Integer maxAgeHours;
+
+    // Local start times of shifts, e.g. ["06:00", "14:00", "22:00"]; ["00:00"] rolls over daily
+    private List<String> shiftStarts;
+
+    // "workbook" (default) or "sheet"
+    private String mode;
+
+    public Integer getMaxRows() {
+        return maxRows;
+    }
+
+    public void setMaxRows(Integer maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    public Integer getMaxFileSizeMb() {
+        return maxFileSizeMb;
+    }
+
+    public void setMaxFileSizeMb(Integer maxFileSizeMb) {
+        this.maxFileSizeMb = maxFileSizeMb;
+    }
+
+    public Integer getMaxAgeHours() {
+        return maxAgeHours;
+    }
+
+    public void setMaxAgeHours(Integer maxAgeHours) {
+        this.maxAgeHours = maxAgeHours;
+    }
+
+    public List<String> getShiftStarts() {
+        return shiftStarts;
+    }
+
+    public void setShiftStarts(List<String> shiftStarts) {
+        this.shiftStarts = shiftStarts;
+    }
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    @JsonIgnore
+    public boolean isEnabled() {
+        return maxRows != null || maxFileSizeMb != null || maxAgeHours != null
+                || (shiftStarts != null && !shiftStarts.isEmpty());
+    }
+
+    /** True if new segments are sheets of the same workbook rather than new workbooks. */
+    @JsonIgnore
+    public boolean isSheetMode() {
+        return mode != null && "sheet".equalsIgnoreCase(mode.trim());
+    }
+
+    /**
+     * Why the current segment must not take the next source, or null if it
+     * can.
+     *
+     * @param fileBytes    size of the target file
+     * @param rows         rows the segment holds, or -1 if not known yet
+     * @param expectedRows rows the next source is expected to add (the last source's)
+     * @param started      when the segment was started
+     */
+    public String rolloverReason(long fileBytes, int rows, int expectedRows, Instant started, Instant now, ZoneId zone) {
+        if (maxRows != null && rows >= 0 && rows + Math.max(expectedRows, 0) > maxRows) {
+            return "row limit " + maxRows;
+        }
+        if (maxFileSizeMb != null && fileBytes >= maxFileSizeMb * 1024L * 1024L) {
+            return "file size " + maxFileSizeMb + " MB";
+        }
+        if (maxAgeHours != null && started != null
+                && Duration.between(started, now).compareTo(Duration.ofHours(maxAgeHours)) >= 0) {
+            return "age " + maxAgeHours + " h";
+        }
+        if (started != null) {
+            Instant shiftStart = lastShiftStart(now, zone);
+            if (shiftStart != null && started.isBefore(shiftStart)) {
+                return "new shift since " + shiftStart.atZone(zone).toLocalTime();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The latest configured shift start at or before {@code now}, or null
+     * without shifts.
+     */
+    Instant lastShiftStart(Instant now, ZoneId zone) {
+        if (shiftStarts == null || shiftStarts.isEmpty()) {
+            return null;
+        }
+        List<LocalTime> times = new ArrayList<>(shiftStarts.size());
+        for (String start : shiftStarts) {
+            times.add(LocalTime.parse(start.trim()));
+        }
+        ZonedDateTime local = now.atZone(zone);
+        LocalDate today = local.toLocalDate();
+        Instant latest = null;
+        // The last start may lie on the previous day (before the first shift of today)
+        for (LocalDate day : new LocalDate[]{today.minusDays(1), today}) {
+            for (LocalTime time : times) {
+                Instant candidate = day.atTime(time).atZone(zone).toInstant();
+                if (!candidate.isAfter(now) && (latest == null || candidate.isAfter(latest))) {
+                    latest = candidate;
+                }
+            }
+        }
+        return latest;
+    }
+}
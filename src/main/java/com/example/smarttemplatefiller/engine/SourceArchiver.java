@@ -0,0 +1,375 @@
+package com.example.smarttemplatefiller.engine;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Archives processed sources into zip archives, one series per day and
+ * archive folder, off the conversion threads. A converted source is only
+ * renamed into a staging folder next to it (same volume, so no copy) by
+ * {@link #submit}; the archiver's own thread collects the staged sources
+ * of a day into a batch and writes the batch to the day's current part,
+ * "&lt;yyyy-MM-dd&gt;_001.zip", which continues in "_002.zip" once it
+ * exceeds the policy's size. Entries are deflated by the JDK.
+ *
+ * A part is rewritten through {@link AtomicFileWriter} (its existing
+ * entries copied raw, without recompressing), so it is forced to disk
+ * before it replaces the previous version; the day's {@link ArchiveIndex}
+ * is saved next, and only then are the staged sources deleted. After a
+ * crash, sources still in staging are archived again by
+ * {@link #recover}; entries already in the archive are recognised by
+ * name (or the "~n" name given on a clash), size and CRC and not written
+ * twice.
+ */
+public final class SourceArchiver {
+
+    /** Folder of a watch folder where processed sources wait for the archiver. */
+    public static final String STAGING_FOLDER = ".archiving";
+
+    private static final long CHECK_MILLIS = 1000;
+
+    private final Consumer<String> logCallback;
+    // Sources waiting to be written, by archive folder and day
+    private final Map<String, Batch> batches = new LinkedHashMap<>();
+    private ScheduledExecutorService executor;
+
+    private static final class Pending {
+        final Path staged;
+        final String entryName;
+
+        Pending(Path staged, String entryName) {
+            this.staged = staged;
+            this.entryName = entryName;
+        }
+    }
+
+    private static final class Batch {
+        final File archiveFolder;
+        final String day;
+        final ArchivePolicy policy;
+        final List<Pending> items = new ArrayList<>();
+        final long started = System.currentTimeMillis();
+
+        Batch(File archiveFolder, String day, ArchivePolicy policy) {
+            this.archiveFolder = archiveFolder;
+            this.day = day;
+            this.policy = policy;
+        }
+
+        boolean isDue(long now) {
+            return items.size() >= policy.resolveMaxBatchFiles() || now - started >= policy.resolveBatchMillis();
+        }
+    }
+
+    public SourceArchiver(Consumer<String> logCallback) {
+        this.logCallback = logCallback;
+    }
+
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "source-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> flush(false), CHECK_MILLIS, CHECK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /** Stop the archiver thread and write every waiting source. */
+    public void stop() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = executor;
+            executor = null;
+        }
+        if (running != null) {
+            running.shutdown();
+            try {
+                running.awaitTermination(60, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush(true);
+    }
+
+    /**
+     * Hand a processed source to the archiver. The source is moved to
+     * "&lt;staging folder&gt;/&lt;timestamp&gt;/&lt;name&gt;" right away and
+     * written to the archive later, on the archiver's thread.
+     *
+     * @param stagingFolder  a folder on the source's volume, such as "&lt;watch folder&gt;/.archiving/&lt;mapping&gt;"
+     * @param archiveFolder  where the day's zip parts and index are kept
+     * @param timestamp      when the source was processed, as yyyy-MM-dd_HHmmss
+     */
+    public void submit(File source, Path stagingFolder, File archiveFolder, String timestamp, ArchivePolicy policy)
+            throws IOException {
+        Path folder = stagingFolder.resolve(timestamp);
+        for (int attempt = 1; ; attempt++) {
+            Files.createDirectories(folder);
+            Path staged = folder.resolve(source.getName());
+            for (int n = 2; Files.exists(staged); n++) {
+                staged = folder.resolve(OutputFiles.withSuffix(source.getName(), n));
+            }
+            try {
+                try {
+                    Files.move(source.toPath(), staged, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(source.toPath(), staged);
+                }
+                enqueue(staged, archiveFolder, timestamp, policy);
+                return;
+            } catch (NoSuchFileException e) {
+                // The archiver removed the emptied folder meanwhile
+                if (attempt == 3 || !Files.exists(source.toPath())) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Queue sources a previous run staged but did not archive.
+     *
+     * @return the number of sources queued
+     */
+    public int recover(Path stagingFolder, File archiveFolder, ArchivePolicy policy) throws IOException {
+        if (!Files.isDirectory(stagingFolder)) {
+            return 0;
+        }
+        // In the order they were processed
+        List<Path> staged;
+        try (Stream<Path> files = Files.walk(stagingFolder, 2)) {
+            staged = files.filter(file -> Files.isRegularFile(file) && !file.getParent().equals(stagingFolder))
+                    .sorted().toList();
+        }
+        for (Path file : staged) {
+            enqueue(file, archiveFolder, file.getParent().getFileName().toString(), policy);
+        }
+        return staged.size();
+    }
+
+    private void enqueue(Path staged, File archiveFolder, String timestamp, ArchivePolicy policy) {
+        String day = timestamp.length() >= 10 ? timestamp.substring(0, 10) : timestamp;
+        String key = archiveFolder.getAbsolutePath() + "|" + day;
+        boolean full;
+        synchronized (batches) {
+            Batch batch = batches.computeIfAbsent(key, k -> new Batch(archiveFolder, day, policy));
+            batch.items.add(new Pending(staged, timestamp + "/" + staged.getFileName()));
+            full = batch.items.size() >= policy.resolveMaxBatchFiles();
+        }
+        ScheduledExecutorService running = executor;
+        if (full && running != null) {
+            running.execute(() -> flush(false));
+        }
+    }
+
+    /** Number of sources waiting to be written. */
+    public int pendingCount() {
+        synchronized (batches) {
+            int count = 0;
+            for (Batch batch : batches.values()) {
+                count += batch.items.size();
+            }
+            return count;
+        }
+    }
+
+    /** Write the batches that are due (or all of them); a batch that fails is tried again later. */
+    private void flush(boolean all) {
+        List<Batch> due = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        synchronized (batches) {
+            for (Iterator<Batch> it = batches.values().iterator(); it.hasNext(); ) {
+                Batch batch = it.next();
+                if (all || batch.isDue(now)) {
+                    due.add(batch);
+                    it.remove();
+                }
+            }
+        }
+        for (Batch batch : due) {
+            try {
+                write(batch);
+            } catch (Exception e) {
+                log("ERROR: Could not archive " + batch.items.size() + " sources to " + batch.archiveFolder
+                        + ": " + e.getMessage());
+                if (!all) {
+                    synchronized (batches) {
+                        for (Pending item : batch.items) {
+                            Batch retry = batches.computeIfAbsent(batch.archiveFolder.getAbsolutePath() + "|" + batch.day,
+                                    k -> new Batch(batch.archiveFolder, batch.day, batch.policy));
+                            retry.items.add(item);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void write(Batch batch) throws IOException {
+        Files.createDirectories(batch.archiveFolder.toPath());
+        File indexFile = ArchiveIndex.indexFileFor(batch.archiveFolder, batch.day);
+        int written = 0;
+        File partFile;
+        // Other instances archiving to the same folder wait for the index
+        AppendTargetLock lock = AppendTargetLock.acquire(indexFile);
+        try {
+            ArchiveIndex index = ArchiveIndex.load(indexFile);
+            Map<String, ArchiveIndex.Entry> byName = new HashMap<>();
+            for (ArchiveIndex.Entry entry : index.getEntries()) {
+                byName.put(entry.getName(), entry);
+            }
+            int part = Math.max(1, index.lastPart());
+            partFile = ArchiveIndex.partFileFor(batch.archiveFolder, batch.day, part);
+            if (partFile.isFile() && partFile.length() >= batch.policy.resolveMaxArchiveBytes()) {
+                part++;
+                partFile = ArchiveIndex.partFileFor(batch.archiveFolder, batch.day, part);
+            }
+            // A crash between writing a part and saving the index leaves entries only the part knows
+            Map<String, ArchiveIndex.Entry> inPart = new HashMap<>();
+            if (partFile.isFile()) {
+                try (ZipFile zip = new ZipFile(partFile)) {
+                    for (Enumeration<ZipArchiveEntry> e = zip.getEntries(); e.hasMoreElements(); ) {
+                        ZipArchiveEntry entry = e.nextElement();
+                        inPart.put(entry.getName(), new ArchiveIndex.Entry(entry.getName(), part, entry.getSize(),
+                                entry.getCrc(), entry.getTime()));
+                    }
+                }
+            }
+
+            List<Pending> toWrite = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for (Pending item : batch.items) {
+                // A source is stored under its name or, on a clash, the first free "~n" name; look through
+                // all of them, so a source archived under a "~n" name is not written again
+                int slash = item.entryName.lastIndexOf('/');
+                String folder = item.entryName.substring(0, slash + 1);
+                String fileName = item.entryName.substring(slash + 1);
+                String name = item.entryName;
+                ArchiveIndex.Entry archived = null;
+                long crc = -1;
+                for (int n = 2; byName.containsKey(name) || inPart.containsKey(name) || names.contains(name); n++) {
+                    ArchiveIndex.Entry known = byName.containsKey(name) ? byName.get(name) : inPart.get(name);
+                    if (known != null && known.getSize() == Files.size(item.staged)) {
+                        crc = crc < 0 ? crcOf(item.staged) : crc;
+                        if (known.getCrc() == crc) {
+                            archived = known;
+                            break;
+                        }
+                    }
+                    name = folder + OutputFiles.withSuffix(fileName, n);
+                }
+                if (archived != null) {
+                    if (!byName.containsKey(archived.getName())) {
+                        index.getEntries().add(archived);
+                        byName.put(archived.getName(), archived);
+                    }
+                    continue;
+                }
+                toWrite.add(item);
+                names.add(name);
+            }
+
+            if (!toWrite.isEmpty()) {
+                File existing = partFile;
+                long[] crcs = new long[toWrite.size()];
+                AtomicFileWriter.write(partFile, out -> {
+                    try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(out)) {
+                        zos.setLevel(batch.policy.resolveCompression().getDeflateLevel());
+                        if (existing.isFile()) {
+                            try (ZipFile zip = new ZipFile(existing)) {
+                                for (Enumeration<ZipArchiveEntry> e = zip.getEntries(); e.hasMoreElements(); ) {
+                                    ZipArchiveEntry entry = e.nextElement();
+                                    zos.addRawArchiveEntry(entry, zip.getRawInputStream(entry));
+                                }
+                            }
+                        }
+                        for (int i = 0; i < toWrite.size(); i++) {
+                            Path staged = toWrite.get(i).staged;
+                            ZipArchiveEntry entry = new ZipArchiveEntry(names.get(i));
+                            entry.setTime(Files.getLastModifiedTime(staged).toMillis());
+                            zos.putArchiveEntry(entry);
+                            try (InputStream in = Files.newInputStream(staged)) {
+                                in.transferTo(zos);
+                            }
+                            zos.closeArchiveEntry();
+                            crcs[i] = entry.getCrc();
+                        }
+                    }
+                });
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < toWrite.size(); i++) {
+                    index.getEntries().add(new ArchiveIndex.Entry(names.get(i), part,
+                            Files.size(toWrite.get(i).staged), crcs[i], now));
+                }
+                written = toWrite.size();
+            }
+            index.save();
+        } finally {
+            lock.release();
+        }
+
+        // The archive and its index are on disk; the originals can go
+        for (Pending item : batch.items) {
+            Files.deleteIfExists(item.staged);
+            try {
+                Files.deleteIfExists(item.staged.getParent());
+            } catch (DirectoryNotEmptyException e) {
+                // Further sources of the same second are still staged
+            }
+        }
+        if (written > 0) {
+            log("Archived " + written + " sources to " + partFile.getName()
+                    + " (" + batch.archiveFolder.getParentFile().getName() + ")");
+        }
+    }
+
+    private static long crcOf(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                crc.update(buffer, 0, n);
+            }
+        }
+        return crc.getValue();
+    }
+
+    private void log(String message) {
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
+        String logMessage = timestamp + " - " + message;
+        if (logCallback != null) {
+            logCallback.accept(logMessage);
+        }
+        System.out.println("[SourceArchiver] " + logMessage);
+    }
+}
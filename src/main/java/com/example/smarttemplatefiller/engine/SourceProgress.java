@@ -0,0 +1,103 @@
+package com.example.smarttemplatefiller.engine;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outputs a Running Mode source was already written to while another
+ * of its outputs failed. The source stays in the watch folder and the next
+ * scan writes only the outputs still missing, so an append target does not
+ * get its rows twice. Kept in "&lt;folder&gt;/&lt;source name&gt;.json" until
+ * every output is written; a different file under the same name (other
+ * size or time) starts over.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SourceProgress {
+
+    /** Folder of the progress files in the watch folder. */
+    public static final String PROGRESS_FOLDER = ".progress";
+
+    private long size;
+    private long lastModified;
+    // Per output of the route, the file it was written to (null until written)
+    private List<String> outputs = new ArrayList<>();
+
+    @JsonIgnore
+    private transient File stateFile;
+
+    /**
+     * The progress of {@code source} saved in {@code folder}, or an empty
+     * one if there is none or it belongs to another file of that name.
+     */
+    public static SourceProgress load(Path folder, File source) throws IOException {
+        File file = folder.resolve(source.getName() + ".json").toFile();
+        SourceProgress progress = file.isFile() ? new ObjectMapper().readValue(file, SourceProgress.class) : null;
+        if (progress == null || progress.size != source.length() || progress.lastModified != source.lastModified()) {
+            progress = new SourceProgress();
+            progress.size = source.length();
+            progress.lastModified = source.lastModified();
+        }
+        progress.stateFile = file;
+        return progress;
+    }
+
+    public void save() throws IOException {
+        Files.createDirectories(stateFile.getParentFile().toPath());
+        ObjectMapper mapper = new ObjectMapper();
+        AtomicFileWriter.write(stateFile, out -> mapper.writerWithDefaultPrettyPrinter().writeValue(out, this));
+    }
+
+    /** Forget the progress once every output is written. */
+    public void delete() throws IOException {
+        Files.deleteIfExists(stateFile.toPath());
+    }
+
+    /** True if the {@code index}-th output of the route was already written. */
+    public boolean isWritten(int index) {
+        return outputFor(index) != null;
+    }
+
+    /** The file the {@code index}-th output was written to, or null. */
+    public String outputFor(int index) {
+        return index < outputs.size() ? outputs.get(index) : null;
+    }
+
+    public void setOutputFor(int index, String output) {
+        while (outputs.size() <= index) {
+            outputs.add(null);
+        }
+        outputs.set(index, output);
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public List<String> getOutputs() {
+        return outputs;
+    }
+
+    public void setOutputs(List<String> outputs) {
+        this.outputs = outputs != null ? outputs : new ArrayList<>();
+    }
+}
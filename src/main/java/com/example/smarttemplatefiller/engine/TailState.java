@@ -0,0 +1,213 @@
+package com.example.smarttemplatefiller.engine;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * How far Running Mode's tail mode has read a growing source file: the
+ * byte offset of the next read, the column header the lexer resumes with,
+ * the size and time the file had, a checksum of its first bytes to notice
+ * a new file under the same name, and the output each mapping writes to.
+ * The offset moves on only once every output took the blocks read; until
+ * then the outputs that did are recorded, so the same blocks are offered
+ * again to the others alone. Kept in "&lt;watch folder&gt;/.tail/&lt;source name&gt;.json", so reading
+ * continues where it stopped after a restart.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class TailState {
+
+    private static final String STATE_FOLDER = ".tail";
+
+    private long offset;
+    private String headerLine;
+    private long size;
+    private long lastModified;
+    private int headLength;
+    private long headChecksum;
+    // Per output of the route, the file its blocks are appended to (null until created)
+    private List<String> outputs = new ArrayList<>();
+    // While some outputs failed: the end of the blocks offered and the outputs that took them
+    private long pendingEnd;
+    private List<Integer> pendingTaken = new ArrayList<>();
+
+    @JsonIgnore
+    private transient File stateFile;
+    // Set when the rest of an idle file was read; cleared when it changes
+    @JsonIgnore
+    private transient boolean idleRead;
+
+    /** "&lt;watch folder&gt;/.tail/&lt;source name&gt;.json". */
+    public static File stateFileFor(File source) {
+        return new File(new File(source.getAbsoluteFile().getParentFile(), STATE_FOLDER), source.getName() + ".json");
+    }
+
+    /** The saved state of {@code source}, or a new one starting at byte 0. */
+    public static TailState load(File source) throws IOException {
+        File file = stateFileFor(source);
+        TailState state = file.isFile() ? new ObjectMapper().readValue(file, TailState.class) : new TailState();
+        state.stateFile = file;
+        return state;
+    }
+
+    public void save() throws IOException {
+        Files.createDirectories(stateFile.getParentFile().toPath());
+        ObjectMapper mapper = new ObjectMapper();
+        AtomicFileWriter.write(stateFile, out -> mapper.writerWithDefaultPrettyPrinter().writeValue(out, this));
+    }
+
+    /** True if the file's size or time differs from when it was last read. */
+    public boolean isChanged(long size, long lastModified) {
+        return size != this.size || lastModified != this.lastModified;
+    }
+
+    /**
+     * True if the file is no longer the one read so far: it shrank below
+     * the offset, or its first bytes changed.
+     *
+     * @param headChecksum checksum of the file's first {@link #getHeadLength()} bytes now
+     */
+    public boolean isReplaced(long size, long headChecksum) {
+        return size < offset || (headLength > 0 && headChecksum != this.headChecksum);
+    }
+
+    /** Start again from byte 0 with new outputs. */
+    public void restart() {
+        offset = 0;
+        headerLine = null;
+        headLength = 0;
+        headChecksum = 0;
+        outputs = new ArrayList<>();
+        pendingEnd = 0;
+        pendingTaken = new ArrayList<>();
+    }
+
+    /** Record that every output took the file up to {@code offset}, resuming with {@code headerLine}. */
+    public void advance(long offset, String headerLine) {
+        this.offset = offset;
+        this.headerLine = headerLine;
+        pendingEnd = 0;
+        pendingTaken = new ArrayList<>();
+    }
+
+    /** Record that the {@code index}-th output took the blocks up to {@code end}; the offset stays. */
+    public void took(int index, long end) {
+        if (end != pendingEnd) {
+            pendingEnd = end;
+            pendingTaken = new ArrayList<>();
+        }
+        if (!pendingTaken.contains(index)) {
+            pendingTaken.add(index);
+        }
+    }
+
+    /** True if the {@code index}-th output already took the blocks up to {@link #getPendingEnd()}. */
+    public boolean hasTaken(int index) {
+        return pendingEnd > offset && pendingTaken.contains(index);
+    }
+
+    /** Record the size and time the file had when it was read, and its head. */
+    public void seen(long size, long lastModified, int headLength, long headChecksum, boolean idleRead) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.headLength = headLength;
+        this.headChecksum = headChecksum;
+        this.idleRead = idleRead;
+    }
+
+    /** The output the {@code index}-th mapping of the route appends to, or null. */
+    public String outputFor(int index) {
+        return index < outputs.size() ? outputs.get(index) : null;
+    }
+
+    public void setOutputFor(int index, String output) {
+        while (outputs.size() <= index) {
+            outputs.add(null);
+        }
+        outputs.set(index, output);
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    public String getHeaderLine() {
+        return headerLine;
+    }
+
+    public void setHeaderLine(String headerLine) {
+        this.headerLine = headerLine;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(long lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    public int getHeadLength() {
+        return headLength;
+    }
+
+    public void setHeadLength(int headLength) {
+        this.headLength = headLength;
+    }
+
+    public long getHeadChecksum() {
+        return headChecksum;
+    }
+
+    public void setHeadChecksum(long headChecksum) {
+        this.headChecksum = headChecksum;
+    }
+
+    /** End of the blocks some outputs took while others failed, or 0. */
+    public long getPendingEnd() {
+        return pendingEnd;
+    }
+
+    public void setPendingEnd(long pendingEnd) {
+        this.pendingEnd = pendingEnd;
+    }
+
+    public List<Integer> getPendingTaken() {
+        return pendingTaken;
+    }
+
+    public void setPendingTaken(List<Integer> pendingTaken) {
+        this.pendingTaken = pendingTaken != null ? pendingTaken : new ArrayList<>();
+    }
+
+    public List<String> getOutputs() {
+        return outputs;
+    }
+
+    public void setOutputs(List<String> outputs) {
+        this.outputs = outputs != null ? outputs : new ArrayList<>();
+    }
+
+    @JsonIgnore
+    public boolean isIdleRead() {
+        return idleRead;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.smarttemplatefiller.engine;
+
+import java.util.zip.Deflater;
+
+/**
+ * Deflate profile for the zip entries of written workbooks ("compression"
+ * in the output options).
+ */
+public enum XlsxCompression {
+    /** Fastest deflate; noticeably larger files. */
+    FAST(Deflater.BEST_SPEED),
+    /** zlib's default level, as Excel and POI write. */
+    DEFAULT(Deflater.DEFAULT_COMPRESSION),
+    /** Smallest files at the highest CPU cost. */
+    MAX(Deflater.BEST_COMPRESSION),
+    /** No compression; the cheapest to write, several times larger. */
+    STORE(Deflater.NO_COMPRESSION);
+
+    private final int deflateLevel;
+
+    XlsxCompression(int deflateLevel) {
+        this.deflateLevel = deflateLevel;
+    }
+
+    public int getDeflateLevel() {
+        return deflateLevel;
+    }
+
+    public static XlsxCompression fromName(String name, XlsxCompression fallback) {
+        if (name == null || name.isBlank()) {
+            return fallback;
+        }
+        switch (name.trim().toLowerCase()) {
+            case "fast":
+                return FAST;
+            case "default":
+                return DEFAULT;
+            case "max":
+                return MAX;
+            case "store":
+                return STORE;
+            default:
+                return fallback;
+        }
+    }
+
+    public String jsonName() {
+        return name().toLowerCase();
+    }
+}
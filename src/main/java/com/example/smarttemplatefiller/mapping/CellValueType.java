@@ -0,0 +1,44 @@
+package com.example.smarttemplatefiller.mapping;
+
+import java.util.Map;
+
+/**
+ * How a mapping writes source values into Excel cells ("valueType" in the
+ * mapping JSON).
+ */
+public enum CellValueType {
+    /** Always a text cell (the behaviour of mappings without "valueType"). */
+    TEXT,
+    /** Plain decimals become numeric cells; IDs with leading zeros, long digit runs and exponents stay text. */
+    AUTO,
+    /** Every value that parses as a number, including exponents and leading zeros, becomes numeric. */
+    NUMBER;
+
+    public static CellValueType fromName(String name) {
+        if (name == null || name.isBlank()) {
+            return TEXT;
+        }
+        switch (name.trim().toLowerCase()) {
+            case "auto":
+                return AUTO;
+            case "number":
+                return NUMBER;
+            default:
+                return TEXT;
+        }
+    }
+
+    public static CellValueType fromMapping(Map<String, Object> mappingNode) {
+        Object value = mappingNode.get("valueType");
+        return value == null ? TEXT : fromName(value.toString());
+    }
+
+    public static CellValueType fromMapping(ColumnMapping mapping) {
+        return fromName(mapping.getValueType());
+    }
+
+    /** The JSON name, e.g. "auto". */
+    public String jsonName() {
+        return name().toLowerCase();
+    }
+}
@@ -17,6 +17,10 @@ public class ColumnMapping {
     private Map<String, Object> rowPattern;
     private List<Integer> rowIndexes;
 
+    // Element-keyed fields
+    private List<String> rowKeys;
+    private Integer rowKeyOffset;
+
     // Flex Pattern fields
     private Integer startField;
     private Integer fillField;
@@ -29,6 +33,9 @@ public class ColumnMapping {
     private Integer blockRelativeRow;
     private Integer groupWidth;
 
+    // Cell typing: "text" (default), "auto" or "number"
+    private String valueType;
+
     public ColumnMapping() {}
 
     public Integer getSourceColumn() { return sourceColumn; }
@@ -49,6 +56,12 @@ public class ColumnMapping {
     public List<Integer> getRowIndexes() { return rowIndexes; }
     public void setRowIndexes(List<Integer> rowIndexes) { this.rowIndexes = rowIndexes; }
 
+    public List<String> getRowKeys() { return rowKeys; }
+    public void setRowKeys(List<String> rowKeys) { this.rowKeys = rowKeys; }
+
+    public Integer getRowKeyOffset() { return rowKeyOffset; }
+    public void setRowKeyOffset(Integer rowKeyOffset) { this.rowKeyOffset = rowKeyOffset; }
+
     public Integer getStartField() { return startField; }
     public void setStartField(Integer startField) { this.startField = startField; }
 
@@ -67,6 +80,9 @@ public class ColumnMapping {
     public Boolean getFixed() { return fixed; }
     public void setFixed(Boolean fixed) { this.fixed = fixed; }
 
+    public String getValueType() { return valueType; }
+    public void setValueType(String valueType) { this.valueType = valueType; }
+
     public Integer getBlockRelativeRow() { return blockRelativeRow; }
     public void setBlockRelativeRow(Integer blockRelativeRow) { this.blockRelativeRow = blockRelativeRow; }
 
@@ -0,0 +1,62 @@
+package com.example.smarttemplatefiller.mapping;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache of mapping files. Each mapping JSON is read once and
+ * only re-read when its modification time or size changes, so every
+ * Running Mode route and output shares one copy instead of reading the
+ * mapping for each source file.
+ *
+ * Cached mappings are shared between threads and must be treated as
+ * read-only.
+ */
+public final class MappingCache {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Map<String, CachedMapping> CACHE = new ConcurrentHashMap<>();
+
+    private static final class CachedMapping {
+        final long lastModified;
+        final long size;
+        final List<Map<String, Object>> mappings;
+
+        CachedMapping(long lastModified, long size, List<Map<String, Object>> mappings) {
+            this.lastModified = lastModified;
+            this.size = size;
+            this.mappings = mappings;
+        }
+    }
+
+    private MappingCache() {
+    }
+
+    /** The mappings of {@code mappingFile}, read if not cached or changed on disk. */
+    public static List<Map<String, Object>> get(File mappingFile) throws IOException {
+        String key = mappingFile.getAbsolutePath();
+        long lastModified = mappingFile.lastModified();
+        long size = mappingFile.length();
+
+        CachedMapping cached = CACHE.get(key);
+        if (cached != null && cached.lastModified == lastModified && cached.size == size) {
+            return cached.mappings;
+        }
+
+        List<Map<String, Object>> mappings = Collections.unmodifiableList(
+                MAPPER.readValue(mappingFile, new TypeReference<List<Map<String, Object>>>() {}));
+        CACHE.put(key, new CachedMapping(lastModified, size, mappings));
+        return mappings;
+    }
+
+    public static void clear() {
+        CACHE.clear();
+    }
+}
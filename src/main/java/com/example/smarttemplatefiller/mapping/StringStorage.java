@@ -0,0 +1,42 @@
+package com.example.smarttemplatefiller.mapping;
+
+import java.util.Map;
+
+/**
+ * Where text cells of a mapping are stored in the workbook ("stringStorage"
+ * in the mapping JSON, or the output's default).
+ */
+public enum StringStorage {
+    /** Workbook shared-strings table; best for repetitive values such as PASS/FAIL. */
+    SHARED,
+    /** Inline in the cell; avoids growing the shared table with unique values. */
+    INLINE,
+    /** Chosen per mapping from the cardinality of its source column. */
+    AUTO;
+
+    public static StringStorage fromName(String name, StringStorage fallback) {
+        if (name == null || name.isBlank()) {
+            return fallback;
+        }
+        switch (name.trim().toLowerCase()) {
+            case "shared":
+                return SHARED;
+            case "inline":
+                return INLINE;
+            case "auto":
+                return AUTO;
+            default:
+                return fallback;
+        }
+    }
+
+    /** The mapping's own setting, or {@code outputDefault} when it has none. */
+    public static StringStorage fromMapping(Map<String, Object> mappingNode, StringStorage outputDefault) {
+        Object value = mappingNode.get("stringStorage");
+        return value == null ? outputDefault : fromName(value.toString(), outputDefault);
+    }
+
+    public String jsonName() {
+        return name().toLowerCase();
+    }
+}
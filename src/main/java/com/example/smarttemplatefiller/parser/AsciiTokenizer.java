@@ -0,0 +1,148 @@
+package com.example.smarttemplatefiller.parser;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Field tokenizer working directly on ASCII line bytes. Mirrors the String
+ * operations the parsers were written with — {@code trim()},
+ * {@code split(";", -1)} and {@code split("\\s{2,}")} — so both paths yield
+ * identical rows while only the final fields are materialized as Strings.
+ *
+ * Delimiter searches go through a {@link DelimiterScanner}. When the JVM runs
+ * with {@code --add-modules jdk.incubator.vector} a SIMD backend is used,
+ * otherwise the scalar one; the system property
+ * {@code smarttemplatefiller.tokenizer=scalar} forces the scalar backend.
+ */
+public final class AsciiTokenizer {
+
+    static final String BACKEND_PROPERTY = "smarttemplatefiller.tokenizer";
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private static final DelimiterScanner SCANNER = selectScanner();
+
+    private AsciiTokenizer() {
+    }
+
+    private static DelimiterScanner selectScanner() {
+        if ("scalar".equalsIgnoreCase(System.getProperty(BACKEND_PROPERTY))) {
+            return ScalarDelimiterScanner.INSTANCE;
+        }
+        DelimiterScanner vector = vectorScanner();
+        return vector != null ? vector : ScalarDelimiterScanner.INSTANCE;
+    }
+
+    /**
+     * The SIMD backend, or null if the Vector API module is not in the boot
+     * layer. Loaded reflectively so the scalar path never links against it.
+     */
+    static DelimiterScanner vectorScanner() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return null;
+        }
+        try {
+            return (DelimiterScanner) Class.forName("com.example.smarttemplatefiller.parser.VectorDelimiterScanner")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.err.println("Vector tokenizer unavailable, using scalar: " + e);
+            return null;
+        }
+    }
+
+    static DelimiterScanner scanner() {
+        return SCANNER;
+    }
+
+    /** Name of the active backend, for diagnostics. */
+    public static String getBackendName() {
+        return SCANNER.getName();
+    }
+
+    /** Same as Character.isWhitespace for the regex class {@code \s}: [ \t\n\x0B\f\r]. */
+    static boolean isRegexSpace(byte b) {
+        return b == ' ' || (b >= '\t' && b <= '\r');
+    }
+
+    /** First index in [from, to) not removed by String.trim(), or {@code to}. */
+    public static int trimStart(byte[] b, int from, int to) {
+        while (from < to && (b[from] & 0xFF) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    /** End (exclusive) of [from, to) after String.trim() removes trailing bytes. */
+    public static int trimEnd(byte[] b, int from, int to) {
+        while (to > from && (b[to - 1] & 0xFF) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    public static int indexOf(byte[] b, int from, int to, byte value) {
+        return SCANNER.indexOf(b, from, to, value);
+    }
+
+    /** The trimmed field in [from, to) as a String. */
+    public static String trimmedString(byte[] b, int from, int to) {
+        return trimmedString(b, from, to, null);
+    }
+
+    /** The trimmed field in [from, to), interned in {@code cells} when given. */
+    public static String trimmedString(byte[] b, int from, int to, CellDictionary cells) {
+        int start = trimStart(b, from, to);
+        int end = trimEnd(b, start, to);
+        return cells != null ? cells.intern(b, start, end) : string(b, start, end);
+    }
+
+    public static String string(byte[] b, int from, int to) {
+        if (from >= to) {
+            return "";
+        }
+        return new String(b, from, to - from, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Equivalent of {@code split(";", -1)} on [from, to) with every part
+     * trimmed, appended to {@code out}.
+     */
+    public static void splitOn(byte[] b, int from, int to, byte delimiter, List<String> out) {
+        splitOn(b, from, to, delimiter, out, null);
+    }
+
+    public static void splitOn(byte[] b, int from, int to, byte delimiter, List<String> out, CellDictionary cells) {
+        int fieldStart = from;
+        int i;
+        while ((i = SCANNER.indexOf(b, fieldStart, to, delimiter)) >= 0) {
+            out.add(trimmedString(b, fieldStart, i, cells));
+            fieldStart = i + 1;
+        }
+        out.add(trimmedString(b, fieldStart, to, cells));
+    }
+
+    /**
+     * Equivalent of {@code split("\\s{2,}")} on a trimmed, non-empty range with
+     * every part trimmed: fields are separated by runs of two or more regex
+     * whitespace bytes.
+     */
+    public static void splitOnWhitespaceRuns(byte[] b, int from, int to, List<String> out) {
+        splitOnWhitespaceRuns(b, from, to, out, null);
+    }
+
+    public static void splitOnWhitespaceRuns(byte[] b, int from, int to, List<String> out, CellDictionary cells) {
+        int fieldStart = from;
+        int i;
+        while ((i = SCANNER.indexOfSpaceRun(b, fieldStart, to)) >= 0) {
+            int runEnd = i + 2;
+            while (runEnd < to && isRegexSpace(b[runEnd])) {
+                runEnd++;
+            }
+            out.add(trimmedString(b, fieldStart, i, cells));
+            fieldStart = runEnd;
+        }
+        // split() drops trailing empty strings; a trimmed range never ends in a run
+        if (fieldStart < to) {
+            out.add(trimmedString(b, fieldStart, to, cells));
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.smarttemplatefiller.parser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits bytes into lines with the same rules as BufferedReader.readLine()
+ * ('\n', '\r' or "\r\n"). ASCII-only lines go to the handler undecoded; only
+ * lines containing non-ASCII bytes are run through a charset decoder.
+ */
+public final class ByteLineReader {
+
+    /** Used when no charset is configured and a line is not valid UTF-8. */
+    public static final Charset FALLBACK_CHARSET = Charset.forName("windows-1252");
+
+    static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private final Charset charset;
+    private final CharsetDecoder strictUtf8;
+    private final DelimiterScanner scanner;
+    private final byte[] block;
+    private byte[] line = new byte[256];
+
+    /**
+     * @param charset charset for non-ASCII lines, or null to try strict UTF-8
+     *                and fall back to windows-1252
+     */
+    public ByteLineReader(Charset charset) {
+        this(charset, AsciiTokenizer.scanner(), DEFAULT_BLOCK_SIZE);
+    }
+
+    ByteLineReader(Charset charset, DelimiterScanner scanner, int blockSize) {
+        this.charset = charset;
+        this.scanner = scanner;
+        this.block = new byte[blockSize];
+        this.strictUtf8 = charset == null
+                ? StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPORT)
+                        .onUnmappableCharacter(CodingErrorAction.REPORT)
+                : null;
+    }
+
+    /**
+     * Feed every line of the region to the handler.
+     */
+    public void forEachLine(ByteBuffer region, LineHandler handler, ParsedTable table) throws IOException {
+        read(region, handler, table, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Decode up to {@code maxLines} lines, e.g. for format detection.
+     */
+    public List<String> readLines(ByteBuffer region, int maxLines) throws IOException {
+        List<String> lines = new ArrayList<>();
+        read(region, (l, t) -> lines.add(l), null, maxLines);
+        return lines;
+    }
+
+    private void read(ByteBuffer region, LineHandler handler, ParsedTable table, int maxLines) throws IOException {
+        if (charset != null && !isAsciiCompatible(charset)) {
+            readDecoded(region, handler, table, maxLines);
+            return;
+        }
+
+        // Copy the region block by block and search each block for line breaks
+        int limit = region.limit();
+        int position = region.position();
+        int length = 0;
+        boolean ascii = true;
+        boolean pendingCr = false;
+        int lines = 0;
+        while (position < limit && lines < maxLines) {
+            int n = Math.min(block.length, limit - position);
+            region.get(position, block, 0, n);
+            position += n;
+
+            int i = 0;
+            if (pendingCr && block[0] == '\n') {
+                // Second half of a "\r\n" split across blocks
+                i = 1;
+            }
+            pendingCr = false;
+            while (i < n && lines < maxLines) {
+                int lineBreak = scanner.indexOfLineBreak(block, i, n);
+                int end = lineBreak < 0 ? n : lineBreak;
+                ascii &= scanner.isAscii(block, i, end);
+                length = appendToLine(length, i, end);
+                if (lineBreak < 0) {
+                    break;
+                }
+                emit(handler, table, length, ascii);
+                lines++;
+                length = 0;
+                ascii = true;
+                i = lineBreak + 1;
+                if (block[lineBreak] == '\r') {
+                    if (i < n) {
+                        if (block[i] == '\n') {
+                            i++;
+                        }
+                    } else {
+                        pendingCr = true;
+                    }
+                }
+            }
+        }
+        if (length > 0 && lines < maxLines) {
+            emit(handler, table, length, ascii);
+        }
+    }
+
+    private int appendToLine(int length, int from, int to) {
+        int count = to - from;
+        if (length + count > line.length) {
+            byte[] grown = new byte[Math.max(line.length * 2, length + count)];
+            System.arraycopy(line, 0, grown, 0, length);
+            line = grown;
+        }
+        System.arraycopy(block, from, line, length, count);
+        return length + count;
+    }
+
+    private void emit(LineHandler handler, ParsedTable table, int length, boolean ascii) {
+        if (ascii) {
+            handler.acceptAscii(line, length, table);
+        } else {
+            handler.accept(decode(line, length), table);
+        }
+    }
+
+    private String decode(byte[] bytes, int length) {
+        if (charset != null) {
+            return new String(bytes, 0, length, charset);
+        }
+        try {
+            CharBuffer chars = strictUtf8.reset().decode(ByteBuffer.wrap(bytes, 0, length));
+            return chars.toString();
+        } catch (CharacterCodingException e) {
+            return new String(bytes, 0, length, FALLBACK_CHARSET);
+        }
+    }
+
+    private void readDecoded(ByteBuffer region, LineHandler handler, ParsedTable table, int maxLines)
+            throws IOException {
+        String text = charset.decode(region.duplicate()).toString();
+        try (BufferedReader reader = new BufferedReader(new StringReader(text))) {
+            String l;
+            int lines = 0;
+            while (lines < maxLines && (l = reader.readLine()) != null) {
+                handler.accept(l, table);
+                lines++;
+            }
+        }
+    }
+
+    static boolean isAsciiCompatible(Charset charset) {
+        String name = charset.name();
+        return !name.startsWith("UTF-16") && !name.startsWith("UTF-32");
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.smarttemplatefiller.parser;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Bounded per-parse intern table for short cell values. Instrument files
+ * repeat a small vocabulary (PASS/FAIL, labels, tolerances, header names)
+ * on every line; interning hands out one String per distinct value instead
+ * of one per occurrence.
+ *
+ * ASCII cells are looked up straight from the line bytes, so a repeated value
+ * is not even allocated. Hashes equal {@link String#hashCode()} for Latin-1
+ * text, which lets byte and String lookups share one open-addressing table.
+ * Values longer than {@link #MAX_VALUE_LENGTH} and values seen after the table
+ * is full are returned uninterned. Not thread-safe: each parse (or parallel
+ * range) uses its own dictionary.
+ */
+public final class CellDictionary {
+
+    public static final int MAX_VALUE_LENGTH = 24;
+    public static final int DEFAULT_MAX_ENTRIES = 4096;
+
+    private final String[] values;
+    private final int[] hashes;
+    private final int mask;
+    private final int maxEntries;
+    private int size;
+    private long hits;
+
+    public CellDictionary() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public CellDictionary(int maxEntries) {
+        this.maxEntries = maxEntries;
+        // Keep the load factor at or below 0.5 so probe chains stay short
+        int slots = Integer.highestOneBit(Math.max(maxEntries, 8) * 2 - 1) << 1;
+        this.values = new String[slots];
+        this.hashes = new int[slots];
+        this.mask = slots - 1;
+    }
+
+    /**
+     * The Latin-1 text of {@code b[from, to)}, shared with earlier equal
+     * values where possible.
+     */
+    public String intern(byte[] b, int from, int to) {
+        int length = to - from;
+        if (length <= 0) {
+            return "";
+        }
+        if (length > MAX_VALUE_LENGTH) {
+            return new String(b, from, length, StandardCharsets.ISO_8859_1);
+        }
+
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + (b[i] & 0xFF);
+        }
+        int slot = spread(hash) & mask;
+        String value;
+        while ((value = values[slot]) != null) {
+            if (hashes[slot] == hash && matches(value, b, from, length)) {
+                hits++;
+                return value;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        String created = new String(b, from, length, StandardCharsets.ISO_8859_1);
+        insert(slot, hash, created);
+        return created;
+    }
+
+    /**
+     * The shared instance equal to {@code value}, registering it if new.
+     */
+    public String intern(String value) {
+        int length = value.length();
+        if (length == 0) {
+            return "";
+        }
+        if (length > MAX_VALUE_LENGTH) {
+            return value;
+        }
+
+        int hash = value.hashCode();
+        int slot = spread(hash) & mask;
+        String existing;
+        while ((existing = values[slot]) != null) {
+            if (hashes[slot] == hash && existing.equals(value)) {
+                hits++;
+                return existing;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        insert(slot, hash, value);
+        return value;
+    }
+
+    private void insert(int slot, int hash, String value) {
+        if (size < maxEntries) {
+            values[slot] = value;
+            hashes[slot] = hash;
+            size++;
+        }
+    }
+
+    private static boolean matches(String value, byte[] b, int from, int length) {
+        if (value.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) != (b[from + i] & 0xFF)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Lookups answered with an existing instance. */
+    public long getHits() {
+        return hits;
+    }
+}
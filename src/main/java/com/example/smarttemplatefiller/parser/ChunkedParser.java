@@ -0,0 +1,123 @@
+package com.example.smarttemplatefiller.parser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parses line-independent formats (flat, semicolon, fixed-column) in parallel.
+ * The content is split into byte ranges that each end just after a '\n', every
+ * range is fed line by line to the same handler the sequential parser uses,
+ * and the partial tables are concatenated in file order, so the result is
+ * identical to a sequential parse.
+ *
+ * Range boundaries are byte positions of '\n', so the source must use an
+ * ASCII-compatible charset ({@link SourceBytes#isAsciiCompatible()}).
+ */
+public class ChunkedParser {
+
+    /** Lower bound for a range so tiny files are not split into noise. */
+    public static final int MIN_CHUNK_BYTES = 256 * 1024;
+
+    /**
+     * Parse with chunks sized for the common fork-join pool.
+     */
+    public static ParsedTable parse(SourceBytes source, LineHandler lineHandler) throws IOException {
+        int parallelism = ForkJoinPool.commonPool().getParallelism();
+        long targetChunk = Math.max(MIN_CHUNK_BYTES, source.size() / (parallelism * 4L));
+        return parse(source, lineHandler, targetChunk);
+    }
+
+    /**
+     * Parse with ranges of roughly {@code targetChunkBytes} each.
+     */
+    public static ParsedTable parse(SourceBytes source, LineHandler lineHandler, long targetChunkBytes)
+            throws IOException {
+        if (!source.isAsciiCompatible()) {
+            throw new IllegalArgumentException("Chunked parsing needs an ASCII-compatible charset: " + source.getCharset());
+        }
+        int[] bounds = splitAtNewlines(source.getContent(), targetChunkBytes);
+        try {
+            return ForkJoinPool.commonPool().invoke(new RangeTask(source, lineHandler, bounds, 0, bounds.length - 1));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Compute range boundaries: bounds[i]..bounds[i+1] is range i, and every
+     * inner boundary lies just after a '\n'.
+     */
+    static int[] splitAtNewlines(ByteBuffer content, long targetChunkBytes) {
+        int size = content.limit();
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+
+        long position = Math.max(1, targetChunkBytes);
+        while (position < size) {
+            int boundary = -1;
+            for (int i = (int) position; i < size; i++) {
+                if (content.get(i) == '\n') {
+                    boundary = i + 1;
+                    break;
+                }
+            }
+            if (boundary < 0 || boundary >= size) {
+                break;
+            }
+            bounds.add(boundary);
+            position = (long) boundary + targetChunkBytes;
+        }
+        bounds.add(size);
+
+        int[] result = new int[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    // Never serialized; only run on the common pool
+    @SuppressWarnings("serial")
+    private static final class RangeTask extends RecursiveTask<ParsedTable> {
+        private final SourceBytes source;
+        private final LineHandler lineHandler;
+        private final int[] bounds;
+        private final int from;
+        private final int to;
+
+        RangeTask(SourceBytes source, LineHandler lineHandler, int[] bounds, int from, int to) {
+            this.source = source;
+            this.lineHandler = lineHandler;
+            this.bounds = bounds;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected ParsedTable compute() {
+            if (to - from == 1) {
+                ParsedTable table = new ParsedTable();
+                try {
+                    new ByteLineReader(source.getCharset())
+                            .forEachLine(source.slice(bounds[from], bounds[to]), lineHandler, table);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                table.releaseCellDictionary();
+                return table;
+            }
+            int mid = (from + to) >>> 1;
+            RangeTask left = new RangeTask(source, lineHandler, bounds, from, mid);
+            RangeTask right = new RangeTask(source, lineHandler, bounds, mid, to);
+            right.fork();
+            ParsedTable result = left.compute();
+            result.appendAll(right.join());
+            return result;
+        }
+    }
+}
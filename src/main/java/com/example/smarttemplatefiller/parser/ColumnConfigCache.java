@@ -0,0 +1,64 @@
+package com.example.smarttemplatefiller.parser;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide cache of compiled column_config.json layouts. Each config file
+ * is read once and only re-read when its modification time changes.
+ */
+public class ColumnConfigCache {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Map<String, CachedLayout> CACHE = new ConcurrentHashMap<>();
+
+    private static final class CachedLayout {
+        final long lastModified;
+        final FixedWidthLayout layout;
+
+        CachedLayout(long lastModified, FixedWidthLayout layout) {
+            this.lastModified = lastModified;
+            this.layout = layout;
+        }
+    }
+
+    /**
+     * Return the compiled layout for a config file, falling back to
+     * {@link FixedWidthLayout#FALLBACK} if it is missing or unreadable.
+     */
+    public static FixedWidthLayout get(File configFile) {
+        String key = configFile.getAbsolutePath();
+        // 0 for a missing file, so a file appearing later is picked up
+        long lastModified = configFile.lastModified();
+
+        CachedLayout cached = CACHE.get(key);
+        if (cached != null && cached.lastModified == lastModified) {
+            return cached.layout;
+        }
+
+        FixedWidthLayout layout = load(configFile);
+        CACHE.put(key, new CachedLayout(lastModified, layout));
+        return layout;
+    }
+
+    private static FixedWidthLayout load(File configFile) {
+        try {
+            Map<String, Integer> widths = MAPPER.readValue(configFile,
+                    new TypeReference<LinkedHashMap<String, Integer>>() {});
+            return FixedWidthLayout.fromWidths(widths);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Failed to load " + configFile.getName() + ". Using fallback config.");
+            return FixedWidthLayout.FALLBACK;
+        }
+    }
+
+    public static void clear() {
+        CACHE.clear();
+    }
+}
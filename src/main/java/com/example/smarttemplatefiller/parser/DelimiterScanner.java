@@ -0,0 +1,23 @@
+package com.example.smarttemplatefiller.parser;
+
+/**
+ * Bulk search primitives behind {@link AsciiTokenizer} and
+ * {@link ByteLineReader}. All methods look at {@code b[from, to)} and return
+ * absolute indexes, or -1 when nothing matches.
+ */
+interface DelimiterScanner {
+
+    /** First index holding {@code value}. */
+    int indexOf(byte[] b, int from, int to, byte value);
+
+    /** First '\n' or '\r'. */
+    int indexOfLineBreak(byte[] b, int from, int to);
+
+    /** First index i where b[i] and b[i + 1] are both regex whitespace ({@code \s}). */
+    int indexOfSpaceRun(byte[] b, int from, int to);
+
+    /** True if no byte has its high bit set. */
+    boolean isAscii(byte[] b, int from, int to);
+
+    String getName();
+}
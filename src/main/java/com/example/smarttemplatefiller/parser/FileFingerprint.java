@@ -0,0 +1,81 @@
+package com.example.smarttemplatefiller.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+/**
+ * Identity of a source file's content for caching: canonical path, size and
+ * modification time, optionally strengthened with a CRC32C of the bytes for
+ * writers that rewrite a file within the mtime resolution.
+ */
+public final class FileFingerprint {
+
+    private final String canonicalPath;
+    private final long size;
+    private final long lastModified;
+    private final long contentHash;
+
+    private FileFingerprint(String canonicalPath, long size, long lastModified, long contentHash) {
+        this.canonicalPath = canonicalPath;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * Fingerprint a file from its metadata, hashing the content only when asked.
+     */
+    public static FileFingerprint of(File file, boolean hashContent) throws IOException {
+        long contentHash = hashContent ? crc32c(file) : 0L;
+        return new FileFingerprint(file.getCanonicalPath(), file.length(), file.lastModified(), contentHash);
+    }
+
+    private static long crc32c(File file) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+            }
+        }
+        return crc.getValue();
+    }
+
+    public String getCanonicalPath() {
+        return canonicalPath;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof FileFingerprint)) return false;
+        FileFingerprint other = (FileFingerprint) o;
+        return size == other.size
+                && lastModified == other.lastModified
+                && contentHash == other.contentHash
+                && canonicalPath.equals(other.canonicalPath);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(canonicalPath, size, lastModified, contentHash);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FileFingerprint[%s, size=%d, mtime=%d]", canonicalPath, size, lastModified);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.smarttemplatefiller.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fixed-width column layout compiled from column_config.json into a primitive
+ * array of cumulative offsets, so slicing a line needs no boxing or map walks.
+ */
+public final class FixedWidthLayout {
+
+    /** Built-in layout used when no column_config.json can be read. */
+    public static final FixedWidthLayout FALLBACK = new FixedWidthLayout(new int[]{3, 6, 9, 4, 11, 11, 11, 11, 12});
+
+    // offsets[i] is the start of column i; offsets[columnCount] is the end of the last column
+    private final int[] offsets;
+
+    public FixedWidthLayout(int[] widths) {
+        this.offsets = new int[widths.length + 1];
+        for (int i = 0; i < widths.length; i++) {
+            if (widths[i] < 0) {
+                throw new IllegalArgumentException("Column width must be >= 0: " + widths[i]);
+            }
+            offsets[i + 1] = offsets[i] + widths[i];
+        }
+    }
+
+    /**
+     * Compile a name → width map, preserving its iteration order.
+     */
+    public static FixedWidthLayout fromWidths(Map<String, Integer> columnWidths) {
+        int[] widths = new int[columnWidths.size()];
+        int i = 0;
+        for (Integer width : columnWidths.values()) {
+            widths[i++] = width;
+        }
+        return new FixedWidthLayout(widths);
+    }
+
+    public int getColumnCount() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Cut a line into trimmed fields. Columns starting past the end of the
+     * line yield empty strings; the last partially covered column is cut short.
+     */
+    public List<String> slice(String line) {
+        return slice(line, null);
+    }
+
+    /**
+     * Cut a line into trimmed columns, interning them in {@code cells} when
+     * given.
+     */
+    public List<String> slice(String line, CellDictionary cells) {
+        int columnCount = offsets.length - 1;
+        int length = line.length();
+        List<String> row = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            int start = offsets[i];
+            if (start >= length) {
+                row.add("");
+                continue;
+            }
+            int end = Math.min(offsets[i + 1], length);
+            String cell = line.substring(start, end).trim();
+            row.add(cells != null ? cells.intern(cell) : cell);
+        }
+        return row;
+    }
+
+    /**
+     * Same as {@link #slice(String, CellDictionary)} for an ASCII line in
+     * {@code bytes[0, length)}.
+     */
+    public List<String> slice(byte[] bytes, int length, CellDictionary cells) {
+        int columnCount = offsets.length - 1;
+        List<String> row = new ArrayList<>(columnCount);
+        for (int i = 0; i < columnCount; i++) {
+            int start = offsets[i];
+            if (start >= length) {
+                row.add("");
+                continue;
+            }
+            int end = Math.min(offsets[i + 1], length);
+            row.add(AsciiTokenizer.trimmedString(bytes, start, end, cells));
+        }
+        return row;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof FixedWidthLayout && Arrays.equals(offsets, ((FixedWidthLayout) o).offsets);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(offsets);
+    }
+}
@@ -0,0 +1,402 @@
+package com.example.smarttemplatefiller.parser;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * State-machine lexer for the QV multi-line grouped-block format:
+ *
+ * <pre>
+ *          Element          Actual         Nominal  ...   Pass/Fail   column header
+ * Circle: Circle-7[1](ID:1, From 343 Pts.)                              element header
+ *      Diameter =           0.4010          0.4000  ...        PASS   data line
+ * &#64;101                                                                 next block
+ * </pre>
+ *
+ * Lines are classified by their first bytes without regular expressions.
+ * The column boundaries derived from a header line are cached per distinct
+ * header, so looping files that repeat the same header before every block
+ * compute them once. ASCII lines are lexed straight from the reader's byte
+ * buffer; only header names, labels and cells become Strings.
+ *
+ * One instance parses one file.
+ */
+public final class GroupedBlockLexer implements LineHandler {
+
+    private static final String[] ELEMENT_TYPES = {"Circle", "Line", "Plane", "Point", "Distance", "Angle"};
+    private static final int MAX_CACHED_LAYOUTS = 64;
+    private static final List<String> BLOCK_SEPARATOR_ROW = List.of("@101");
+
+    private static final HeaderLayout DEFAULT_LAYOUT = new HeaderLayout(
+            List.of("Element", "Actual", "Nominal", "Deviat.", "Up Tol.", "Low Tol.", "Pass/Fail"),
+            new int[]{22, 37, 53, 69, 85, 100});
+
+    private final Map<String, HeaderLayout> layouts = new HashMap<>();
+    private final AsciiLine asciiLine = new AsciiLine();
+
+    private HeaderLayout layout = DEFAULT_LAYOUT;
+    private String headerLine = null;
+    private String currentHeader = null;
+    private String currentElementName = null;
+    private boolean hasParsedData = false;
+
+    /**
+     * An empty table starting with the default header row. The first header
+     * line of the file replaces it.
+     */
+    public ParsedTable newTable() {
+        ParsedTable result = new ParsedTable();
+        result.addRow(layout.headers);
+        return result;
+    }
+
+    /**
+     * An empty table for parsing the continuation of a file whose column
+     * header line was already seen (see {@link TailParser}): the rows are
+     * cut at that header's boundaries until the continuation brings its own.
+     *
+     * @param headerLine the last column header line, or null if none was seen
+     */
+    public ParsedTable resume(String headerLine) {
+        if (headerLine != null) {
+            this.headerLine = headerLine;
+            layout = layoutFor(headerLine);
+        }
+        return newTable();
+    }
+
+    /** The last column header line lexed (or resumed from), or null. */
+    public String getHeaderLine() {
+        return headerLine;
+    }
+
+    @Override
+    public void accept(String line, ParsedTable result) {
+        lex(line, result);
+    }
+
+    @Override
+    public void acceptAscii(byte[] bytes, int length, ParsedTable result) {
+        asciiLine.reset(bytes, length);
+        lex(asciiLine, result);
+    }
+
+    private void lex(CharSequence line, ParsedTable result) {
+        int length = line.length();
+        int start = trimStart(line, 0, length);
+        int end = trimEnd(line, start, length);
+        if (start == end) {
+            return;
+        }
+
+        char first = line.charAt(start);
+        if (first == 'E' && startsWith(line, start, end, "Element") && hasWhitespaceRun(line, start, end)) {
+            headerLine = line.toString();
+            layout = layoutFor(headerLine);
+            if (!hasParsedData) {
+                result.setRow(0, layout.headers);
+            }
+            return;
+        }
+
+        if (first == '@' && end - start == 4 && startsWith(line, start, end, "@101")) {
+            if (hasParsedData) {
+                result.addRow(BLOCK_SEPARATOR_ROW);
+                result.addRow(layout.headers);
+            }
+            return;
+        }
+
+        if (isElementHeader(line, start, end)) {
+            currentHeader = line.subSequence(start, end).toString();
+            currentElementName = extractElementName(currentHeader);
+            return;
+        }
+
+        if (currentHeader != null) {
+            int equals = indexOf(line, start, end, '=');
+            if (equals < 0 || isSeparator(line, start, end)) {
+                return;
+            }
+            CellDictionary cells = result.getCellDictionary();
+            String label = cell(line, start, equals, cells);
+
+            List<String> row = new ArrayList<>(layout.boundaries.length + 1);
+            String elementColumn = currentHeader + " → " + label;
+            row.add(elementColumn);
+
+            // Cells are cut from the untrimmed line at the header's column boundaries
+            int[] boundaries = layout.boundaries;
+            for (int i = 0; i < boundaries.length; i++) {
+                int cellStart = boundaries[i];
+                int cellEnd = (i + 1 < boundaries.length) ? boundaries[i + 1] : length;
+                row.add(cellStart >= length ? "" : cell(line, cellStart, Math.min(cellEnd, length), cells));
+            }
+            result.addRow(row, elementColumn, currentElementName + " " + label);
+            hasParsedData = true;
+        }
+    }
+
+    private HeaderLayout layoutFor(String headerLine) {
+        HeaderLayout cached = layouts.get(headerLine);
+        if (cached != null) {
+            return cached;
+        }
+        HeaderLayout computed = HeaderLayout.of(headerLine);
+        if (layouts.size() < MAX_CACHED_LAYOUTS) {
+            layouts.put(headerLine, computed);
+        }
+        return computed;
+    }
+
+    /**
+     * True for element header lines such as "Circle: Circle-7[1](ID:1, From
+     * 343 Pts.)": an element type at the start of [start, end), then "(ID:"
+     * and a closing parenthesis, compared case-insensitively.
+     */
+    public static boolean isElementHeader(CharSequence line, int start, int end) {
+        int typeEnd = -1;
+        for (String type : ELEMENT_TYPES) {
+            if (regionMatchesAsciiIgnoreCase(line, start, end, type)) {
+                typeEnd = start + type.length();
+                break;
+            }
+        }
+        if (typeEnd < 0) {
+            return false;
+        }
+
+        int idStart = -1;
+        for (int i = typeEnd; i + 4 <= end; i++) {
+            if (line.charAt(i) == '(' && regionMatchesAsciiIgnoreCase(line, i + 1, end, "ID:")) {
+                idStart = i;
+                break;
+            }
+        }
+        if (idStart < 0) {
+            return false;
+        }
+
+        boolean closed = false;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (isLineTerminator(c)) {
+                return false;
+            }
+            if (c == ')' && i >= idStart + 4) {
+                closed = true;
+            }
+        }
+        return closed;
+    }
+
+    public static boolean isElementHeader(CharSequence line) {
+        return isElementHeader(line, 0, line.length());
+    }
+
+    /**
+     * The element name of a header line, e.g. "Circle-7[1]" for
+     * "Circle: Circle-7[1](ID:1, From 343 Pts.)".
+     */
+    public static String extractElementName(String header) {
+        int idStart = header.indexOf("(ID:");
+        if (idStart < 0) {
+            idStart = header.length();
+        }
+        int colon = header.indexOf(':');
+        int nameStart = (colon >= 0 && colon < idStart) ? colon + 1 : 0;
+        return header.substring(nameStart, idStart).trim();
+    }
+
+    /** Lines made only of '=' are separators, not "label = values" lines. */
+    private static boolean isSeparator(CharSequence line, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (line.charAt(i) != '=') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // '.' in a regular expression stops at these; kept so classification is unchanged
+    private static boolean isLineTerminator(char c) {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+    }
+
+    private static boolean isRegexSpace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
+    private static boolean regionMatchesAsciiIgnoreCase(CharSequence line, int from, int end, String expected) {
+        if (end - from < expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            char c = line.charAt(from + i);
+            char e = expected.charAt(i);
+            if (c != e && !(isAsciiLetter(e) && (c ^ 0x20) == e)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+    }
+
+    private static boolean startsWith(CharSequence line, int from, int end, String prefix) {
+        if (end - from < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (line.charAt(from + i) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasWhitespaceRun(CharSequence line, int from, int end) {
+        for (int i = from; i + 1 < end; i++) {
+            if (isRegexSpace(line.charAt(i)) && isRegexSpace(line.charAt(i + 1))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int indexOf(CharSequence line, int from, int end, char c) {
+        for (int i = from; i < end; i++) {
+            if (line.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int trimStart(CharSequence line, int from, int end) {
+        while (from < end && line.charAt(from) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(CharSequence line, int from, int end) {
+        while (end > from && line.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    /** The trimmed text of [from, to), interned in the parse's dictionary. */
+    private String cell(CharSequence line, int from, int to, CellDictionary cells) {
+        if (line == asciiLine) {
+            int start = trimStart(line, from, to);
+            int end = trimEnd(line, start, to);
+            return cells.intern(asciiLine.bytes, start, end);
+        }
+        return cells.intern(text(line, from, to));
+    }
+
+    /** The trimmed text of [from, to). */
+    private static String text(CharSequence line, int from, int to) {
+        int start = trimStart(line, from, to);
+        int end = trimEnd(line, start, to);
+        return start == end ? "" : line.subSequence(start, end).toString();
+    }
+
+    /**
+     * Header names and the column boundaries between them: each boundary is
+     * the midpoint between the end of one header name and the start of the
+     * next in the untrimmed line.
+     */
+    private static final class HeaderLayout {
+        final List<String> headers;
+        final int[] boundaries;
+
+        HeaderLayout(List<String> headers, int[] boundaries) {
+            this.headers = headers;
+            this.boundaries = boundaries;
+        }
+
+        static HeaderLayout of(String headerLine) {
+            int start = trimStart(headerLine, 0, headerLine.length());
+            int end = trimEnd(headerLine, start, headerLine.length());
+
+            List<String> headers = new ArrayList<>();
+            List<Integer> starts = new ArrayList<>();
+            List<Integer> ends = new ArrayList<>();
+            int searchFrom = 0;
+            int fieldStart = start;
+            int i = start;
+            while (fieldStart < end) {
+                // Header names are separated by runs of two or more whitespace characters
+                int fieldEnd = end;
+                int next = end;
+                for (; i + 1 < end; i++) {
+                    if (isRegexSpace(headerLine.charAt(i)) && isRegexSpace(headerLine.charAt(i + 1))) {
+                        fieldEnd = i;
+                        next = i + 2;
+                        while (next < end && isRegexSpace(headerLine.charAt(next))) {
+                            next++;
+                        }
+                        break;
+                    }
+                }
+                String name = text(headerLine, fieldStart, fieldEnd);
+                headers.add(name);
+                int idx = headerLine.indexOf(name, searchFrom);
+                if (idx == -1) idx = searchFrom;
+                starts.add(idx);
+                ends.add(idx + name.length());
+                searchFrom = idx + name.length();
+
+                fieldStart = next;
+                i = next;
+            }
+
+            int[] boundaries = new int[headers.size() - 1];
+            for (int h = 0; h < boundaries.length; h++) {
+                boundaries[h] = (ends.get(h) + starts.get(h + 1)) / 2;
+            }
+            return new HeaderLayout(headers, boundaries);
+        }
+    }
+
+    /**
+     * Reusable Latin-1 view of an ASCII line in the reader's buffer. Valid
+     * only until the next line is read.
+     */
+    private static final class AsciiLine implements CharSequence {
+        private byte[] bytes;
+        private int length;
+
+        void reset(byte[] bytes, int length) {
+            this.bytes = bytes;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes[index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return AsciiTokenizer.string(bytes, start, end);
+        }
+
+        @Override
+        public String toString() {
+            return AsciiTokenizer.string(bytes, 0, length);
+        }
+    }
+}
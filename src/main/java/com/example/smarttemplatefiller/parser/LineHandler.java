@@ -0,0 +1,25 @@
+package com.example.smarttemplatefiller.parser;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Receives the lines of a source file and appends rows to a table.
+ *
+ * Lines made only of ASCII bytes are delivered through
+ * {@link #acceptAscii(byte[], int, ParsedTable)} so handlers can tokenize them
+ * without decoding; all other lines arrive fully decoded.
+ */
+@FunctionalInterface
+public interface LineHandler {
+
+    void accept(String line, ParsedTable table);
+
+    /**
+     * An ASCII-only line in {@code bytes[0, length)}. The array is reused for
+     * the next line and must not be retained. The default decodes the line
+     * (a plain byte-to-char copy) and delegates to {@link #accept}.
+     */
+    default void acceptAscii(byte[] bytes, int length, ParsedTable table) {
+        accept(new String(bytes, 0, length, StandardCharsets.ISO_8859_1), table);
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.smarttemplatefiller.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Bounded LRU cache of parse results keyed by {@link FileFingerprint} plus a
+ * variant string describing the parse options that produced the result.
+ * Eviction is driven by the estimated heap footprint of the cached tables,
+ * not by entry count, so one huge file cannot pin memory indefinitely.
+ *
+ * Cached tables are shared between callers and must be treated as read-only.
+ */
+public class ParseCache {
+
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long maxBytes;
+    private long currentBytes;
+    private boolean hashContent;
+    private long hits;
+    private long misses;
+
+    private static final class Key {
+        final FileFingerprint fingerprint;
+        final String variant;
+
+        Key(FileFingerprint fingerprint, String variant) {
+            this.fingerprint = fingerprint;
+            this.variant = variant;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return fingerprint.equals(other.fingerprint) && variant.equals(other.variant);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fingerprint, variant);
+        }
+    }
+
+    private static final class Entry {
+        final ParsedTable table;
+        final long bytes;
+
+        Entry(ParsedTable table, long bytes) {
+            this.table = table;
+            this.bytes = bytes;
+        }
+    }
+
+    public ParseCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Return the cached table for the file's current fingerprint, or parse it
+     * with the given function and cache the result. Empty results (including
+     * parse failures) are not cached.
+     */
+    public ParsedTable getOrParse(File file, Function<File, ParsedTable> parser) {
+        return getOrParse(file, "", parser);
+    }
+
+    /**
+     * As {@link #getOrParse(File, Function)}, caching results separately per
+     * variant (e.g. per fixed-width layout the file was sliced with).
+     */
+    public ParsedTable getOrParse(File file, String variant, Function<File, ParsedTable> parser) {
+        Key key;
+        try {
+            key = new Key(FileFingerprint.of(file, isHashContent()), variant);
+        } catch (IOException e) {
+            // Cannot identify the file; parse without caching
+            return parser.apply(file);
+        }
+
+        synchronized (this) {
+            Entry cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return cached.table;
+            }
+            misses++;
+        }
+
+        // Parse outside the lock so unrelated files are not serialized
+        ParsedTable table = parser.apply(file);
+        if (table.size() > 0) {
+            put(key, table);
+        }
+        return table;
+    }
+
+    private synchronized void put(Key key, ParsedTable table) {
+        long bytes = table.estimateBytes();
+        if (bytes > maxBytes) {
+            return;
+        }
+
+        // Drop stale generations of the same path and variant before adding the new one
+        String path = key.fingerprint.getCanonicalPath();
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (e.getKey().variant.equals(key.variant) && e.getKey().fingerprint.getCanonicalPath().equals(path)) {
+                currentBytes -= e.getValue().bytes;
+                it.remove();
+            }
+        }
+
+        Entry previous = entries.put(key, new Entry(table, bytes));
+        if (previous != null) {
+            currentBytes -= previous.bytes;
+        }
+        currentBytes += bytes;
+        evict();
+    }
+
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (currentBytes > maxBytes && it.hasNext()) {
+            currentBytes -= it.next().bytes;
+            it.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Also hash file content into the key. Costs one sequential read per lookup
+     * but catches rewrites that keep the same size and modification time.
+     */
+    public synchronized void setHashContent(boolean hashContent) {
+        this.hashContent = hashContent;
+    }
+
+    public synchronized boolean isHashContent() {
+        return hashContent;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.smarttemplatefiller.parser;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Per-mapping or per-watch-folder settings that influence how a source file
+ * is parsed. Options that change the parsed result also feed the parse cache
+ * key, so the same file parsed with different settings is cached separately.
+ *
+ * A mapping can carry its own options in "&lt;mapping&gt;.parse.json" next to
+ * the mapping file, e.g. {"charset": "windows-1252"}.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ParseOptions {
+
+    public static final String COLUMN_CONFIG_NAME = "column_config.json";
+    private static final String MAPPING_COLUMN_CONFIG_SUFFIX = ".column_config.json";
+    private static final String MAPPING_PARSE_OPTIONS_SUFFIX = ".parse.json";
+
+    /** Files at least this large are parsed in parallel chunks where the format allows. */
+    public static final long DEFAULT_PARALLEL_THRESHOLD_BYTES = 8L * 1024 * 1024;
+
+    /**
+     * Files at least this large are memory-mapped instead of read onto the heap.
+     * Disabled on Windows, where a mapped file cannot be moved to the archive
+     * until the mapping is garbage collected.
+     */
+    public static final long DEFAULT_MAP_THRESHOLD_BYTES =
+            System.getProperty("os.name", "").startsWith("Windows") ? Long.MAX_VALUE : 32L * 1024 * 1024;
+
+    private File columnConfigFile;
+    private long parallelThresholdBytes = DEFAULT_PARALLEL_THRESHOLD_BYTES;
+    private long mapThresholdBytes = DEFAULT_MAP_THRESHOLD_BYTES;
+    private String charset;
+
+    public ParseOptions() {
+    }
+
+    public static ParseOptions defaults() {
+        return new ParseOptions();
+    }
+
+    /**
+     * Options for parsing sources with the given mapping: settings from
+     * "&lt;mapping&gt;.parse.json", and a "&lt;mapping&gt;.column_config.json"
+     * next to the mapping file as its fixed-width layout.
+     */
+    public static ParseOptions forMapping(File mappingFile) {
+        ParseOptions options = new ParseOptions();
+        if (mappingFile != null) {
+            File mappingDir = mappingFile.getAbsoluteFile().getParentFile();
+            File optionsFile = optionsFileFor(mappingFile);
+            if (optionsFile.isFile()) {
+                try {
+                    options = new ObjectMapper().readValue(optionsFile, ParseOptions.class);
+                } catch (IOException e) {
+                    System.err.println("Failed to load " + optionsFile.getName() + ", using defaults: " + e.getMessage());
+                }
+                if (options.columnConfigFile != null && !options.columnConfigFile.isAbsolute()) {
+                    options.columnConfigFile = new File(mappingDir, options.columnConfigFile.getPath());
+                }
+            }
+
+            File sidecar = new File(mappingDir, baseName(mappingFile) + MAPPING_COLUMN_CONFIG_SUFFIX);
+            if (options.columnConfigFile == null && sidecar.isFile()) {
+                options.setColumnConfigFile(sidecar);
+            }
+        }
+        return options;
+    }
+
+    /** "&lt;mapping&gt;.parse.json" next to the mapping file. */
+    public static File optionsFileFor(File mappingFile) {
+        return new File(mappingFile.getAbsoluteFile().getParentFile(), baseName(mappingFile) + MAPPING_PARSE_OPTIONS_SUFFIX);
+    }
+
+    private static String baseName(File mappingFile) {
+        String name = mappingFile.getName();
+        return name.endsWith(".json") ? name.substring(0, name.length() - 5) : name;
+    }
+
+    public File getColumnConfigFile() {
+        return columnConfigFile;
+    }
+
+    public void setColumnConfigFile(File columnConfigFile) {
+        this.columnConfigFile = columnConfigFile;
+    }
+
+    public long getParallelThresholdBytes() {
+        return parallelThresholdBytes;
+    }
+
+    /**
+     * Minimum file size for chunked parallel parsing; use Long.MAX_VALUE to
+     * always parse sequentially. Does not affect the parsed result.
+     */
+    public void setParallelThresholdBytes(long parallelThresholdBytes) {
+        this.parallelThresholdBytes = parallelThresholdBytes;
+    }
+
+    public long getMapThresholdBytes() {
+        return mapThresholdBytes;
+    }
+
+    public void setMapThresholdBytes(long mapThresholdBytes) {
+        this.mapThresholdBytes = mapThresholdBytes;
+    }
+
+    /**
+     * Charset name of the source files, or null to detect: a byte order mark
+     * wins, ASCII lines need no decoding, other lines are read as UTF-8 and
+     * fall back to windows-1252 when they are not valid UTF-8.
+     */
+    public String getCharset() {
+        return charset;
+    }
+
+    public void setCharset(String charset) {
+        this.charset = charset;
+    }
+
+    /**
+     * The configured charset, or null for detection.
+     *
+     * @throws IllegalArgumentException if the name is not a supported charset
+     */
+    public Charset resolveCharset() {
+        return (charset == null || charset.isEmpty()) ? null : Charset.forName(charset);
+    }
+
+    /**
+     * Resolve the fixed-width config for a source file: the explicit file if
+     * set, else column_config.json in the source's folder (per watch folder),
+     * else column_config.json in the working directory.
+     */
+    public File resolveColumnConfig(File sourceFile) {
+        if (columnConfigFile != null) {
+            return columnConfigFile;
+        }
+        File sourceDir = sourceFile.getAbsoluteFile().getParentFile();
+        if (sourceDir != null) {
+            File folderConfig = new File(sourceDir, COLUMN_CONFIG_NAME);
+            if (folderConfig.isFile()) {
+                return folderConfig;
+            }
+        }
+        return new File(COLUMN_CONFIG_NAME);
+    }
+
+    /**
+     * Cache discriminator for results parsed with these options.
+     */
+    public String cacheKey(File sourceFile) {
+        File config = resolveColumnConfig(sourceFile);
+        return config.getAbsolutePath() + "@" + config.lastModified() + "|" + (charset == null ? "auto" : charset);
+    }
+}
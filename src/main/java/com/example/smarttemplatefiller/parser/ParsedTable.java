@@ -0,0 +1,176 @@
+package com.example.smarttemplatefiller.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of parsing a source file: the row table plus a hash index from
+ * element keys (e.g. "Circle-7[1] Diameter", "N0074") to the 0-based rows
+ * that carry them. The index is filled by the parser in the same pass that
+ * produces the rows, so key lookups never rescan the table.
+ */
+public class ParsedTable {
+
+    private final List<List<String>> rows;
+    private final Map<String, List<Integer>> keyIndex;
+    private CellDictionary cells;
+
+    public ParsedTable() {
+        this.rows = new ArrayList<>();
+        this.keyIndex = new HashMap<>();
+    }
+
+    /**
+     * Wrap an existing row list without any element keys.
+     */
+    public ParsedTable(List<List<String>> rows) {
+        this.rows = rows;
+        this.keyIndex = new HashMap<>();
+    }
+
+    /**
+     * Append a row that carries no element key.
+     */
+    public void addRow(List<String> row) {
+        rows.add(row);
+    }
+
+    /**
+     * Append a row and register it under each non-empty key.
+     */
+    public void addRow(List<String> row, String... keys) {
+        int rowIndex = rows.size();
+        rows.add(row);
+        for (String key : keys) {
+            indexKey(key, rowIndex);
+        }
+    }
+
+    /**
+     * Append another table's rows after this one's, shifting its key index.
+     * Used to concatenate tables parsed from consecutive file ranges.
+     */
+    public void appendAll(ParsedTable other) {
+        int base = rows.size();
+        rows.addAll(other.rows);
+        for (Map.Entry<String, List<Integer>> entry : other.keyIndex.entrySet()) {
+            List<Integer> occurrences = keyIndex.computeIfAbsent(entry.getKey(), k -> new ArrayList<>(1));
+            for (Integer rowIndex : entry.getValue()) {
+                occurrences.add(base + rowIndex);
+            }
+        }
+    }
+
+    /**
+     * Replace the row at the given index (used for the injected header row).
+     */
+    public void setRow(int rowIndex, List<String> row) {
+        rows.set(rowIndex, row);
+    }
+
+    private void indexKey(String key, int rowIndex) {
+        if (key == null) {
+            return;
+        }
+        String normalized = normalizeKey(key);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        List<Integer> occurrences = keyIndex.computeIfAbsent(normalized, k -> new ArrayList<>(1));
+        // Aliases of one row may normalize to the same key; register the row once
+        if (occurrences.isEmpty() || occurrences.get(occurrences.size() - 1) != rowIndex) {
+            occurrences.add(rowIndex);
+        }
+    }
+
+    /**
+     * Intern table shared by the handlers filling this table, created on
+     * first use. Released by {@link #releaseCellDictionary()} once parsing
+     * is done so cached tables do not keep it alive.
+     */
+    public CellDictionary getCellDictionary() {
+        if (cells == null) {
+            cells = new CellDictionary();
+        }
+        return cells;
+    }
+
+    public void releaseCellDictionary() {
+        cells = null;
+    }
+
+    public List<List<String>> getRows() {
+        return rows;
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * O(1) lookup of the first row carrying the given element key.
+     *
+     * @return 0-based row index, or -1 if the key is unknown
+     */
+    public int findRow(String key) {
+        List<Integer> occurrences = keyIndex.get(normalizeKey(key));
+        return occurrences == null ? -1 : occurrences.get(0);
+    }
+
+    /**
+     * All rows carrying the given element key, in file order. Looping files
+     * repeat the same element once per block.
+     */
+    public List<Integer> findRows(String key) {
+        List<Integer> occurrences = keyIndex.get(normalizeKey(key));
+        return occurrences == null ? Collections.emptyList() : Collections.unmodifiableList(occurrences);
+    }
+
+    /**
+     * Rough heap footprint of the rows, used to bound caches by size.
+     */
+    public long estimateBytes() {
+        long bytes = 64;
+        for (List<String> row : rows) {
+            bytes += 40 + 8L * row.size();
+            for (String cell : row) {
+                bytes += 40 + cell.length();
+            }
+        }
+        // Index entries: map node plus occurrence list
+        bytes += 80L * keyIndex.size();
+        return bytes;
+    }
+
+    public boolean hasKeys() {
+        return !keyIndex.isEmpty();
+    }
+
+    /**
+     * Keys are matched case-sensitively but with whitespace runs collapsed,
+     * so "Circle-7[1]  Diameter" and "Circle-7[1] Diameter" are the same key.
+     */
+    public static String normalizeKey(String key) {
+        if (key == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(key.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+            } else {
+                if (pendingSpace) {
+                    sb.append(' ');
+                    pendingSpace = false;
+                }
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
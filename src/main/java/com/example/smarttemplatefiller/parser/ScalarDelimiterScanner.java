@@ -0,0 +1,63 @@
+package com.example.smarttemplatefiller.parser;
+
+/**
+ * Byte-at-a-time scanner; the default backend and the tail loop of the
+ * vectorized one.
+ */
+final class ScalarDelimiterScanner implements DelimiterScanner {
+
+    static final ScalarDelimiterScanner INSTANCE = new ScalarDelimiterScanner();
+
+    private ScalarDelimiterScanner() {
+    }
+
+    @Override
+    public int indexOf(byte[] b, int from, int to, byte value) {
+        for (int i = from; i < to; i++) {
+            if (b[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int indexOfLineBreak(byte[] b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (b[i] == '\n' || b[i] == '\r') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int indexOfSpaceRun(byte[] b, int from, int to) {
+        for (int i = from; i + 1 < to; i++) {
+            if (AsciiTokenizer.isRegexSpace(b[i + 1])) {
+                if (AsciiTokenizer.isRegexSpace(b[i])) {
+                    return i;
+                }
+            } else {
+                // b[i + 1] cannot start a run either
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean isAscii(byte[] b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (b[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.smarttemplatefiller.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Raw bytes of a source file, read through a {@link FileChannel}: small files
+ * into a heap buffer, large files memory-mapped. A leading byte order mark is
+ * detected, skipped and turned into the effective charset.
+ */
+public final class SourceBytes {
+
+    private final ByteBuffer content;
+    private final Charset charset;
+    private final int bomLength;
+
+    private SourceBytes(ByteBuffer content, Charset charset, int bomLength) {
+        this.content = content;
+        this.charset = charset;
+        this.bomLength = bomLength;
+    }
+
+    /**
+     * Read a file.
+     *
+     * @param configured   explicit charset, or null to auto-detect per line
+     *                     (UTF-8, falling back to windows-1252)
+     * @param mapThreshold files at least this large are memory-mapped
+     */
+    public static SourceBytes read(File file, Charset configured, long mapThreshold) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= mapThreshold && size > 0) {
+                // The mapping stays valid after the channel is closed
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                if (size > Integer.MAX_VALUE) {
+                    throw new IOException("File too large to read into memory: " + file.getName());
+                }
+                buffer = ByteBuffer.allocate((int) size);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // keep reading until full or EOF
+                }
+                buffer.flip();
+            }
+        }
+
+        return withoutBom(buffer, configured);
+    }
+
+    /**
+     * Read {@code file} from byte {@code from} to its current end, for
+     * parsing what was appended since an earlier read. A BOM is only
+     * recognised at the start of the file.
+     */
+    public static SourceBytes readFrom(File file, long from, Charset configured) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size() - from;
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Too much new data to read into memory: " + file.getName());
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(0, length));
+            long position = from;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+            }
+            buffer.flip();
+            return from == 0 ? withoutBom(buffer, configured) : new SourceBytes(buffer, configured, 0);
+        }
+    }
+
+    private static SourceBytes withoutBom(ByteBuffer buffer, Charset configured) {
+        Charset charset = configured;
+        int bomLength = 0;
+        if (startsWith(buffer, 0xEF, 0xBB, 0xBF)) {
+            bomLength = 3;
+            charset = StandardCharsets.UTF_8;
+        } else if (startsWith(buffer, 0xFF, 0xFE)) {
+            bomLength = 2;
+            charset = StandardCharsets.UTF_16LE;
+        } else if (startsWith(buffer, 0xFE, 0xFF)) {
+            bomLength = 2;
+            charset = StandardCharsets.UTF_16BE;
+        }
+        buffer.position(bomLength);
+        return new SourceBytes(buffer.slice(), charset, bomLength);
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int... bom) {
+        if (buffer.limit() < bom.length) {
+            return false;
+        }
+        for (int i = 0; i < bom.length; i++) {
+            if ((buffer.get(i) & 0xFF) != bom[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Content without the BOM; callers must use absolute gets or duplicates. */
+    public ByteBuffer getContent() {
+        return content;
+    }
+
+    /** Bytes of the byte order mark skipped before the content. */
+    public int getBomLength() {
+        return bomLength;
+    }
+
+    /** Effective charset, or null for per-line auto-detection. */
+    public Charset getCharset() {
+        return charset;
+    }
+
+    public int size() {
+        return content.limit();
+    }
+
+    /**
+     * Whether line breaks and ASCII bytes mean the same in this charset, i.e.
+     * the content can be split into lines and ranges at the byte level.
+     */
+    public boolean isAsciiCompatible() {
+        return charset == null || ByteLineReader.isAsciiCompatible(charset);
+    }
+
+    /** Independent view of [start, end) of the content. */
+    public ByteBuffer slice(int start, int end) {
+        ByteBuffer view = content.duplicate();
+        view.position(start).limit(end);
+        return view.slice();
+    }
+}
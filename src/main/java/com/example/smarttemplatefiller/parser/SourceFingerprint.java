@@ -0,0 +1,218 @@
+package com.example.smarttemplatefiller.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * What kind of source a file is, from its first {@link #HEADER_BYTES}
+ * bytes only: the layout (QV grouped blocks, DMIS {@code TEXT/OUTFIL}
+ * output, delimited or plain text), the part name, the first CMM feature
+ * IDs and the column count. Files written by the same CMM program have the
+ * same fingerprint, so Running Mode can choose a mapping per fingerprint
+ * without parsing the file.
+ */
+public final class SourceFingerprint {
+
+    public static final int HEADER_BYTES = 4096;
+
+    private static final int MAX_FEATURES = 16;
+    private static final String OUTFIL = "TEXT/OUTFIL";
+    private static final Pattern PART_NAME = Pattern.compile(
+            "\\bPART\\s*(?:NAME|NO\\.?|NUMBER)?\\s*[:=]\\s*(.*\\S)", Pattern.CASE_INSENSITIVE);
+    // "Circle-7[1](ID:1, From 343 Pts.)", "Y1(ID:8)"
+    private static final Pattern FEATURE_ID = Pattern.compile("([A-Za-z][\\w.\\-\\[\\]]*)\\(ID:\\d+");
+    private static final Pattern COLUMN_GAP = Pattern.compile("\\s{2,}");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    public enum Layout {
+        /** QV grouped blocks: "@101" separators and a column header line. */
+        QV,
+        /** DMIS program output written with TEXT/OUTFIL statements. */
+        OUTFIL,
+        /** One record per line, split by tab, ';' or ','. */
+        DELIMITED,
+        /** Anything else; columns split by whitespace. */
+        TEXT
+    }
+
+    private final Layout layout;
+    private final String partName;
+    private final List<String> headerColumns;
+    private final List<String> features;
+    private final int columnCount;
+
+    SourceFingerprint(Layout layout, String partName, List<String> headerColumns, List<String> features,
+                      int columnCount) {
+        this.layout = layout;
+        this.partName = partName;
+        this.headerColumns = Collections.unmodifiableList(headerColumns);
+        this.features = Collections.unmodifiableList(features);
+        this.columnCount = columnCount;
+    }
+
+    /** The first {@link #HEADER_BYTES} bytes of {@code file} (fewer if it is shorter). */
+    public static byte[] readHeader(File file) throws IOException {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return in.readNBytes(HEADER_BYTES);
+        }
+    }
+
+    public static SourceFingerprint of(File file) throws IOException {
+        return of(readHeader(file));
+    }
+
+    /**
+     * Fingerprint a file from its header bytes. A line cut off by the end
+     * of a full header is ignored, so a longer file of the same program
+     * gives the same fingerprint.
+     */
+    public static SourceFingerprint of(byte[] header) {
+        String text = new String(header, StandardCharsets.ISO_8859_1);
+        if (header.length >= HEADER_BYTES) {
+            int lastBreak = Math.max(text.lastIndexOf('\n'), text.lastIndexOf('\r'));
+            text = lastBreak >= 0 ? text.substring(0, lastBreak) : "";
+        }
+
+        boolean qv = false;
+        boolean outfil = false;
+        boolean expectQvHeader = false;
+        String partName = null;
+        List<String> headerColumns = new ArrayList<>();
+        Set<String> features = new LinkedHashSet<>();
+        String firstDataLine = null;
+
+        for (String line : text.split("\r\n|\r|\n")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            if (trimmed.equals("@101")) {
+                qv = true;
+                expectQvHeader = headerColumns.isEmpty();
+                continue;
+            }
+            if (expectQvHeader) {
+                // The line after the first "@101" names the columns
+                headerColumns.addAll(List.of(COLUMN_GAP.split(trimmed)));
+                expectQvHeader = false;
+                continue;
+            }
+
+            String content = trimmed;
+            if (trimmed.regionMatches(true, 0, OUTFIL, 0, OUTFIL.length())) {
+                outfil = true;
+                content = outfilText(trimmed);
+            } else if (firstDataLine == null && !qv && !looksLikeDate(trimmed)) {
+                firstDataLine = trimmed;
+            }
+            if (partName == null) {
+                Matcher part = PART_NAME.matcher(content);
+                if (part.find()) {
+                    partName = part.group(1).trim();
+                }
+            }
+            if (features.size() < MAX_FEATURES) {
+                Matcher feature = FEATURE_ID.matcher(content);
+                while (feature.find() && features.size() < MAX_FEATURES) {
+                    features.add(feature.group(1));
+                }
+            }
+        }
+
+        Layout layout;
+        int columnCount;
+        if (qv) {
+            layout = Layout.QV;
+            columnCount = headerColumns.size();
+        } else {
+            char delimiter = firstDataLine != null ? delimiterOf(firstDataLine) : 0;
+            layout = outfil ? Layout.OUTFIL : delimiter != 0 ? Layout.DELIMITED : Layout.TEXT;
+            columnCount = firstDataLine == null ? 0
+                    : delimiter != 0 ? firstDataLine.split(Pattern.quote(String.valueOf(delimiter)), -1).length
+                    : WHITESPACE.split(firstDataLine).length;
+        }
+        return new SourceFingerprint(layout, partName, headerColumns, new ArrayList<>(features), columnCount);
+    }
+
+    /** The quoted text of a TEXT/OUTFIL statement, else everything after it. */
+    private static String outfilText(String line) {
+        int open = line.indexOf('\'');
+        int close = line.lastIndexOf('\'');
+        if (open >= 0 && close > open) {
+            return line.substring(open + 1, close);
+        }
+        return line.substring(OUTFIL.length());
+    }
+
+    /** QV files start with the measurement time, e.g. "9/23/2024 5:12:47 PM". */
+    private static boolean looksLikeDate(String line) {
+        return !line.isEmpty() && Character.isDigit(line.charAt(0)) && line.indexOf('/') > 0 && line.indexOf(':') > 0
+                && line.indexOf('\t') < 0 && line.indexOf(';') < 0 && line.indexOf(',') < 0;
+    }
+
+    private static char delimiterOf(String line) {
+        for (char candidate : new char[]{'\t', ';', ','}) {
+            if (line.indexOf(candidate) >= 0) {
+                return candidate;
+            }
+        }
+        return 0;
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    /** The part name of a "PART NAME: ..." line, or null. */
+    public String getPartName() {
+        return partName;
+    }
+
+    /** The QV column header, empty for other layouts. */
+    public List<String> getHeaderColumns() {
+        return headerColumns;
+    }
+
+    /** The names of the first CMM features with an "(ID:n)", in file order. */
+    public List<String> getFeatures() {
+        return features;
+    }
+
+    public int getColumnCount() {
+        return columnCount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SourceFingerprint)) return false;
+        SourceFingerprint other = (SourceFingerprint) o;
+        return layout == other.layout
+                && columnCount == other.columnCount
+                && Objects.equals(partName, other.partName)
+                && headerColumns.equals(other.headerColumns)
+                && features.equals(other.features);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(layout, partName, headerColumns, features, columnCount);
+    }
+
+    @Override
+    public String toString() {
+        return layout + (partName != null ? " part=" + partName : "") + " columns=" + columnCount
+                + (features.isEmpty() ? "" : " features=" + String.join(",", features));
+    }
+}
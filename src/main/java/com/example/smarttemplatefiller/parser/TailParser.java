@@ -0,0 +1,196 @@
+package com.example.smarttemplatefiller.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Parses only what was appended to a growing QV results file. Stations
+ * that append each new part's block ("&#64;101", column header, elements)
+ * to the same file are read from the byte offset where the previous read
+ * stopped, with the column header seen so far as the lexer's state.
+ *
+ * Only complete blocks are taken: the read stops at the start of the last
+ * "&#64;101" line, since the block before it is finished and the one after
+ * it may still be written. The next read starts there. Once the file
+ * stopped growing, a read to its end takes the last block as well.
+ */
+public final class TailParser {
+
+    /** Bytes at the start of a file that identify it across reads, to notice a new file under the same name. */
+    public static final int HEAD_BYTES = 1024;
+
+    private static final byte[] SEPARATOR = "@101".getBytes(StandardCharsets.US_ASCII);
+
+    private TailParser() {
+    }
+
+    /** The complete blocks found by one read. */
+    public static final class Increment {
+        private final ParsedTable table;
+        private final long end;
+        private final String headerLine;
+        private final int blocks;
+
+        Increment(ParsedTable table, long end, String headerLine, int blocks) {
+            this.table = table;
+            this.end = end;
+            this.headerLine = headerLine;
+            this.blocks = blocks;
+        }
+
+        /** The new blocks, laid out as if they were a file of their own. */
+        public ParsedTable getTable() {
+            return table;
+        }
+
+        /** File offset where the next read starts. */
+        public long getEnd() {
+            return end;
+        }
+
+        /** The column header line to resume the next read with. */
+        public String getHeaderLine() {
+            return headerLine;
+        }
+
+        public int getBlocks() {
+            return blocks;
+        }
+    }
+
+    /**
+     * Parse the complete blocks of {@code file} from byte {@code from} on.
+     *
+     * @param headerLine the column header line the previous read ended with, or null at the start of the file
+     * @param toEnd      take every complete line, including the last block, as the file stopped growing
+     * @return the new blocks, or null if no block was completed since the previous read
+     * @throws IOException if the file cannot be read or is not a QV file in an ASCII-compatible encoding
+     */
+    public static Increment read(File file, long from, String headerLine, ParseOptions options, boolean toEnd)
+            throws IOException {
+        return read(file, from, Long.MAX_VALUE, headerLine, options, toEnd);
+    }
+
+    /**
+     * Parse the blocks of {@code file} between byte {@code from} and byte
+     * {@code to}, the end of an earlier read: the same blocks again, for
+     * outputs that failed to take them, however far the file grew since.
+     *
+     * @return the blocks, or null if there are none
+     * @throws IOException if the file cannot be read or is not a QV file in an ASCII-compatible encoding
+     */
+    public static Increment read(File file, long from, long to, String headerLine, ParseOptions options)
+            throws IOException {
+        return read(file, from, to, headerLine, options, true);
+    }
+
+    private static Increment read(File file, long from, long to, String headerLine, ParseOptions options,
+            boolean toEnd) throws IOException {
+        SourceBytes source = SourceBytes.readFrom(file, from, options.resolveCharset());
+        if (!source.isAsciiCompatible()) {
+            throw new IOException("Tail mode needs an ASCII-compatible encoding: " + file.getName());
+        }
+        ByteBuffer content = source.getContent().duplicate();
+        if (to - from - source.getBomLength() < content.limit()) {
+            content.limit((int) Math.max(0, to - from - source.getBomLength()));
+        }
+        int cut = lastCompleteBlockEnd(content, toEnd);
+        if (cut <= 0) {
+            return null;
+        }
+
+        GroupedBlockLexer lexer = new GroupedBlockLexer();
+        ParsedTable table = lexer.resume(headerLine);
+        ByteBuffer region = content.duplicate();
+        region.position(0).limit(cut);
+        new ByteLineReader(source.getCharset()).forEachLine(region.slice(), lexer, table);
+        table.releaseCellDictionary();
+
+        int blocks = 1;
+        for (List<String> row : table.getRows()) {
+            if (row.size() == 1 && "@101".equals(row.get(0))) {
+                blocks++;
+            }
+        }
+        if (table.getRows().size() <= 1) {
+            // Only separators, dates or headers: nothing to export, but they are consumed
+            blocks = 0;
+        }
+        return new Increment(table, from + source.getBomLength() + cut, lexer.getHeaderLine(), blocks);
+    }
+
+    /**
+     * The start of the last "&#64;101" line that ends with a line break and
+     * follows at least one element header (with {@code toEnd}, the end of
+     * the last line that ends with a line break), or -1.
+     */
+    private static int lastCompleteBlockEnd(ByteBuffer content, boolean toEnd) {
+        int limit = content.limit();
+        int lineStart = 0;
+        boolean sawElement = false;
+        int cut = -1;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && content.get(lineEnd) != '\n' && content.get(lineEnd) != '\r') {
+                lineEnd++;
+            }
+            if (lineEnd == limit) {
+                // The last line is still being written
+                break;
+            }
+            int start = lineStart;
+            int end = lineEnd;
+            while (start < end && (content.get(start) & 0xFF) <= ' ') {
+                start++;
+            }
+            while (end > start && (content.get(end - 1) & 0xFF) <= ' ') {
+                end--;
+            }
+            if (isSeparator(content, start, end)) {
+                if (sawElement) {
+                    cut = lineStart;
+                }
+            } else if (!sawElement && end > start) {
+                byte[] line = new byte[end - start];
+                content.get(start, line);
+                sawElement = GroupedBlockLexer.isElementHeader(new String(line, StandardCharsets.ISO_8859_1));
+            }
+            lineStart = lineEnd + 1;
+            if (content.get(lineEnd) == '\r' && lineStart < limit && content.get(lineStart) == '\n') {
+                lineStart++;
+            }
+            if (toEnd && sawElement) {
+                cut = lineStart;
+            }
+        }
+        return cut;
+    }
+
+    private static boolean isSeparator(ByteBuffer content, int start, int end) {
+        if (end - start != SEPARATOR.length) {
+            return false;
+        }
+        for (int i = 0; i < SEPARATOR.length; i++) {
+            if (content.get(start + i) != SEPARATOR[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** CRC32 of the first {@code length} bytes of the file (fewer if it is shorter). */
+    public static long headChecksum(File file, int length) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] head = new byte[(int) Math.min(length, in.length())];
+            in.readFully(head);
+            CRC32 crc = new CRC32();
+            crc.update(head);
+            return crc.getValue();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.smarttemplatefiller.parser;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD scanner built on the incubating Vector API. Compares a full vector of
+ * bytes per step and finishes the remainder with the scalar loop.
+ *
+ * Only loaded when the JVM was started with
+ * {@code --add-modules jdk.incubator.vector}; see {@link AsciiTokenizer}.
+ */
+final class VectorDelimiterScanner implements DelimiterScanner {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    private final ScalarDelimiterScanner scalar = ScalarDelimiterScanner.INSTANCE;
+
+    @Override
+    public int indexOf(byte[] b, int from, int to, byte value) {
+        int i = from;
+        for (; i + LANES <= to; i += LANES) {
+            VectorMask<Byte> hits = ByteVector.fromArray(SPECIES, b, i).eq(value);
+            if (hits.anyTrue()) {
+                return i + hits.firstTrue();
+            }
+        }
+        return scalar.indexOf(b, i, to, value);
+    }
+
+    @Override
+    public int indexOfLineBreak(byte[] b, int from, int to) {
+        int i = from;
+        for (; i + LANES <= to; i += LANES) {
+            ByteVector v = ByteVector.fromArray(SPECIES, b, i);
+            VectorMask<Byte> hits = v.eq((byte) '\n').or(v.eq((byte) '\r'));
+            if (hits.anyTrue()) {
+                return i + hits.firstTrue();
+            }
+        }
+        return scalar.indexOfLineBreak(b, i, to);
+    }
+
+    @Override
+    public int indexOfSpaceRun(byte[] b, int from, int to) {
+        int i = from;
+        // Compare each lane with its right neighbour by loading at i and i + 1
+        for (; i + 1 + LANES <= to; i += LANES) {
+            VectorMask<Byte> hits = spaces(ByteVector.fromArray(SPECIES, b, i))
+                    .and(spaces(ByteVector.fromArray(SPECIES, b, i + 1)));
+            if (hits.anyTrue()) {
+                return i + hits.firstTrue();
+            }
+        }
+        return scalar.indexOfSpaceRun(b, i, to);
+    }
+
+    /** Lanes holding ' ' or '\t'..'\r'; bytes >= 0x80 are negative and never match. */
+    private static VectorMask<Byte> spaces(ByteVector v) {
+        return v.eq((byte) ' ')
+                .or(v.compare(VectorOperators.GE, (byte) '\t')
+                        .and(v.compare(VectorOperators.LE, (byte) '\r')));
+    }
+
+    @Override
+    public boolean isAscii(byte[] b, int from, int to) {
+        int i = from;
+        for (; i + LANES <= to; i += LANES) {
+            if (ByteVector.fromArray(SPECIES, b, i).compare(VectorOperators.LT, (byte) 0).anyTrue()) {
+                return false;
+            }
+        }
+        return scalar.isAscii(b, i, to);
+    }
+
+    @Override
+    public String getName() {
+        return "vector (" + SPECIES.vectorBitSize() + "-bit)";
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.smarttemplatefiller.tools;
+
+import com.example.smarttemplatefiller.ArchiveReExport;
+import com.example.smarttemplatefiller.ReExportConfig;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs a bulk re-export of archived sources from the command line:
+ *
+ * <pre>
+ * java -cp SmartTemplateFiller.jar com.example.smarttemplatefiller.tools.ReExportTool reexport.json
+ * </pre>
+ *
+ * Stopping the tool (Ctrl+C) finishes the sources being converted; running
+ * it again with the same job continues with the rest.
+ */
+public class ReExportTool {
+
+    public static void main(String[] args) {
+        if (args.length != 1) {
+            System.err.println("Usage: ReExportTool <re-export job .json>");
+            System.exit(2);
+        }
+        try {
+            ReExportConfig config = ReExportConfig.load(new File(args[0]));
+            ArchiveReExport job = new ArchiveReExport(config, null);
+            Thread main = Thread.currentThread();
+            AtomicBoolean finished = new AtomicBoolean();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                if (finished.get()) {
+                    return;
+                }
+                job.cancel();
+                try {
+                    main.join(60_000);
+                } catch (InterruptedException ignored) {
+                    // Exiting anyway
+                }
+            }));
+            ArchiveReExport.Summary summary;
+            try {
+                summary = job.run();
+            } finally {
+                finished.set(true);
+            }
+            System.exit(summary.getFailed() > 0 ? 1 : 0);
+        } catch (Exception e) {
+            System.err.println("Re-export failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.smarttemplatefiller;
+
+import com.example.smarttemplatefiller.engine.ArchivePolicy;
+import com.example.smarttemplatefiller.engine.SourceArchiver;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for re-exporting archived sources with a new mapping.
+ */
+class ArchiveReExportTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path archive;
+    private Path out;
+    private File mappingFile;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TxtParser.getParseCache().clear();
+        archive = tempDir.resolve("output");
+        out = tempDir.resolve("reexport");
+        mappingFile = tempDir.resolve("values.json").toFile();
+        new ObjectMapper().writeValue(mappingFile, List.of(Map.of(
+                "sourceColumn", 1,
+                "startCell", "A1",
+                "direction", "vertical",
+                "rowPattern", Map.of("start", 0, "type", "all"))));
+
+        archived("qv/2024-03-01_080000/archive/a.txt", "Circle-1  15.172\n");
+        archived("qv/2024-03-02_090000/archive/b.txt", "Circle-2  15.168\n");
+        archived("qv/2024-03-02_140000/archive/b2.txt", "Circle-3  15.181\n");
+        archived("other/2024-03-02_100000/archive/c.txt", "Circle-4  15.100\n");
+        archived("qv/2024-04-01_080000/archive/d.txt", "Circle-5  15.200\n");
+        archived("qv/2024-03-01_080000/a.xlsx", "not a source");
+    }
+
+    private void archived(String path, String content) throws Exception {
+        Path file = archive.resolve(path);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+
+    private ReExportConfig config(String strategy) {
+        ReExportConfig config = new ReExportConfig();
+        config.setArchiveFolder(archive.toString());
+        config.setMappingFile(mappingFile.getPath());
+        config.setOutputFolder(out.toString());
+        config.setMappings(List.of("qv"));
+        config.setFrom("2024-03-01");
+        config.setTo("2024-03-31");
+        config.setStrategy(strategy);
+        config.setWorkers(4);
+        config.getOutput().setFormat("csv");
+        return config;
+    }
+
+    @Test
+    @DisplayName("Sources are selected by archived mapping, day and pattern, oldest first")
+    void testSelection() throws Exception {
+        List<ArchiveReExport.Source> sources = new ArchiveReExport(config("separate"), null).select();
+        assertEquals(List.of("qv/2024-03-01_080000/archive/a.txt", "qv/2024-03-02_090000/archive/b.txt",
+                "qv/2024-03-02_140000/archive/b2.txt"), sources.stream().map(ArchiveReExport.Source::getKey).toList());
+        assertEquals("qv", sources.get(0).getMappingName());
+
+        ReExportConfig everything = config("separate");
+        everything.setMappings(List.of());
+        everything.setFrom(null);
+        everything.setTo(null);
+        everything.setFilePattern("c*.txt,d*.txt");
+        assertEquals(2, new ArchiveReExport(everything, null).select().size());
+    }
+
+    @Test
+    @DisplayName("A second run continues from the journal instead of converting again")
+    void testSeparateOutputsAndResume() throws Exception {
+        ArchiveReExport.Summary first = new ArchiveReExport(config("separate"), null).run();
+        assertEquals(3, first.getConverted());
+        assertEquals(0, first.getFailed());
+        assertEquals("15.172\n", Files.readString(out.resolve("values/qv/2024-03-01_080000/a.csv")));
+        assertEquals("15.181\n", Files.readString(out.resolve("values/qv/2024-03-02_140000/b2.csv")));
+
+        archived("qv/2024-03-03_070000/archive/e.txt", "Circle-6  15.150\n");
+        ArchiveReExport.Summary second = new ArchiveReExport(config("separate"), null).run();
+        assertEquals(4, second.getSelected());
+        assertEquals(3, second.getSkipped());
+        assertEquals(1, second.getConverted());
+        assertTrue(Files.exists(out.resolve("values/qv/2024-03-03_070000/e.csv")));
+    }
+
+    @Test
+    @DisplayName("Sources of the same time and name from different mappings get their own outputs")
+    void testSeparateOutputsDoNotCollide() throws Exception {
+        archived("other/2024-03-01_080000/archive/a.txt", "Circle-9  15.300\n");
+        archived("qv/2024-03-01_080000/archive/a.asc", "Circle-10  15.400\n");
+        ReExportConfig config = config("separate");
+        config.setMappings(List.of("qv", "other"));
+        config.setFilePattern("a.*");
+
+        ArchiveReExport.Summary summary = new ArchiveReExport(config, null).run();
+        assertEquals(3, summary.getConverted());
+        assertEquals("15.300\n", Files.readString(out.resolve("values/other/2024-03-01_080000/a.csv")));
+        // Selected by key within the same time: "a.asc" before "a.txt"
+        assertEquals("15.400\n", Files.readString(out.resolve("values/qv/2024-03-01_080000/a.csv")));
+        assertEquals("15.172\n", Files.readString(out.resolve("values/qv/2024-03-01_080000/a~2.csv")));
+    }
+
+    @Test
+    @DisplayName("The daily strategy appends each day's sources in order to one output")
+    void testDailyStrategy() throws Exception {
+        ArchiveReExport.Summary summary = new ArchiveReExport(config("daily"), null).run();
+        assertEquals(3, summary.getConverted());
+        assertEquals("15.172\n", Files.readString(out.resolve("values/2024-03-01.csv")));
+        assertEquals("15.168\n15.181\n", Files.readString(out.resolve("values/2024-03-02.csv")));
+    }
+
+    @Test
+    @DisplayName("Sources collected into daily zip archives are selected by their index and re-exported")
+    void testZipArchivedSources() throws Exception {
+        ArchivePolicy policy = new ArchivePolicy();
+        Path watch = Files.createDirectories(tempDir.resolve("watch"));
+        File archiveFolder = archive.resolve("qv").resolve("archive").toFile();
+        SourceArchiver archiver = new SourceArchiver(null);
+        Files.writeString(watch.resolve("z.txt"), "Circle-7  15.190\n");
+        archiver.submit(watch.resolve("z.txt").toFile(), watch.resolve(SourceArchiver.STAGING_FOLDER),
+                archiveFolder, "2024-03-03_060000", policy);
+        Files.writeString(watch.resolve("z.txt"), "Circle-8  15.195\n");
+        archiver.submit(watch.resolve("z.txt").toFile(), watch.resolve(SourceArchiver.STAGING_FOLDER),
+                archiveFolder, "2024-04-02_060000", policy);
+        archiver.stop();
+
+        List<ArchiveReExport.Source> sources = new ArchiveReExport(config("separate"), null).select();
+        assertEquals(4, sources.size(), "the zip parts themselves are not sources");
+        ArchiveReExport.Source zipped = sources.get(3);
+        assertEquals("qv/archive/2024-03-03_001.zip!/2024-03-03_060000/z.txt", zipped.getKey());
+        assertEquals("z.txt", zipped.getName());
+        assertEquals("qv", zipped.getMappingName());
+
+        ArchiveReExport.Summary summary = new ArchiveReExport(config("separate"), null).run();
+        assertEquals(4, summary.getConverted());
+        assertEquals("15.190\n", Files.readString(out.resolve("values/qv/2024-03-03_060000/z.csv")));
+    }
+
+    @Test
+    @DisplayName("An unknown strategy is rejected before anything is converted")
+    void testUnknownStrategy() {
+        ArchiveReExport job = new ArchiveReExport(config("merge"), null);
+        assertThrows(java.io.IOException.class, job::run);
+        assertFalse(Files.exists(out.resolve("values")));
+    }
+}
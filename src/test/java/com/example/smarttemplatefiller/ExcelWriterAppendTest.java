@@ -1,5 +1,7 @@
 package com.example.smarttemplatefiller;
 
+import com.example.smarttemplatefiller.engine.OutputOptions;
+import com.example.smarttemplatefiller.parser.ParseOptions;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
@@ -283,6 +285,75 @@ class ExcelWriterAppendTest {
         }
     }
 
+    @Test
+    @DisplayName("Append to a missing named sheet creates it and writes the titles")
+    void testAppendToRolloverSheet() throws Exception {
+        File titledMapping = tempDir.resolve("mapping_titled.json").toFile();
+        mapper.writeValue(titledMapping, List.of(Map.of(
+                "sourceColumn", 0,
+                "startCell", "A2",
+                "direction", "vertical",
+                "title", "Value",
+                "rowPattern", Map.of("start", 0, "type", "all"))));
+
+        File excelFile = tempDir.resolve("rollover.xlsx").toFile();
+        try (Workbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet("Result");
+            sheet.createRow(0).createCell(0).setCellValue("Value");
+            sheet.createRow(1).createCell(0).setCellValue("old");
+            try (FileOutputStream fos = new FileOutputStream(excelFile)) {
+                workbook.write(fos);
+            }
+        }
+
+        OutputOptions options = new OutputOptions();
+        options.setSheetName("Result_002");
+        AppendResult result = ExcelWriter.appendToMappedFile(createSourceFile("a\nb"), titledMapping, excelFile,
+                ParseOptions.defaults(), options);
+
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+        assertEquals(0, result.getRowOffset());
+        try (FileInputStream fis = new FileInputStream(excelFile);
+                Workbook workbook = new XSSFWorkbook(fis)) {
+            assertEquals("old", workbook.getSheet("Result").getRow(1).getCell(0).getStringCellValue());
+            Sheet rolled = workbook.getSheet("Result_002");
+            assertEquals("Value", rolled.getRow(0).getCell(0).getStringCellValue());
+            assertEquals("a", rolled.getRow(1).getCell(0).getStringCellValue());
+            assertEquals("b", rolled.getRow(2).getCell(0).getStringCellValue());
+        }
+    }
+
+    @Test
+    @DisplayName("Column append offsets continue each column below its own last value")
+    void testAppendWithColumnOffsets() throws Exception {
+        File excelFile = tempDir.resolve("columns.xlsx").toFile();
+        try (Workbook workbook = new XSSFWorkbook()) {
+            Sheet sheet = workbook.createSheet("Result");
+            for (int i = 0; i < 4; i++) {
+                sheet.createRow(i).createCell(1).setCellValue("long" + i);
+            }
+            sheet.getRow(0).createCell(0).setCellValue("short");
+            try (FileOutputStream fos = new FileOutputStream(excelFile)) {
+                workbook.write(fos);
+            }
+        }
+
+        OutputOptions options = new OutputOptions();
+        options.setAppendOffset("column");
+        AppendResult result = ExcelWriter.appendToMappedFile(createSourceFile("a\nb"), mappingFile, excelFile,
+                ParseOptions.defaults(), options);
+
+        assertTrue(result.isSuccess(), result.getErrorMessage());
+        try (FileInputStream fis = new FileInputStream(excelFile);
+                Workbook workbook = new XSSFWorkbook(fis)) {
+            Sheet sheet = workbook.getSheet("Result");
+            assertEquals("a", sheet.getRow(1).getCell(0).getStringCellValue());
+            assertEquals("b", sheet.getRow(2).getCell(0).getStringCellValue());
+        }
+        assertEquals(3, OutputSinks.appendIndex(excelFile, options).firstFreeRow(0),
+                "the index written by the append is current");
+    }
+
     // ========== T008 Tests ==========
 
     @Test
@@ -304,6 +375,7 @@ class ExcelWriterAppendTest {
         try (FileChannel channel = FileChannel.open(excelFile.toPath(),
                 StandardOpenOption.READ, StandardOpenOption.WRITE);
                 FileLock lock = channel.lock()) {
+            assertTrue(lock.isValid());
 
             // Try to append while file is locked
             AppendResult result = ExcelWriter.appendToMappedFile(sourceFile, mappingFile, excelFile);
@@ -0,0 +1,135 @@
+package com.example.smarttemplatefiller;
+
+import com.example.smarttemplatefiller.engine.OutputOptions;
+import com.example.smarttemplatefiller.mapping.StringStorage;
+import com.example.smarttemplatefiller.parser.ParseOptions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.XSSFCell;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.openxmlformats.schemas.spreadsheetml.x2006.main.STCellType;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the "stringStorage" setting (shared/inline/auto) of text cells.
+ */
+class ExcelWriterStringStorageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private File writeMapping(String stringStorage) throws Exception {
+        Map<String, Object> mapping = new HashMap<>(Map.of(
+                "sourceColumn", 0,
+                "startCell", "A1",
+                "direction", "vertical",
+                "rowPattern", Map.of("start", 0, "type", "all")));
+        if (stringStorage != null) {
+            mapping.put("stringStorage", stringStorage);
+        }
+        File mappingFile = tempDir.resolve("mapping_" + stringStorage + ".json").toFile();
+        mapper.writeValue(mappingFile, List.of(mapping));
+        return mappingFile;
+    }
+
+    private XSSFWorkbook export(File mappingFile, String content, OutputOptions options) throws Exception {
+        File source = tempDir.resolve("source.txt").toFile();
+        Files.writeString(source.toPath(), content);
+        File output = tempDir.resolve("out.xlsx").toFile();
+        ExcelWriter.writeAdvancedMappedFile(source, mappingFile, output, ParseOptions.defaults(), options);
+        try (FileInputStream fis = new FileInputStream(output)) {
+            return new XSSFWorkbook(fis);
+        }
+    }
+
+    private static String uniqueValues(int count) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            sb.append("SN-").append(10000 + i).append('\n');
+        }
+        return sb.toString();
+    }
+
+    @Test
+    @DisplayName("Text cells use the shared-strings table by default")
+    void testDefaultIsShared() throws Exception {
+        try (XSSFWorkbook workbook = export(writeMapping(null), "PASS\nFAIL\nPASS\n", OutputOptions.defaults())) {
+            Sheet sheet = workbook.getSheet("Result");
+            assertEquals("PASS", sheet.getRow(0).getCell(0).getStringCellValue());
+            assertEquals(2, workbook.getSharedStringSource().getUniqueCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Inline storage keeps values out of the shared-strings table")
+    void testInline() throws Exception {
+        try (XSSFWorkbook workbook = export(writeMapping("inline"), "PASS\nSN-10042\n", OutputOptions.defaults())) {
+            XSSFCell cell = workbook.getSheet("Result").getRow(1).getCell(0);
+            assertEquals(CellType.STRING, cell.getCellType());
+            assertEquals("SN-10042", cell.getStringCellValue());
+            assertEquals(STCellType.INLINE_STR, cell.getCTCell().getT());
+            assertEquals(0, workbook.getSharedStringSource().getUniqueCount());
+        }
+    }
+
+    @Test
+    @DisplayName("The output default applies to mappings without their own setting")
+    void testOutputDefault() throws Exception {
+        OutputOptions options = new OutputOptions();
+        options.setStringStorage("inline");
+        try (XSSFWorkbook workbook = export(writeMapping(null), "PASS\n", options)) {
+            assertEquals(0, workbook.getSharedStringSource().getUniqueCount());
+        }
+        try (XSSFWorkbook workbook = export(writeMapping("shared"), "PASS\n", options)) {
+            assertEquals(1, workbook.getSharedStringSource().getUniqueCount(), "Mapping setting wins");
+        }
+    }
+
+    @Test
+    @DisplayName("Auto inlines high-cardinality columns only")
+    void testAuto() throws Exception {
+        try (XSSFWorkbook workbook = export(writeMapping("auto"), uniqueValues(100), OutputOptions.defaults())) {
+            assertEquals(0, workbook.getSharedStringSource().getUniqueCount());
+            assertEquals("SN-10099", workbook.getSheet("Result").getRow(99).getCell(0).getStringCellValue());
+        }
+        try (XSSFWorkbook workbook = export(writeMapping("auto"), "PASS\nFAIL\n".repeat(50), OutputOptions.defaults())) {
+            assertEquals(2, workbook.getSharedStringSource().getUniqueCount());
+        }
+    }
+
+    @Test
+    @DisplayName("Cardinality needs enough sampled values")
+    void testIsHighCardinality() {
+        List<List<String>> data = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            data.add(List.of("V" + i));
+        }
+        assertFalse(CellValueWriter.isHighCardinality(data, 0), "Too few values to decide");
+        for (int i = 10; i < 40; i++) {
+            data.add(List.of("V" + i));
+        }
+        assertTrue(CellValueWriter.isHighCardinality(data, 0));
+        assertFalse(CellValueWriter.isHighCardinality(data, 1), "Missing column counts as empty");
+    }
+
+    @Test
+    @DisplayName("Unknown storage names fall back")
+    void testFromName() {
+        assertEquals(StringStorage.INLINE, StringStorage.fromName(" Inline ", StringStorage.SHARED));
+        assertEquals(StringStorage.SHARED, StringStorage.fromName("bogus", StringStorage.SHARED));
+        assertEquals(StringStorage.SHARED, OutputOptions.defaults().resolveStringStorage());
+    }
+}
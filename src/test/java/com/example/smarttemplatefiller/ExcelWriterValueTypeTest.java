@@ -0,0 +1,80 @@
+package com.example.smarttemplatefiller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the per-mapping "valueType" setting (text/auto/number).
+ */
+class ExcelWriterValueTypeTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private File writeMapping(String valueType) throws Exception {
+        Map<String, Object> mapping = new java.util.HashMap<>(Map.of(
+                "sourceColumn", 0,
+                "startCell", "A1",
+                "direction", "vertical",
+                "rowPattern", Map.of("start", 0, "type", "all")));
+        if (valueType != null) {
+            mapping.put("valueType", valueType);
+        }
+        File mappingFile = tempDir.resolve("mapping_" + valueType + ".json").toFile();
+        mapper.writeValue(mappingFile, List.of(mapping));
+        return mappingFile;
+    }
+
+    private Sheet export(File mappingFile, String content) throws Exception {
+        File source = tempDir.resolve("source.txt").toFile();
+        Files.writeString(source.toPath(), content);
+        File output = tempDir.resolve("out.xlsx").toFile();
+        ExcelWriter.writeAdvancedMappedFile(source, mappingFile, output);
+        try (FileInputStream fis = new FileInputStream(output)) {
+            return new XSSFWorkbook(fis).getSheet("Result");
+        }
+    }
+
+    @Test
+    @DisplayName("Mappings without valueType keep writing text cells")
+    void testDefaultIsText() throws Exception {
+        Sheet sheet = export(writeMapping(null), "15.172\n-0.027\n");
+        assertEquals(CellType.STRING, sheet.getRow(0).getCell(0).getCellType());
+        assertEquals("15.172", sheet.getRow(0).getCell(0).getStringCellValue());
+    }
+
+    @Test
+    @DisplayName("Auto writes decimals as numbers and keeps IDs as text")
+    void testAutoTyping() throws Exception {
+        Sheet sheet = export(writeMapping("auto"), "15.150\n-0.027\n007\nPASS\n");
+
+        Cell measured = sheet.getRow(0).getCell(0);
+        assertEquals(CellType.NUMERIC, measured.getCellType());
+        assertEquals(15.15, measured.getNumericCellValue());
+        assertEquals("0.000", measured.getCellStyle().getDataFormatString(), "Decimal places are kept");
+        assertEquals(-0.027, sheet.getRow(1).getCell(0).getNumericCellValue());
+        assertEquals("007", sheet.getRow(2).getCell(0).getStringCellValue());
+        assertEquals("PASS", sheet.getRow(3).getCell(0).getStringCellValue());
+    }
+
+    @Test
+    @DisplayName("Number mode converts leading-zero values too")
+    void testNumberMode() throws Exception {
+        Sheet sheet = export(writeMapping("number"), "007\n");
+        assertEquals(CellType.NUMERIC, sheet.getRow(0).getCell(0).getCellType());
+        assertEquals(7.0, sheet.getRow(0).getCell(0).getNumericCellValue());
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.smarttemplatefiller;
+
+import org.junit.jupiter.api.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for running the files of several routes on shared workers.
+ */
+class FairDispatcherTest {
+
+    @Test
+    @DisplayName("A route with a backlog does not starve a quiet route")
+    void testRoundRobinAcrossRoutes() throws Exception {
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(12);
+        FairDispatcher<String> dispatcher = new FairDispatcher<>(1, "test", (route, file) -> {
+            order.add(route + ":" + file.getName());
+            done.countDown();
+        });
+        dispatcher.register("busy", Integer.MAX_VALUE);
+        dispatcher.register("quiet", Integer.MAX_VALUE);
+        for (int i = 0; i < 10; i++) {
+            dispatcher.submit("busy", new File("busy" + i + ".txt"));
+        }
+        dispatcher.submit("quiet", new File("quiet0.txt"));
+        dispatcher.submit("quiet", new File("quiet1.txt"));
+
+        dispatcher.start();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        dispatcher.stop();
+
+        assertEquals(List.of("busy:busy0.txt", "quiet:quiet0.txt", "busy:busy1.txt", "quiet:quiet1.txt"),
+                order.subList(0, 4));
+    }
+
+    @Test
+    @DisplayName("A route limited to one file at a time keeps its files in order")
+    void testMaxParallelPerRoute() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(6);
+        FairDispatcher<String> dispatcher = new FairDispatcher<>(4, "test", (route, file) -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            order.add(file.getName());
+            running.decrementAndGet();
+            done.countDown();
+        });
+        dispatcher.register("append", 1);
+        for (int i = 0; i < 6; i++) {
+            dispatcher.submit("append", new File("f" + i + ".txt"));
+        }
+        dispatcher.start();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        dispatcher.stop();
+
+        assertEquals(1, maxRunning.get());
+        assertEquals(List.of("f0.txt", "f1.txt", "f2.txt", "f3.txt", "f4.txt", "f5.txt"), order);
+    }
+
+    @Test
+    @DisplayName("A file is queued once, whichever route submits it")
+    void testDuplicateSubmit() {
+        FairDispatcher<String> dispatcher = new FairDispatcher<>(1, "test", (route, file) -> { });
+        dispatcher.register("a", 1);
+        dispatcher.register("b", 1);
+        File file = new File("same.txt");
+        assertTrue(dispatcher.submit("a", file));
+        assertFalse(dispatcher.submit("b", file));
+        assertTrue(dispatcher.isPending(file));
+    }
+}
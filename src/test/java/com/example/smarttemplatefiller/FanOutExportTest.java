@@ -0,0 +1,117 @@
+package com.example.smarttemplatefiller;
+
+import com.example.smarttemplatefiller.engine.OutputOptions;
+import com.example.smarttemplatefiller.parser.ParseCache;
+import com.example.smarttemplatefiller.parser.ParseOptions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for writing several outputs from one parse of a source file.
+ */
+class FanOutExportTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private File source;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        source = tempDir.resolve("source.txt").toFile();
+        Files.writeString(source.toPath(), "Circle-1  15.172\nCircle-2  15.168\nCircle-3  15.181\n");
+        TxtParser.getParseCache().clear();
+    }
+
+    private File mapping(String name, int sourceColumn) throws Exception {
+        File mappingFile = tempDir.resolve(name + ".json").toFile();
+        mapper.writeValue(mappingFile, List.of(Map.of(
+                "sourceColumn", sourceColumn,
+                "startCell", "A1",
+                "direction", "vertical",
+                "rowPattern", Map.of("start", 0, "type", "all"))));
+        return mappingFile;
+    }
+
+    private static OutputOptions csv() {
+        OutputOptions options = new OutputOptions();
+        options.setFormat("csv");
+        return options;
+    }
+
+    @Test
+    @DisplayName("All outputs are written concurrently from a single parse")
+    void testSingleParseConcurrentOutputs() throws Exception {
+        File names = tempDir.resolve("names.csv").toFile();
+        File values = tempDir.resolve("values.csv").toFile();
+        List<FanOutExport.Job> jobs = List.of(
+                FanOutExport.Job.create(mapping("names", 0), ParseOptions.defaults(), csv(), names),
+                FanOutExport.Job.create(mapping("values", 1), ParseOptions.defaults(), csv(), values));
+
+        ParseCache cache = TxtParser.getParseCache();
+        long misses = cache.getMisses();
+        long hits = cache.getHits();
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            List<FanOutExport.Outcome> outcomes = FanOutExport.run(source, jobs, pool);
+            assertTrue(outcomes.get(0).isSuccess(), outcomes.get(0).getErrorMessage());
+            assertTrue(outcomes.get(1).isSuccess(), outcomes.get(1).getErrorMessage());
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(misses + 1, cache.getMisses(), "source is parsed once");
+        assertEquals(hits, cache.getHits(), "the parsed table is shared, not looked up per output");
+        assertEquals("Circle-1\nCircle-2\nCircle-3\n", Files.readString(names.toPath()));
+        assertEquals("15.172\n15.168\n15.181\n", Files.readString(values.toPath()));
+    }
+
+    @Test
+    @DisplayName("Create and append jobs can be mixed; a missing append target fails only its job")
+    void testAppendJobs() throws Exception {
+        File values = mapping("values", 1);
+        File existing = tempDir.resolve("existing.csv").toFile();
+        Files.writeString(existing.toPath(), "Value\n");
+        File created = tempDir.resolve("created.csv").toFile();
+
+        List<FanOutExport.Outcome> outcomes = FanOutExport.run(source, List.of(
+                FanOutExport.Job.append(values, ParseOptions.defaults(), csv(), existing),
+                FanOutExport.Job.append(values, ParseOptions.defaults(), csv(), tempDir.resolve("gone.csv").toFile()),
+                FanOutExport.Job.create(values, ParseOptions.defaults(), csv(), created)), null);
+
+        assertTrue(outcomes.get(0).isSuccess());
+        assertEquals(3, outcomes.get(0).getAppendResult().getRowsAdded());
+        assertEquals("Value\n15.172\n15.168\n15.181\n", Files.readString(existing.toPath()));
+
+        assertFalse(outcomes.get(1).isSuccess());
+        assertTrue(outcomes.get(1).getErrorMessage().contains("does not exist"));
+
+        assertTrue(outcomes.get(2).isSuccess());
+        assertTrue(created.exists());
+    }
+
+    @Test
+    @DisplayName("A target's output options are laid over the watch folder's")
+    void testOverlay() {
+        OutputOptions folder = new OutputOptions();
+        folder.setFormat("xlsx");
+        folder.setCompression("fast");
+        OutputOptions merged = folder.overlay(csv());
+        assertEquals("csv", merged.getFormat());
+        assertEquals("fast", merged.getCompression());
+        assertEquals("xlsx", folder.getFormat());
+    }
+}
@@ -0,0 +1,479 @@
+package com.example.smarttemplatefiller;
+
+import com.example.smarttemplatefiller.engine.ArchivePolicy;
+import com.example.smarttemplatefiller.engine.FingerprintRule;
+import com.example.smarttemplatefiller.engine.OutputLayout;
+import com.example.smarttemplatefiller.engine.OutputOptions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for running several routes in one Running Mode engine.
+ */
+class RunningModeEngineTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private String mapping(String name, int sourceColumn) throws Exception {
+        File mappingFile = tempDir.resolve(name + ".json").toFile();
+        mapper.writeValue(mappingFile, List.of(Map.of(
+                "sourceColumn", sourceColumn,
+                "startCell", "A1",
+                "direction", "vertical",
+                "rowPattern", Map.of("start", 0, "type", "all"))));
+        return mappingFile.getPath();
+    }
+
+    private RunningModeConfig route(String name, Path watch, String mappingFile) {
+        RunningModeConfig route = new RunningModeConfig();
+        route.setName(name);
+        route.setWatchFolder(watch.toString());
+        route.setMappingFile(mappingFile);
+        return route;
+    }
+
+    private List<Path> outputs(Path folder) throws Exception {
+        if (!Files.isDirectory(folder)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.walk(folder)) {
+            return files.filter(p -> p.toString().endsWith(".csv")).toList();
+        }
+    }
+
+    @Test
+    @DisplayName("Files of one folder go to the first route that matches; folders share the engine")
+    void testRoutes() throws Exception {
+        Path lineA = Files.createDirectories(tempDir.resolve("lineA"));
+        Path lineB = Files.createDirectories(tempDir.resolve("lineB"));
+        Path out = tempDir.resolve("out");
+
+        RunningModeConfig config = new RunningModeConfig();
+        config.setOutputFolder(out.toString());
+        OutputOptions csv = new OutputOptions();
+        csv.setFormat("csv");
+        config.setOutput(csv);
+        RunningModeConfig circles = route("circles", lineA, mapping("circles", 1));
+        circles.setHeaderPattern("^Circle-");
+        RunningModeConfig other = route("other", lineA, mapping("names", 0));
+        RunningModeConfig second = route("second", lineB, mapping("second", 1));
+        second.setFilePattern("line*.txt");
+        config.setRoutes(List.of(circles, other, second));
+
+        Files.writeString(lineA.resolve("c.txt"), "Circle-1  15.172\nCircle-2  15.168\n");
+        Files.writeString(lineA.resolve("p.txt"), "Plane-1  0.010\n");
+        Files.writeString(lineB.resolve("line1.txt"), "Slot-1  4.5\n");
+        Files.writeString(lineB.resolve("skip.txt"), "Slot-2  4.6\n");
+
+        List<String> log = new ArrayList<>();
+        RunningModeEngine engine = new RunningModeEngine(config, log::add);
+        engine.start();
+        try {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (System.currentTimeMillis() < deadline
+                    && (outputs(out.resolve("circles")).isEmpty() || outputs(out.resolve("names")).isEmpty()
+                        || outputs(out.resolve("second")).isEmpty())) {
+                Thread.sleep(50);
+            }
+        } finally {
+            engine.stop();
+        }
+
+        assertEquals("15.172\n15.168\n", Files.readString(outputs(out.resolve("circles")).get(0)));
+        assertEquals("Plane-1\n", Files.readString(outputs(out.resolve("names")).get(0)));
+        assertEquals("4.5\n", Files.readString(outputs(out.resolve("second")).get(0)));
+        assertTrue(Files.exists(lineB.resolve("skip.txt")), "no route of lineB matches it");
+        assertTrue(log.stream().anyMatch(line -> line.contains("[circles] Processing: c.txt")));
+    }
+
+    @Test
+    @DisplayName("Files of different CMM programs in one folder get the mapping their fingerprint selects")
+    void testFingerprintRouting() throws Exception {
+        Path watch = Files.createDirectories(tempDir.resolve("cmm"));
+        Path out = tempDir.resolve("out");
+
+        RunningModeConfig config = new RunningModeConfig();
+        config.setOutputFolder(out.toString());
+        OutputOptions csv = new OutputOptions();
+        csv.setFormat("csv");
+        config.setOutput(csv);
+        RunningModeConfig bracket = route("bracket", watch, mapping("bracket", 2));
+        FingerprintRule bracketRule = new FingerprintRule();
+        bracketRule.setLayout("outfil");
+        bracketRule.setPartName("BRACKET-*");
+        bracket.setFingerprint(bracketRule);
+        RunningModeConfig housing = route("housing", watch, mapping("housing", 1));
+        FingerprintRule housingRule = new FingerprintRule();
+        housingRule.setFeatures(List.of("BORE1"));
+        housing.setFingerprint(housingRule);
+        config.setRoutes(List.of(bracket, housing));
+
+        Files.writeString(watch.resolve("a.txt"), "TEXT/OUTFIL,'PART NAME : BRACKET-7'\nCIR1(ID:1)  12.004  12.000\n");
+        Files.writeString(watch.resolve("b.txt"), "TEXT/OUTFIL,'PART NAME : HOUSING'\nBORE1(ID:1)  30.02  30.00\n");
+        Files.writeString(watch.resolve("c.txt"), "TEXT/OUTFIL,'PART NAME : COVER'\nPLN1(ID:1)  0.01  0.00\n");
+
+        List<String> log = new ArrayList<>();
+        RunningModeEngine engine = new RunningModeEngine(config, log::add);
+        engine.start();
+        try {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (System.currentTimeMillis() < deadline
+                    && (outputs(out.resolve("bracket")).isEmpty() || outputs(out.resolve("housing")).isEmpty())) {
+                Thread.sleep(50);
+            }
+            Thread.sleep(1500);
+        } finally {
+            engine.stop();
+        }
+
+        assertTrue(Files.readString(outputs(out.resolve("bracket")).get(0)).contains("12.000"));
+        assertTrue(Files.readString(outputs(out.resolve("housing")).get(0)).contains("30.02"));
+        assertTrue(Files.exists(watch.resolve("c.txt")), "no rule takes the cover program");
+        assertEquals(1, log.stream().filter(line -> line.contains("No route takes c.txt (OUTFIL part=COVER")).count(),
+                "an unrouted file is looked at again only when it changes");
+    }
+
+    @Test
+    @DisplayName("An edited mapping applies from the next file on; an invalid edit keeps the previous version")
+    void testMappingHotReload() throws Exception {
+        Path watch = Files.createDirectories(tempDir.resolve("watch"));
+        Path out = tempDir.resolve("out");
+        File mappingFile = new File(mapping("live", 0));
+        assertTrue(mappingFile.setLastModified(1_000_000L));
+
+        RunningModeConfig config = route("live", watch, mappingFile.getPath());
+        config.setOutputFolder(out.toString());
+        config.getOutput().setFormat("csv");
+
+        List<String> log = new java.util.concurrent.CopyOnWriteArrayList<>();
+        RunningModeEngine engine = new RunningModeEngine(config, log::add);
+        engine.start();
+        try {
+            Files.writeString(watch.resolve("a.txt"), "Circle-1  15.172\n");
+            awaitOutputs(out, 1);
+
+            mapper.writeValue(mappingFile, List.of(Map.of(
+                    "sourceColumn", 1,
+                    "startCell", "A1",
+                    "direction", "vertical",
+                    "rowPattern", Map.of("start", 0, "type", "all"))));
+            assertTrue(mappingFile.setLastModified(2_000_000L));
+            awaitLog(log, "Mapping reloaded: live.json v2");
+            Files.writeString(watch.resolve("b.txt"), "Circle-2  15.168\n");
+            awaitOutputs(out, 2);
+
+            Files.writeString(mappingFile.toPath(), "[{\"sourceColumn\": ");
+            assertTrue(mappingFile.setLastModified(3_000_000L));
+            awaitLog(log, "keeping live.json v2");
+            Files.writeString(watch.resolve("c.txt"), "Circle-3  15.170\n");
+            awaitOutputs(out, 3);
+        } finally {
+            engine.stop();
+        }
+
+        assertEquals("Circle-1\n", Files.readString(output(out, "a.csv")));
+        assertEquals("15.168\n", Files.readString(output(out, "b.csv")));
+        assertEquals("15.170\n", Files.readString(output(out, "c.csv")));
+        assertTrue(log.stream().anyMatch(line -> line.contains("Created new file: a.csv (mapping live.json v1)")));
+        assertTrue(log.stream().anyMatch(line -> line.contains("Created new file: c.csv (mapping live.json v2)")));
+    }
+
+    private void awaitOutputs(Path out, int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline && outputs(out).size() < count) {
+            Thread.sleep(50);
+        }
+        assertEquals(count, outputs(out).size());
+    }
+
+    private static void awaitLog(List<String> log, String text) throws Exception {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline && log.stream().noneMatch(line -> line.contains(text))) {
+            Thread.sleep(50);
+        }
+        assertTrue(log.stream().anyMatch(line -> line.contains(text)), text);
+    }
+
+    private Path output(Path out, String name) throws Exception {
+        return outputs(out).stream().filter(p -> p.getFileName().toString().equals(name)).findFirst().orElseThrow();
+    }
+
+    private static String qvBlock(int id, String actual) {
+        return "@101\n"
+                + "         Element          Actual         Nominal         Deviat.         Up Tol.        Low Tol.       Pass/Fail\n"
+                + "Circle: Circle-" + id + "(ID:" + id + ")\n"
+                + "     Diameter =           " + actual + "          0.4000          0.0010          0.0500         -0.0500            PASS\n";
+    }
+
+    @Test
+    @DisplayName("Tail mode appends only the blocks a growing file gained and restarts when it is replaced")
+    void testTailMode() throws Exception {
+        Path watch = Files.createDirectories(tempDir.resolve("watch"));
+        Path out = tempDir.resolve("out");
+        RunningModeConfig config = route("tail", watch, mapping("tail", 1));
+        config.setOutputFolder(out.toString());
+        config.getOutput().setFormat("csv");
+        config.setTailMode(true);
+        config.setTailIdleSeconds(0);
+
+        List<String> log = new java.util.concurrent.CopyOnWriteArrayList<>();
+        RunningModeEngine engine = new RunningModeEngine(config, log::add);
+        Path source = watch.resolve("station.txt");
+        Files.writeString(source, qvBlock(1, "0.4010") + qvBlock(2, "0.4020"));
+        engine.start();
+        try {
+            awaitOutputs(out, 1);
+            awaitLog(log, "Tail: 1 new blocks from station.txt");
+            Files.writeString(source, qvBlock(3, "0.4030") + "@101\n", java.nio.file.StandardOpenOption.APPEND);
+            awaitLog(log, "Tail: 2 new blocks from station.txt");
+        } finally {
+            engine.stop();
+        }
+
+        String csv = Files.readString(output(out, "station.csv"));
+        assertTrue(csv.contains("0.4010") && csv.contains("0.4020") && csv.contains("0.4030"), csv);
+        assertEquals(1, csv.split("0.4010", -1).length - 1, "blocks already read are not appended again");
+        assertTrue(Files.exists(source), "a tailed source stays in the watch folder");
+        assertTrue(Files.isRegularFile(watch.resolve(".tail").resolve("station.txt.json")));
+
+        // A new file under the same name is read from the start after a restart of the engine
+        Files.writeString(source, "9/24/2024 6:00:00 AM\n" + qvBlock(7, "0.4070") + "@101\n");
+        engine = new RunningModeEngine(config, log::add);
+        engine.start();
+        try {
+            awaitLog(log, "was truncated or replaced");
+            awaitOutputs(out, 2);
+        } finally {
+            engine.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Tail mode keeps the offset while an output fails and offers the blocks again to it alone")
+    void testTailModeRetriesFailedOutputAlone() throws Exception {
+        Path watch = Files.createDirectories(tempDir.resolve("watch"));
+        Path out = tempDir.resolve("out");
+        String mappingFile = mapping("failing", 1);
+        Path outputOptions = tempDir.resolve("failing.output.json");
+        Files.writeString(outputOptions, "{\"template\": \"" + tempDir.resolve("missing.xlsx").toString().replace("\\", "/") + "\"}");
+        RunningModeConfig config = route("tail", watch, mappingFile);
+        config.setOutputFolder(out.toString());
+        config.setTailMode(true);
+        config.setTailIdleSeconds(0);
+        FanOutTarget good = new FanOutTarget(mapping("good", 1));
+        good.getOutput().setFormat("csv");
+        config.setOutputs(List.of(good));
+
+        List<String> log = new java.util.concurrent.CopyOnWriteArrayList<>();
+        RunningModeEngine engine = new RunningModeEngine(config, log::add);
+        Path source = watch.resolve("station.txt");
+        Files.writeString(source, qvBlock(1, "0.4010") + qvBlock(2, "0.4020"));
+        engine.start();
+        try {
+            awaitLogCount(log, "Not every output took the new blocks of station.txt", 2);
+            // The file grows meanwhile; the good output still gets only the blocks it has not taken
+            Files.writeString(source, qvBlock(3, "0.4030") + "@101\n", java.nio.file.StandardOpenOption.APPEND);
+            awaitLogCount(log, "Not every output took the new blocks of station.txt", 4);
+            String csv = Files.readString(outputs(out).get(0));
+            assertEquals(1, csv.split("0.4010", -1).length - 1, csv);
+            assertFalse(csv.contains("0.4020"), "the offset stays until every output took the first block");
+
+            // Fixed: the failed output takes the first block, then both take the rest
+            Files.writeString(outputOptions, "{\"format\": \"csv\"}");
+            awaitLog(log, "Tail: 2 new blocks from station.txt");
+        } finally {
+            engine.stop();
+        }
+
+        List<Path> csvs = outputs(out);
+        assertEquals(2, csvs.size(), csvs.toString());
+        for (Path csv : csvs) {
+            String text = Files.readString(csv);
+            for (String value : List.of("0.4010", "0.4020", "0.4030")) {
+                assertEquals(1, text.split(value, -1).length - 1, csv + ": " + text);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("With an archive policy processed sources are collected into the day's zip archive")
+    void testZipArchive() throws Exception {
+        Path watch = Files.createDirectories(tempDir.resolve("watch"));
+        Path out = tempDir.resolve("out");
+        RunningModeConfig config = route("zip", watch, mapping("zip", 1));
+        config.setOutputFolder(out.toString());
+        config.getOutput().setFormat("csv");
+        ArchivePolicy policy = new ArchivePolicy();
+        policy.setBatchSeconds(60);
+        config.setArchive(policy);
+        Files.writeString(watch.resolve("a.txt"), "Circle-1  15.172\n");
+        Files.writeString(watch.resolve("b.txt"), "Circle-2  15.168\n");
+
+        List<String> log = new java.util.concurrent.CopyOnWriteArrayList<>();
+        RunningModeEngine engine = new RunningModeEngine(config, log::add);
+        engine.start();
+        try {
+            awaitOutputs(out, 2);
+            awaitLog(log, "Queued for archive: b.txt");
+            awaitLog(log, "Queued for archive: a.txt");
+        } finally {
+            engine.stop();
+        }
+
+        // The batch was not due yet; stopping the engine writes it
+        Path archiveFolder = out.resolve("zip").resolve("archive");
+        try (Stream<Path> files = Files.list(archiveFolder)) {
+            List<String> names = files.map(file -> file.getFileName().toString()).toList();
+            assertEquals(1, names.stream().filter(name -> name.matches("\\d{4}-\\d{2}-\\d{2}_001\\.zip")).count(),
+                    names.toString());
+            assertEquals(1, names.stream().filter(name -> name.endsWith(".index.json")).count(), names.toString());
+        }
+        assertTrue(log.stream().anyMatch(line -> line.contains("Archived 2 sources to")), log.toString());
+        assertFalse(Files.exists(watch.resolve("a.txt")));
+        try (Stream<Path> staged = Files.walk(watch.resolve(".archiving"))) {
+            assertEquals(0, staged.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    @DisplayName("The daily output layout puts a day's outputs and sources into one folder without overwriting")
+    void testDailyOutputLayout() throws Exception {
+        Path watch = Files.createDirectories(tempDir.resolve("watch"));
+        Path out = tempDir.resolve("out");
+        RunningModeConfig config = route("daily", watch, mapping("daily", 1));
+        config.setOutputFolder(out.toString());
+        config.getOutput().setFormat("csv");
+        OutputLayout layout = new OutputLayout();
+        layout.setStrategy("daily");
+        config.setOutputLayout(layout);
+        Files.writeString(watch.resolve("part.txt"), "Circle-1  15.172\n");
+
+        List<String> log = new java.util.concurrent.CopyOnWriteArrayList<>();
+        RunningModeEngine engine = new RunningModeEngine(config, log::add);
+        engine.start();
+        try {
+            awaitOutputs(out, 1);
+            awaitLog(log, "Archived: part.txt");
+            // The next part of the same name, possibly within the same second
+            Files.writeString(watch.resolve("part.txt"), "Circle-2  15.168\n");
+            awaitOutputs(out, 2);
+            awaitLog(log, "Archived: part.txt as part~2.txt");
+        } finally {
+            engine.stop();
+        }
+
+        List<Path> csvs = outputs(out.resolve("daily"));
+        Path day = csvs.get(0).getParent();
+        assertEquals(out.resolve("daily"), day.getParent().getParent().getParent());
+        assertEquals(java.util.Set.of("part.csv", "part~2.csv"),
+                java.util.Set.of(csvs.get(0).getFileName().toString(), csvs.get(1).getFileName().toString()));
+        assertEquals(csvs.get(0).getParent(), csvs.get(1).getParent());
+        assertEquals("Circle-1  15.172\n", Files.readString(day.resolve("archive").resolve("part.txt")));
+        assertEquals("Circle-2  15.168\n", Files.readString(day.resolve("archive").resolve("part~2.txt")));
+    }
+
+    @Test
+    @DisplayName("A source whose output fails stays in the watch folder and is tried again")
+    void testFailedOutputIsNotArchived() throws Exception {
+        Path watch = Files.createDirectories(tempDir.resolve("watch"));
+        Path out = tempDir.resolve("out");
+        String mappingFile = mapping("failing", 1);
+        Path outputOptions = tempDir.resolve("failing.output.json");
+        Files.writeString(outputOptions, "{\"template\": \"" + tempDir.resolve("missing.xlsx").toString().replace("\\", "/") + "\"}");
+        RunningModeConfig config = route("failing", watch, mappingFile);
+        config.setOutputFolder(out.toString());
+        Files.writeString(watch.resolve("part.txt"), "Circle-1  15.172\n");
+
+        List<String> log = new java.util.concurrent.CopyOnWriteArrayList<>();
+        RunningModeEngine engine = new RunningModeEngine(config, log::add);
+        engine.start();
+        try {
+            awaitLog(log, "part.txt stays in the watch folder");
+            assertTrue(Files.exists(watch.resolve("part.txt")));
+            assertTrue(log.stream().noneMatch(line -> line.contains("Archived: part.txt")), log.toString());
+
+            // Fixed: the next scan processes it
+            Files.writeString(outputOptions, "{\"format\": \"csv\"}");
+            awaitLog(log, "Archived: part.txt");
+        } finally {
+            engine.stop();
+        }
+        assertFalse(Files.exists(watch.resolve("part.txt")));
+        assertEquals("15.172\n", Files.readString(outputs(out).get(0)));
+    }
+
+    private static void awaitLogCount(List<String> log, String text, int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (System.currentTimeMillis() < deadline && log.stream().filter(line -> line.contains(text)).count() < count) {
+            Thread.sleep(50);
+        }
+        assertTrue(log.stream().filter(line -> line.contains(text)).count() >= count, text + " " + count + " times");
+    }
+
+    @Test
+    @DisplayName("When one output of a source fails, the next scans write only that output")
+    void testFailedOutputIsRetriedAlone() throws Exception {
+        Path watch = Files.createDirectories(tempDir.resolve("watch"));
+        Path out = tempDir.resolve("out");
+        String mappingFile = mapping("failing", 1);
+        Path outputOptions = tempDir.resolve("failing.output.json");
+        Files.writeString(outputOptions, "{\"template\": \"" + tempDir.resolve("missing.xlsx").toString().replace("\\", "/") + "\"}");
+        RunningModeConfig config = route("failing", watch, mappingFile);
+        config.setOutputFolder(out.toString());
+        FanOutTarget good = new FanOutTarget(mapping("good", 1));
+        good.setAppendTarget("all.csv");
+        good.getOutput().setFormat("csv");
+        config.setOutputs(List.of(good));
+        Files.writeString(watch.resolve("part.txt"), "Circle-1  15.172\n");
+
+        List<String> log = new java.util.concurrent.CopyOnWriteArrayList<>();
+        RunningModeEngine engine = new RunningModeEngine(config, log::add);
+        engine.start();
+        try {
+            awaitLogCount(log, "part.txt stays in the watch folder", 3);
+            assertEquals("15.172\n", Files.readString(out.resolve("all.csv")), "the good output took the rows once");
+            assertTrue(Files.isRegularFile(watch.resolve(".progress").resolve("failing").resolve("part.txt.json")));
+
+            // Fixed: the next scan writes the failed output and archives the source
+            Files.writeString(outputOptions, "{\"format\": \"csv\"}");
+            awaitLog(log, "Archived: part.txt");
+        } finally {
+            engine.stop();
+        }
+        assertEquals("15.172\n", Files.readString(out.resolve("all.csv")));
+        assertEquals(2, outputs(out).size(), outputs(out).toString());
+        assertFalse(Files.exists(watch.resolve(".progress").resolve("failing").resolve("part.txt.json")));
+    }
+
+    @Test
+    @DisplayName("Routes take the top-level output folder and options unless they set their own")
+    void testResolveRoutes() {
+        RunningModeConfig config = new RunningModeConfig();
+        config.setOutputFolder("/out");
+        config.getOutput().setCompression("fast");
+        RunningModeConfig route = route("a", tempDir, "a.json");
+        route.getOutput().setFormat("csv");
+        config.setRoutes(List.of(route));
+
+        List<RunningModeConfig> routes = config.resolveRoutes();
+        assertEquals(1, routes.size(), "no watch folder of its own: the config is not a route itself");
+        assertEquals("/out", routes.get(0).getOutputFolder());
+        assertEquals("csv", routes.get(0).getOutput().getFormat());
+        assertEquals("fast", routes.get(0).getOutput().getCompression());
+        assertNull(route.getOutputFolder(), "the configured route is not modified");
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.smarttemplatefiller;
+
+import com.example.smarttemplatefiller.engine.OutputOptions;
+import com.example.smarttemplatefiller.parser.ParseOptions;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for stamping mapped values into a template workbook.
+ */
+class TemplateStamperTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @AfterEach
+    void clearCache() {
+        TemplateStamper.clearCache();
+    }
+
+    /** Cover sheet plus a "Report" sheet with a styled title, a styled value cell and a formula. */
+    private File createTemplate() throws Exception {
+        File template = tempDir.resolve("template.xlsx").toFile();
+        try (XSSFWorkbook workbook = new XSSFWorkbook()) {
+            workbook.createSheet("Cover").createRow(0).createCell(0).setCellValue("Customer logo here");
+            Sheet report = workbook.createSheet("Report");
+            CellStyle bold = workbook.createCellStyle();
+            Font font = workbook.createFont();
+            font.setBold(true);
+            bold.setFont(font);
+            Cell title = report.createRow(0).createCell(0);
+            title.setCellValue("Measurement Report");
+            title.setCellStyle(bold);
+
+            CellStyle decimals = workbook.createCellStyle();
+            decimals.setDataFormat(workbook.createDataFormat().getFormat("0.000"));
+            report.createRow(1).createCell(1).setCellStyle(decimals);
+            report.createRow(5).createCell(1).setCellFormula("B2*2");
+            try (FileOutputStream out = new FileOutputStream(template)) {
+                workbook.write(out);
+            }
+        }
+        return template;
+    }
+
+    private File writeMapping(String startCell, String valueType) throws Exception {
+        File mappingFile = tempDir.resolve("mapping.json").toFile();
+        mapper.writeValue(mappingFile, List.of(Map.of(
+                "sourceColumn", 0,
+                "startCell", startCell,
+                "direction", "vertical",
+                "valueType", valueType,
+                "rowPattern", Map.of("start", 0, "type", "all"))));
+        return mappingFile;
+    }
+
+    private XSSFWorkbook stamp(File template, File mappingFile, String content) throws Exception {
+        File source = tempDir.resolve("source.txt").toFile();
+        Files.writeString(source.toPath(), content);
+        File output = tempDir.resolve("out.xlsx").toFile();
+        OutputOptions options = new OutputOptions();
+        options.setTemplate(template.getAbsolutePath());
+        options.setTemplateSheet("Report");
+        ExcelWriter.writeAdvancedMappedFile(source, mappingFile, output, ParseOptions.defaults(), options);
+        try (FileInputStream fis = new FileInputStream(output)) {
+            return new XSSFWorkbook(fis);
+        }
+    }
+
+    @Test
+    @DisplayName("Values land in the template sheet and keep the template's formatting")
+    void testStampKeepsTemplate() throws Exception {
+        File template = createTemplate();
+        try (XSSFWorkbook result = stamp(template, writeMapping("B2", "auto"), "15.172\n-0.027\n")) {
+            assertEquals(2, result.getNumberOfSheets());
+            assertEquals("Customer logo here", result.getSheet("Cover").getRow(0).getCell(0).getStringCellValue());
+
+            Sheet report = result.getSheet("Report");
+            assertEquals("Measurement Report", report.getRow(0).getCell(0).getStringCellValue());
+            assertTrue(result.getFontAt(report.getRow(0).getCell(0).getCellStyle().getFontIndex()).getBold());
+
+            Cell measured = report.getRow(1).getCell(1);
+            assertEquals(15.172, measured.getNumericCellValue());
+            assertEquals("0.000", measured.getCellStyle().getDataFormatString(), "Template style is kept");
+            assertEquals(-0.027, report.getRow(2).getCell(1).getNumericCellValue());
+            assertEquals("B2*2", report.getRow(5).getCell(1).getCellFormula());
+            assertTrue(result.getForceFormulaRecalculation(), "Formulas are recalculated on open");
+        }
+    }
+
+    @Test
+    @DisplayName("A value's number format is combined with the template style")
+    void testStampCombinesNumberFormat() throws Exception {
+        File template = createTemplate();
+        try (XSSFWorkbook result = stamp(template, writeMapping("A1", "auto"), "1.50\n2.125\n")) {
+            Sheet report = result.getSheet("Report");
+            Cell title = report.getRow(0).getCell(0);
+            assertEquals(1.5, title.getNumericCellValue());
+            assertEquals("0.00", title.getCellStyle().getDataFormatString());
+            assertTrue(result.getFontAt(title.getCellStyle().getFontIndex()).getBold(), "Template font is kept");
+
+            Cell unstyled = report.getRow(1).getCell(0);
+            assertEquals("0.000", unstyled.getCellStyle().getDataFormatString());
+            assertFalse(result.getFontAt(unstyled.getCellStyle().getFontIndex()).getBold());
+        }
+    }
+
+    @Test
+    @DisplayName("Text values are added to the template's shared strings")
+    void testStampText() throws Exception {
+        File template = createTemplate();
+        try (XSSFWorkbook result = stamp(template, writeMapping("C1", "text"), "PASS\nMeasurement Report\n")) {
+            Sheet report = result.getSheet("Report");
+            assertEquals("PASS", report.getRow(0).getCell(2).getStringCellValue());
+            assertEquals("Measurement Report", report.getRow(1).getCell(2).getStringCellValue());
+            assertEquals("Measurement Report", report.getRow(0).getCell(0).getStringCellValue());
+        }
+    }
+
+    @Test
+    @DisplayName("Overwriting a formula cell removes the calculation chain")
+    void testOverwriteFormula() throws Exception {
+        File template = createTemplate();
+        try (XSSFWorkbook result = stamp(template, writeMapping("B6", "auto"), "1.5\n")) {
+            Cell cell = result.getSheet("Report").getRow(5).getCell(1);
+            assertEquals(CellType.NUMERIC, cell.getCellType());
+            assertEquals(1.5, cell.getNumericCellValue());
+        }
+    }
+
+    @Test
+    @DisplayName("The analysis is cached until the template changes")
+    void testAnalysisCache() throws Exception {
+        File template = createTemplate();
+        TemplateAnalysis first = TemplateStamper.analysisFor(template, "Report");
+        assertSame(first, TemplateStamper.analysisFor(template, "Report"));
+        assertEquals("Report", first.sheetName);
+
+        assertTrue(template.setLastModified(template.lastModified() + 2000));
+        assertNotSame(first, TemplateStamper.analysisFor(template, "Report"));
+    }
+
+    @Test
+    @DisplayName("A missing target sheet is reported")
+    void testMissingSheet() throws Exception {
+        File template = createTemplate();
+        IOException e = assertThrows(IOException.class, () -> TemplateStamper.analysisFor(template, "Nope"));
+        assertTrue(e.getMessage().contains("Nope"));
+    }
+
+    @Test
+    @DisplayName("Numbers are written without a trailing .0 for integers")
+    void testNumberFormat() {
+        assertEquals("7", TemplateStamper.number(7.0));
+        assertEquals("15.172", TemplateStamper.number(15.172));
+        assertEquals("-0.027", TemplateStamper.number(-0.027));
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.smarttemplatefiller;
+
+import com.example.smarttemplatefiller.engine.OutputOptions;
+import com.example.smarttemplatefiller.engine.XlsxCompression;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for compression profiles and the temp-file-and-rename save.
+ */
+class WorkbookSaverTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static XSSFWorkbook sampleWorkbook() {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet("Result");
+        for (int r = 0; r < 2000; r++) {
+            Row row = sheet.createRow(r);
+            row.createCell(0).setCellValue("Circle-" + r + " Diameter");
+            row.createCell(1).setCellValue(r * 0.001);
+        }
+        return workbook;
+    }
+
+    private static OutputOptions compression(String profile) {
+        OutputOptions options = new OutputOptions();
+        options.setCompression(profile);
+        return options;
+    }
+
+    private long saveAndMeasure(String profile) throws Exception {
+        File target = tempDir.resolve(profile + ".xlsx").toFile();
+        try (XSSFWorkbook workbook = sampleWorkbook()) {
+            WorkbookSaver.save(workbook, target, compression(profile));
+        }
+        try (FileInputStream fis = new FileInputStream(target); XSSFWorkbook reread = new XSSFWorkbook(fis)) {
+            assertEquals("Circle-1999 Diameter", reread.getSheet("Result").getRow(1999).getCell(0).getStringCellValue());
+        }
+        return target.length();
+    }
+
+    @Test
+    @DisplayName("Every profile writes a readable workbook; store is largest, max is not larger than fast")
+    void testProfiles() throws Exception {
+        long store = saveAndMeasure("store");
+        long fast = saveAndMeasure("fast");
+        long max = saveAndMeasure("max");
+        saveAndMeasure("default");
+        assertTrue(store > fast, "store=" + store + " fast=" + fast);
+        assertTrue(max <= fast, "max=" + max + " fast=" + fast);
+    }
+
+    @Test
+    @DisplayName("Saving replaces the target and leaves no temp files behind")
+    void testReplaceWithoutLeftovers() throws Exception {
+        File target = tempDir.resolve("out.xlsx").toFile();
+        Files.writeString(target.toPath(), "old content");
+        try (XSSFWorkbook workbook = sampleWorkbook()) {
+            WorkbookSaver.save(workbook, target);
+        }
+        try (FileInputStream fis = new FileInputStream(target); XSSFWorkbook reread = new XSSFWorkbook(fis)) {
+            assertNotNull(reread.getSheet("Result"));
+        }
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Unknown profile names fall back to default")
+    void testFromName() {
+        assertEquals(XlsxCompression.STORE, XlsxCompression.fromName("Store", XlsxCompression.DEFAULT));
+        assertEquals(XlsxCompression.DEFAULT, XlsxCompression.fromName("zip9", XlsxCompression.DEFAULT));
+        assertEquals(XlsxCompression.DEFAULT, OutputOptions.defaults().resolveCompression());
+    }
+}
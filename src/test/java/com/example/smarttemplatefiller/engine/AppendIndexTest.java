@@ -0,0 +1,83 @@
+package com.example.smarttemplatefiller.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AppendIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static OutputOptions csv() {
+        OutputOptions options = new OutputOptions();
+        options.setFormat("csv");
+        return options;
+    }
+
+    @Test
+    void testIndexIsValidUntilTheFileChanges() throws Exception {
+        File out = tempDir.resolve("out.csv").toFile();
+        Files.writeString(out.toPath(), "a,b\n1,2\n");
+        AppendIndex index = new AppendIndex();
+        AppendIndex.SheetIndex sheet = new AppendIndex.SheetIndex();
+        sheet.cell(1, 1);
+        index.putSheet(CsvSink.SHEET, sheet);
+        index.saveFor(out);
+
+        AppendIndex loaded = AppendIndex.loadValid(out);
+        assertNotNull(loaded);
+        assertEquals(2, loaded.sheet(CsvSink.SHEET).getRows());
+        assertEquals(2, loaded.sheet(CsvSink.SHEET).firstFreeRow(1));
+        assertEquals(0, loaded.sheet(CsvSink.SHEET).firstFreeRow(5));
+
+        Files.writeString(out.toPath(), "a,b\n1,2\n3,4\n");
+        assertNull(AppendIndex.loadValid(out), "edited elsewhere: the index no longer describes the file");
+    }
+
+    @Test
+    void testScanTracksLastValuePerColumn() throws Exception {
+        File out = tempDir.resolve("out.csv").toFile();
+        Files.writeString(out.toPath(), "Name,Value,Note\nx,1,\ny,2,\"two\nlines\"\n,3,\n,,");
+
+        AppendIndex.SheetIndex sheet = CsvSink.scan(out, ",");
+        assertEquals(5, sheet.getRows(), "quoted line break does not start a record; last line has no break");
+        assertEquals(3, sheet.firstFreeRow(0));
+        assertEquals(4, sheet.firstFreeRow(1));
+        assertEquals(3, sheet.firstFreeRow(2));
+    }
+
+    @Test
+    void testAppendMaintainsTheIndex() throws Exception {
+        File out = tempDir.resolve("out.csv").toFile();
+        try (CsvSink sink = CsvSink.create(out, csv())) {
+            sink.title(0, 0, "Value");
+            sink.value(1, 0, "1.0");
+            sink.commit();
+        }
+        assertFalse(AppendIndex.indexFileFor(out).exists(), "a new output gets no index until it is appended to");
+
+        try (CsvSink sink = CsvSink.append(out, csv())) {
+            assertEquals(2, sink.firstFreeRow(), "scanned");
+            sink.commit();
+        }
+        assertNotNull(AppendIndex.loadValid(out), "the first append writes the index");
+
+        try (CsvSink sink = CsvSink.append(out, csv())) {
+            assertEquals(2, sink.firstFreeRow());
+            sink.value(2, 0, "2.0");
+            sink.value(2, 1, "x");
+            sink.commit();
+        }
+        AppendIndex.SheetIndex sheet = AppendIndex.loadValid(out).sheet(CsvSink.SHEET);
+        assertEquals(3, sheet.getRows());
+        assertEquals(3, sheet.firstFreeRow(0));
+        assertEquals(3, sheet.firstFreeRow(1));
+        assertEquals(sheet.getRows(), CsvSink.scan(out, ",").getRows(), "index agrees with a scan");
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.smarttemplatefiller.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AppendTargetLockTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSecondWriterWaitsForTheFirst() throws Exception {
+        File target = tempDir.resolve("out.csv").toFile();
+        Files.writeString(target.toPath(), "");
+        CountDownLatch acquired = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        AppendTargetLock lock = AppendTargetLock.acquire(target);
+        try {
+            Future<?> second = pool.submit(() -> {
+                AppendTargetLock other = AppendTargetLock.acquire(target);
+                acquired.countDown();
+                other.release();
+                return null;
+            });
+            assertFalse(acquired.await(200, TimeUnit.MILLISECONDS), "held by the first writer");
+            lock.release();
+            assertTrue(acquired.await(5, TimeUnit.SECONDS));
+            second.get();
+        } finally {
+            lock.release();
+            pool.shutdown();
+        }
+        assertTrue(AppendTargetLock.lockFileFor(target).isFile());
+        assertEquals(tempDir.resolve(".locks").toFile(), AppendTargetLock.lockFileFor(target).getParentFile());
+        try (var files = Files.list(tempDir)) {
+            assertEquals(List.of("out.csv"), files.map(file -> file.getFileName().toString())
+                    .filter(name -> !name.startsWith(".")).toList(), "no sidecar next to the target");
+        }
+    }
+
+    @Test
+    void testWaitTimesOut() throws Exception {
+        File target = tempDir.resolve("out.csv").toFile();
+        Files.writeString(target.toPath(), "");
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        AppendTargetLock lock = AppendTargetLock.acquire(target);
+        try {
+            Future<?> second = pool.submit(() -> {
+                AppendTargetLock.acquire(target, 100).release();
+                return null;
+            });
+            Exception e = assertThrows(Exception.class, second::get);
+            assertTrue(e.getCause() instanceof IOException, String.valueOf(e.getCause()));
+        } finally {
+            lock.release();
+            pool.shutdown();
+        }
+        // Released again after the timeout
+        AppendTargetLock.acquire(target, 100).release();
+    }
+
+    @Test
+    void testConcurrentAppendsKeepEveryRow() throws Exception {
+        File target = tempDir.resolve("out.csv").toFile();
+        Files.writeString(target.toPath(), "");
+        OutputOptions options = new OutputOptions();
+        options.setFormat("csv");
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> writers = new ArrayList<>();
+        for (int w = 0; w < 8; w++) {
+            String value = "w" + w;
+            writers.add(pool.submit(() -> {
+                AppendTargetLock lock = AppendTargetLock.acquire(target);
+                try (CsvSink sink = CsvSink.append(target, options)) {
+                    sink.value(sink.firstFreeRow(), 0, value);
+                    sink.commit();
+                } finally {
+                    lock.release();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        pool.shutdown();
+        assertEquals(8, Files.readAllLines(target.toPath()).size());
+    }
+}
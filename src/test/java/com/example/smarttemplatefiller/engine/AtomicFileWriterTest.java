@@ -0,0 +1,58 @@
+package com.example.smarttemplatefiller.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AtomicFileWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    /** File modes are only compared where the file system has them. */
+    private static boolean posix() {
+        return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    }
+
+    @Test
+    void testNewFileGetsTheModeOfAPlainNewFile() throws Exception {
+        if (!posix()) {
+            return;
+        }
+        File plain = tempDir.resolve("plain.csv").toFile();
+        try (FileOutputStream out = new FileOutputStream(plain)) {
+            out.write('x');
+        }
+        File written = tempDir.resolve("written.csv").toFile();
+        AtomicFileWriter.write(written, out -> out.write("15.172\n".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("15.172\n", Files.readString(written.toPath()));
+        assertEquals(Files.getPosixFilePermissions(plain.toPath()), Files.getPosixFilePermissions(written.toPath()));
+        try (var files = Files.list(tempDir)) {
+            assertEquals(2, files.count(), "no temporary file is left");
+        }
+    }
+
+    @Test
+    void testReplacedFileKeepsItsMode() throws Exception {
+        if (!posix()) {
+            return;
+        }
+        Path target = Files.writeString(tempDir.resolve("shared.csv"), "old\n");
+        Files.setPosixFilePermissions(target, PosixFilePermissions.fromString("rw-rw-r--"));
+
+        AtomicFileWriter.write(target.toFile(), out -> out.write("new\n".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("new\n", Files.readString(target));
+        assertEquals("rw-rw-r--", PosixFilePermissions.toString(Files.getPosixFilePermissions(target)));
+    }
+}
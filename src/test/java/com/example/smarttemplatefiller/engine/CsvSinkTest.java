@@ -0,0 +1,105 @@
+package com.example.smarttemplatefiller.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvSinkTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static OutputOptions csv() {
+        OutputOptions options = new OutputOptions();
+        options.setFormat("csv");
+        return options;
+    }
+
+    @Test
+    void testRowsArePaddedAndGapsKept() throws Exception {
+        File out = tempDir.resolve("out.csv").toFile();
+        try (CsvSink sink = CsvSink.create(out, csv())) {
+            sink.title(0, 1, "Value");
+            sink.value(1, 1, "15.172");
+            sink.value(1, 3, "PASS");
+            sink.value(3, 1, "-0.027");
+            sink.commit();
+        }
+        assertEquals(",Value,,\n,15.172,,PASS\n,,,\n,-0.027,,\n", Files.readString(out.toPath()));
+    }
+
+    @Test
+    void testQuoting() throws Exception {
+        File out = tempDir.resolve("out.csv").toFile();
+        try (CsvSink sink = CsvSink.create(out, csv())) {
+            sink.value(0, 0, "a,b");
+            sink.value(0, 1, "say \"hi\"");
+            sink.value(0, 2, "plain");
+            sink.commit();
+        }
+        assertEquals("\"a,b\",\"say \"\"hi\"\"\",plain\n", Files.readString(out.toPath()));
+    }
+
+    @Test
+    void testAppendWritesOnlyNewRows() throws Exception {
+        File out = tempDir.resolve("out.csv").toFile();
+        Files.writeString(out.toPath(), "Value\n1.0\n2.0");
+
+        try (CsvSink sink = CsvSink.append(out, csv())) {
+            assertEquals(3, sink.firstFreeRow());
+            sink.value(3, 0, "3.0");
+            sink.value(4, 0, "4.0");
+            sink.commit();
+        }
+        assertEquals("Value\n1.0\n2.0\n3.0\n4.0\n", Files.readString(out.toPath()));
+
+        try (CsvSink sink = CsvSink.append(out, csv())) {
+            assertEquals(5, sink.firstFreeRow());
+        }
+    }
+
+    @Test
+    void testUncommittedSinkLeavesFileAlone() throws Exception {
+        File out = tempDir.resolve("out.csv").toFile();
+        try (CsvSink sink = CsvSink.create(out, csv())) {
+            sink.value(0, 0, "x");
+        }
+        assertFalse(out.exists());
+    }
+
+    @Test
+    void testTabDelimiter() throws Exception {
+        File out = tempDir.resolve("out.tsv").toFile();
+        OutputOptions options = csv();
+        options.setCsvDelimiter("\\t");
+        try (CsvSink sink = CsvSink.create(out, options)) {
+            sink.value(0, 0, "a");
+            sink.value(0, 1, "b,c");
+            sink.commit();
+        }
+        assertEquals("a\tb,c\n", Files.readString(out.toPath()));
+    }
+
+    @Test
+    void testMappingOutputOptionsOverrideOutput() throws Exception {
+        File mapping = tempDir.resolve("report.json").toFile();
+        Files.writeString(mapping.toPath(), "[]");
+        Files.writeString(tempDir.resolve("report.output.json"), "{\"format\": \"csv\", \"template\": \"t.xlsx\"}");
+
+        OutputOptions base = new OutputOptions();
+        base.setFormat("xlsx");
+        base.setCompression("fast");
+        OutputOptions merged = OutputOptions.forMapping(mapping, base);
+
+        assertEquals(OutputFormat.CSV, merged.resolveFormat());
+        assertEquals(XlsxCompression.FAST, merged.resolveCompression());
+        assertEquals(tempDir.resolve("t.xlsx").toFile().getAbsolutePath(), merged.getTemplate());
+        assertEquals(OutputFormat.XLSX, base.resolveFormat(), "The output's own options are not changed");
+        assertEquals(OutputFormat.XLSX, OutputOptions.forMapping(tempDir.resolve("other.json").toFile(), base).resolveFormat());
+    }
+}
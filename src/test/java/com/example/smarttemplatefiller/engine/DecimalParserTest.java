@@ -0,0 +1,83 @@
+package com.example.smarttemplatefiller.engine;
+
+import com.example.smarttemplatefiller.mapping.CellValueType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecimalParserTest {
+
+    @Test
+    void testMeasurementValues() {
+        assertEquals(15.172, DecimalParser.toCellNumber("15.172", CellValueType.AUTO));
+        assertEquals(-0.027, DecimalParser.toCellNumber("-0.027", CellValueType.AUTO));
+        assertEquals(0.0, DecimalParser.toCellNumber("0", CellValueType.AUTO));
+        assertEquals(100.0, DecimalParser.toCellNumber("100", CellValueType.AUTO));
+        assertEquals(0.5, DecimalParser.toCellNumber(".5", CellValueType.AUTO));
+    }
+
+    @Test
+    void testAutoKeepsIdsAsText() {
+        assertTrue(Double.isNaN(DecimalParser.toCellNumber("007", CellValueType.AUTO)));
+        assertTrue(Double.isNaN(DecimalParser.toCellNumber("N0074", CellValueType.AUTO)));
+        assertTrue(Double.isNaN(DecimalParser.toCellNumber("1E5", CellValueType.AUTO)));
+        assertTrue(Double.isNaN(DecimalParser.toCellNumber("1234567890123456", CellValueType.AUTO)));
+        assertTrue(Double.isNaN(DecimalParser.toCellNumber("PASS", CellValueType.AUTO)));
+        assertTrue(Double.isNaN(DecimalParser.toCellNumber("", CellValueType.AUTO)));
+        assertTrue(Double.isNaN(DecimalParser.toCellNumber("-", CellValueType.AUTO)));
+        assertTrue(Double.isNaN(DecimalParser.toCellNumber("1.2.3", CellValueType.AUTO)));
+        assertTrue(Double.isNaN(DecimalParser.toCellNumber("15.150 mm", CellValueType.AUTO)));
+    }
+
+    @Test
+    void testNumberModeIsLenient() {
+        assertEquals(7.0, DecimalParser.toCellNumber("007", CellValueType.NUMBER));
+        assertEquals(1.5e-3, DecimalParser.toCellNumber("1.5E-3", CellValueType.NUMBER));
+        assertEquals(1234567890123456789.0, DecimalParser.toCellNumber("1234567890123456789", CellValueType.NUMBER));
+        assertTrue(Double.isNaN(DecimalParser.toCellNumber("1e", CellValueType.NUMBER)));
+        assertTrue(Double.isNaN(DecimalParser.toCellNumber("15.172", CellValueType.TEXT)));
+    }
+
+    @Test
+    void testNegativeZeroAndOverflow() {
+        assertEquals(0.0, DecimalParser.toCellNumber("-0", CellValueType.AUTO));
+        assertEquals(0.0, DecimalParser.toCellNumber("-0.000", CellValueType.AUTO));
+        assertEquals(0.0, DecimalParser.toCellNumber("-0e5", CellValueType.NUMBER));
+        assertEquals(0.0, DecimalParser.toCellNumber("-1e-400", CellValueType.NUMBER), "underflows to zero");
+        assertTrue(Double.isNaN(DecimalParser.toCellNumber("1e400", CellValueType.NUMBER)), "overflowing exponent is text");
+        assertTrue(Double.isNaN(DecimalParser.toCellNumber("-2.5E+999", CellValueType.NUMBER)));
+    }
+
+    @Test
+    void testMatchesDoubleParseDouble() {
+        Random random = new Random(3);
+        for (int n = 0; n < 100_000; n++) {
+            StringBuilder sb = new StringBuilder();
+            if (random.nextBoolean()) sb.append('-');
+            sb.append(random.nextInt(100_000));
+            if (random.nextBoolean()) {
+                sb.append('.');
+                int decimals = 1 + random.nextInt(9);
+                for (int d = 0; d < decimals; d++) sb.append((char) ('0' + random.nextInt(10)));
+            }
+            if (random.nextInt(4) == 0) sb.append('e').append(random.nextInt(60) - 30);
+            String text = sb.toString();
+            // Adding 0.0 turns parseDouble's -0.0 into the 0 the parser gives
+            assertEquals(Double.parseDouble(text) + 0.0, DecimalParser.parse(text, 0, text.length(), true), text);
+        }
+    }
+
+    @Test
+    void testFractionDigitsAndValueType() {
+        assertEquals(3, DecimalParser.fractionDigits("15.150"));
+        assertEquals(0, DecimalParser.fractionDigits("15"));
+        assertEquals(0, DecimalParser.fractionDigits("1.5e3"));
+
+        assertEquals(CellValueType.TEXT, CellValueType.fromMapping(Map.of("sourceColumn", 1)));
+        assertEquals(CellValueType.AUTO, CellValueType.fromMapping(Map.of("valueType", "Auto")));
+        assertEquals(CellValueType.NUMBER, CellValueType.fromName("number"));
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.smarttemplatefiller.engine;
+
+import com.example.smarttemplatefiller.TxtParser;
+import com.example.smarttemplatefiller.parser.ParsedTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ElementKeyResolverTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File write(String name, String content) throws Exception {
+        Path file = tempDir.resolve(name);
+        Files.writeString(file, content);
+        return file.toFile();
+    }
+
+    private static final String QV_BLOCK =
+            "         Element          Actual         Nominal         Deviat.         Up Tol.        Low Tol.       Pass/Fail\n"
+            + "Circle: Circle-7[1](ID:1, From 343 Pts.) \n"
+            + "     Diameter =           0.4010          0.4000          0.0010          0.0500         -0.0500            PASS\n"
+            + "Circle: Circle-8[1](ID:7, From 341 Pts.) \n"
+            + "     Diameter =           0.4004          0.4000          0.0004          0.0500         -0.0500            PASS\n";
+
+    @Test
+    void testGroupedBlockIndexesNameAndLabel() throws Exception {
+        ParsedTable table = TxtParser.parse(write("qv.txt", QV_BLOCK));
+
+        int row = table.findRow("Circle-8[1] Diameter");
+        assertEquals(2, row, "Second element should be on row 2 after the header row");
+        assertEquals("0.4004", table.getRows().get(row).get(1));
+        assertEquals(row, table.findRow("Circle-8[1]   Diameter"), "Whitespace runs should be collapsed");
+        assertEquals(-1, table.findRow("Circle-9[1] Diameter"));
+    }
+
+    @Test
+    void testIndexMatchesPositionalParse() throws Exception {
+        File file = write("qv.txt", QV_BLOCK);
+        assertEquals(TxtParser.parseFile(file), TxtParser.parse(file).getRows(),
+                "Indexed parse must not change the row table");
+    }
+
+    @Test
+    void testResolveKeepsKeyOrderAndSkipsUnknownKeys() throws Exception {
+        ParsedTable table = TxtParser.parse(write("qv.txt", QV_BLOCK));
+
+        Map<String, Object> mapping = new HashMap<>();
+        mapping.put("rowKeys", List.of("Circle-8[1] Diameter", "Missing", "Circle-7[1] Diameter"));
+        assertTrue(MappingPathResolver.shouldUseKeyPath(mapping));
+
+        assertEquals(List.of(2, -1, 1), ElementKeyResolver.resolve(mapping, table));
+    }
+
+    @Test
+    void testSurvivesInsertedFeature() throws Exception {
+        String edited = QV_BLOCK.replace("Circle: Circle-8[1]",
+                "Circle: Circle-NEW(ID:99, From 10 Pts.) \n"
+                + "     Diameter =           1.0000          1.0000          0.0000          0.0500         -0.0500            PASS\n"
+                + "Circle: Circle-8[1]");
+        ParsedTable table = TxtParser.parse(write("qv_edited.txt", edited));
+
+        Map<String, Object> mapping = new HashMap<>();
+        mapping.put("rowKeys", List.of("Circle-8[1] Diameter"));
+        int row = ElementKeyResolver.resolve(mapping, table).get(0);
+        assertEquals("0.4004", table.getRows().get(row).get(1));
+    }
+
+    @Test
+    void testRowKeyOffsetSelectsContinuationLine() throws Exception {
+        ParsedTable table = new ParsedTable();
+        table.addRow(List.of("9", "N0074", "Diameter"), "N0074");
+        table.addRow(List.of("", "", "", "-0.200"));
+
+        Map<String, Object> mapping = new HashMap<>();
+        mapping.put("rowKeys", List.of("N0074"));
+        mapping.put("rowKeyOffset", 1);
+        assertEquals(List.of(1), ElementKeyResolver.resolve(mapping, table));
+    }
+}
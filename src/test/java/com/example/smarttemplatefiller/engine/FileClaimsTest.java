@@ -0,0 +1,186 @@
+package com.example.smarttemplatefiller.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileClaimsTest {
+
+    private static final int FILES = 40;
+
+    @TempDir
+    Path tempDir;
+
+    private void createSources() throws Exception {
+        for (int i = 0; i < FILES; i++) {
+            Files.writeString(tempDir.resolve("source" + i + ".txt"), "Circle-" + i + "  15.172\n");
+        }
+    }
+
+    /** Claim every source still in the watch folder; the claimed names. */
+    private static List<String> claimAll(FileClaims claims, Path watchFolder) throws Exception {
+        List<String> claimed = new ArrayList<>();
+        for (int i = 0; i < FILES; i++) {
+            File file = claims.claim(watchFolder.resolve("source" + i + ".txt").toFile());
+            if (file != null) {
+                claimed.add(file.getName());
+            }
+        }
+        return claimed;
+    }
+
+    @Test
+    void testEachFileIsClaimedOnce() throws Exception {
+        createSources();
+        List<FileClaims> instances = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            FileClaims claims = new FileClaims(tempDir, "instance-" + i, Duration.ofSeconds(60));
+            claims.start();
+            instances.add(claims);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(instances.size());
+        List<Future<List<String>>> results = new ArrayList<>();
+        for (FileClaims claims : instances) {
+            results.add(pool.submit(() -> claimAll(claims, tempDir)));
+        }
+        assertClaimedOnce(results.stream().map(f -> {
+            try {
+                return f.get();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).toList());
+        pool.shutdown();
+    }
+
+    @Test
+    void testFilesOfASilentInstanceAreReclaimed() throws Exception {
+        createSources();
+        FileClaims crashed = new FileClaims(tempDir, "crashed", Duration.ofMillis(200));
+        crashed.start();
+        assertNotNull(crashed.claim(tempDir.resolve("source0.txt").toFile()));
+        assertFalse(Files.exists(tempDir.resolve("source0.txt")));
+
+        FileClaims survivor = new FileClaims(tempDir, "survivor", Duration.ofMillis(200));
+        survivor.start();
+        assertTrue(survivor.reclaimExpired().isEmpty(), "first sighting of the lease");
+        Thread.sleep(300);
+        assertEquals(List.of("source0.txt"), survivor.reclaimExpired());
+        assertTrue(Files.exists(tempDir.resolve("source0.txt")));
+        assertFalse(Files.exists(tempDir.resolve(FileClaims.CLAIMS_FOLDER).resolve("crashed")));
+    }
+
+    @Test
+    void testLiveInstanceKeepsItsFiles() throws Exception {
+        createSources();
+        FileClaims live = new FileClaims(tempDir, "live", Duration.ofMillis(200));
+        live.start();
+        assertNotNull(live.claim(tempDir.resolve("source0.txt").toFile()));
+
+        FileClaims other = new FileClaims(tempDir, "other", Duration.ofMillis(200));
+        other.start();
+        for (int i = 0; i < 4; i++) {
+            assertTrue(other.reclaimExpired().isEmpty());
+            live.heartbeat();
+            Thread.sleep(120);
+        }
+        assertFalse(Files.exists(tempDir.resolve("source0.txt")));
+    }
+
+    @Test
+    void testRestartReturnsUnfinishedFiles() throws Exception {
+        createSources();
+        FileClaims first = new FileClaims(tempDir, "host-a", Duration.ofSeconds(60));
+        first.start();
+        first.claim(tempDir.resolve("source0.txt").toFile());
+
+        assertEquals(1, new FileClaims(tempDir, "host-a", Duration.ofSeconds(60)).start());
+        assertTrue(Files.exists(tempDir.resolve("source0.txt")));
+    }
+
+    @Test
+    void testSameNameFilesAreNotOverwritten() throws Exception {
+        FileClaims claims = new FileClaims(tempDir, "host-a", Duration.ofSeconds(60));
+        claims.start();
+        // Left in the work folder by a crashed run, after start() returned what was there
+        Path workFolder = tempDir.resolve(FileClaims.CLAIMS_FOLDER).resolve("host-a");
+        Files.writeString(workFolder.resolve("part.txt"), "left over\n");
+
+        Files.writeString(tempDir.resolve("part.txt"), "first\n");
+        File claimed = claims.claim(tempDir.resolve("part.txt").toFile());
+        assertEquals("part~2.txt", claimed.getName());
+        assertEquals("left over\n", Files.readString(workFolder.resolve("part.txt")));
+
+        // The station dropped the next part of the same name meanwhile
+        Files.writeString(tempDir.resolve("part.txt"), "second\n");
+        claims.release(claimed);
+        assertEquals("second\n", Files.readString(tempDir.resolve("part.txt")));
+        assertEquals("first\n", Files.readString(tempDir.resolve("part~2.txt")));
+
+        Files.writeString(tempDir.resolve("part~2.txt"), "first\n");
+        assertEquals(1, new FileClaims(tempDir, "host-a", Duration.ofSeconds(60)).start());
+        assertEquals("left over\n", Files.readString(tempDir.resolve("part~3.txt")));
+        assertEquals("second\n", Files.readString(tempDir.resolve("part.txt")));
+    }
+
+    @Test
+    void testSeveralJvmsClaimEachFileOnce() throws Exception {
+        createSources();
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> processes = new ArrayList<>();
+        List<Path> outputs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Path output = tempDir.resolve("claimed-" + i + ".log");
+            outputs.add(output);
+            processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    ClaimWorker.class.getName(), tempDir.toString(), "jvm-" + i)
+                    .redirectErrorStream(true)
+                    .redirectOutput(output.toFile())
+                    .start());
+        }
+        List<List<String>> claimed = new ArrayList<>();
+        for (int i = 0; i < processes.size(); i++) {
+            assertTrue(processes.get(i).waitFor(60, TimeUnit.SECONDS));
+            assertEquals(0, processes.get(i).exitValue(), Files.readString(outputs.get(i)));
+            claimed.add(Files.readAllLines(outputs.get(i)));
+        }
+        assertClaimedOnce(claimed);
+    }
+
+    private static void assertClaimedOnce(List<List<String>> claimedPerInstance) {
+        Set<String> all = new HashSet<>();
+        int total = 0;
+        for (List<String> claimed : claimedPerInstance) {
+            all.addAll(claimed);
+            total += claimed.size();
+        }
+        assertEquals(FILES, all.size(), "every file is claimed");
+        assertEquals(FILES, total, "no file is claimed twice");
+    }
+
+    /** One instance in its own JVM: claims what it can and prints the names. */
+    public static final class ClaimWorker {
+        public static void main(String[] args) throws Exception {
+            Path watchFolder = Path.of(args[0]);
+            FileClaims claims = new FileClaims(watchFolder, args[1], Duration.ofSeconds(60));
+            claims.start();
+            for (String name : claimAll(claims, watchFolder)) {
+                System.out.println(name);
+            }
+        }
+    }
+}
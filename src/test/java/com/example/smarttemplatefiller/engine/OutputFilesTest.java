@@ -0,0 +1,92 @@
+package com.example.smarttemplatefiller.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutputFilesTest {
+
+    private static final LocalDateTime PROCESSED = LocalDateTime.of(2024, 3, 1, 5, 30, 15);
+
+    @TempDir
+    Path tempDir;
+
+    private static OutputLayout layout(String strategy, String... shiftStarts) {
+        OutputLayout layout = new OutputLayout();
+        layout.setStrategy(strategy);
+        layout.setShiftStarts(shiftStarts.length > 0 ? List.of(shiftStarts) : null);
+        return layout;
+    }
+
+    @Test
+    void testLayoutFolders() {
+        Path mapping = tempDir.resolve("qv");
+        assertEquals(mapping.resolve("2024-03-01_053015"), layout(null).folderFor(mapping, PROCESSED));
+        assertEquals(mapping.resolve("2024/03/01"), layout("daily").folderFor(mapping, PROCESSED));
+        assertEquals(mapping, layout("flat").folderFor(mapping, PROCESSED));
+        assertEquals("part_2024-03-01_053015.xlsx", layout("flat").fileNameFor("part", ".xlsx", PROCESSED));
+        assertEquals("part.xlsx", layout("daily").fileNameFor("part", ".xlsx", PROCESSED));
+
+        // Before the early shift: still the night shift that started the day before
+        OutputLayout shifts = layout("shift", "06:00", "14:00", "22:00");
+        assertEquals(mapping.resolve("2024-02-29_2200"), shifts.folderFor(mapping, PROCESSED));
+        assertEquals(mapping.resolve("2024-03-01_0600"), shifts.folderFor(mapping, PROCESSED.withHour(6).withMinute(0)));
+
+        assertEquals(OutputLayout.TIMESTAMP, layout("weekly").resolveStrategy());
+        assertEquals(OutputLayout.TIMESTAMP, layout("shift").resolveStrategy(), "no shift starts");
+    }
+
+    @Test
+    void testConcurrentFilesOfTheSameNameGetTheirOwn() throws Exception {
+        OutputFiles files = new OutputFiles();
+        Path folder = tempDir.resolve("qv").resolve("2024/03/01");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<File>> futures = new ArrayList<>();
+            for (int i = 0; i < 16; i++) {
+                futures.add(pool.submit(() -> files.reserve(folder, "part.xlsx")));
+            }
+            Set<String> names = new HashSet<>();
+            for (Future<File> future : futures) {
+                names.add(future.get().getName());
+            }
+            assertEquals(16, names.size());
+            assertTrue(names.contains("part.xlsx") && names.contains("part~16.xlsx"), names.toString());
+        } finally {
+            pool.shutdown();
+        }
+        // Later files continue after the last suffix given
+        assertEquals("part~17.xlsx", files.reserve(folder, "part.xlsx").getName());
+    }
+
+    @Test
+    void testRemovedFolderIsCreatedAgain() throws Exception {
+        OutputFiles files = new OutputFiles();
+        Path folder = tempDir.resolve("qv").resolve("2024/03/01");
+        File first = files.reserve(folder, "a.csv");
+        Files.delete(first.toPath());
+        Files.delete(folder);
+
+        assertTrue(files.reserve(folder, "b.csv").isFile());
+
+        Path source = Files.writeString(tempDir.resolve("a.txt"), "Circle-1  15.172\n");
+        Path archive = folder.resolve("archive");
+        assertEquals(archive.resolve("a.txt"), files.moveInto(source, archive));
+        Files.writeString(source, "Circle-2  15.168\n");
+        assertEquals(archive.resolve("a~2.txt"), files.moveInto(source, archive));
+        assertEquals("Circle-1  15.172\n", Files.readString(archive.resolve("a.txt")), "an earlier source is kept");
+    }
+}
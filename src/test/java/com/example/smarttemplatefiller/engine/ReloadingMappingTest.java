@@ -0,0 +1,89 @@
+package com.example.smarttemplatefiller.engine;
+
+import com.example.smarttemplatefiller.parser.ParseOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReloadingMappingTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final String VALID =
+            "[{\"sourceColumn\": 1, \"startCell\": \"B2\", \"direction\": \"vertical\", \"rowPattern\": {\"start\": 0, \"type\": \"all\"}}]";
+
+    private File mappingFile;
+
+    private void write(String json, long modified) throws Exception {
+        mappingFile = tempDir.resolve("qv.json").toFile();
+        Files.writeString(mappingFile.toPath(), json);
+        // Editors can save twice within the file system's time resolution; tests set the time explicitly
+        assertTrue(mappingFile.setLastModified(modified));
+    }
+
+    private ReloadingMapping reloading() {
+        return new ReloadingMapping(mappingFile, ParseOptions::forMapping);
+    }
+
+    @Test
+    void testLoadAndReloadOnlyWhenChanged() throws Exception {
+        write(VALID, 1_000_000L);
+        ReloadingMapping mapping = reloading();
+        assertNull(mapping.current());
+
+        assertEquals("Mapping loaded: qv.json v1", mapping.reload());
+        MappingPlan first = mapping.current();
+        assertEquals(1, first.getVersion());
+        assertNull(mapping.reload(), "unchanged files are not read again");
+
+        write(VALID.replace("\"B2\"", "\"C2\""), 2_000_000L);
+        assertEquals("Mapping reloaded: qv.json v2", mapping.reload());
+        assertEquals("C2", mapping.current().getMappings().get(0).get("startCell"));
+        assertEquals("B2", first.getMappings().get(0).get("startCell"), "a plan in use never changes");
+    }
+
+    @Test
+    void testInvalidVersionKeepsPreviousPlan() throws Exception {
+        write(VALID, 1_000_000L);
+        ReloadingMapping mapping = reloading();
+        mapping.reload();
+
+        write("[{\"sourceColumn\": 1, \"startCell\": \"B2\"", 2_000_000L);
+        String message = mapping.reload();
+        assertTrue(message.startsWith("ERROR: qv.json is not valid, keeping qv.json v1"), message);
+        assertEquals(1, mapping.current().getVersion());
+        assertNotNull(mapping.getError());
+        assertNull(mapping.reload(), "a rejected version is reported once");
+
+        write(VALID.replace("vertical", "diagonal"), 3_000_000L);
+        assertTrue(mapping.reload().contains("direction must be"));
+
+        write(VALID, 4_000_000L);
+        assertEquals("Mapping reloaded: qv.json v2", mapping.reload());
+        assertNull(mapping.getError());
+    }
+
+    @Test
+    void testOptionFilesArePartOfThePlan() throws Exception {
+        write(VALID, 1_000_000L);
+        ReloadingMapping mapping = reloading();
+        mapping.reload();
+        assertNull(mapping.current().outputOptions(null).getFormat());
+
+        File outputOptions = tempDir.resolve("qv.output.json").toFile();
+        Files.writeString(outputOptions.toPath(), "{\"format\": \"csv\"}");
+        assertEquals("Mapping reloaded: qv.json v2", mapping.reload());
+        assertEquals("csv", mapping.current().outputOptions(null).getFormat());
+
+        Files.writeString(outputOptions.toPath(), "{\"format\": ");
+        assertTrue(outputOptions.setLastModified(outputOptions.lastModified() + 5000));
+        assertTrue(mapping.reload().startsWith("ERROR"));
+        assertEquals("csv", mapping.current().outputOptions(null).getFormat());
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.smarttemplatefiller.engine;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RolloverPolicyTest {
+
+    private static final ZoneId UTC = ZoneOffset.UTC;
+    private static final Instant NOW = Instant.parse("2026-03-10T15:30:00Z");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testNoLimitsNeverRollsOver() {
+        RolloverPolicy policy = new RolloverPolicy();
+        assertFalse(policy.isEnabled());
+        assertNull(policy.rolloverReason(Long.MAX_VALUE, 1_000_000, 1000, Instant.EPOCH, NOW, UTC));
+    }
+
+    @Test
+    void testMaxRowsLeavesRoomForTheNextSource() {
+        RolloverPolicy policy = new RolloverPolicy();
+        policy.setMaxRows(1000);
+        assertNull(policy.rolloverReason(0, 900, 100, NOW, NOW, UTC));
+        assertNotNull(policy.rolloverReason(0, 901, 100, NOW, NOW, UTC));
+        assertNull(policy.rolloverReason(0, -1, 100, NOW, NOW, UTC), "unknown row count");
+    }
+
+    @Test
+    void testSizeAndAge() {
+        RolloverPolicy policy = new RolloverPolicy();
+        policy.setMaxFileSizeMb(1);
+        policy.setMaxAgeHours(8);
+        assertNull(policy.rolloverReason(1024 * 1024 - 1, 0, 0, NOW.minusSeconds(3600), NOW, UTC));
+        assertNotNull(policy.rolloverReason(1024 * 1024, 0, 0, NOW.minusSeconds(3600), NOW, UTC));
+        assertNotNull(policy.rolloverReason(0, 0, 0, NOW.minusSeconds(8 * 3600), NOW, UTC));
+    }
+
+    @Test
+    void testShiftBoundaries() {
+        RolloverPolicy policy = new RolloverPolicy();
+        policy.setShiftStarts(List.of("06:00", "14:00", "22:00"));
+        assertEquals(Instant.parse("2026-03-10T14:00:00Z"), policy.lastShiftStart(NOW, UTC));
+        assertEquals(Instant.parse("2026-03-09T22:00:00Z"),
+                policy.lastShiftStart(Instant.parse("2026-03-10T03:00:00Z"), UTC));
+
+        assertNull(policy.rolloverReason(0, 0, 0, Instant.parse("2026-03-10T14:05:00Z"), NOW, UTC));
+        assertNotNull(policy.rolloverReason(0, 0, 0, Instant.parse("2026-03-10T13:55:00Z"), NOW, UTC));
+    }
+
+    @Test
+    void testSheetMode() {
+        RolloverPolicy policy = new RolloverPolicy();
+        assertFalse(policy.isSheetMode());
+        policy.setMode("Sheet");
+        assertTrue(policy.isSheetMode());
+    }
+
+    @Test
+    void testChainSegmentsAndLookup() throws Exception {
+        File first = tempDir.resolve("report.xlsx").toFile();
+        Files.writeString(first.toPath(), "x");
+
+        AppendChain chain = AppendChain.forSegment(first);
+        assertEquals(1, chain.getSegments().size());
+        assertNotNull(chain.current().startedAt());
+        assertNull(AppendChain.load(first), "not saved yet");
+
+        File second = chain.nextWorkbookFile();
+        assertEquals("report_002.xlsx", second.getName());
+        chain.startSegment(second, null, NOW);
+        chain.current().setRows(42);
+        assertEquals("Result_003", chain.nextSheetName("Result"));
+        chain.save();
+
+        AppendChain loaded = AppendChain.load(first);
+        assertEquals(second.getAbsoluteFile(), loaded.currentFile().getAbsoluteFile());
+        assertEquals(42, loaded.current().getRows());
+
+        AppendChain bySegment = AppendChain.forSegment(second);
+        assertEquals(2, bySegment.getSegments().size());
+        assertEquals(NOW, bySegment.current().startedAt());
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.smarttemplatefiller.engine;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceArchiverTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path staging() {
+        return tempDir.resolve("watch").resolve(SourceArchiver.STAGING_FOLDER).resolve("qv");
+    }
+
+    private File archiveFolder() {
+        return tempDir.resolve("output").resolve("qv").resolve("archive").toFile();
+    }
+
+    private File source(String name, String content) throws Exception {
+        Path file = tempDir.resolve("watch").resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+        return file.toFile();
+    }
+
+    private static List<String> entryNames(File part) throws Exception {
+        List<String> names = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(part)) {
+            for (ZipArchiveEntry entry : java.util.Collections.list(zip.getEntries())) {
+                names.add(entry.getName());
+            }
+        }
+        return names;
+    }
+
+    private static String read(File part, String entryName) throws Exception {
+        try (ZipFile zip = new ZipFile(part); InputStream in = zip.getInputStream(zip.getEntry(entryName))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private long stagedCount() throws Exception {
+        if (!Files.isDirectory(staging())) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.walk(staging())) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    @Test
+    void testSourcesOfADayAreArchivedTogether() throws Exception {
+        ArchivePolicy policy = new ArchivePolicy();
+        SourceArchiver archiver = new SourceArchiver(null);
+        archiver.submit(source("a.txt", "Circle-1  15.172\n"), staging(), archiveFolder(), "2024-03-01_080000", policy);
+        archiver.submit(source("b.txt", "Circle-2  15.168\n"), staging(), archiveFolder(), "2024-03-01_080000", policy);
+        // Same name again within the same second
+        archiver.submit(source("a.txt", "Circle-3  15.181\n"), staging(), archiveFolder(), "2024-03-01_080000", policy);
+        archiver.submit(source("c.txt", "Circle-4  15.100\n"), staging(), archiveFolder(), "2024-03-02_090000", policy);
+        assertFalse(Files.exists(tempDir.resolve("watch/a.txt")));
+        assertEquals(4, archiver.pendingCount());
+
+        archiver.stop();
+        assertEquals(0, archiver.pendingCount());
+        assertEquals(0, stagedCount());
+
+        File part = ArchiveIndex.partFileFor(archiveFolder(), "2024-03-01", 1);
+        assertEquals(List.of("2024-03-01_080000/a.txt", "2024-03-01_080000/b.txt", "2024-03-01_080000/a~2.txt"),
+                entryNames(part));
+        assertEquals("Circle-3  15.181\n", read(part, "2024-03-01_080000/a~2.txt"));
+        assertEquals(List.of("2024-03-02_090000/c.txt"),
+                entryNames(ArchiveIndex.partFileFor(archiveFolder(), "2024-03-02", 1)));
+
+        ArchiveIndex index = ArchiveIndex.load(ArchiveIndex.indexFileFor(archiveFolder(), "2024-03-01"));
+        assertEquals(3, index.getEntries().size());
+        ArchiveIndex.Entry entry = index.find("2024-03-01_080000/b.txt");
+        assertEquals(1, entry.getPart());
+        assertEquals(17, entry.getSize());
+    }
+
+    @Test
+    void testFullArchiveContinuesInNextPart() throws Exception {
+        ArchivePolicy policy = new ArchivePolicy();
+        policy.setMaxArchiveMegabytes(1);
+        policy.setCompression("store");
+        byte[] noise = new byte[1100 * 1024];
+        new Random(1).nextBytes(noise);
+        Path big = tempDir.resolve("watch").resolve("big.txt");
+        Files.createDirectories(big.getParent());
+        Files.write(big, noise);
+
+        SourceArchiver archiver = new SourceArchiver(null);
+        archiver.submit(big.toFile(), staging(), archiveFolder(), "2024-03-01_080000", policy);
+        archiver.stop();
+        archiver.submit(source("small.txt", "Circle-1  15.172\n"), staging(), archiveFolder(), "2024-03-01_090000", policy);
+        archiver.stop();
+
+        assertEquals(List.of("2024-03-01_080000/big.txt"),
+                entryNames(ArchiveIndex.partFileFor(archiveFolder(), "2024-03-01", 1)));
+        assertEquals(List.of("2024-03-01_090000/small.txt"),
+                entryNames(ArchiveIndex.partFileFor(archiveFolder(), "2024-03-01", 2)));
+        ArchiveIndex index = ArchiveIndex.load(ArchiveIndex.indexFileFor(archiveFolder(), "2024-03-01"));
+        assertEquals(2, index.find("2024-03-01_090000/small.txt").getPart());
+        assertEquals(2, index.lastPart());
+    }
+
+    @Test
+    void testRecoveryDoesNotArchiveTwice() throws Exception {
+        ArchivePolicy policy = new ArchivePolicy();
+        // A run that stopped before its archiver wrote anything
+        SourceArchiver crashed = new SourceArchiver(null);
+        crashed.submit(source("a.txt", "Circle-1  15.172\n"), staging(), archiveFolder(), "2024-03-01_080000", policy);
+        crashed.submit(source("b.txt", "Circle-2  15.168\n"), staging(), archiveFolder(), "2024-03-01_080000", policy);
+
+        SourceArchiver next = new SourceArchiver(null);
+        assertEquals(2, next.recover(staging(), archiveFolder(), policy));
+        next.stop();
+        assertEquals(0, stagedCount());
+
+        // A staged source that was archived but not yet deleted when the run stopped
+        Path leftover = staging().resolve("2024-03-01_080000").resolve("a.txt");
+        Files.createDirectories(leftover.getParent());
+        Files.writeString(leftover, "Circle-1  15.172\n");
+        SourceArchiver again = new SourceArchiver(null);
+        assertEquals(1, again.recover(staging(), archiveFolder(), policy));
+        again.stop();
+
+        assertEquals(0, stagedCount());
+        File part = ArchiveIndex.partFileFor(archiveFolder(), "2024-03-01", 1);
+        assertEquals(List.of("2024-03-01_080000/a.txt", "2024-03-01_080000/b.txt"), entryNames(part));
+        assertEquals(2, ArchiveIndex.load(ArchiveIndex.indexFileFor(archiveFolder(), "2024-03-01")).getEntries().size());
+    }
+
+    @Test
+    void testRecoveryFindsSourcesStoredUnderASuffixedName() throws Exception {
+        ArchivePolicy policy = new ArchivePolicy();
+        SourceArchiver archiver = new SourceArchiver(null);
+        archiver.submit(source("a.txt", "Circle-1  15.172\n"), staging(), archiveFolder(), "2024-03-01_080000", policy);
+        archiver.stop();
+        // Same name in the same second, staged after the first batch was written
+        archiver.submit(source("a.txt", "Circle-2  15.168\n"), staging(), archiveFolder(), "2024-03-01_080000", policy);
+        archiver.stop();
+        File part = ArchiveIndex.partFileFor(archiveFolder(), "2024-03-01", 1);
+        assertEquals(List.of("2024-03-01_080000/a.txt", "2024-03-01_080000/a~2.txt"), entryNames(part));
+
+        // The second source was archived but not yet deleted when the run stopped
+        Path leftover = staging().resolve("2024-03-01_080000").resolve("a.txt");
+        Files.createDirectories(leftover.getParent());
+        Files.writeString(leftover, "Circle-2  15.168\n");
+        SourceArchiver again = new SourceArchiver(null);
+        assertEquals(1, again.recover(staging(), archiveFolder(), policy));
+        again.stop();
+
+        assertEquals(0, stagedCount());
+        assertEquals(List.of("2024-03-01_080000/a.txt", "2024-03-01_080000/a~2.txt"), entryNames(part));
+        assertEquals(2, ArchiveIndex.load(ArchiveIndex.indexFileFor(archiveFolder(), "2024-03-01")).getEntries().size());
+    }
+}
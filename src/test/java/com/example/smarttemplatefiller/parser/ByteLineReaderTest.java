@@ -0,0 +1,144 @@
+package com.example.smarttemplatefiller.parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ByteLineReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static List<String> readLinesLikeBufferedReader(String text) throws Exception {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new StringReader(text))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private static List<String> readLines(byte[] bytes, Charset charset) throws Exception {
+        return new ByteLineReader(charset).readLines(ByteBuffer.wrap(bytes), Integer.MAX_VALUE);
+    }
+
+    @Test
+    void testLineBreaksMatchBufferedReader() throws Exception {
+        String[] samples = {"", "a", "a\n", "a\r\nb", "a\rb\r", "\n\n", "a\r\r\nb\n\r", "x\r\n\r\ny"};
+        for (String sample : samples) {
+            assertEquals(readLinesLikeBufferedReader(sample),
+                    readLines(sample.getBytes(StandardCharsets.US_ASCII), null), "Sample: " + sample.replace("\r", "\\r").replace("\n", "\\n"));
+        }
+    }
+
+    @Test
+    void testAsciiLinesSkipDecoding() throws Exception {
+        List<String> decoded = new ArrayList<>();
+        List<Integer> asciiLengths = new ArrayList<>();
+        LineHandler handler = new LineHandler() {
+            @Override
+            public void accept(String line, ParsedTable table) {
+                decoded.add(line);
+            }
+
+            @Override
+            public void acceptAscii(byte[] bytes, int length, ParsedTable table) {
+                asciiLengths.add(length);
+            }
+        };
+
+        byte[] bytes = "plain\nDurchmesser \u00d8 10\n".getBytes(StandardCharsets.UTF_8);
+        new ByteLineReader(null).forEachLine(ByteBuffer.wrap(bytes), handler, new ParsedTable());
+
+        assertEquals(List.of(5), asciiLengths);
+        assertEquals(List.of("Durchmesser \u00d8 10"), decoded);
+    }
+
+    @Test
+    void testAutoDetectFallsBackToWindows1252() throws Exception {
+        byte[] latin = "Winkel 90\u00b0".getBytes(Charset.forName("windows-1252"));
+        assertEquals(List.of("Winkel 90\u00b0"), readLines(latin, null));
+
+        byte[] utf8 = "Winkel 90\u00b0".getBytes(StandardCharsets.UTF_8);
+        assertEquals(List.of("Winkel 90\u00b0"), readLines(utf8, null));
+    }
+
+    @Test
+    void testBomIsDetectedAndSkipped() throws Exception {
+        File utf8 = tempDir.resolve("bom8.txt").toFile();
+        Files.write(utf8.toPath(), new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF, 'a', ';', 'b'});
+        SourceBytes source = SourceBytes.read(utf8, null, Long.MAX_VALUE);
+        assertEquals(StandardCharsets.UTF_8, source.getCharset());
+        assertEquals(List.of("a;b"), new ByteLineReader(source.getCharset()).readLines(source.getContent(), 10));
+
+        File utf16 = tempDir.resolve("bom16.txt").toFile();
+        byte[] body = "x\r\ny".getBytes(StandardCharsets.UTF_16LE);
+        byte[] withBom = new byte[body.length + 2];
+        withBom[0] = (byte) 0xFF;
+        withBom[1] = (byte) 0xFE;
+        System.arraycopy(body, 0, withBom, 2, body.length);
+        Files.write(utf16.toPath(), withBom);
+        source = SourceBytes.read(utf16, null, Long.MAX_VALUE);
+        assertFalse(source.isAsciiCompatible());
+        assertEquals(List.of("x", "y"), new ByteLineReader(source.getCharset()).readLines(source.getContent(), 10));
+    }
+
+    @Test
+    void testMappedAndHeapReadsAgree() throws Exception {
+        File file = tempDir.resolve("data.txt").toFile();
+        Files.writeString(file.toPath(), "1;Distance X;;15.150\r\n2;Distance Y;;15.150\r\n");
+        SourceBytes heap = SourceBytes.read(file, null, Long.MAX_VALUE);
+        SourceBytes mapped = SourceBytes.read(file, null, 0);
+        assertEquals(new ByteLineReader(null).readLines(heap.getContent(), 10),
+                new ByteLineReader(null).readLines(mapped.getContent(), 10));
+    }
+
+    @Test
+    void testAsciiTokenizerMatchesStringSplit() {
+        Random random = new Random(42);
+        String alphabet = "ab;  \t\u000b\f1.-";
+        for (int n = 0; n < 5000; n++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(24);
+            for (int i = 0; i < length; i++) {
+                sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            String line = sb.toString().trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+
+            List<String> expectedSemicolon = new ArrayList<>();
+            for (String part : line.split(";", -1)) {
+                expectedSemicolon.add(part.trim());
+            }
+            List<String> semicolon = new ArrayList<>();
+            AsciiTokenizer.splitOn(bytes, 0, bytes.length, (byte) ';', semicolon);
+            assertEquals(expectedSemicolon, semicolon, "Semicolon split of: " + line);
+
+            List<String> expectedFlat = new ArrayList<>();
+            for (String part : line.split("\\s{2,}")) {
+                expectedFlat.add(part.trim());
+            }
+            List<String> flat = new ArrayList<>();
+            AsciiTokenizer.splitOnWhitespaceRuns(bytes, 0, bytes.length, flat);
+            assertEquals(expectedFlat, flat, "Whitespace split of: " + line);
+        }
+    }
+}
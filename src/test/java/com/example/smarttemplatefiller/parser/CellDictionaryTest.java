@@ -0,0 +1,73 @@
+package com.example.smarttemplatefiller.parser;
+
+import com.example.smarttemplatefiller.TxtParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CellDictionaryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testByteAndStringLookupsShareInstances() {
+        CellDictionary cells = new CellDictionary();
+        byte[] line = "x;PASS;y".getBytes(StandardCharsets.US_ASCII);
+
+        String fromBytes = cells.intern(line, 2, 6);
+        assertEquals("PASS", fromBytes);
+        assertSame(fromBytes, cells.intern(line, 2, 6));
+        assertSame(fromBytes, cells.intern(new String("PASS")));
+        assertEquals(1, cells.size());
+        assertEquals(2, cells.getHits());
+    }
+
+    @Test
+    void testLongValuesAreNotInterned() {
+        CellDictionary cells = new CellDictionary();
+        String header = "Circle: Circle-7[1](ID:1, From 343 Pts.)";
+
+        assertEquals(header, cells.intern(header));
+        assertEquals(0, cells.size());
+        assertSame("", cells.intern(new byte[0], 0, 0));
+    }
+
+    @Test
+    void testDictionaryIsBounded() {
+        CellDictionary cells = new CellDictionary(16);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Integer.toString(i), cells.intern(Integer.toString(i)));
+        }
+        assertEquals(16, cells.size());
+        // Values past the bound are still returned correctly, just not shared
+        byte[] bytes = "99".getBytes(StandardCharsets.US_ASCII);
+        assertEquals("99", cells.intern(bytes, 0, bytes.length));
+    }
+
+    @Test
+    void testParsedRowsShareRepeatedCells() throws Exception {
+        File file = tempDir.resolve("cavity.txt").toFile();
+        try (PrintWriter out = new PrintWriter(file, StandardCharsets.US_ASCII)) {
+            for (int i = 1; i <= 50; i++) {
+                out.println(i + ";Distance X;;15.150;15.100;0.200;-0.200;PASS");
+            }
+        }
+
+        ParsedTable table = TxtParser.parse(file);
+        List<List<String>> rows = table.getRows();
+        assertEquals(50, rows.size());
+        assertSame(rows.get(0).get(1), rows.get(49).get(1));
+        assertSame(rows.get(0).get(7), rows.get(49).get(7));
+        assertEquals(new ArrayList<>(List.of("50", "Distance X", "", "15.150", "15.100", "0.200", "-0.200", "PASS")),
+                rows.get(49));
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.smarttemplatefiller.parser;
+
+import com.example.smarttemplatefiller.TxtParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChunkedParserTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File createSemicolonFile(int blocks) throws IOException {
+        File file = tempDir.resolve("cavities.txt").toFile();
+        try (PrintWriter writer = new PrintWriter(file, StandardCharsets.US_ASCII)) {
+            for (int b = 0; b < blocks; b++) {
+                writer.print("TEXT/OUTFIL,PET 100ML 'CAV (" + (b + 1) + ")'\r\n");
+                writer.print("IDX\r\n");
+                writer.print("1;Distance X;;15.150;0.150;-0.150;15.1" + (b % 10) + "2;0.022; ;-----**----\r\n");
+                writer.print("\r\n");
+                writer.print("2;Distance Y;;15.150;0.150;-0.150;15.163;0.013; ;-----*-----\r\n");
+                writer.print("@101\r\n");
+            }
+        }
+        return file;
+    }
+
+    private File createFlatFile(int rows) throws IOException {
+        File file = tempDir.resolve("flat.txt").toFile();
+        try (PrintWriter writer = new PrintWriter(file, StandardCharsets.US_ASCII)) {
+            for (int i = 0; i < rows; i++) {
+                writer.println("row" + i + "  val" + i + "A   val" + i + "B  data" + i);
+                if (i % 7 == 0) writer.println("   ");
+            }
+            writer.print("last  row-without-newline");
+        }
+        return file;
+    }
+
+    private static ParseOptions parallelAlways() {
+        ParseOptions options = ParseOptions.defaults();
+        options.setParallelThresholdBytes(0);
+        return options;
+    }
+
+    @Test
+    void testBoundariesFollowNewlines() throws Exception {
+        File file = createFlatFile(2000);
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        int[] bounds = ChunkedParser.splitAtNewlines(ByteBuffer.wrap(bytes), 1000);
+        assertTrue(bounds.length > 10, "Expected many ranges");
+        assertEquals(0, bounds[0]);
+        assertEquals(bytes.length, bounds[bounds.length - 1]);
+        for (int i = 1; i < bounds.length - 1; i++) {
+            assertEquals((byte) '\n', bytes[bounds[i] - 1], "Boundary must follow a newline");
+        }
+    }
+
+    @Test
+    void testChunkedSemicolonParseMatchesSequential() throws Exception {
+        // ~3.4 MB, i.e. many MIN_CHUNK_BYTES ranges
+        File file = createSemicolonFile(20000);
+        List<List<String>> sequential = TxtParser.parseSemicolonTable(file);
+
+        ParsedTable parallel = TxtParser.parse(file, parallelAlways());
+
+        assertEquals(sequential, parallel.getRows());
+        assertEquals(List.of(2, 7), parallel.findRows("Distance X").subList(0, 2));
+    }
+
+    @Test
+    void testCustomLineHandlerSeesEveryLineInOrder() throws Exception {
+        File file = createFlatFile(5000);
+        List<String> expected = Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII);
+
+        SourceBytes source = SourceBytes.read(file, StandardCharsets.US_ASCII, Long.MAX_VALUE);
+        ParsedTable table = ChunkedParser.parse(source, (line, t) -> t.addRow(List.of(line)), 1024);
+
+        assertEquals(expected.size(), table.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), table.getRows().get(i).get(0));
+        }
+    }
+
+    @Test
+    void testChunkedFlatParseMatchesSequentialIncludingKeys() throws Exception {
+        File file = createFlatFile(20000);
+        ParseOptions sequentialOptions = ParseOptions.defaults();
+        sequentialOptions.setParallelThresholdBytes(Long.MAX_VALUE);
+
+        ParsedTable sequential = TxtParser.parse(file, sequentialOptions);
+        TxtParser.getParseCache().clear();
+        ParsedTable parallel = TxtParser.parse(file, parallelAlways());
+
+        assertEquals(sequential.getRows(), parallel.getRows());
+        assertEquals(sequential.findRow("row19999"), parallel.findRow("row19999"));
+        assertEquals(sequential.findRow("last"), parallel.findRow("last"));
+    }
+
+}
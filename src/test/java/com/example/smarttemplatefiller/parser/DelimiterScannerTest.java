@@ -0,0 +1,104 @@
+package com.example.smarttemplatefiller.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DelimiterScannerTest {
+
+    private static final byte[] ALPHABET = "ab;  \t\r\n1.-\u00e9".getBytes(StandardCharsets.ISO_8859_1);
+
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        return bytes;
+    }
+
+    private static List<DelimiterScanner> backends() {
+        List<DelimiterScanner> backends = new ArrayList<>();
+        backends.add(ScalarDelimiterScanner.INSTANCE);
+        DelimiterScanner vector = AsciiTokenizer.vectorScanner();
+        if (vector != null) {
+            backends.add(vector);
+        }
+        return backends;
+    }
+
+    @Test
+    void testActiveBackend() {
+        // The build runs this test with and without the scalar backend forced
+        if ("scalar".equalsIgnoreCase(System.getProperty(AsciiTokenizer.BACKEND_PROPERTY))
+                || AsciiTokenizer.vectorScanner() == null) {
+            assertEquals("scalar", AsciiTokenizer.getBackendName());
+        } else {
+            assertNotEquals("scalar", AsciiTokenizer.getBackendName());
+        }
+    }
+
+    @Test
+    void testBackendsAgreeWithReferenceScan() {
+        Random random = new Random(7);
+        for (int n = 0; n < 2000; n++) {
+            byte[] bytes = randomBytes(random, random.nextInt(200));
+            int from = bytes.length == 0 ? 0 : random.nextInt(bytes.length);
+
+            int semicolon = -1;
+            int lineBreak = -1;
+            int spaceRun = -1;
+            boolean ascii = true;
+            for (int i = bytes.length - 1; i >= from; i--) {
+                if (bytes[i] == ';') {
+                    semicolon = i;
+                }
+                if (bytes[i] == '\n' || bytes[i] == '\r') {
+                    lineBreak = i;
+                }
+                if (i + 1 < bytes.length && AsciiTokenizer.isRegexSpace(bytes[i])
+                        && AsciiTokenizer.isRegexSpace(bytes[i + 1])) {
+                    spaceRun = i;
+                }
+                ascii &= bytes[i] >= 0;
+            }
+
+            for (DelimiterScanner scanner : backends()) {
+                String name = scanner.getName();
+                assertEquals(semicolon, scanner.indexOf(bytes, from, bytes.length, (byte) ';'), name);
+                assertEquals(lineBreak, scanner.indexOfLineBreak(bytes, from, bytes.length), name);
+                assertEquals(spaceRun, scanner.indexOfSpaceRun(bytes, from, bytes.length), name);
+                assertEquals(ascii, scanner.isAscii(bytes, from, bytes.length), name);
+            }
+        }
+    }
+
+    @Test
+    void testLinesSplitAcrossBlocksMatchBufferedReader() throws Exception {
+        Random random = new Random(11);
+        for (int n = 0; n < 300; n++) {
+            byte[] bytes = randomBytes(random, random.nextInt(300));
+            String text = new String(bytes, StandardCharsets.ISO_8859_1);
+
+            List<String> expected = new ArrayList<>();
+            try (BufferedReader reader = new BufferedReader(new StringReader(text))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    expected.add(line);
+                }
+            }
+
+            for (DelimiterScanner scanner : backends()) {
+                ByteLineReader reader = new ByteLineReader(StandardCharsets.ISO_8859_1, scanner, 1 + random.nextInt(64));
+                assertEquals(expected, reader.readLines(ByteBuffer.wrap(bytes), Integer.MAX_VALUE), scanner.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.smarttemplatefiller.parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixedWidthLayoutTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSliceMatchesConfiguredWidths() {
+        FixedWidthLayout layout = FixedWidthLayout.FALLBACK;
+        String line = "  9 N0074 Diameter         10.000      0.200      9.973     -0.027 ----**-----";
+
+        List<String> row = layout.slice(line);
+
+        assertEquals(9, row.size());
+        assertEquals("9", row.get(0));
+        assertEquals("N0074", row.get(1));
+        assertEquals("Diameter", row.get(2));
+        assertEquals("10.000", row.get(4));
+        assertEquals("-0.027", row.get(7));
+        assertEquals("----**-----", row.get(8));
+    }
+
+    @Test
+    void testShortLinePadsWithEmptyFields() {
+        FixedWidthLayout layout = new FixedWidthLayout(new int[]{3, 4, 5});
+        assertEquals(List.of("ab", "", ""), layout.slice("ab"));
+        assertEquals(List.of("abc", "de", ""), layout.slice("abcde"));
+    }
+
+    @Test
+    void testConfigIsCachedAndReloadedOnModification() throws Exception {
+        File config = tempDir.resolve("column_config.json").toFile();
+        Files.writeString(config.toPath(), "{\"A\": 2, \"B\": 3}");
+
+        FixedWidthLayout first = ColumnConfigCache.get(config);
+        assertSame(first, ColumnConfigCache.get(config), "Unchanged config should not be re-read");
+        assertEquals(2, first.getColumnCount());
+
+        Files.writeString(config.toPath(), "{\"A\": 2, \"B\": 3, \"C\": 4}");
+        assertTrue(config.setLastModified(config.lastModified() + 2000));
+        assertEquals(3, ColumnConfigCache.get(config).getColumnCount());
+    }
+
+    @Test
+    void testMissingConfigFallsBack() {
+        assertSame(FixedWidthLayout.FALLBACK, ColumnConfigCache.get(tempDir.resolve("missing.json").toFile()));
+    }
+
+    @Test
+    void testResolvePrefersMappingThenSourceFolder() throws Exception {
+        Path watch = Files.createDirectories(tempDir.resolve("watch"));
+        File source = Files.writeString(watch.resolve("part.asc"), "x").toFile();
+
+        assertEquals(new File(ParseOptions.COLUMN_CONFIG_NAME),
+                ParseOptions.defaults().resolveColumnConfig(source), "Falls back to the working directory");
+
+        File folderConfig = Files.writeString(watch.resolve(ParseOptions.COLUMN_CONFIG_NAME), "{}").toFile();
+        assertEquals(folderConfig, ParseOptions.defaults().resolveColumnConfig(source).getAbsoluteFile());
+
+        File mapping = Files.writeString(tempDir.resolve("cmm.json"), "[]").toFile();
+        File sidecar = Files.writeString(tempDir.resolve("cmm.column_config.json"), "{}").toFile();
+        assertEquals(sidecar.getAbsoluteFile(), ParseOptions.forMapping(mapping).resolveColumnConfig(source).getAbsoluteFile());
+    }
+}
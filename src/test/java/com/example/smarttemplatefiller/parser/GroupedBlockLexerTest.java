@@ -0,0 +1,94 @@
+package com.example.smarttemplatefiller.parser;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupedBlockLexerTest {
+
+    private static final String HEADER =
+            "         Element          Actual         Nominal         Deviat.         Up Tol.        Low Tol.       Pass/Fail";
+    private static final String DIAMETER =
+            "     Diameter =           0.4010          0.4000          0.0010          0.0500         -0.0500            PASS";
+
+    private static void feed(GroupedBlockLexer lexer, ParsedTable table, String... lines) {
+        for (String line : lines) {
+            byte[] bytes = line.getBytes(StandardCharsets.ISO_8859_1);
+            boolean ascii = line.chars().allMatch(c -> c < 0x80);
+            if (ascii) {
+                lexer.acceptAscii(bytes, bytes.length, table);
+            } else {
+                lexer.accept(line, table);
+            }
+        }
+    }
+
+    @Test
+    void testElementHeaderClassification() {
+        assertTrue(GroupedBlockLexer.isElementHeader("Circle: Circle-7[1](ID:1, From 343 Pts.) "));
+        assertTrue(GroupedBlockLexer.isElementHeader("distance: d (id:5) extra"));
+        assertFalse(GroupedBlockLexer.isElementHeader(" Circle: c(ID:1)"), "Must start with the element type");
+        assertFalse(GroupedBlockLexer.isElementHeader("Circle: c(ID:1"), "Needs a closing parenthesis");
+        assertFalse(GroupedBlockLexer.isElementHeader("Circle: c (ID)"));
+        assertFalse(GroupedBlockLexer.isElementHeader("Element  Actual"));
+    }
+
+    @Test
+    void testBlockRowsAndKeys() {
+        GroupedBlockLexer lexer = new GroupedBlockLexer();
+        ParsedTable table = lexer.newTable();
+        feed(lexer, table, "", HEADER, "Circle: Circle-7[1](ID:1, From 343 Pts.) ", DIAMETER, "");
+
+        assertEquals(2, table.size());
+        assertEquals(List.of("Element", "Actual", "Nominal", "Deviat.", "Up Tol.", "Low Tol.", "Pass/Fail"),
+                table.getRows().get(0));
+        assertEquals(List.of("Circle: Circle-7[1](ID:1, From 343 Pts.) → Diameter",
+                "0.4010", "0.4000", "0.0010", "0.0500", "-0.0500", "PASS"), table.getRows().get(1));
+        assertEquals(1, table.findRow("Circle-7[1] Diameter"));
+    }
+
+    @Test
+    void testLoopingBlocksReuseHeaderLayout() {
+        GroupedBlockLexer lexer = new GroupedBlockLexer();
+        ParsedTable table = lexer.newTable();
+        for (int block = 1; block <= 3; block++) {
+            if (block > 1) {
+                feed(lexer, table, "@101");
+            }
+            feed(lexer, table, HEADER, "Circle: Circle-7[1](ID:1, From 343 Pts.)", DIAMETER);
+        }
+
+        // header, row, then @101, header, row for each further block
+        assertEquals(8, table.size());
+        assertEquals(List.of("@101"), table.getRows().get(2));
+        assertSame(table.getRows().get(0), table.getRows().get(3), "Repeated header lines share one layout");
+        assertEquals(List.of(1, 4, 7), table.findRows("Circle-7[1] Diameter"));
+    }
+
+    @Test
+    void testNonAsciiLinesMatchAsciiPath() {
+        GroupedBlockLexer ascii = new GroupedBlockLexer();
+        ParsedTable asciiTable = ascii.newTable();
+        feed(ascii, asciiTable, HEADER, "Circle: C1(ID:1)", DIAMETER);
+
+        GroupedBlockLexer decoded = new GroupedBlockLexer();
+        ParsedTable decodedTable = decoded.newTable();
+        for (String line : List.of(HEADER, "Circle: C1(ID:1)", DIAMETER)) {
+            decoded.accept(line, decodedTable);
+        }
+
+        assertEquals(asciiTable.getRows(), decodedTable.getRows());
+    }
+
+    @Test
+    void testSeparatorLinesAreSkipped() {
+        GroupedBlockLexer lexer = new GroupedBlockLexer();
+        ParsedTable table = lexer.newTable();
+        feed(lexer, table, HEADER, "Circle: C1(ID:1)", "==========", DIAMETER);
+
+        assertEquals(2, table.size());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.smarttemplatefiller.parser;
+
+import com.example.smarttemplatefiller.TxtParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParseCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File write(String name, String content) throws Exception {
+        Path file = tempDir.resolve(name);
+        Files.writeString(file, content);
+        return file.toFile();
+    }
+
+    private static ParsedTable table(String... cells) {
+        ParsedTable table = new ParsedTable();
+        for (String cell : cells) {
+            table.addRow(List.of(cell));
+        }
+        return table;
+    }
+
+    @Test
+    void testRepeatedParseIsServedFromCache() throws Exception {
+        ParseCache cache = new ParseCache(ParseCache.DEFAULT_MAX_BYTES);
+        AtomicInteger parses = new AtomicInteger();
+        File file = write("a.txt", "row1  x\nrow2  y\n");
+
+        ParsedTable first = cache.getOrParse(file, f -> { parses.incrementAndGet(); return table("a"); });
+        ParsedTable second = cache.getOrParse(file, f -> { parses.incrementAndGet(); return table("b"); });
+
+        assertSame(first, second);
+        assertEquals(1, parses.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void testChangedFileIsReparsedAndOldGenerationDropped() throws Exception {
+        ParseCache cache = new ParseCache(ParseCache.DEFAULT_MAX_BYTES);
+        File file = write("a.txt", "short\n");
+        cache.getOrParse(file, f -> table("old"));
+
+        Files.writeString(file.toPath(), "much longer content\n");
+        ParsedTable reparsed = cache.getOrParse(file, f -> table("new"));
+
+        assertEquals("new", reparsed.getRows().get(0).get(0));
+        assertEquals(1, cache.getEntryCount(), "Stale generation should be evicted");
+    }
+
+    @Test
+    void testContentHashDetectsSameSizeSameMtimeRewrite() throws Exception {
+        ParseCache cache = new ParseCache(ParseCache.DEFAULT_MAX_BYTES);
+        cache.setHashContent(true);
+        File file = write("a.txt", "AAAA\n");
+        long mtime = file.lastModified();
+        cache.getOrParse(file, f -> table("old"));
+
+        Files.writeString(file.toPath(), "BBBB\n");
+        assertTrue(file.setLastModified(mtime));
+
+        assertEquals("new", cache.getOrParse(file, f -> table("new")).getRows().get(0).get(0));
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedBeyondByteLimit() throws Exception {
+        long oneTable = table("x").estimateBytes();
+        ParseCache cache = new ParseCache(oneTable * 2);
+        File a = write("a.txt", "a");
+        File b = write("b.txt", "b");
+        File c = write("c.txt", "c");
+
+        cache.getOrParse(a, f -> table("a"));
+        cache.getOrParse(b, f -> table("b"));
+        cache.getOrParse(a, f -> table("a2")); // touch a
+        cache.getOrParse(c, f -> table("c"));  // evicts b
+
+        assertEquals(2, cache.getEntryCount());
+        assertTrue(cache.getCurrentBytes() <= cache.getMaxBytes());
+        assertEquals("a", cache.getOrParse(a, f -> table("a3")).getRows().get(0).get(0));
+        assertEquals("b2", cache.getOrParse(b, f -> table("b2")).getRows().get(0).get(0));
+    }
+
+    @Test
+    void testEmptyResultsAreNotCached() throws Exception {
+        ParseCache cache = new ParseCache(ParseCache.DEFAULT_MAX_BYTES);
+        File file = write("a.txt", "");
+        cache.getOrParse(file, f -> new ParsedTable());
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    void testTxtParserSharesCachedTable() throws Exception {
+        File file = write("shared.txt", "row1  value1\nrow2  value2\n");
+        assertSame(TxtParser.parseFile(file), TxtParser.parseFile(file));
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.smarttemplatefiller.parser;
+
+import com.example.smarttemplatefiller.engine.FingerprintRule;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceFingerprintTest {
+
+    private static final String QV = "9/23/2024 5:12:47 PM\n"
+            + "@101\n"
+            + "         Element          Actual         Nominal         Deviat.         Up Tol.        Low Tol.       Pass/Fail\n"
+            + "Distance: Y1(ID:8) between Line2(ID:7) and Line-1(ID:6)\n"
+            + "           LC =           1.2595          1.2500          0.0095          0.0200          0.0200            PASS\n";
+
+    private static final String OUTFIL = "TEXT/OUTFIL,'PART NAME : BRACKET-12'\n"
+            + "TEXT/OUTFIL,'OPERATOR : J'\n"
+            + "CIR1(ID:1)  12.004  12.000  0.004\n"
+            + "CIR2(ID:2)  8.010  8.000  0.010\n";
+
+    private static SourceFingerprint of(String text) {
+        return SourceFingerprint.of(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    void testQvHeaderLayout() {
+        SourceFingerprint fingerprint = of(QV);
+        assertEquals(SourceFingerprint.Layout.QV, fingerprint.getLayout());
+        assertEquals(List.of("Element", "Actual", "Nominal", "Deviat.", "Up Tol.", "Low Tol.", "Pass/Fail"),
+                fingerprint.getHeaderColumns());
+        assertEquals(7, fingerprint.getColumnCount());
+        assertEquals(List.of("Y1", "Line2", "Line-1"), fingerprint.getFeatures());
+        assertNull(fingerprint.getPartName());
+    }
+
+    @Test
+    void testOutfilPartNameAndFeatures() {
+        SourceFingerprint fingerprint = of(OUTFIL);
+        assertEquals(SourceFingerprint.Layout.OUTFIL, fingerprint.getLayout());
+        assertEquals("BRACKET-12", fingerprint.getPartName());
+        assertEquals(List.of("CIR1", "CIR2"), fingerprint.getFeatures());
+        assertEquals(4, fingerprint.getColumnCount());
+
+        SourceFingerprint csv = of("Name;Actual;Nominal\nA;1.0;1.0\n");
+        assertEquals(SourceFingerprint.Layout.DELIMITED, csv.getLayout());
+        assertEquals(3, csv.getColumnCount());
+    }
+
+    @Test
+    void testCutLineIsIgnored() {
+        StringBuilder longer = new StringBuilder(QV);
+        while (longer.length() < 3 * SourceFingerprint.HEADER_BYTES) {
+            longer.append("Distance: X1(ID:23) between XL1(ID:22) and XR1(ID:21)\n");
+        }
+        byte[] bytes = longer.toString().getBytes(StandardCharsets.ISO_8859_1);
+        // A full header ends inside a line; the same text cut at a line end is what a shorter file would give
+        SourceFingerprint first = SourceFingerprint.of(Arrays.copyOf(bytes, SourceFingerprint.HEADER_BYTES));
+        int lineEnd = longer.lastIndexOf("\n", SourceFingerprint.HEADER_BYTES - 1);
+        SourceFingerprint second = SourceFingerprint.of(Arrays.copyOf(bytes, lineEnd));
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertNotEquals(first, of(OUTFIL));
+    }
+
+    @Test
+    void testRuleConditions() {
+        FingerprintRule rule = new FingerprintRule();
+        rule.setLayout("outfil");
+        rule.setPartName("bracket-*");
+        assertTrue(rule.matches(of(OUTFIL)));
+        assertFalse(rule.matches(of(QV)));
+        rule.setLayout("qv");
+        assertFalse(rule.matches(of(OUTFIL)), "changing the layout drops cached decisions");
+
+        FingerprintRule qv = new FingerprintRule();
+        qv.setFeatures(List.of("Y1"));
+        qv.setColumns(7);
+        assertTrue(qv.matches(of(QV)));
+        assertTrue(qv.matches(of(QV)), "served from the decision cache");
+        qv.setColumns(8);
+        assertFalse(qv.matches(of(QV)), "changing the rule drops cached decisions");
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.smarttemplatefiller.parser;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TailParserTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final String HEADER =
+            "         Element          Actual         Nominal         Deviat.         Up Tol.        Low Tol.       Pass/Fail\n";
+
+    private static String block(int id, String value) {
+        return "@101\n"
+                + HEADER
+                + "Circle: Circle-" + id + "(ID:" + id + ")\n"
+                + "     Diameter =           " + value + "          0.4000          0.0010          0.0500         -0.0500            PASS\n";
+    }
+
+    private File write(String text) throws Exception {
+        File file = tempDir.resolve("station.txt").toFile();
+        Files.writeString(file.toPath(), text);
+        return file;
+    }
+
+    private static void append(File file, String text) throws Exception {
+        Files.writeString(file.toPath(), text, StandardOpenOption.APPEND);
+    }
+
+    @Test
+    void testOnlyCompleteBlocksAreRead() throws Exception {
+        File file = write("9/23/2024 5:12:47 PM\n" + block(1, "0.4010") + block(2, "0.4020"));
+        ParseOptions options = ParseOptions.defaults();
+
+        TailParser.Increment first = TailParser.read(file, 0, null, options, false);
+        assertEquals(1, first.getBlocks(), "the last block may still be written");
+        List<List<String>> rows = first.getTable().getRows();
+        assertEquals(2, rows.size());
+        assertEquals("Circle: Circle-1(ID:1) → Diameter", rows.get(1).get(0));
+        assertEquals("0.4010", rows.get(1).get(1));
+        assertEquals(Files.readString(file.toPath()).indexOf("@101", 30), first.getEnd());
+        assertEquals(HEADER.stripTrailing(), first.getHeaderLine().stripTrailing());
+
+        assertNull(TailParser.read(file, first.getEnd(), first.getHeaderLine(), options, false));
+
+        append(file, block(3, "0.4030") + "@101\n" + HEADER.substring(0, 20));
+        TailParser.Increment second = TailParser.read(file, first.getEnd(), first.getHeaderLine(), options, false);
+        assertEquals(2, second.getBlocks());
+        rows = second.getTable().getRows();
+        assertEquals(List.of("Element", "Actual", "Nominal", "Deviat.", "Up Tol.", "Low Tol.", "Pass/Fail"), rows.get(0));
+        assertEquals("0.4020", rows.get(1).get(1));
+        assertEquals("@101", rows.get(2).get(0));
+        assertEquals("0.4030", rows.get(4).get(1));
+        assertTrue(second.getEnd() < file.length(), "the separator being written is left for the next read");
+    }
+
+    @Test
+    void testReadToEndTakesTheLastBlock() throws Exception {
+        File file = write(block(1, "0.4010") + block(2, "0.4020") + "     Diameter =  ");
+        TailParser.Increment first = TailParser.read(file, 0, null, ParseOptions.defaults(), false);
+
+        TailParser.Increment rest = TailParser.read(file, first.getEnd(), first.getHeaderLine(),
+                ParseOptions.defaults(), true);
+        assertEquals(1, rest.getBlocks());
+        assertEquals("0.4020", rest.getTable().getRows().get(1).get(1));
+        assertEquals(file.length() - "     Diameter =  ".length(), rest.getEnd(), "an unfinished line is not taken");
+    }
+
+    @Test
+    void testReadAgainStopsWhereTheEarlierReadEnded() throws Exception {
+        File file = write(block(1, "0.4010") + block(2, "0.4020") + "@101\n");
+        TailParser.Increment first = TailParser.read(file, 0, null, ParseOptions.defaults(), false);
+        append(file, block(3, "0.4030").substring("@101\n".length()) + "@101\n");
+
+        TailParser.Increment again = TailParser.read(file, 0, first.getEnd(), null, ParseOptions.defaults());
+        assertEquals(first.getBlocks(), again.getBlocks());
+        assertEquals(first.getEnd(), again.getEnd());
+        assertEquals(first.getTable().getRows(), again.getTable().getRows());
+        assertEquals(first.getHeaderLine(), again.getHeaderLine());
+    }
+
+    @Test
+    void testHeadChecksumNoticesANewFile() throws Exception {
+        File file = write(block(1, "0.4010"));
+        long head = TailParser.headChecksum(file, 64);
+        append(file, block(2, "0.4020"));
+        assertEquals(head, TailParser.headChecksum(file, 64), "growth keeps the head");
+
+        write("9/24/2024 6:00:00 AM\n" + block(1, "0.4010"));
+        assertNotEquals(head, TailParser.headChecksum(file, 64));
+    }
+}